@@ -1,5 +1,13 @@
 package com.customer;
 
+import com.customer.dao.AccountDirectory;
+import com.customer.dao.DatabaseManager;
+import com.customer.service.ActivityTracker;
+import com.customer.service.AuditTrail;
+import com.customer.service.JobScheduler;
+import com.customer.service.OfflineDeposits;
+import com.customer.service.StartupPipeline;
+import com.customer.service.TransactionCube;
 import com.customer.util.ThemeManager;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -13,7 +21,16 @@ public class Main extends Application {
 
     @Override
     public void start(Stage primaryStage) {
+        long start = System.nanoTime();
         try {
+            // Connects, checks the schema and warms caches in the background; the login screen does not wait
+            StartupPipeline.getInstance().start();
+
+            // Delivers audit events left over from the last run and takes new ones
+            AuditTrail.getInstance().start();
+            // Replays deposits taken while the database was unreachable
+            OfflineDeposits.getInstance().start();
+
             // Load FXML - load login-view.fxml first
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/login-view.fxml"));
             Parent root = loader.load();
@@ -34,6 +51,7 @@ public class Main extends Application {
             // Show stage
             primaryStage.show();
 
+            StartupPipeline.getInstance().recordPhase("login screen", start);
             System.out.println("Application started successfully!");
 
         } catch (IOException e) {
@@ -45,7 +63,16 @@ public class Main extends Application {
     @Override
     public void stop() {
         System.out.println("Application closing...");
-        com.customer.dao.DatabaseManager.getInstance().close();
+        ActivityTracker.getInstance().stop();
+        AccountDirectory.getInstance().stop();
+        TransactionCube.getInstance().stop();
+        JobScheduler.getInstance().stop();
+        AuditTrail.getInstance().stop();
+        OfflineDeposits.getInstance().stop();
+        // Never connected if the app closes before startup got that far
+        if (DatabaseManager.isInitialized()) {
+            DatabaseManager.getInstance().close();
+        }
     }
 
     public static void main(String[] args) {
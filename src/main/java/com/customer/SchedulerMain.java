@@ -0,0 +1,88 @@
+package com.customer;
+
+import com.customer.dao.DatabaseManager;
+import com.customer.dao.JobDAO;
+import com.customer.service.AuditTrail;
+import com.customer.service.JobScheduler;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs the job scheduler without the JavaFX UI, e.g. as a service on a server:
+ *   java -cp ... com.customer.SchedulerMain             run jobs until stopped
+ *   java -cp ... com.customer.SchedulerMain --list      job states and recent runs
+ *   java -cp ... com.customer.SchedulerMain --run NAME  run one job now and exit
+ * Desktop instances may run the scheduler at the same time; leases keep each
+ * job to one instance.
+ */
+public class SchedulerMain {
+
+    public static void main(String[] args) throws Exception {
+        DatabaseManager database = DatabaseManager.getInstance();
+        if (!database.isConnected()) {
+            System.err.println("Database is unreachable");
+            System.exit(1);
+        }
+        database.ensureSchema();
+        AuditTrail.getInstance().start();
+        JobScheduler scheduler = JobScheduler.getInstance();
+
+        if (args.length == 0) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                scheduler.stop();
+                AuditTrail.getInstance().stop();
+                database.close();
+            }, "scheduler-shutdown"));
+            scheduler.start();
+            // Jobs run on daemon threads; wait until the process is told to stop
+            new CountDownLatch(1).await();
+            return;
+        }
+
+        int exitCode = 0;
+        try {
+            if (args[0].equals("--list")) {
+                list(scheduler);
+            } else if (args[0].equals("--run") && args.length > 1) {
+                exitCode = run(scheduler, args[1]);
+            } else {
+                System.err.println("Usage: SchedulerMain [--list | --run <job>]");
+                exitCode = 2;
+            }
+        } finally {
+            AuditTrail.getInstance().stop();
+            database.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static void list(JobScheduler scheduler) throws Exception {
+        System.out.printf("%-26s %-14s %-8s %-24s %s%n", "JOB", "SCHEDULE", "STATUS", "NEXT RUN", "LEASE");
+        for (JobDAO.JobState job : scheduler.getJobStates()) {
+            System.out.printf("%-26s %-14s %-8s %-24s %s%n", job.getName(), job.getSchedule(),
+                    job.isEnabled() ? job.getStatus() : "DISABLED", job.getNextRunAt(),
+                    job.getLeaseOwner() != null ? job.getLeaseOwner() + " until " + job.getLeaseUntil() : "");
+        }
+        System.out.println();
+        System.out.printf("%-26s %-10s %-24s %10s  %s%n", "JOB", "RESULT", "STARTED", "MS", "MESSAGE");
+        for (JobDAO.JobRun run : scheduler.getHistory(null, 20)) {
+            System.out.printf("%-26s %-10s %-24s %10s  %s%n", run.getJobName(), run.getStatus(), run.getStartedAt(),
+                    run.getMillis() != null ? run.getMillis() : "",
+                    (run.isResumed() ? "(resumed) " : "") + (run.getMessage() != null ? run.getMessage() : ""));
+        }
+    }
+
+    private static int run(JobScheduler scheduler, String name) throws Exception {
+        if (!scheduler.getJobNames().contains(name)) {
+            System.err.println("Unknown job " + name + "; jobs: " + scheduler.getJobNames());
+            return 2;
+        }
+        if (!scheduler.runNow(name)) {
+            System.err.println("Job " + name + " is already running");
+            return 1;
+        }
+        List<JobDAO.JobRun> last = scheduler.getHistory(name, 1);
+        return !last.isEmpty() && JobDAO.SUCCEEDED.equals(last.get(0).getStatus()) ? 0 : 1;
+    }
+}
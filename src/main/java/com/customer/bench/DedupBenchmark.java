@@ -0,0 +1,94 @@
+package com.customer.bench;
+
+import com.customer.model.dto.MergeCandidate;
+import com.customer.service.DedupEngine;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Runs {@link DedupEngine#match} over synthetic customers, no database needed.
+ * A share of them are planted near-duplicates (no diacritics, a dropped middle
+ * name, a typo, another phone format); the run reports how many of those were
+ * found, how many other pairs were flagged, and how long it took.
+ *
+ *   java -Xmx4g -cp target/classes:<dependencies> com.customer.bench.DedupBenchmark [customers] [duplicate %]
+ */
+public class DedupBenchmark {
+
+    private static final String[] FAMILY = {"Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Huỳnh", "Phan", "Vũ", "Võ",
+            "Đặng", "Bùi", "Đỗ", "Hồ", "Ngô", "Dương", "Lý"};
+    private static final String[] MIDDLE = {"Văn", "Thị", "Hữu", "Đức", "Minh", "Ngọc", "Thanh", "Quốc", "Gia",
+            "Hoài", "Xuân", "Thu", "Bảo", "Kim", "Đình", "Công"};
+    private static final String[] GIVEN = {"An", "Anh", "Bình", "Châu", "Cường", "Dũng", "Duy", "Giang", "Hà", "Hải",
+            "Hạnh", "Hiếu", "Hoa", "Hùng", "Huy", "Khánh", "Lan", "Linh", "Long", "Mai", "Nam", "Nga", "Ngân", "Nhung",
+            "Phong", "Phúc", "Phương", "Quân", "Quang", "Sơn", "Tâm", "Thảo", "Thắng", "Trang", "Trung", "Tuấn", "Uyên",
+            "Vân", "Việt", "Yến", "Đạt", "Tú", "Hương", "Loan", "Khoa", "Lộc", "Tài", "Vy", "Oanh", "Thịnh"};
+
+    public static void main(String[] args) {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        double duplicateShare = (args.length > 1 ? Double.parseDouble(args[1]) : 2.0) / 100;
+
+        SplittableRandom random = new SplittableRandom(42);
+        DedupEngine.Records records = new DedupEngine.Records();
+        Set<Long> planted = new HashSet<>();
+        long nextId = 1;
+        while (records.size() < customers) {
+            long id = nextId++;
+            String name = FAMILY[random.nextInt(FAMILY.length)] + " " + MIDDLE[random.nextInt(MIDDLE.length)] + " "
+                    + GIVEN[random.nextInt(GIVEN.length)];
+            String phone = "09" + String.format("%08d", random.nextInt(100_000_000));
+            String email = "kh" + id + "@example.vn";
+            LocalDate birth = random.nextInt(10) < 8 ? LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20_000)) : null;
+            records.add(id, name, phone, email, birth);
+
+            if (random.nextDouble() < duplicateShare && records.size() < customers) {
+                long copyId = nextId++;
+                records.add(copyId, variant(name, random), variantPhone(phone, random),
+                        random.nextBoolean() ? email : null, birth);
+                planted.add(id << 32 | copyId);
+            }
+        }
+
+        // First run warms up the JIT; the second is the one reported
+        DedupEngine.match(records);
+        DedupEngine.Result result = DedupEngine.match(records);
+
+        int found = 0;
+        for (MergeCandidate candidate : result.getCandidates()) {
+            if (planted.contains(candidate.getSurvivorId() << 32 | candidate.getDuplicateId())) {
+                found++;
+            }
+        }
+        System.out.printf("customers        : %,d%n", result.getRecords());
+        System.out.printf("blocks           : %,d (%,d oversized, skipped)%n", result.getBlocks(), result.getSkippedBlocks());
+        System.out.printf("comparisons      : %,d%n", result.getComparisons());
+        System.out.printf("planted found    : %,d of %,d (%.1f%%)%n", found, planted.size(), 100.0 * found / planted.size());
+        System.out.printf("other candidates : %,d%n", result.getCandidates().size() - found);
+        System.out.printf("time             : %,d ms%n", result.getMillis());
+    }
+
+    // A spelling of the same person someone might plausibly type in
+    private static String variant(String name, SplittableRandom random) {
+        String[] parts = name.split(" ");
+        switch (random.nextInt(4)) {
+            case 0:
+                return java.text.Normalizer.normalize(name, java.text.Normalizer.Form.NFD)
+                        .replaceAll("\\p{M}", "").replace('Đ', 'D').toUpperCase();
+            case 1:
+                return parts[0] + " " + parts[2];
+            case 2:
+                String given = parts[2];
+                int at = random.nextInt(given.length());
+                return parts[0] + " " + parts[1] + " " + given.substring(0, at + 1) + given.substring(at);
+            default:
+                return name.toLowerCase();
+        }
+    }
+
+    private static String variantPhone(String phone, SplittableRandom random) {
+        return random.nextBoolean() ? "+84 " + phone.substring(1, 4) + " " + phone.substring(4) : phone;
+    }
+}
@@ -0,0 +1,150 @@
+package com.customer.bench;
+
+import com.customer.model.Money;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+
+/**
+ * Runs the statement aggregation loop (running balance, credits, debits and
+ * transfer volume, as in StatementBuilder) over the same amounts three ways:
+ * BigDecimal, Money objects, and Money read into long accumulators. Reports
+ * time and bytes allocated per row; no database needed:
+ *   java -cp target/classes com.customer.bench.MoneyBenchmark [rows]
+ */
+public class MoneyBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private interface Loop {
+        String run();
+    }
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        // Amounts as mapped from the DECIMAL(15,2) column: mostly debits of 10k to 50M VND, some with cents
+        SplittableRandom random = new SplittableRandom(11);
+        BigDecimal[] decimals = new BigDecimal[rows];
+        Money[] amounts = new Money[rows];
+        boolean[] transfers = new boolean[rows];
+        for (int i = 0; i < rows; i++) {
+            long minor = (10_000 + random.nextLong(50_000_000)) * 100 + (random.nextInt(4) == 0 ? random.nextInt(100) : 0);
+            if (random.nextInt(3) != 0) minor = -minor;
+            decimals[i] = BigDecimal.valueOf(minor, 2);
+            amounts[i] = Money.ofMinor(minor);
+            transfers[i] = random.nextInt(4) == 0;
+        }
+
+        System.out.printf("Aggregating %,d statement rows (%d warm-up + %d measured rounds)%n",
+                rows, WARMUP_ROUNDS, MEASURED_ROUNDS);
+
+        Loop bigDecimal = () -> {
+            BigDecimal running = BigDecimal.ZERO;
+            BigDecimal credits = BigDecimal.ZERO;
+            BigDecimal debits = BigDecimal.ZERO;
+            BigDecimal transferred = BigDecimal.ZERO;
+            for (int i = 0; i < decimals.length; i++) {
+                BigDecimal amount = decimals[i];
+                running = running.add(amount);
+                if (amount.signum() >= 0) {
+                    credits = credits.add(amount);
+                } else {
+                    debits = debits.subtract(amount);
+                }
+                if (transfers[i]) {
+                    transferred = transferred.add(amount.abs());
+                }
+            }
+            return running.toPlainString() + "/" + credits.toPlainString() + "/" + debits.toPlainString()
+                    + "/" + transferred.toPlainString();
+        };
+        Loop money = () -> {
+            Money running = Money.ZERO;
+            Money credits = Money.ZERO;
+            Money debits = Money.ZERO;
+            Money transferred = Money.ZERO;
+            for (int i = 0; i < amounts.length; i++) {
+                Money amount = amounts[i];
+                running = running.plus(amount);
+                if (amount.signum() >= 0) {
+                    credits = credits.plus(amount);
+                } else {
+                    debits = debits.minus(amount);
+                }
+                if (transfers[i]) {
+                    transferred = transferred.plus(amount.abs());
+                }
+            }
+            return running + "/" + credits + "/" + debits + "/" + transferred;
+        };
+        Loop minor = () -> {
+            long running = 0;
+            long credits = 0;
+            long debits = 0;
+            long transferred = 0;
+            for (int i = 0; i < amounts.length; i++) {
+                long amount = amounts[i].toMinor();
+                running = Math.addExact(running, amount);
+                if (amount >= 0) {
+                    credits = Math.addExact(credits, amount);
+                } else {
+                    debits = Math.subtractExact(debits, amount);
+                }
+                if (transfers[i]) {
+                    transferred = Math.addExact(transferred, Math.abs(amount));
+                }
+            }
+            return Money.ofMinor(running) + "/" + Money.ofMinor(credits) + "/" + Money.ofMinor(debits)
+                    + "/" + Money.ofMinor(transferred);
+        };
+
+        String expected = bigDecimal.run();
+        if (!expected.equals(money.run()) || !expected.equals(minor.run())) {
+            throw new IllegalStateException("Totals differ: " + expected + " vs " + money.run() + " vs " + minor.run());
+        }
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            bigDecimal.run();
+            money.run();
+            minor.run();
+        }
+
+        long[] bigDecimalResult = measure(bigDecimal);
+        long[] moneyResult = measure(money);
+        long[] minorResult = measure(minor);
+        report("BigDecimal          ", bigDecimalResult, rows);
+        report("Money               ", moneyResult, rows);
+        report("Money, long sums    ", minorResult, rows);
+        System.out.printf("speed-up            : %.1fx (Money), %.1fx (long sums)%n",
+                (double) bigDecimalResult[0] / moneyResult[0], (double) bigDecimalResult[0] / minorResult[0]);
+        System.out.println("totals              : " + expected);
+    }
+
+    // Best time over the measured rounds and the bytes allocated in that round
+    private static long[] measure(Loop loop) {
+        long thread = Thread.currentThread().getId();
+        long best = Long.MAX_VALUE;
+        long allocated = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long bytes = THREADS.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            loop.run();
+            long elapsed = System.nanoTime() - start;
+            if (elapsed < best) {
+                best = elapsed;
+                allocated = THREADS.getThreadAllocatedBytes(thread) - bytes;
+            }
+        }
+        return new long[]{best, allocated};
+    }
+
+    private static void report(String label, long[] result, int rows) {
+        System.out.printf("%s: %,8d ms  (%.1f ns/row, %.1f bytes/row)%n", label, result[0] / 1_000_000,
+                (double) result[0] / rows, (double) result[1] / rows);
+    }
+}
@@ -0,0 +1,215 @@
+package com.customer.bench;
+
+import com.customer.dao.RowMappers;
+import com.customer.model.Account;
+import com.customer.model.AccountStatus;
+import com.customer.model.AccountType;
+import com.customer.model.Money;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares the old name-based account mapping (optional column wrapped in
+ * try/catch) with the shared index-based {@link RowMappers#ACCOUNT} plan.
+ *
+ * Runs against an in-memory result set, so it needs no database:
+ *   java -cp target/classes com.customer.bench.RowMapperBenchmark [rows]
+ *
+ * The result set mirrors "SELECT a.* FROM accounts a" without customer_name,
+ * which is the case where the old mapper threw and caught once per row.
+ */
+public class RowMapperBenchmark {
+
+    private static final String SQL = "SELECT a.* FROM accounts a ORDER BY a.id";
+    private static final String[] COLUMNS = {
+            "id", "customer_id", "account_number", "account_type", "balance",
+            "interest_rate", "term_months", "status", "created_date", "closed_date"
+    };
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Object[][] data = generate(rows);
+
+        System.out.printf("Mapping %,d account rows (%d warm-up + %d measured rounds)%n",
+                rows, WARMUP_ROUNDS, MEASURED_ROUNDS);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runByName(data);
+            runIndexed(data);
+        }
+
+        long byName = Long.MAX_VALUE;
+        long indexed = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            byName = Math.min(byName, runByName(data));
+            indexed = Math.min(indexed, runIndexed(data));
+        }
+
+        System.out.printf("by name + try/catch : %,8d ms  (%.1f ns/row)%n", byName / 1_000_000, (double) byName / rows);
+        System.out.printf("indexed plan        : %,8d ms  (%.1f ns/row)%n", indexed / 1_000_000, (double) indexed / rows);
+        System.out.printf("speed-up            : %.1fx%n", (double) byName / indexed);
+    }
+
+    private static long runByName(Object[][] data) throws SQLException {
+        ResultSet rs = resultSet(data);
+        long checksum = 0;
+        long start = System.nanoTime();
+        while (rs.next()) {
+            checksum += mapByName(rs).getId();
+        }
+        long elapsed = System.nanoTime() - start;
+        consume(checksum);
+        return elapsed;
+    }
+
+    private static long runIndexed(Object[][] data) throws SQLException {
+        ResultSet rs = resultSet(data);
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (Account account : RowMappers.ACCOUNT.mapAll(SQL, rs)) {
+            checksum += account.getId();
+        }
+        long elapsed = System.nanoTime() - start;
+        consume(checksum);
+        return elapsed;
+    }
+
+    // The mapping AccountDAO used before the shared row mappers
+    private static Account mapByName(ResultSet rs) throws SQLException {
+        Account account = new Account();
+        account.setId(rs.getLong("id"));
+        account.setCustomerId(rs.getLong("customer_id"));
+        account.setAccountNumber(rs.getString("account_number"));
+        account.setAccountType(AccountType.valueOf(rs.getString("account_type")));
+        account.setBalance(Money.of(rs.getBigDecimal("balance")));
+        account.setInterestRate(rs.getDouble("interest_rate"));
+        account.setTermMonths(rs.getInt("term_months"));
+        account.setStatus(AccountStatus.valueOf(rs.getString("status")));
+
+        Timestamp created = rs.getTimestamp("created_date");
+        if (created != null) account.setCreatedDate(created.toLocalDateTime());
+
+        Timestamp closed = rs.getTimestamp("closed_date");
+        if (closed != null) account.setClosedDate(closed.toLocalDateTime());
+
+        try {
+            String customerName = rs.getString("customer_name");
+            if (customerName != null) {
+                account.setCustomerName(customerName);
+            }
+        } catch (SQLException e) {
+            // Column might not exist in some queries
+        }
+        return account;
+    }
+
+    // --- In-memory result set ---
+
+    private static Object[][] generate(int rows) {
+        Object[][] data = new Object[rows][];
+        Timestamp created = Timestamp.valueOf("2024-01-15 09:30:00");
+        AccountType[] types = AccountType.values();
+        for (int i = 0; i < rows; i++) {
+            data[i] = new Object[]{
+                    (long) i + 1,
+                    (long) (i % 5000) + 1,
+                    String.valueOf(1001000001L + i),
+                    types[i % types.length].name(),
+                    BigDecimal.valueOf(1_000_000L + i * 37L, 2),
+                    0.5,
+                    0,
+                    AccountStatus.ACTIVE.name(),
+                    created,
+                    null
+            };
+        }
+        return data;
+    }
+
+    // Label lookups and missing-column errors behave like a JDBC driver: case-insensitive map, SQLException when absent
+    private static ResultSet resultSet(Object[][] data) {
+        Map<String, Integer> labels = new HashMap<>();
+        for (int i = 0; i < COLUMNS.length; i++) {
+            labels.put(COLUMNS[i], i + 1);
+        }
+
+        ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(
+                RowMapperBenchmark.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return COLUMNS.length;
+                        case "getColumnLabel":
+                        case "getColumnName":
+                            return COLUMNS[(Integer) args[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        int[] cursor = {-1};
+        boolean[] lastNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(
+                RowMapperBenchmark.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    switch (name) {
+                        case "next":
+                            return ++cursor[0] < data.length;
+                        case "getMetaData":
+                            return meta;
+                        case "wasNull":
+                            return lastNull[0];
+                        case "close":
+                            return null;
+                        case "findColumn":
+                            return column(labels, (String) args[0]);
+                        default:
+                            break;
+                    }
+                    if (!name.startsWith("get") || args == null || args.length != 1) {
+                        throw new UnsupportedOperationException(name);
+                    }
+
+                    int index = args[0] instanceof Integer ? (Integer) args[0] : column(labels, (String) args[0]);
+                    Object value = data[cursor[0]][index - 1];
+                    lastNull[0] = value == null;
+                    switch (name) {
+                        case "getLong":
+                            return value == null ? 0L : ((Number) value).longValue();
+                        case "getInt":
+                            return value == null ? 0 : ((Number) value).intValue();
+                        case "getDouble":
+                            return value == null ? 0.0 : ((Number) value).doubleValue();
+                        default:
+                            return value;
+                    }
+                });
+    }
+
+    private static int column(Map<String, Integer> labels, String label) throws SQLException {
+        Integer index = labels.get(label.toLowerCase(Locale.ROOT));
+        if (index == null) {
+            throw new SQLException("Column '" + label + "' not found.", "S0022");
+        }
+        return index;
+    }
+
+    private static volatile long sink;
+
+    private static void consume(long value) {
+        sink = value;
+    }
+}
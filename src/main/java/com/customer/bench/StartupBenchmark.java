@@ -0,0 +1,51 @@
+package com.customer.bench;
+
+import com.customer.service.StartupPipeline;
+
+import java.util.Map;
+
+/**
+ * Measures startup the way {@link com.customer.Main} runs it, minus JavaFX:
+ * how long the UI thread is held by {@link StartupPipeline#start} (the login
+ * screen used to wait for the whole database bootstrap), when the database is
+ * ready, and what each phase costs. The sum of the phases is what a blocking,
+ * one-after-the-other startup would take.
+ *
+ * Needs the configured database. Each run is a cold start, so run it a few
+ * times and compare:
+ *   java -cp target/classes:<dependencies> com.customer.bench.StartupBenchmark
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        StartupPipeline pipeline = StartupPipeline.getInstance();
+
+        long start = System.nanoTime();
+        pipeline.start();
+        long blockedNanos = System.nanoTime() - start;
+
+        try {
+            pipeline.databaseReady().get();
+        } catch (Exception e) {
+            System.err.println("Database not ready: " + StartupPipeline.rootCause(e).getMessage());
+            System.exit(1);
+        }
+        long readyNanos = System.nanoTime() - start;
+
+        // The warm-up phase finishes after the database is ready; give it a moment to be recorded
+        for (int i = 0; i < 100 && !pipeline.getPhaseMillis().containsKey("cache warm-up"); i++) {
+            Thread.sleep(50);
+        }
+
+        Map<String, Long> phases = pipeline.getPhaseMillis();
+        long sequential = 0;
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            System.out.printf("%-20s: %,8d ms%n", phase.getKey(), phase.getValue());
+            sequential += phase.getValue();
+        }
+        System.out.printf("UI thread blocked    : %,8.2f ms%n", blockedNanos / 1e6);
+        System.out.printf("database ready after : %,8d ms%n", readyNanos / 1_000_000);
+        System.out.printf("sum of phases        : %,8d ms  (blocking startup)%n", sequential);
+        System.exit(0);
+    }
+}
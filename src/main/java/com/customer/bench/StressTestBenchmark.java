@@ -0,0 +1,45 @@
+package com.customer.bench;
+
+import com.customer.model.LoanStatus;
+import com.customer.service.StressTestEngine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Runs {@link StressTestEngine#simulate} over a synthetic portfolio, no database
+ * needed: balances of 20 million to 2 billion VND, a tenth of the loans overdue,
+ * the rest spread over the months left in the horizon.
+ *
+ *   java -cp target/classes:<dependencies> com.customer.bench.StressTestBenchmark [loans] [scenarios]
+ */
+public class StressTestBenchmark {
+
+    public static void main(String[] args) {
+        int loans = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int scenarios = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        SplittableRandom random = new SplittableRandom(7);
+        StressTestEngine.Portfolio portfolio = new StressTestEngine.Portfolio();
+        for (int i = 1; i <= loans; i++) {
+            LoanStatus status = random.nextInt(10) == 0 ? LoanStatus.OVERDUE : LoanStatus.DISBURSED;
+            double balance = Math.round(20e6 * Math.exp(random.nextDouble() * Math.log(100)));
+            portfolio.add(i, status, balance, 1 + random.nextInt(StressTestEngine.HORIZON_MONTHS));
+        }
+
+        // A short run warms up the JIT; the full one is reported
+        StressTestEngine.simulate(portfolio, Math.min(scenarios, 500), 1);
+        StressTestEngine.Result result = StressTestEngine.simulate(portfolio, scenarios, 42);
+
+        double draws = (double) loans * scenarios;
+        System.out.printf("loans            : %,d%n", result.getLoans());
+        System.out.printf("scenarios        : %,d%n", result.getScenarios());
+        System.out.printf("exposure         : %,.0f%n", result.getTotalExposure());
+        System.out.printf("expected loss    : %,.0f%n", result.getExpectedLoss());
+        System.out.printf("VaR 95/99/99.9   : %,.0f / %,.0f / %,.0f%n",
+                result.getValueAtRisk(0.95), result.getValueAtRisk(0.99), result.getValueAtRisk(0.999));
+        System.out.printf("ES 99            : %,.0f%n", result.getExpectedShortfall(0.99));
+        System.out.printf("cores            : %d%n", Runtime.getRuntime().availableProcessors());
+        System.out.printf("time             : %,d ms (%.2f ns per loan-scenario)%n",
+                result.getMillis(), result.getMillis() * 1e6 / draws);
+    }
+}
@@ -1,12 +1,15 @@
 package com.customer.controller;
 
+import com.customer.event.EntityInvalidated.Entity;
 import com.customer.model.Account;
 import com.customer.model.AccountStatus;
 import com.customer.model.AccountType;
 import com.customer.model.Customer;
+import com.customer.model.Money;
 import com.customer.service.AccountService;
 import com.customer.service.CustomerService;
 import com.customer.ui.AccountDialog;
+import com.customer.ui.MoneyFormat;
 import com.customer.util.AnimationHelper;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -17,13 +20,15 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.StackPane;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
-public class AccountController {
+public class AccountController implements CachedView {
 
     @FXML private TextField searchField;
     @FXML private ComboBox<AccountType> typeFilter;
@@ -32,7 +37,7 @@ public class AccountController {
     @FXML private TableColumn<Account, String> accountNumberColumn;
     @FXML private TableColumn<Account, String> customerNameColumn;
     @FXML private TableColumn<Account, AccountType> typeColumn;
-    @FXML private TableColumn<Account, BigDecimal> balanceColumn;
+    @FXML private TableColumn<Account, Money> balanceColumn;
     @FXML private TableColumn<Account, Double> interestRateColumn;
     @FXML private TableColumn<Account, AccountStatus> statusColumn;
     @FXML private TableColumn<Account, LocalDateTime> createdDateColumn;
@@ -46,8 +51,8 @@ public class AccountController {
     @FXML private TableView<com.customer.model.Transaction> historyTable;
     @FXML private TableColumn<com.customer.model.Transaction, String> txnRefColumn;
     @FXML private TableColumn<com.customer.model.Transaction, com.customer.model.TransactionType> txnTypeColumn;
-    @FXML private TableColumn<com.customer.model.Transaction, BigDecimal> txnAmountColumn;
-    @FXML private TableColumn<com.customer.model.Transaction, BigDecimal> txnBalanceAfterColumn;
+    @FXML private TableColumn<com.customer.model.Transaction, Money> txnAmountColumn;
+    @FXML private TableColumn<com.customer.model.Transaction, Money> txnBalanceAfterColumn;
     @FXML private TableColumn<com.customer.model.Transaction, String> txnDescColumn;
     @FXML private TableColumn<com.customer.model.Transaction, LocalDateTime> txnDateColumn;
 
@@ -63,6 +68,7 @@ public class AccountController {
     private final com.customer.service.TransactionService transactionService;
     private final ObservableList<Account> accountList;
     private final ObservableList<com.customer.model.Transaction> transactionList;
+    private final ViewChanges changes;
 
     public AccountController() {
         this.accountService = new AccountService();
@@ -70,6 +76,7 @@ public class AccountController {
         this.transactionService = new com.customer.service.TransactionService();
         this.accountList = FXCollections.observableArrayList();
         this.transactionList = FXCollections.observableArrayList();
+        this.changes = new ViewChanges("account-view", Entity.ACCOUNT);
     }
 
     @FXML
@@ -95,30 +102,10 @@ public class AccountController {
             historyTable.setItems(transactionList);
 
             // Format Transaction Amount
-            txnAmountColumn.setCellFactory(column -> new TableCell<>() {
-                @Override
-                protected void updateItem(BigDecimal item, boolean empty) {
-                    super.updateItem(item, empty);
-                    if (empty || item == null) {
-                        setText(null);
-                    } else {
-                        setText(String.format("%,.0f", item));
-                    }
-                }
-            });
+            MoneyFormat.install(txnAmountColumn);
 
             // Format Balance After
-            txnBalanceAfterColumn.setCellFactory(column -> new TableCell<>() {
-                @Override
-                protected void updateItem(BigDecimal item, boolean empty) {
-                    super.updateItem(item, empty);
-                    if (empty || item == null) {
-                        setText(null);
-                    } else {
-                        setText(String.format("%,.0f", item));
-                    }
-                }
-            });
+            MoneyFormat.install(txnBalanceAfterColumn);
 
             // Format Date
             txnDateColumn.setCellFactory(column -> new TableCell<>() {
@@ -136,17 +123,7 @@ public class AccountController {
         }
 
         // Format Balance
-        balanceColumn.setCellFactory(column -> new TableCell<>() {
-            @Override
-            protected void updateItem(BigDecimal item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText(null);
-                } else {
-                    setText(String.format("%,.0f", item));
-                }
-            }
-        });
+        MoneyFormat.install(balanceColumn);
 
         // Format Interest Rate
         interestRateColumn.setCellFactory(column -> new TableCell<>() {
@@ -272,6 +249,60 @@ public class AccountController {
         new Thread(task).start();
     }
 
+    @Override
+    public void onShow() {
+        ViewChanges.Pending pending = changes.drain();
+        if (pending.isEmpty()) {
+            return;
+        }
+        String keyword = searchField.getText();
+        // Which rows a keyword matches is up to the database, so a filtered list is queried again
+        if (pending.needsReload(Entity.ACCOUNT) || (keyword != null && !keyword.trim().isEmpty())) {
+            loadAccounts();
+        } else {
+            refreshAccounts(pending.getIds(Entity.ACCOUNT));
+        }
+    }
+
+    @Override
+    public void dispose() {
+        changes.close();
+    }
+
+    // Refetches only the accounts that changed while the view was hidden
+    private void refreshAccounts(Set<Long> ids) {
+        AccountType type = typeFilter.getValue();
+        AccountStatus status = statusFilter.getValue();
+
+        Task<Map<Long, Account>> task = new Task<>() {
+            @Override
+            protected Map<Long, Account> call() throws Exception {
+                Map<Long, Account> fresh = new HashMap<>();
+                for (long id : ids) {
+                    Account account = accountService.getAccountById(id);
+                    if (account != null) {
+                        fresh.put(id, account);
+                    }
+                }
+                return fresh;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            Account selected = accountTable.getSelectionModel().getSelectedItem();
+            ViewChanges.patch(accountList, Account::getId, ids, task.getValue(),
+                    a -> (type == null || a.getAccountType() == type) && (status == null || a.getStatus() == status));
+            // The selected row was replaced if it changed; selecting the new one reloads its history
+            if (selected != null && ids.contains(selected.getId())) {
+                accountList.stream()
+                        .filter(a -> a.getId() == selected.getId())
+                        .findFirst()
+                        .ifPresent(a -> accountTable.getSelectionModel().select(a));
+            }
+        });
+        task.setOnFailed(e -> loadAccounts());
+        new Thread(task).start();
+    }
+
     private void loadAccounts() {
         String keyword = searchField.getText();
         AccountType type = typeFilter.getValue();
@@ -497,7 +528,7 @@ public class AccountController {
             return;
         }
 
-        if (selected.getBalance().compareTo(BigDecimal.ZERO) != 0) {
+        if (!selected.getBalance().isZero()) {
             showError("Balance Not Zero", "Account balance must be 0 to close.");
             return;
         }
@@ -1,6 +1,8 @@
 package com.customer.controller;
 
 import com.customer.service.AuthService;
+import com.customer.ui.AuditLogDialog;
+import com.customer.ui.DiagnosticsDialog;
 import com.customer.util.AnimationHelper;
 import com.customer.util.SessionManager;
 import com.customer.util.ThemeManager;
@@ -19,6 +21,8 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -50,6 +54,12 @@ public class AppController {
     @FXML
     private Button themeToggleBtn;
 
+    @FXML
+    private Button diagnosticsBtn;
+
+    @FXML
+    private Button auditLogBtn;
+
     @FXML
     private StackPane contentArea;
 
@@ -62,6 +72,7 @@ public class AppController {
     private HBox currentSelectedMenu;
     private Node currentContent;
     private final AuthService authService;
+    private final ViewRegistry viewRegistry = new ViewRegistry();
 
     public AppController() {
         this.authService = new AuthService();
@@ -80,12 +91,24 @@ public class AppController {
             if (SessionManager.isAdmin()) {
                 menuUsers.setVisible(true);
                 menuUsers.setManaged(true);
+                diagnosticsBtn.setVisible(true);
+                diagnosticsBtn.setManaged(true);
+                auditLogBtn.setVisible(true);
+                auditLogBtn.setManaged(true);
             }
         }
 
         // Load dashboard as default view
         loadView("/views/dashboard-view.fxml");
 
+        // Parse the views people go to most while they are still looking at the dashboard
+        List<String> preload = new ArrayList<>(List.of(
+                "/views/customer-view.fxml", "/views/account-view.fxml", "/views/loan-view.fxml"));
+        if (SessionManager.isAdmin()) {
+            preload.add("/views/user-view.fxml");
+        }
+        viewRegistry.preload(preload);
+
         // Update theme button text based on current theme
         updateThemeButtonText();
     }
@@ -156,6 +179,7 @@ public class AppController {
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
             authService.logout();
+            viewRegistry.clear();
             try {
                 // Return to login screen
                 FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/login-view.fxml"));
@@ -180,6 +204,16 @@ public class AppController {
         }
     }
 
+    @FXML
+    private void handleDiagnostics() {
+        new DiagnosticsDialog().show();
+    }
+
+    @FXML
+    private void handleAuditLog() {
+        new AuditLogDialog().show();
+    }
+
     @FXML
     private void handleChangePassword() {
         Dialog<String> dialog = new Dialog<>();
@@ -270,8 +304,7 @@ public class AppController {
 
     private void loadView(String fxmlPath) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
-            Node newContent = loader.load();
+            Node newContent = viewRegistry.show(fxmlPath).getRoot();
 
             // Animate transition
             if (contentArea.getChildren().isEmpty()) {
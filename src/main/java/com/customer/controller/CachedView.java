@@ -0,0 +1,15 @@
+package com.customer.controller;
+
+/**
+ * A view controller that {@link ViewRegistry} keeps alive between visits, so
+ * switching back to it reuses its scene graph, services and loaded rows.
+ */
+public interface CachedView {
+
+    /** The view is on screen again; bring it up to date without rebuilding it. Called on the FX thread. */
+    void onShow();
+
+    /** The view was dropped from the cache; release subscriptions and anything else it holds. */
+    default void dispose() {
+    }
+}
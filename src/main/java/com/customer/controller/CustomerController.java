@@ -1,10 +1,16 @@
 package com.customer.controller;
 
+import com.customer.event.EntityInvalidated.Entity;
 import com.customer.model.Customer;
 import com.customer.model.CustomerType;
+import com.customer.model.Role;
 import com.customer.service.CustomerService;
+import com.customer.service.SegmentationService;
 import com.customer.ui.CustomerDialog;
+import com.customer.ui.CustomerImportDialog;
+import com.customer.ui.DuplicateCustomersDialog;
 import com.customer.util.AnimationHelper;
+import com.customer.util.SessionManager;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -18,12 +24,15 @@ import javafx.scene.layout.VBox;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Controller for the Customer management view.
  */
-public class CustomerController {
+public class CustomerController implements CachedView {
 
     @FXML
     private TextField searchField;
@@ -64,6 +73,15 @@ public class CustomerController {
     @FXML
     private Button deleteButton;
 
+    @FXML
+    private Button duplicatesButton;
+
+    @FXML
+    private Button importButton;
+
+    @FXML
+    private Button segmentButton;
+
     @FXML
     private Button refreshButton;
 
@@ -72,10 +90,12 @@ public class CustomerController {
 
     private final CustomerService customerService;
     private final ObservableList<Customer> customerList;
+    private final ViewChanges changes;
 
     public CustomerController() {
         this.customerService = new CustomerService();
         this.customerList = FXCollections.observableArrayList();
+        this.changes = new ViewChanges("customer-view", Entity.CUSTOMER);
     }
 
     @FXML
@@ -169,6 +189,15 @@ public class CustomerController {
         AnimationHelper.addScaleOnHover(editButton);
         AnimationHelper.addScaleOnHover(deleteButton);
 
+        // Finding and merging duplicates, bulk imports and re-segmenting are for managers
+        boolean canMerge = SessionManager.hasRole(Role.MANAGER, Role.ADMIN);
+        duplicatesButton.setVisible(canMerge);
+        duplicatesButton.setManaged(canMerge);
+        importButton.setVisible(canMerge);
+        importButton.setManaged(canMerge);
+        segmentButton.setVisible(canMerge);
+        segmentButton.setManaged(canMerge);
+
         // Load initial data
         loadCustomers();
     }
@@ -245,6 +274,58 @@ public class CustomerController {
         new Thread(loadTask).start();
     }
 
+    @Override
+    public void onShow() {
+        ViewChanges.Pending pending = changes.drain();
+        if (pending.isEmpty()) {
+            return;
+        }
+        String keyword = searchField.getText();
+        // Which rows a keyword matches is up to the database, so a searched list is queried again
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            performSearch();
+        } else if (pending.needsReload(Entity.CUSTOMER)) {
+            performFilter();
+        } else {
+            refreshCustomers(pending.getIds(Entity.CUSTOMER));
+        }
+    }
+
+    @Override
+    public void dispose() {
+        changes.close();
+    }
+
+    // Refetches only the customers that changed while the view was hidden
+    private void refreshCustomers(Set<Long> ids) {
+        CustomerType type = filterComboBox.getValue();
+
+        Task<Map<Long, Customer>> task = new Task<>() {
+            @Override
+            protected Map<Long, Customer> call() throws Exception {
+                Map<Long, Customer> fresh = new HashMap<>();
+                for (long id : ids) {
+                    Customer customer = customerService.getCustomerById(id);
+                    if (customer != null) {
+                        fresh.put(id, customer);
+                    }
+                }
+                return fresh;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            // The type was changed meanwhile and performFilter reloaded the list for it
+            if (filterComboBox.getValue() != type) {
+                return;
+            }
+            // Only rows of the selected type may enter the list
+            ViewChanges.patch(customerList, Customer::getId, ids, task.getValue(),
+                    c -> type == null || c.getCustomerType() == type);
+        });
+        task.setOnFailed(e -> performFilter());
+        new Thread(task).start();
+    }
+
     private void performSearch() {
         String keyword = searchField.getText();
         if (keyword == null || keyword.trim().isEmpty()) {
@@ -393,6 +474,69 @@ public class CustomerController {
         }
     }
 
+    @FXML
+    private void handleDuplicates() {
+        DuplicateCustomersDialog dialog = new DuplicateCustomersDialog();
+        dialog.showAndWait();
+        if (dialog.isMerged()) {
+            loadCustomers();
+        }
+    }
+
+    @FXML
+    private void handleImport() {
+        CustomerImportDialog dialog = new CustomerImportDialog();
+        dialog.showAndWait();
+        if (dialog.isImported()) {
+            loadCustomers();
+        }
+    }
+
+    @FXML
+    private void handleSegment() {
+        ButtonType changedOnly = new ButtonType("Changed customers");
+        ButtonType everyone = new ButtonType("All customers");
+        Alert choice = new Alert(Alert.AlertType.CONFIRMATION, null, changedOnly, everyone, ButtonType.CANCEL);
+        choice.setTitle("Re-segment Customers");
+        choice.setHeaderText("Recompute VIP / Regular / Potential from balances, transactions and loans?");
+        choice.setContentText("\"Changed customers\" only rescores customers touched since the last run.");
+        Optional<ButtonType> answer = choice.showAndWait();
+        if (answer.isEmpty() || answer.get() == ButtonType.CANCEL) {
+            return;
+        }
+        SegmentationService.Mode mode = answer.get() == everyone
+                ? SegmentationService.Mode.FULL : SegmentationService.Mode.INCREMENTAL;
+
+        segmentButton.setDisable(true);
+        showLoading(true);
+        Task<SegmentationService.RunResult> task = new Task<>() {
+            @Override
+            protected SegmentationService.RunResult call() throws Exception {
+                return SegmentationService.getInstance().run(mode);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            segmentButton.setDisable(false);
+            showLoading(false);
+            SegmentationService.RunResult result = task.getValue();
+            if (result.getChanged() > 0) {
+                loadCustomers();
+            }
+            showSuccess("Re-segment Customers", String.format(
+                    "%s run: %,d customers scored, %,d changed in %,d ms%nMoved to VIP: %,d | Regular: %,d | Potential: %,d",
+                    result.getMode() == SegmentationService.Mode.FULL ? "Full" : "Incremental",
+                    result.getScored(), result.getChanged(), result.getMillis(),
+                    result.getMovedInto(CustomerType.VIP), result.getMovedInto(CustomerType.REGULAR),
+                    result.getMovedInto(CustomerType.POTENTIAL)));
+        });
+        task.setOnFailed(e -> {
+            segmentButton.setDisable(false);
+            showLoading(false);
+            showError("Error", "Cannot re-segment customers: " + task.getException().getMessage());
+        });
+        new Thread(task).start();
+    }
+
     @FXML
     private void handleRefresh() {
         searchField.clear();
@@ -1,6 +1,10 @@
 package com.customer.controller;
 
 import com.customer.dao.CustomerDAO;
+import com.customer.event.CustomerUpdated;
+import com.customer.event.DomainEvent;
+import com.customer.event.EntityInvalidated;
+import com.customer.event.EventBus;
 import com.customer.model.CustomerType;
 import com.customer.util.AnimationHelper;
 import javafx.application.Platform;
@@ -15,12 +19,13 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 
+import java.util.List;
 import java.util.Map;
 
 /**
  * Controller for the Dashboard view with statistics and charts.
  */
-public class DashboardController {
+public class DashboardController implements CachedView {
 
     @FXML
     private Button refreshBtn;
@@ -71,6 +76,9 @@ public class DashboardController {
     private StackPane loadingOverlay;
 
     private final CustomerDAO customerDAO;
+    private EventBus.Subscription customerEvents;
+    // Customers changed while the view was not on screen; reload when it is shown again
+    private boolean stale;
 
     public DashboardController() {
         this.customerDAO = new CustomerDAO();
@@ -90,6 +98,57 @@ public class DashboardController {
 
         // Load statistics
         loadStatistics();
+
+        // Reload when customers change on another screen or another workstation; one reload per batch of events
+        customerEvents = EventBus.getInstance().subscribe("dashboard", DomainEvent.class,
+                new EventBus.Subscriber<>() {
+                    @Override
+                    public void onEvents(List<DomainEvent> events) {
+                        if (events.stream().anyMatch(DashboardController::affectsCustomers)) {
+                            Platform.runLater(DashboardController.this::reloadIfVisible);
+                        }
+                    }
+
+                    @Override
+                    public void onOverflow() {
+                        Platform.runLater(DashboardController.this::reloadIfVisible);
+                    }
+                });
+    }
+
+    @Override
+    public void onShow() {
+        if (stale) {
+            stale = false;
+            loadStatistics();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (customerEvents != null) {
+            customerEvents.close();
+            customerEvents = null;
+        }
+    }
+
+    private void reloadIfVisible() {
+        if (statsContainer.getScene() != null) {
+            loadStatistics();
+        } else {
+            stale = true;
+        }
+    }
+
+    private static boolean affectsCustomers(DomainEvent event) {
+        if (event instanceof CustomerUpdated) {
+            return true;
+        }
+        if (event instanceof EntityInvalidated) {
+            EntityInvalidated.Entity entity = ((EntityInvalidated) event).getEntity();
+            return entity == EntityInvalidated.Entity.CUSTOMER || entity == EntityInvalidated.Entity.ALL;
+        }
+        return false;
     }
 
     @FXML
@@ -1,11 +1,14 @@
 package com.customer.controller;
 
+import com.customer.event.EntityInvalidated.Entity;
 import com.customer.model.Loan;
 import com.customer.model.LoanStatus;
+import com.customer.model.Money;
 import com.customer.service.LoanService;
 import com.customer.ui.LoanApplicationDialog;
 import com.customer.ui.LoanApprovalDialog;
 import com.customer.ui.LoanDetailDialog;
+import com.customer.ui.MoneyFormat;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -16,14 +19,16 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.StackPane;
 
-import java.math.BigDecimal;
 import java.text.NumberFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
-public class LoanController {
+public class LoanController implements CachedView {
     @FXML private TextField searchField;
     @FXML private ComboBox<String> statusFilter;
     @FXML private DatePicker fromDatePicker;
@@ -35,9 +40,9 @@ public class LoanController {
     @FXML private TableView<Loan> loanTable;
     @FXML private TableColumn<Loan, String> loanNumberColumn;
     @FXML private TableColumn<Loan, String> customerNameColumn;
-    @FXML private TableColumn<Loan, BigDecimal> principalAmountColumn;
+    @FXML private TableColumn<Loan, Money> principalAmountColumn;
     @FXML private TableColumn<Loan, Integer> termMonthsColumn;
-    @FXML private TableColumn<Loan, BigDecimal> monthlyPaymentColumn;
+    @FXML private TableColumn<Loan, Money> monthlyPaymentColumn;
     @FXML private TableColumn<Loan, String> statusColumn;
     @FXML private TableColumn<Loan, String> appliedDateColumn;
 
@@ -51,12 +56,14 @@ public class LoanController {
 
     private final LoanService loanService;
     private final ObservableList<Loan> loanList;
+    private final ViewChanges changes;
     private static final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
     private static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
     public LoanController() {
         this.loanService = new LoanService();
         this.loanList = FXCollections.observableArrayList();
+        this.changes = new ViewChanges("loan-view", Entity.LOAN);
     }
 
     @FXML
@@ -73,17 +80,7 @@ public class LoanController {
         customerNameColumn.setCellValueFactory(new PropertyValueFactory<>("customerName"));
 
         principalAmountColumn.setCellValueFactory(new PropertyValueFactory<>("principalAmount"));
-        principalAmountColumn.setCellFactory(tc -> new TableCell<>() {
-            @Override
-            protected void updateItem(BigDecimal item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText(null);
-                } else {
-                    setText(currencyFormat.format(item));
-                }
-            }
-        });
+        MoneyFormat.install(principalAmountColumn, amount -> currencyFormat.format(amount.toBigDecimal()));
 
         termMonthsColumn.setCellValueFactory(new PropertyValueFactory<>("termMonths"));
         termMonthsColumn.setCellFactory(tc -> new TableCell<>() {
@@ -99,17 +96,7 @@ public class LoanController {
         });
 
         monthlyPaymentColumn.setCellValueFactory(new PropertyValueFactory<>("monthlyPayment"));
-        monthlyPaymentColumn.setCellFactory(tc -> new TableCell<>() {
-            @Override
-            protected void updateItem(BigDecimal item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText(null);
-                } else {
-                    setText(currencyFormat.format(item));
-                }
-            }
-        });
+        MoneyFormat.install(monthlyPaymentColumn, amount -> currencyFormat.format(amount.toBigDecimal()));
 
         statusColumn.setCellValueFactory(cellData ->
             new SimpleStringProperty(cellData.getValue().getStatus().getDisplayName()));
@@ -200,6 +187,55 @@ public class LoanController {
         }
     }
 
+    @Override
+    public void onShow() {
+        ViewChanges.Pending pending = changes.drain();
+        if (pending.isEmpty()) {
+            return;
+        }
+        String keyword = searchField.getText();
+        // Keyword and date filters are evaluated by the database, so a list filtered by them is queried again
+        boolean filtered = (keyword != null && !keyword.trim().isEmpty())
+                || fromDatePicker.getValue() != null || toDatePicker.getValue() != null;
+        if (pending.needsReload(Entity.LOAN) || filtered) {
+            loadLoans();
+        } else {
+            refreshLoans(pending.getIds(Entity.LOAN));
+        }
+    }
+
+    @Override
+    public void dispose() {
+        changes.close();
+    }
+
+    // Refetches only the loans that changed while the view was hidden
+    private void refreshLoans(Set<Long> ids) {
+        String statusStr = statusFilter.getValue();
+        boolean allStatuses = statusStr == null || statusStr.equals("Tất cả");
+
+        Task<Map<Long, Loan>> task = new Task<>() {
+            @Override
+            protected Map<Long, Loan> call() throws Exception {
+                Map<Long, Loan> fresh = new HashMap<>();
+                for (long id : ids) {
+                    Loan loan = loanService.getLoanById(id);
+                    if (loan != null) {
+                        fresh.put(id, loan);
+                    }
+                }
+                return fresh;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            ViewChanges.patch(loanList, Loan::getId, ids, task.getValue(),
+                    loan -> allStatuses || loan.getStatus().getDisplayName().equals(statusStr));
+            updateButtonState(loanTable.getSelectionModel().getSelectedItem());
+        });
+        task.setOnFailed(e -> loadLoans());
+        new Thread(task).start();
+    }
+
     private void loadLoans() {
         loadingOverlay.setVisible(true);
         loadingOverlay.setManaged(true);
@@ -1,6 +1,7 @@
 package com.customer.controller;
 
 import com.customer.service.AuthService;
+import com.customer.service.StartupPipeline;
 import com.customer.util.ThemeManager;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
@@ -29,11 +30,8 @@ public class LoginController {
     @FXML
     private Button loginButton;
 
-    private final AuthService authService;
-
-    public LoginController() {
-        this.authService = new AuthService();
-    }
+    // Created on first login: its DAOs take the database connection, which may still be starting up
+    private AuthService authService;
 
     @FXML
     public void initialize() {
@@ -50,6 +48,27 @@ public class LoginController {
         loginButton.setDisable(true);
         errorLabel.setVisible(false);
 
+        StartupPipeline pipeline = StartupPipeline.getInstance();
+        if (!pipeline.isDatabaseReady()) {
+            errorLabel.setText("Connecting to database...");
+            errorLabel.setVisible(true);
+        }
+        pipeline.databaseReady().whenComplete((ignored, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                errorLabel.setText("Cannot connect to database: " + StartupPipeline.rootCause(error).getMessage());
+                errorLabel.setVisible(true);
+                loginButton.setDisable(false);
+                return;
+            }
+            errorLabel.setVisible(false);
+            login(username, password);
+        }));
+    }
+
+    private void login(String username, String password) {
+        if (authService == null) {
+            authService = new AuthService();
+        }
         try {
             AuthService.LoginResult result = authService.login(username, password);
 
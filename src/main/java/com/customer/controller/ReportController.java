@@ -1,32 +1,42 @@
 package com.customer.controller;
 
 import com.customer.dao.AccountDAO;
+import com.customer.dao.AccountDirectory;
+import com.customer.event.EntityInvalidated.Entity;
 import com.customer.model.*;
 import com.customer.model.dto.*;
 import com.customer.service.ExportService;
 import com.customer.service.ReportService;
+import com.customer.service.StatementBatchService;
+import com.customer.service.StressTestEngine;
+import com.customer.ui.AccountAutocomplete;
+import com.customer.ui.MoneyFormat;
 import com.customer.util.SessionManager;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.chart.*;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.StackPane;
-import javafx.util.StringConverter;
 
 import java.io.File;
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 
-public class ReportController {
+public class ReportController implements CachedView {
 
     @FXML private TabPane reportTabPane;
     @FXML private StackPane loadingOverlay;
+    @FXML private Label loadingLabel;
 
     // --- Dashboard Tab ---
     @FXML private Label lblTotalCustomers;
@@ -46,7 +56,7 @@ public class ReportController {
     @FXML private TableColumn<Account, String> colAccNumber;
     @FXML private TableColumn<Account, String> colAccCustomer;
     @FXML private TableColumn<Account, String> colAccType;
-    @FXML private TableColumn<Account, BigDecimal> colAccBalance;
+    @FXML private TableColumn<Account, Money> colAccBalance;
     @FXML private TableColumn<Account, String> colAccStatus;
 
     @FXML private Button exportDashboardBtn;
@@ -55,7 +65,7 @@ public class ReportController {
     @FXML private DatePicker txnFromDate;
     @FXML private DatePicker txnToDate;
     @FXML private ComboBox<TransactionType> txnTypeFilter;
-    @FXML private ComboBox<Account> txnAccountFilter;
+    @FXML private ComboBox<AccountDirectory.Entry> txnAccountFilter;
     @FXML private Button generateTxnReportBtn;
     @FXML private Label lblTxnCount;
     @FXML private Label lblTxnTotal;
@@ -64,7 +74,7 @@ public class ReportController {
     @FXML private TableColumn<Transaction, String> colTxnRef;
     @FXML private TableColumn<Transaction, String> colTxnAccount;
     @FXML private TableColumn<Transaction, String> colTxnType;
-    @FXML private TableColumn<Transaction, BigDecimal> colTxnAmount;
+    @FXML private TableColumn<Transaction, Money> colTxnAmount;
     @FXML private TableColumn<Transaction, String> colTxnTarget;
     @FXML private TableColumn<Transaction, String> colTxnDesc;
     @FXML private Button exportTxnReportBtn;
@@ -79,14 +89,14 @@ public class ReportController {
     @FXML private TableView<Loan> loanReportTable;
     @FXML private TableColumn<Loan, Long> colLoanId;
     @FXML private TableColumn<Loan, String> colLoanCustomer;
-    @FXML private TableColumn<Loan, BigDecimal> colLoanAmount;
+    @FXML private TableColumn<Loan, Money> colLoanAmount;
     @FXML private TableColumn<Loan, String> colLoanStart;
     @FXML private TableColumn<Loan, Integer> colLoanTerm;
     @FXML private TableColumn<Loan, String> colLoanStatus;
     @FXML private Button exportLoanReportBtn;
 
     // --- Account Statement Tab ---
-    @FXML private ComboBox<Account> stmtAccountCombo;
+    @FXML private ComboBox<AccountDirectory.Entry> stmtAccountCombo;
     @FXML private DatePicker stmtFromDate;
     @FXML private DatePicker stmtToDate;
     @FXML private Button generateStmtBtn;
@@ -94,17 +104,41 @@ public class ReportController {
     @FXML private Label lblStmtIn;
     @FXML private Label lblStmtOut;
     @FXML private Label lblStmtClosing;
-    @FXML private TableView<Transaction> stmtTable;
-    @FXML private TableColumn<Transaction, String> colStmtDate;
-    @FXML private TableColumn<Transaction, String> colStmtRef;
-    @FXML private TableColumn<Transaction, String> colStmtDesc;
-    @FXML private TableColumn<Transaction, BigDecimal> colStmtDebit;
-    @FXML private TableColumn<Transaction, BigDecimal> colStmtCredit;
+    @FXML private TableView<StatementLine> stmtTable;
+    @FXML private TableColumn<StatementLine, String> colStmtDate;
+    @FXML private TableColumn<StatementLine, String> colStmtRef;
+    @FXML private TableColumn<StatementLine, String> colStmtDesc;
+    @FXML private TableColumn<StatementLine, Money> colStmtDebit;
+    @FXML private TableColumn<StatementLine, Money> colStmtCredit;
+    @FXML private TableColumn<StatementLine, Money> colStmtBalance;
     @FXML private Button exportStatementBtn;
+    @FXML private Button monthEndStatementsBtn;
+
+    // --- Analytics Tab ---
+    @FXML private DatePicker analyticsFromDate;
+    @FXML private DatePicker analyticsToDate;
+    @FXML private Label lblDistinctCustomers;
+    @FXML private LineChart<String, Number> distinctCustomersChart;
+    @FXML private BarChart<String, Number> amountPercentileChart;
+
+    // --- Stress Test Tab ---
+    @FXML private Tab stressTestTab;
+    @FXML private TextField stressScenariosField;
+    @FXML private Button runStressTestBtn;
+    @FXML private Label lblStressExposure;
+    @FXML private Label lblStressExpectedLoss;
+    @FXML private Label lblStressVaR;
+    @FXML private Label lblStressShortfall;
+    @FXML private Label lblStressRun;
+    @FXML private BarChart<String, Number> lossHistogramChart;
+    @FXML private LineChart<Number, Number> lossQuantileChart;
 
     private final ReportService reportService = new ReportService();
     private final ExportService exportService = new ExportService();
     private final AccountDAO accountDAO = new AccountDAO();
+    // The dashboard tab sums up all four
+    private final ViewChanges changes = new ViewChanges("report-view",
+            Entity.ACCOUNT, Entity.CUSTOMER, Entity.LOAN, Entity.TRANSACTION);
 
     // Data holders for export
     private DashboardStats currentDashboardStats;
@@ -117,12 +151,63 @@ public class ReportController {
         setupTables();
         setupFilters();
         setupPermissions();
+        setupLazyPaging();
 
         // Load initial data for Dashboard
         loadDashboardData();
+    }
 
-        // Load account list for filters
-        loadAccountList();
+    // Report tables hold only the pages loaded so far; the next page is fetched near the bottom
+    private void setupLazyPaging() {
+        installLazyPaging(txnReportTable, () -> {
+            TransactionReportData data = currentTxnData;
+            if (data == null || data.isFullyLoaded()) return null;
+            return () -> reportService.loadNextTransactionPage(data);
+        });
+        installLazyPaging(loanReportTable, () -> {
+            LoanReportData data = currentLoanData;
+            if (data == null || data.isFullyLoaded()) return null;
+            return () -> reportService.loadNextLoanPage(data);
+        });
+    }
+
+    private <T> void installLazyPaging(TableView<T> table, Supplier<Callable<List<T>>> nextPage) {
+        boolean[] loading = {false};
+        table.skinProperty().addListener((obs, oldSkin, skin) -> {
+            for (Node node : table.lookupAll(".scroll-bar")) {
+                if (!(node instanceof ScrollBar bar) || bar.getOrientation() != Orientation.VERTICAL) continue;
+                bar.valueProperty().addListener((o, oldValue, value) -> {
+                    if (loading[0] || value.doubleValue() < bar.getMax() * 0.9) return;
+                    Callable<List<T>> load = nextPage.get();
+                    if (load == null) return;
+
+                    loading[0] = true;
+                    List<T> items = table.getItems();
+                    Task<List<T>> task = new Task<>() {
+                        @Override
+                        protected List<T> call() throws Exception {
+                            return load.call();
+                        }
+
+                        @Override
+                        protected void succeeded() {
+                            loading[0] = false;
+                            // A new report may have replaced the items while this page was loading
+                            if (table.getItems() == items) {
+                                items.addAll(getValue());
+                            }
+                        }
+
+                        @Override
+                        protected void failed() {
+                            loading[0] = false;
+                            System.err.println("Failed to load report page: " + getException().getMessage());
+                        }
+                    };
+                    new Thread(task).start();
+                });
+            }
+        });
     }
 
     private void setupPermissions() {
@@ -131,6 +216,8 @@ public class ReportController {
         exportTxnReportBtn.setVisible(canExport);
         exportLoanReportBtn.setVisible(canExport);
         exportStatementBtn.setVisible(canExport);
+        monthEndStatementsBtn.setVisible(canExport);
+        stressTestTab.setDisable(!StressTestEngine.canRun());
     }
 
     private void setupTables() {
@@ -140,7 +227,7 @@ public class ReportController {
         colAccType.setCellValueFactory(new PropertyValueFactory<>("accountType"));
         colAccBalance.setCellValueFactory(new PropertyValueFactory<>("balance"));
         colAccStatus.setCellValueFactory(new PropertyValueFactory<>("status"));
-        formatCurrencyColumn(colAccBalance);
+        MoneyFormat.install(colAccBalance);
 
         // Transaction Report
         colTxnDate.setCellValueFactory(new PropertyValueFactory<>("createdDate"));
@@ -151,7 +238,7 @@ public class ReportController {
         colTxnTarget.setCellValueFactory(new PropertyValueFactory<>("targetAccountNumber"));
         colTxnDesc.setCellValueFactory(new PropertyValueFactory<>("description"));
         formatDateTimeColumn(colTxnDate);
-        formatCurrencyColumn(colTxnAmount);
+        MoneyFormat.install(colTxnAmount);
 
         // Loan Report
         colLoanId.setCellValueFactory(new PropertyValueFactory<>("id"));
@@ -160,49 +247,21 @@ public class ReportController {
         colLoanStart.setCellValueFactory(new PropertyValueFactory<>("startDate"));
         colLoanTerm.setCellValueFactory(new PropertyValueFactory<>("termMonths"));
         colLoanStatus.setCellValueFactory(new PropertyValueFactory<>("status"));
-        formatCurrencyColumn(colLoanAmount);
+        MoneyFormat.install(colLoanAmount);
 
         // Statement
         colStmtDate.setCellValueFactory(new PropertyValueFactory<>("createdDate"));
         colStmtRef.setCellValueFactory(new PropertyValueFactory<>("referenceNumber"));
         colStmtDesc.setCellValueFactory(new PropertyValueFactory<>("description"));
 
-        // Special handling for Debit/Credit columns in Statement
-        colStmtDebit.setCellValueFactory(cellData -> {
-            Transaction t = cellData.getValue();
-            boolean isCredit = isCreditTransaction(t, stmtAccountCombo.getValue());
-            return javafx.beans.binding.Bindings.createObjectBinding(() -> isCredit ? null : t.getAmount());
-        });
-
-        colStmtCredit.setCellValueFactory(cellData -> {
-            Transaction t = cellData.getValue();
-            boolean isCredit = isCreditTransaction(t, stmtAccountCombo.getValue());
-            return javafx.beans.binding.Bindings.createObjectBinding(() -> isCredit ? t.getAmount() : null);
-        });
+        colStmtDebit.setCellValueFactory(new PropertyValueFactory<>("debit"));
+        colStmtCredit.setCellValueFactory(new PropertyValueFactory<>("credit"));
+        colStmtBalance.setCellValueFactory(new PropertyValueFactory<>("runningBalance"));
 
         formatDateTimeColumn(colStmtDate);
-        formatCurrencyColumn(colStmtDebit);
-        formatCurrencyColumn(colStmtCredit);
-    }
-
-    private boolean isCreditTransaction(Transaction t, Account account) {
-        if (account == null) return false;
-        if (t.getTransactionType() == TransactionType.DEPOSIT || t.getTransactionType() == TransactionType.LOAN_DISBURSEMENT) return true;
-        return t.getTransactionType() == TransactionType.TRANSFER && t.getTargetAccountId() == account.getId();
-    }
-
-    private <T> void formatCurrencyColumn(TableColumn<T, BigDecimal> column) {
-        column.setCellFactory(tc -> new TableCell<>() {
-            @Override
-            protected void updateItem(BigDecimal item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText(null);
-                } else {
-                    setText(String.format("%,.0f", item));
-                }
-            }
-        });
+        MoneyFormat.install(colStmtDebit);
+        MoneyFormat.install(colStmtCredit);
+        MoneyFormat.install(colStmtBalance);
     }
 
     private <T> void formatDateTimeColumn(TableColumn<T, ?> column) {
@@ -227,37 +286,28 @@ public class ReportController {
         stmtToDate.setValue(LocalDate.now());
         stmtFromDate.setValue(LocalDate.now().minusMonths(1));
 
-        // Account Converters
-        StringConverter<Account> accConverter = new StringConverter<>() {
-            @Override
-            public String toString(Account object) {
-                return object == null ? null : object.getAccountNumber() + " - " + object.getCustomerName();
-            }
+        analyticsToDate.setValue(LocalDate.now());
+        analyticsFromDate.setValue(LocalDate.now().minusMonths(1));
 
-            @Override
-            public Account fromString(String string) {
-                return null; // Not needed
-            }
-        };
-        txnAccountFilter.setConverter(accConverter);
-        stmtAccountCombo.setConverter(accConverter);
+        stressScenariosField.setText(String.valueOf(StressTestEngine.getDefaultScenarios()));
+
+        // Account pickers suggest from the in-memory directory as a number is typed
+        AccountAutocomplete.install(txnAccountFilter, a -> true);
+        AccountAutocomplete.install(stmtAccountCombo, a -> true);
     }
 
-    private void loadAccountList() {
-        Task<List<Account>> task = new Task<>() {
-            @Override
-            protected List<Account> call() throws Exception {
-                return accountDAO.findAll();
-            }
+    @Override
+    public void onShow() {
+        ViewChanges.Pending pending = changes.drain();
+        if (pending.isEmpty()) {
+            return;
+        }
+        loadDashboardData();
+    }
 
-            @Override
-            protected void succeeded() {
-                List<Account> accounts = getValue();
-                txnAccountFilter.setItems(FXCollections.observableArrayList(accounts));
-                stmtAccountCombo.setItems(FXCollections.observableArrayList(accounts));
-            }
-        };
-        new Thread(task).start();
+    @Override
+    public void dispose() {
+        changes.close();
     }
 
     // --- Dashboard Actions ---
@@ -288,8 +338,8 @@ public class ReportController {
 
     private void updateDashboardUI(DashboardStats stats) {
         lblTotalCustomers.setText(String.valueOf(stats.getTotalCustomers()));
-        lblTotalBalance.setText(String.format("%,.0f VND", stats.getTotalBalance()));
-        lblTotalLoans.setText(String.format("%,.0f VND", stats.getTotalLoans()));
+        lblTotalBalance.setText(MoneyFormat.vnd(stats.getTotalBalance()));
+        lblTotalLoans.setText(MoneyFormat.vnd(stats.getTotalLoans()));
         lblTodayTransactions.setText(String.valueOf(stats.getTodayTransactions()));
 
         double custChange = stats.getCustomerChangePercent();
@@ -341,11 +391,11 @@ public class ReportController {
         chart.getData().add(series);
     }
 
-    private void updateLineChart(LineChart<String, Number> chart, Map<String, BigDecimal> data) {
+    private void updateLineChart(LineChart<String, Number> chart, Map<String, Money> data) {
         chart.getData().clear();
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("Net Balance");
-        data.forEach((key, value) -> series.getData().add(new XYChart.Data<>(key, value)));
+        data.forEach((key, value) -> series.getData().add(new XYChart.Data<>(key, value.doubleValue())));
         chart.getData().add(series);
     }
 
@@ -367,7 +417,8 @@ public class ReportController {
         Task<TransactionReportData> task = new Task<>() {
             @Override
             protected TransactionReportData call() throws Exception {
-                Long accId = txnAccountFilter.getValue() != null ? txnAccountFilter.getValue().getId() : null;
+                AccountDirectory.Entry account = AccountAutocomplete.selected(txnAccountFilter);
+                Long accId = account != null ? account.getId() : null;
                 return reportService.getTransactionReport(from, to, txnTypeFilter.getValue(), accId);
             }
 
@@ -376,8 +427,8 @@ public class ReportController {
                 currentTxnData = getValue();
                 txnReportTable.setItems(FXCollections.observableArrayList(currentTxnData.getTransactions()));
                 lblTxnCount.setText("Total Count: " + currentTxnData.getTotalCount());
-                lblTxnTotal.setText("Total Amount: " + String.format("%,.0f VND", currentTxnData.getTotalAmount()));
-                exportTxnReportBtn.setDisable(currentTxnData.getTransactions().isEmpty());
+                lblTxnTotal.setText("Total Amount: " + MoneyFormat.vnd(currentTxnData.getTotalAmount()));
+                exportTxnReportBtn.setDisable(currentTxnData.getTotalCount() == 0);
                 showLoading(false);
             }
 
@@ -393,7 +444,8 @@ public class ReportController {
     @FXML
     private void handleExportTxnReport() {
         if (currentTxnData == null) return;
-        export(task -> exportService.exportTransactionReport(currentTxnData));
+        TransactionReportData data = currentTxnData;
+        export(task -> exportService.exportTransactionReport(reportService.withAllTransactions(data)));
     }
 
     // --- Loan Report Actions ---
@@ -416,8 +468,8 @@ public class ReportController {
                 currentLoanData = getValue();
                 loanReportTable.setItems(FXCollections.observableArrayList(currentLoanData.getLoans()));
                 lblLoanCount.setText("Total Loans: " + currentLoanData.getTotalLoans());
-                lblLoanOutstanding.setText("Total Outstanding: " + String.format("%,.0f VND", currentLoanData.getTotalOutstanding()));
-                exportLoanReportBtn.setDisable(currentLoanData.getLoans().isEmpty());
+                lblLoanOutstanding.setText("Total Outstanding: " + MoneyFormat.vnd(currentLoanData.getTotalOutstanding()));
+                exportLoanReportBtn.setDisable(currentLoanData.getTotalLoans() == 0);
                 showLoading(false);
             }
 
@@ -433,15 +485,16 @@ public class ReportController {
     @FXML
     private void handleExportLoanReport() {
         if (currentLoanData == null) return;
-        export(task -> exportService.exportLoanReport(currentLoanData));
+        LoanReportData data = currentLoanData;
+        export(task -> exportService.exportLoanReport(reportService.withAllLoans(data)));
     }
 
     // --- Statement Actions ---
 
     @FXML
     private void handleGenerateStatement() {
-        Account account = stmtAccountCombo.getValue();
-        if (account == null) {
+        AccountDirectory.Entry selected = AccountAutocomplete.selected(stmtAccountCombo);
+        if (selected == null) {
             showError("Input Required", "Please select an account.");
             return;
         }
@@ -453,19 +506,23 @@ public class ReportController {
         Task<AccountStatementData> task = new Task<>() {
             @Override
             protected AccountStatementData call() throws Exception {
+                Account account = accountDAO.findById(selected.getId());
+                if (account == null) {
+                    throw new IllegalStateException("Account " + selected.getAccountNumber() + " no longer exists.");
+                }
                 return reportService.getAccountStatement(account, from, to);
             }
 
             @Override
             protected void succeeded() {
                 currentStmtData = getValue();
-                stmtTable.setItems(FXCollections.observableArrayList(currentStmtData.getTransactions()));
-                lblStmtOpening.setText("Opening: " + String.format("%,.0f VND", currentStmtData.getOpeningBalance()));
-                lblStmtIn.setText("In: " + String.format("%,.0f VND", currentStmtData.getTotalDeposits()));
-                lblStmtOut.setText("Out: " + String.format("%,.0f VND", currentStmtData.getTotalWithdrawals()));
-                lblStmtClosing.setText("Closing: " + String.format("%,.0f VND", currentStmtData.getClosingBalance()));
+                stmtTable.setItems(FXCollections.observableArrayList(currentStmtData.getLines()));
+                lblStmtOpening.setText("Opening: " + MoneyFormat.vnd(currentStmtData.getOpeningBalance()));
+                lblStmtIn.setText("In: " + MoneyFormat.vnd(currentStmtData.getTotalDeposits()));
+                lblStmtOut.setText("Out: " + MoneyFormat.vnd(currentStmtData.getTotalWithdrawals()));
+                lblStmtClosing.setText("Closing: " + MoneyFormat.vnd(currentStmtData.getClosingBalance()));
 
-                exportStatementBtn.setDisable(currentStmtData.getTransactions().isEmpty());
+                exportStatementBtn.setDisable(currentStmtData.getLines().isEmpty());
                 showLoading(false);
             }
 
@@ -484,6 +541,175 @@ public class ReportController {
         export(task -> exportService.exportAccountStatement(currentStmtData));
     }
 
+    @FXML
+    private void handleMonthEndStatements() {
+        LocalDate to = stmtToDate.getValue() != null ? stmtToDate.getValue() : LocalDate.now().minusMonths(1);
+        YearMonth month = YearMonth.from(to);
+
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("Month-End Statements");
+        confirm.setHeaderText(null);
+        confirm.setContentText("Generate statements for all active accounts for " + month + "?\n" +
+                "An interrupted run for the same month resumes where it stopped.");
+        if (confirm.showAndWait().filter(b -> b == ButtonType.OK).isEmpty()) return;
+
+        showLoading(true);
+        Task<StatementBatchService.BatchResult> task = new Task<>() {
+            @Override
+            protected StatementBatchService.BatchResult call() throws Exception {
+                updateMessage("Preparing statements for " + month + "...");
+                return new StatementBatchService().runMonthEnd(month, (done, failedCount, skipped) ->
+                        updateMessage(done + " generated, " + failedCount + " failed, " + skipped + " skipped"));
+            }
+
+            @Override
+            protected void succeeded() {
+                resetLoadingLabel();
+                showLoading(false);
+                StatementBatchService.BatchResult result = getValue();
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Month-End Statements");
+                alert.setHeaderText("Statement run for " + month + " finished");
+                alert.setContentText(result.getCompleted() + " generated, " + result.getFailed() + " failed, " +
+                        result.getSkipped() + " already done.\n\nOutput: " + result.getOutputDir().getAbsolutePath());
+                alert.showAndWait();
+            }
+
+            @Override
+            protected void failed() {
+                resetLoadingLabel();
+                showLoading(false);
+                showError("Statement Run Error", getException().getMessage());
+            }
+        };
+        loadingLabel.textProperty().bind(task.messageProperty());
+        new Thread(task).start();
+    }
+
+    // --- Analytics Actions ---
+
+    @FXML
+    private void handleGenerateAnalytics() {
+        LocalDate from = analyticsFromDate.getValue();
+        LocalDate to = analyticsToDate.getValue();
+        if (!validateDates(from, to)) return;
+
+        showLoading(true);
+        Task<AnalyticsReportData> task = new Task<>() {
+            @Override
+            protected AnalyticsReportData call() throws Exception {
+                return reportService.getAnalyticsReport(from, to);
+            }
+
+            @Override
+            protected void succeeded() {
+                AnalyticsReportData data = getValue();
+                lblDistinctCustomers.setText("Distinct Customers: ~" + String.format("%,d", data.getDistinctCustomers()));
+
+                distinctCustomersChart.getData().clear();
+                XYChart.Series<String, Number> daily = new XYChart.Series<>();
+                daily.setName("Customers");
+                data.getDistinctCustomersByDay().forEach((day, count) ->
+                        daily.getData().add(new XYChart.Data<>(day.format(DateTimeFormatter.ofPattern("MM-dd")), count)));
+                distinctCustomersChart.getData().add(daily);
+
+                amountPercentileChart.getData().clear();
+                XYChart.Series<String, Number> p50 = new XYChart.Series<>();
+                XYChart.Series<String, Number> p95 = new XYChart.Series<>();
+                XYChart.Series<String, Number> p99 = new XYChart.Series<>();
+                p50.setName("p50");
+                p95.setName("p95");
+                p99.setName("p99");
+                for (AmountPercentiles percentiles : data.getAmountPercentiles().values()) {
+                    String type = percentiles.getType().name();
+                    p50.getData().add(new XYChart.Data<>(type, percentiles.getP50().doubleValue()));
+                    p95.getData().add(new XYChart.Data<>(type, percentiles.getP95().doubleValue()));
+                    p99.getData().add(new XYChart.Data<>(type, percentiles.getP99().doubleValue()));
+                }
+                amountPercentileChart.getData().addAll(List.of(p50, p95, p99));
+                showLoading(false);
+            }
+
+            @Override
+            protected void failed() {
+                showLoading(false);
+                showError("Error", getException().getMessage());
+            }
+        };
+        new Thread(task).start();
+    }
+
+    // --- Stress Test ---
+
+    private static final int LOSS_HISTOGRAM_BINS = 40;
+    private static final double[] LOSS_CURVE_LEVELS = {50, 75, 90, 95, 97.5, 99, 99.5, 99.9};
+
+    @FXML
+    private void handleRunStressTest() {
+        int scenarios;
+        try {
+            String text = stressScenariosField.getText().trim();
+            scenarios = text.isEmpty() ? StressTestEngine.getDefaultScenarios() : Integer.parseInt(text.replace(",", ""));
+            if (scenarios <= 0) throw new NumberFormatException();
+        } catch (NumberFormatException e) {
+            showError("Input Error", "Scenarios must be a positive whole number.");
+            return;
+        }
+
+        runStressTestBtn.setDisable(true);
+        showLoading(true);
+        loadingLabel.setText("Simulating " + String.format("%,d", scenarios) + " scenarios...");
+        Task<StressTestEngine.Result> task = new Task<>() {
+            @Override
+            protected StressTestEngine.Result call() throws Exception {
+                return new StressTestEngine().run(scenarios);
+            }
+
+            @Override
+            protected void succeeded() {
+                showStressResult(getValue());
+                runStressTestBtn.setDisable(false);
+                resetLoadingLabel();
+                showLoading(false);
+            }
+
+            @Override
+            protected void failed() {
+                runStressTestBtn.setDisable(false);
+                resetLoadingLabel();
+                showLoading(false);
+                showError("Error", "Stress test failed: " + getException().getMessage());
+            }
+        };
+        new Thread(task).start();
+    }
+
+    private void showStressResult(StressTestEngine.Result result) {
+        lblStressExposure.setText(String.format("%,.0f VND (%,d loans)", result.getTotalExposure(), result.getLoans()));
+        lblStressExpectedLoss.setText(String.format("%,.0f VND", result.getExpectedLoss()));
+        lblStressVaR.setText(String.format("%,.0f / %,.0f / %,.0f VND", result.getValueAtRisk(0.95),
+                result.getValueAtRisk(0.99), result.getValueAtRisk(0.999)));
+        lblStressShortfall.setText(String.format("%,.0f VND", result.getExpectedShortfall(0.99)));
+        lblStressRun.setText(String.format("%,d scenarios in %,d ms", result.getScenarios(), result.getMillis()));
+
+        // Chart axes are in billions so the tick labels stay readable
+        lossHistogramChart.getData().clear();
+        XYChart.Series<String, Number> histogram = new XYChart.Series<>();
+        int[] counts = result.histogram(LOSS_HISTOGRAM_BINS);
+        double width = result.getMaxLoss() / LOSS_HISTOGRAM_BINS / 1e9;
+        for (int i = 0; i < counts.length; i++) {
+            histogram.getData().add(new XYChart.Data<>(String.format("%.1f", (i + 0.5) * width), counts[i]));
+        }
+        lossHistogramChart.getData().add(histogram);
+
+        lossQuantileChart.getData().clear();
+        XYChart.Series<Number, Number> curve = new XYChart.Series<>();
+        for (double level : LOSS_CURVE_LEVELS) {
+            curve.getData().add(new XYChart.Data<>(level, result.getValueAtRisk(level / 100) / 1e9));
+        }
+        lossQuantileChart.getData().add(curve);
+    }
+
     // --- Helpers ---
 
     private boolean validateDates(LocalDate from, LocalDate to) {
@@ -536,6 +762,11 @@ public class ReportController {
         new Thread(task).start();
     }
 
+    private void resetLoadingLabel() {
+        loadingLabel.textProperty().unbind();
+        loadingLabel.setText("Loading data...");
+    }
+
     private void showLoading(boolean show) {
         if (loadingOverlay != null) {
             loadingOverlay.setVisible(show);
@@ -19,7 +19,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Optional;
 
-public class UserController {
+public class UserController implements CachedView {
 
     @FXML
     private TableView<User> userTable;
@@ -96,6 +96,12 @@ public class UserController {
         resetPasswordButton.setVisible(isAdmin);
     }
 
+    // Users have no change feed; the table is small, so it is simply read again
+    @Override
+    public void onShow() {
+        loadUsers();
+    }
+
     private void loadUsers() {
         userList.clear();
         userList.addAll(userService.getAllUsers());
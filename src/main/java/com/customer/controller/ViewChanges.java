@@ -0,0 +1,167 @@
+package com.customer.controller;
+
+import com.customer.event.AccountStatusChanged;
+import com.customer.event.CustomerUpdated;
+import com.customer.event.DomainEvent;
+import com.customer.event.EntityInvalidated;
+import com.customer.event.EntityInvalidated.Entity;
+import com.customer.event.EventBus;
+import com.customer.event.LoanStatusChanged;
+import com.customer.event.TransactionPosted;
+import com.customer.model.Transaction;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Collects which rows changed while a cached view was off screen, so showing
+ * it again refetches only those rows instead of the whole list.
+ *
+ * Local changes arrive as domain events, changes made by other instances as
+ * {@link EntityInvalidated} from the change log. Once more than
+ * {@link #MAX_TRACKED} rows of an entity have changed, or events were missed,
+ * the view is told to reload instead.
+ */
+class ViewChanges implements AutoCloseable {
+
+    private static final int MAX_TRACKED = 50;
+
+    /** What changed since the last {@link #drain()}. */
+    static final class Pending {
+        private final boolean reloadAll;
+        private final Map<Entity, Set<Long>> ids;
+
+        private Pending(boolean reloadAll, Map<Entity, Set<Long>> ids) {
+            this.reloadAll = reloadAll;
+            this.ids = ids;
+        }
+
+        boolean isEmpty() {
+            return !reloadAll && ids.isEmpty();
+        }
+
+        /** True if the view should reload everything of {@code entity} rather than patch rows. */
+        boolean needsReload(Entity entity) {
+            return reloadAll || ids.get(entity) == FULL;
+        }
+
+        Set<Long> getIds(Entity entity) {
+            Set<Long> changed = ids.get(entity);
+            return changed != null && changed != FULL ? changed : Set.of();
+        }
+    }
+
+    // Marker: too many rows of the entity changed to patch them one by one
+    private static final Set<Long> FULL = Set.of(-1L);
+
+    private final Set<Entity> entities;
+    private final EventBus.Subscription subscription;
+    private Map<Entity, Set<Long>> changed = new EnumMap<>(Entity.class);
+    private boolean reloadAll;
+
+    ViewChanges(String name, Entity first, Entity... rest) {
+        this.entities = EnumSet.of(first, rest);
+        this.subscription = EventBus.getInstance().subscribe(name, DomainEvent.class,
+                new EventBus.Subscriber<>() {
+                    @Override
+                    public void onEvents(List<DomainEvent> events) {
+                        for (DomainEvent event : events) {
+                            collect(event);
+                        }
+                    }
+
+                    @Override
+                    public void onOverflow() {
+                        markReloadAll();
+                    }
+                });
+    }
+
+    /** Returns what changed since the last call and starts collecting afresh. */
+    synchronized Pending drain() {
+        Pending pending = new Pending(reloadAll, changed);
+        changed = new EnumMap<>(Entity.class);
+        reloadAll = false;
+        return pending;
+    }
+
+    @Override
+    public void close() {
+        subscription.close();
+    }
+
+    /**
+     * Applies refetched rows to a loaded list: rows still there are replaced in
+     * place, rows that were deleted or no longer match are removed, new matching
+     * rows are appended. {@code fresh} holds the rows of {@code ids} that still exist.
+     */
+    static <T> void patch(List<T> items, ToLongFunction<T> idOf, Set<Long> ids, Map<Long, T> fresh,
+                          Predicate<T> matches) {
+        Set<Long> seen = new HashSet<>();
+        for (int i = items.size() - 1; i >= 0; i--) {
+            long id = idOf.applyAsLong(items.get(i));
+            if (!ids.contains(id)) {
+                continue;
+            }
+            seen.add(id);
+            T row = fresh.get(id);
+            if (row != null && matches.test(row)) {
+                items.set(i, row);
+            } else {
+                items.remove(i);
+            }
+        }
+        for (Map.Entry<Long, T> entry : fresh.entrySet()) {
+            if (!seen.contains(entry.getKey()) && matches.test(entry.getValue())) {
+                items.add(entry.getValue());
+            }
+        }
+    }
+
+    private void collect(DomainEvent event) {
+        if (event instanceof CustomerUpdated) {
+            add(Entity.CUSTOMER, ((CustomerUpdated) event).getCustomerId());
+        } else if (event instanceof AccountStatusChanged) {
+            add(Entity.ACCOUNT, ((AccountStatusChanged) event).getAccountId());
+        } else if (event instanceof LoanStatusChanged) {
+            add(Entity.LOAN, ((LoanStatusChanged) event).getLoanId());
+        } else if (event instanceof TransactionPosted) {
+            // Each leg is a new transaction row and a new balance on its account
+            for (Transaction leg : ((TransactionPosted) event).getLegs()) {
+                add(Entity.TRANSACTION, leg.getId());
+                add(Entity.ACCOUNT, leg.getAccountId());
+            }
+        } else if (event instanceof EntityInvalidated) {
+            EntityInvalidated invalidated = (EntityInvalidated) event;
+            if (invalidated.getEntity() == Entity.ALL) {
+                markReloadAll();
+            } else {
+                add(invalidated.getEntity(), invalidated.getEntityId());
+            }
+        }
+    }
+
+    private synchronized void add(Entity entity, long id) {
+        if (!entities.contains(entity)) {
+            return;
+        }
+        Set<Long> ids = changed.computeIfAbsent(entity, e -> new HashSet<>());
+        if (ids == FULL) {
+            return;
+        }
+        ids.add(id);
+        if (ids.size() > MAX_TRACKED) {
+            changed.put(entity, FULL);
+        }
+    }
+
+    private synchronized void markReloadAll() {
+        reloadAll = true;
+    }
+}
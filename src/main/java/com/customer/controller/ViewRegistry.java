@@ -0,0 +1,191 @@
+package com.customer.controller;
+
+import com.customer.util.LatencyHistogram;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loaded views of the main window, keyed by FXML path.
+ *
+ * A view is parsed once and its root and controller are kept, so switching
+ * back to it only calls {@link CachedView#onShow()}. Frequently used views can
+ * be preloaded on a background thread after login; FXML loading does not need
+ * the FX thread as long as the nodes are not yet in a scene. Views that are
+ * not on screen are kept in LRU order and the least recently shown ones are
+ * disposed once there are more than {@code views.maxInactive} (default 3).
+ *
+ * Everything except the preload itself runs on the FX thread.
+ */
+public class ViewRegistry {
+
+    private static final int MAX_INACTIVE = Integer.getInteger("views.maxInactive", 3);
+
+    // Shared across logins so Diagnostics shows the whole session
+    private static final LatencyHistogram switchLatency = new LatencyHistogram();
+    private static final AtomicLong reused = new AtomicLong();
+    private static final AtomicLong loaded = new AtomicLong();
+
+    static final class View {
+        private final Node root;
+        private final Object controller;
+
+        private View(Node root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+
+        Node getRoot() {
+            return root;
+        }
+    }
+
+    // Access order: the eldest entry is the least recently shown view
+    private final Map<String, View> views = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, FutureTask<View>> preloads = new HashMap<>();
+    private ExecutorService preloader;
+    private volatile boolean cleared;
+    private String currentPath;
+
+    /** Loads the given views one after another on a background thread. */
+    void preload(List<String> fxmlPaths) {
+        if (preloader == null) {
+            preloader = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "view-preload");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        for (String path : fxmlPaths.subList(0, Math.min(fxmlPaths.size(), MAX_INACTIVE))) {
+            if (!views.containsKey(path) && !preloads.containsKey(path)) {
+                FutureTask<View> task = new FutureTask<>(() -> cleared ? null : load(path));
+                preloads.put(path, task);
+                preloader.execute(task);
+            }
+        }
+    }
+
+    /**
+     * Returns the view for {@code fxmlPath}, loading it if it is not cached, and
+     * makes it the current one. A cached view is brought up to date through
+     * {@link CachedView#onShow()}.
+     */
+    View show(String fxmlPath) throws IOException {
+        long start = System.nanoTime();
+        View view = views.get(fxmlPath);
+        if (view == null) {
+            view = takePreloaded(fxmlPath);
+        }
+        if (view == null) {
+            view = load(fxmlPath);
+            loaded.incrementAndGet();
+        } else if (view.controller instanceof CachedView) {
+            reused.incrementAndGet();
+            ((CachedView) view.controller).onShow();
+        }
+        views.put(fxmlPath, view);
+        currentPath = fxmlPath;
+        evictInactive();
+        switchLatency.record(System.nanoTime() - start);
+        return view;
+    }
+
+    /** Disposes every cached view; called on logout. */
+    void clear() {
+        cleared = true;
+        if (preloader != null) {
+            // Queued preloads now skip loading; the one running finishes, then everything unclaimed is released
+            List<FutureTask<View>> unclaimed = new ArrayList<>(preloads.values());
+            preloader.execute(() -> unclaimed.forEach(ViewRegistry::dispose));
+            preloader.shutdown();
+            preloader = null;
+        }
+        preloads.clear();
+        for (View view : views.values()) {
+            dispose(view);
+        }
+        views.clear();
+        currentPath = null;
+    }
+
+    /** FX-thread time from a menu click until the view is ready to attach, in nanoseconds. */
+    public static LatencyHistogram getSwitchLatency() {
+        return switchLatency;
+    }
+
+    /** Switches served from the cache. */
+    public static long getReusedCount() {
+        return reused.get();
+    }
+
+    /** Switches that had to parse FXML on the FX thread. */
+    public static long getLoadedCount() {
+        return loaded.get();
+    }
+
+    // Runs a preload that has not started yet right here; waits for one that is running
+    private View takePreloaded(String fxmlPath) throws IOException {
+        FutureTask<View> task = preloads.remove(fxmlPath);
+        if (task == null) {
+            return null;
+        }
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            System.err.println("Preloading " + fxmlPath + " failed: " + e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    private View load(String fxmlPath) throws IOException {
+        FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
+        Node root = loader.load();
+        return new View(root, loader.getController());
+    }
+
+    private void evictInactive() {
+        int inactive = views.size() - (currentPath != null ? 1 : 0);
+        Iterator<Map.Entry<String, View>> it = views.entrySet().iterator();
+        List<View> evicted = new ArrayList<>();
+        while (inactive > MAX_INACTIVE && it.hasNext()) {
+            Map.Entry<String, View> entry = it.next();
+            if (entry.getKey().equals(currentPath)) {
+                continue;
+            }
+            evicted.add(entry.getValue());
+            it.remove();
+            inactive--;
+        }
+        evicted.forEach(ViewRegistry::dispose);
+    }
+
+    private static void dispose(FutureTask<View> task) {
+        try {
+            dispose(task.get());
+        } catch (InterruptedException | ExecutionException ignored) {
+            // Never loaded, nothing to release
+        }
+    }
+
+    private static void dispose(View view) {
+        if (view != null && view.controller instanceof CachedView) {
+            ((CachedView) view.controller).dispose();
+        }
+    }
+}
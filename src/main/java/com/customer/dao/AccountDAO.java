@@ -1,8 +1,11 @@
 package com.customer.dao;
 
+import com.customer.event.EntityInvalidated.Entity;
+import com.customer.event.EntityInvalidated.Operation;
 import com.customer.model.Account;
 import com.customer.model.AccountStatus;
 import com.customer.model.AccountType;
+import com.customer.model.Money;
 
 import java.sql.*;
 import java.time.LocalDateTime;
@@ -10,6 +13,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class AccountDAO {
+    private static final long FIRST_ACCOUNT_NUMBER = 1001000001L;
+
+    private static final String INSERT_SQL = "INSERT INTO accounts (customer_id, account_number, account_type, balance, " +
+            "interest_rate, term_months, status, created_date, closed_date) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     private final Connection connection;
 
     public AccountDAO() {
@@ -18,51 +27,113 @@ public class AccountDAO {
 
     // Generate new account number (auto-increment from 1001000001)
     public String generateAccountNumber() throws SQLException {
-        String sql = "SELECT MAX(account_number) FROM accounts";
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            if (rs.next()) {
-                String maxAccount = rs.getString(1);
-                if (maxAccount != null) {
-                    try {
-                        long nextNum = Long.parseLong(maxAccount) + 1;
-                        return String.valueOf(nextNum);
-                    } catch (NumberFormatException e) {
-                        // Fallback if format is weird
-                    }
+        return String.valueOf(reserveAccountNumbers(connection, 1));
+    }
+
+    /**
+     * Hands out {@code count} consecutive account numbers from the
+     * {@code sequences} table and returns the first. One short row update per
+     * range instead of a MAX query per account; numbers from a rolled-back
+     * insert are simply never used. The first call seeds the counter from the
+     * highest existing account number.
+     */
+    public long reserveAccountNumbers(Connection conn, int count) throws SQLException {
+        String update = "UPDATE sequences SET last_value = LAST_INSERT_ID(last_value + ?) WHERE name = 'account_number'";
+        try (PreparedStatement pstmt = conn.prepareStatement(update)) {
+            pstmt.setInt(1, count);
+            if (pstmt.executeUpdate() == 0) {
+                String seed = "INSERT IGNORE INTO sequences (name, last_value) " +
+                        "SELECT 'account_number', COALESCE(MAX(CAST(account_number AS UNSIGNED)), ?) FROM accounts";
+                try (PreparedStatement seedStmt = conn.prepareStatement(seed)) {
+                    seedStmt.setLong(1, FIRST_ACCOUNT_NUMBER - 1);
+                    seedStmt.executeUpdate();
                 }
+                pstmt.executeUpdate();
             }
         }
-        return "1001000001";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()")) {
+            rs.next();
+            return rs.getLong(1) - count + 1;
+        }
     }
 
     // Create
     public void save(Account account) throws SQLException {
-        String sql = "INSERT INTO accounts (customer_id, account_number, account_type, balance, " +
-                "interest_rate, term_months, status, created_date, closed_date) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setLong(1, account.getCustomerId());
-            pstmt.setString(2, account.getAccountNumber());
-            pstmt.setString(3, account.getAccountType().name());
-            pstmt.setBigDecimal(4, account.getBalance());
-            pstmt.setDouble(5, account.getInterestRate());
-            pstmt.setInt(6, account.getTermMonths());
-            pstmt.setString(7, account.getStatus().name());
-            pstmt.setTimestamp(8, account.getCreatedDate() != null ? Timestamp.valueOf(account.getCreatedDate()) : Timestamp.valueOf(LocalDateTime.now()));
-            pstmt.setTimestamp(9, account.getClosedDate() != null ? Timestamp.valueOf(account.getClosedDate()) : null);
-
-            pstmt.executeUpdate();
-
-            // Get the generated ID
-            ResultSet rs = pstmt.getGeneratedKeys();
-            if (rs.next()) {
-                account.setId(rs.getLong(1));
+        ChangeLog.atomically(connection, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                bindInsert(pstmt, account);
+                pstmt.executeUpdate();
+
+                // Get the generated ID
+                ResultSet rs = pstmt.getGeneratedKeys();
+                if (rs.next()) {
+                    account.setId(rs.getLong(1));
+                }
+            }
+            ChangeLog.getInstance().record(connection, Entity.ACCOUNT, account.getId(), Operation.INSERT);
+        });
+        AccountDirectory.getInstance().onSaved(account);
+    }
+
+    /**
+     * Inserts all accounts with one batched statement on {@code conn} and sets
+     * their generated ids, in list order. Joins the caller's transaction when
+     * auto-commit is off; the caller then hands the accounts to
+     * {@link #onCommitted} once that transaction has committed.
+     */
+    public void insertBatch(Connection conn, List<Account> accounts) throws SQLException {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        boolean joined = !conn.getAutoCommit();
+        ChangeLog.atomically(conn, () -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Account account : accounts) {
+                    bindInsert(pstmt, account);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    for (Account account : accounts) {
+                        if (!rs.next()) {
+                            throw new SQLException("Missing generated key for account " + account.getAccountNumber());
+                        }
+                        account.setId(rs.getLong(1));
+                    }
+                }
+            }
+            long[] ids = new long[accounts.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = accounts.get(i).getId();
             }
+            ChangeLog.getInstance().recordBatch(conn, Entity.ACCOUNT, ids, Operation.INSERT);
+        });
+        if (!joined) {
+            onCommitted(accounts);
         }
     }
 
+    // Accounts from a rolled-back batch must never reach autocomplete, so this waits for the commit
+    public void onCommitted(List<Account> accounts) {
+        AccountDirectory directory = AccountDirectory.getInstance();
+        for (Account account : accounts) {
+            directory.onSaved(account);
+        }
+    }
+
+    private static void bindInsert(PreparedStatement pstmt, Account account) throws SQLException {
+        pstmt.setLong(1, account.getCustomerId());
+        pstmt.setString(2, account.getAccountNumber());
+        pstmt.setString(3, account.getAccountType().name());
+        MoneyColumns.set(pstmt, 4, account.getBalance());
+        pstmt.setDouble(5, account.getInterestRate());
+        pstmt.setInt(6, account.getTermMonths());
+        pstmt.setString(7, account.getStatus().name());
+        pstmt.setTimestamp(8, account.getCreatedDate() != null ? Timestamp.valueOf(account.getCreatedDate()) : Timestamp.valueOf(LocalDateTime.now()));
+        pstmt.setTimestamp(9, account.getClosedDate() != null ? Timestamp.valueOf(account.getClosedDate()) : null);
+    }
+
     // Read All (with customer name)
     public List<Account> findAll() throws SQLException {
         List<Account> accounts = new ArrayList<>();
@@ -74,9 +145,7 @@ public class AccountDAO {
         try (Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
-            while (rs.next()) {
-                accounts.add(extractAccountFromResultSet(rs));
-            }
+            accounts.addAll(RowMappers.ACCOUNT.mapAll(sql, rs));
         }
 
         return accounts;
@@ -84,17 +153,66 @@ public class AccountDAO {
 
     // Read by ID
     public Account findById(long id) throws SQLException {
+        return findById(connection, id);
+    }
+
+    // Read by ID on a caller's own connection, e.g. a background job's
+    public Account findById(Connection conn, long id) throws SQLException {
         String sql = "SELECT a.*, c.full_name as customer_name " +
                 "FROM accounts a " +
                 "JOIN customers c ON a.customer_id = c.id " +
                 "WHERE a.id = ?";
 
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, id);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return RowMappers.ACCOUNT.planFor(sql, rs).map(rs);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    // Read by account number, for lookups that cannot wait for the AccountDirectory to load
+    public Account findByAccountNumber(String accountNumber) throws SQLException {
+        String sql = "SELECT a.*, c.full_name as customer_name " +
+                "FROM accounts a " +
+                "JOIN customers c ON a.customer_id = c.id " +
+                "WHERE a.account_number = ?";
+
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, accountNumber);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return RowMappers.ACCOUNT.planFor(sql, rs).map(rs);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads the account and locks its row until {@code conn}'s transaction ends, so a
+     * posting on another connection cannot change the balance or status between this
+     * read and the caller's {@link #update}. Call with auto-commit off.
+     */
+    public Account findByIdForUpdate(Connection conn, long id) throws SQLException {
+        String sql = "SELECT a.*, c.full_name as customer_name " +
+                "FROM accounts a " +
+                "JOIN customers c ON a.customer_id = c.id " +
+                "WHERE a.id = ? FOR UPDATE OF a";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractAccountFromResultSet(rs);
+                    return RowMappers.ACCOUNT.planFor(sql, rs).map(rs);
                 }
             }
         }
@@ -115,9 +233,7 @@ public class AccountDAO {
             pstmt.setLong(1, customerId);
 
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    accounts.add(extractAccountFromResultSet(rs));
-                }
+                accounts.addAll(RowMappers.ACCOUNT.mapAll(sql, rs));
             }
         }
 
@@ -146,42 +262,53 @@ public class AccountDAO {
     public void updateStatus(long id, AccountStatus status) throws SQLException {
         String sql = "UPDATE accounts SET status = ?, closed_date = ? WHERE id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, status.name());
+        ChangeLog.atomically(connection, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setString(1, status.name());
 
-            if (status == AccountStatus.CLOSED) {
-                pstmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
-            } else {
-                pstmt.setTimestamp(2, null);
-            }
+                if (status == AccountStatus.CLOSED) {
+                    pstmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                } else {
+                    pstmt.setTimestamp(2, null);
+                }
 
-            pstmt.setLong(3, id);
-            pstmt.executeUpdate();
-        }
+                pstmt.setLong(3, id);
+                pstmt.executeUpdate();
+            }
+            ChangeLog.getInstance().record(connection, Entity.ACCOUNT, id, Operation.UPDATE);
+        });
+        AccountDirectory.getInstance().onStatusChanged(id, status);
     }
 
     // Update Balance
-    public void updateBalance(long id, java.math.BigDecimal balance) throws SQLException {
+    public void updateBalance(long id, Money balance) throws SQLException {
         String sql = "UPDATE accounts SET balance = ? WHERE id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setBigDecimal(1, balance);
-            pstmt.setLong(2, id);
-            pstmt.executeUpdate();
-        }
+        ChangeLog.atomically(connection, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                MoneyColumns.set(pstmt, 1, balance);
+                pstmt.setLong(2, id);
+                pstmt.executeUpdate();
+            }
+            ChangeLog.getInstance().record(connection, Entity.ACCOUNT, id, Operation.UPDATE);
+        });
     }
 
     // Update with provided connection (for transactions)
     public void update(Account account, Connection conn) throws SQLException {
         String sql = "UPDATE accounts SET balance = ?, status = ?, closed_date = ? WHERE id = ?";
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setBigDecimal(1, account.getBalance());
-            pstmt.setString(2, account.getStatus().name());
-            pstmt.setTimestamp(3, account.getClosedDate() != null ? Timestamp.valueOf(account.getClosedDate()) : null);
-            pstmt.setLong(4, account.getId());
-            pstmt.executeUpdate();
-        }
+        ChangeLog.atomically(conn, () -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                MoneyColumns.set(pstmt, 1, account.getBalance());
+                pstmt.setString(2, account.getStatus().name());
+                pstmt.setTimestamp(3, account.getClosedDate() != null ? Timestamp.valueOf(account.getClosedDate()) : null);
+                pstmt.setLong(4, account.getId());
+                pstmt.executeUpdate();
+            }
+            ChangeLog.getInstance().record(conn, Entity.ACCOUNT, account.getId(), Operation.UPDATE);
+        });
+        AccountDirectory.getInstance().onStatusChanged(account.getId(), account.getStatus());
     }
 
     // Search and Filter
@@ -220,43 +347,10 @@ public class AccountDAO {
             }
 
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    accounts.add(extractAccountFromResultSet(rs));
-                }
+                accounts.addAll(RowMappers.ACCOUNT.mapAll(sql.toString(), rs));
             }
         }
 
         return accounts;
     }
-
-    // Helper to extract Account from ResultSet
-    private Account extractAccountFromResultSet(ResultSet rs) throws SQLException {
-        Account account = new Account();
-        account.setId(rs.getLong("id"));
-        account.setCustomerId(rs.getLong("customer_id"));
-        account.setAccountNumber(rs.getString("account_number"));
-        account.setAccountType(AccountType.valueOf(rs.getString("account_type")));
-        account.setBalance(rs.getBigDecimal("balance"));
-        account.setInterestRate(rs.getDouble("interest_rate"));
-        account.setTermMonths(rs.getInt("term_months"));
-        account.setStatus(AccountStatus.valueOf(rs.getString("status")));
-
-        Timestamp created = rs.getTimestamp("created_date");
-        if (created != null) account.setCreatedDate(created.toLocalDateTime());
-
-        Timestamp closed = rs.getTimestamp("closed_date");
-        if (closed != null) account.setClosedDate(closed.toLocalDateTime());
-
-        // Transient field
-        try {
-            String customerName = rs.getString("customer_name");
-            if (customerName != null) {
-                account.setCustomerName(customerName);
-            }
-        } catch (SQLException e) {
-            // Column might not exist in some queries
-        }
-
-        return account;
-    }
 }
@@ -0,0 +1,567 @@
+package com.customer.dao;
+
+import com.customer.event.EntityInvalidated;
+import com.customer.event.EntityInvalidated.Entity;
+import com.customer.event.EventBus;
+import com.customer.model.Account;
+import com.customer.model.AccountStatus;
+import com.customer.model.AccountType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Number, id, customer, status and type of every account, held in memory for
+ * lookups and number autocomplete without a query.
+ *
+ * Accounts sit in parallel primitive arrays. Two open-addressing tables of
+ * entry indexes find them by number and by id, and a sorted {@code long[]} of
+ * numbers answers prefix searches as one range per number length. That is
+ * about 50 bytes per account, against several hundred for an {@link Account}.
+ * Numbers that do not fit a long (leading zero, letters, over 18 digits) go in
+ * a small side map.
+ *
+ * Built with one streaming query in the background, then kept current by the
+ * {@link AccountDAO} and {@link CustomerDAO} mutations that touch these
+ * columns, and by change log events from other instances. Accounts are never
+ * deleted, so entries are never removed.
+ */
+public class AccountDirectory {
+
+    private static final AccountDirectory INSTANCE = new AccountDirectory();
+
+    private static final int MAX_DIGITS = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+    private static final long IRREGULAR = -1;
+    private static final int ID_CHUNK = 1000;
+    private static final long RETRY_SECONDS = 30;
+    private static final AccountStatus[] STATUSES = AccountStatus.values();
+    private static final AccountType[] TYPES = AccountType.values();
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_DIGITS; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /** One account as the directory knows it. */
+    public static final class Entry {
+        private final long id;
+        private final String accountNumber;
+        private final long customerId;
+        private final AccountStatus status;
+        private final AccountType type;
+
+        Entry(long id, String accountNumber, long customerId, AccountStatus status, AccountType type) {
+            this.id = id;
+            this.accountNumber = accountNumber;
+            this.customerId = customerId;
+            this.status = status;
+            this.type = type;
+        }
+
+        public long getId() { return id; }
+        public String getAccountNumber() { return accountNumber; }
+        public long getCustomerId() { return customerId; }
+        public AccountStatus getStatus() { return status; }
+        public AccountType getType() { return type; }
+    }
+
+    private static final class Table {
+        private long[] numbers = new long[1024];
+        private long[] ids = new long[1024];
+        private long[] customerIds = new long[1024];
+        // status ordinal in the low nibble, type ordinal in the high one
+        private byte[] flags = new byte[1024];
+        private int size;
+
+        // Entry index + 1; 0 is an empty slot
+        private int[] byNumber = new int[2048];
+        private int[] byId = new int[2048];
+        private int shift = 64 - 11;
+
+        private long[] sorted = new long[1024];
+        private int sortedSize;
+
+        private final TreeMap<String, Integer> irregular = new TreeMap<>();
+        private final Map<Integer, String> irregularNumbers = new HashMap<>();
+
+        int find(long id) {
+            int mask = byId.length - 1;
+            for (int slot = slot(id); ; slot = (slot + 1) & mask) {
+                int entry = byId[slot] - 1;
+                if (entry < 0 || ids[entry] == id) {
+                    return entry;
+                }
+            }
+        }
+
+        int find(String accountNumber) {
+            long number = parse(accountNumber);
+            if (number == IRREGULAR) {
+                Integer entry = irregular.get(accountNumber);
+                return entry != null ? entry : -1;
+            }
+            return findNumber(number);
+        }
+
+        int findNumber(long number) {
+            int mask = byNumber.length - 1;
+            for (int slot = slot(number); ; slot = (slot + 1) & mask) {
+                int entry = byNumber[slot] - 1;
+                if (entry < 0 || numbers[entry] == number) {
+                    return entry;
+                }
+            }
+        }
+
+        /** Adds or updates an account; {@code keepSorted} is false while bulk loading. */
+        void put(long id, String accountNumber, long customerId, AccountStatus status, AccountType type, boolean keepSorted) {
+            int entry = find(id);
+            if (entry >= 0) {
+                customerIds[entry] = customerId;
+                flags[entry] = flags(status, type);
+                return;
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                numbers = Arrays.copyOf(numbers, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                customerIds = Arrays.copyOf(customerIds, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+            }
+            // At most three quarters full, so probe chains stay short
+            if ((size + 1) * 4L > byId.length * 3L) {
+                rehash(byId.length * 2);
+            }
+            entry = size++;
+            long number = parse(accountNumber);
+            numbers[entry] = number;
+            ids[entry] = id;
+            customerIds[entry] = customerId;
+            flags[entry] = flags(status, type);
+            insert(byId, id, entry);
+            if (number == IRREGULAR) {
+                irregular.put(accountNumber, entry);
+                irregularNumbers.put(entry, accountNumber);
+                return;
+            }
+            insert(byNumber, number, entry);
+            addSorted(number, keepSorted);
+        }
+
+        void setStatus(int entry, AccountStatus status) {
+            flags[entry] = flags(status, TYPES[flags[entry] >> 4]);
+        }
+
+        void setCustomer(int entry, long customerId) {
+            customerIds[entry] = customerId;
+        }
+
+        void finishLoad() {
+            Arrays.sort(sorted, 0, sortedSize);
+        }
+
+        Entry entry(int entry) {
+            long number = numbers[entry];
+            return new Entry(ids[entry], number == IRREGULAR ? irregularNumbers.get(entry) : Long.toString(number),
+                    customerIds[entry], STATUSES[flags[entry] & 0x0F],
+                    TYPES[flags[entry] >> 4]);
+        }
+
+        List<Entry> search(String prefix, int limit, Predicate<Entry> filter) {
+            List<Entry> result = new ArrayList<>(Math.min(limit, 64));
+            if (prefix.isEmpty()) {
+                collect(0, Long.MAX_VALUE, limit, filter, result);
+            } else if (isRegularPrefix(prefix)) {
+                long value = Long.parseLong(prefix);
+                // Shortest numbers first, so an exact match leads
+                for (int digits = prefix.length(); digits <= MAX_DIGITS && result.size() < limit; digits++) {
+                    long scale = POWERS_OF_TEN[digits - prefix.length()];
+                    collect(value * scale, (value + 1) * scale, limit, filter, result);
+                }
+            }
+            for (Map.Entry<String, Integer> candidate : irregular.tailMap(prefix, true).entrySet()) {
+                if (result.size() == limit || !candidate.getKey().startsWith(prefix)) {
+                    break;
+                }
+                Entry entry = entry(candidate.getValue());
+                if (filter.test(entry)) {
+                    result.add(entry);
+                }
+            }
+            return result;
+        }
+
+        // Numbers in [from, to), in order
+        private void collect(long from, long to, int limit, Predicate<Entry> filter, List<Entry> result) {
+            int index = lowerBound(from);
+            while (index < sortedSize && sorted[index] < to && result.size() < limit) {
+                Entry entry = entry(findNumber(sorted[index++]));
+                if (filter.test(entry)) {
+                    result.add(entry);
+                }
+            }
+        }
+
+        private int lowerBound(long number) {
+            int low = 0;
+            int high = sortedSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid] < number) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private void addSorted(long number, boolean keepSorted) {
+            if (sortedSize == sorted.length) {
+                sorted = Arrays.copyOf(sorted, sortedSize * 2);
+            }
+            // New numbers come from a rising sequence, so this is nearly always an append
+            int index = keepSorted ? lowerBound(number) : sortedSize;
+            System.arraycopy(sorted, index, sorted, index + 1, sortedSize - index);
+            sorted[index] = number;
+            sortedSize++;
+        }
+
+        private void rehash(int capacity) {
+            byId = new int[capacity];
+            byNumber = new int[capacity];
+            shift = 64 - Integer.numberOfTrailingZeros(capacity);
+            for (int entry = 0; entry < size; entry++) {
+                insert(byId, ids[entry], entry);
+                if (numbers[entry] != IRREGULAR) {
+                    insert(byNumber, numbers[entry], entry);
+                }
+            }
+        }
+
+        private void insert(int[] table, long key, int entry) {
+            int mask = table.length - 1;
+            int slot = slot(key);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = entry + 1;
+        }
+
+        // Fibonacci hashing: the top bits of key * 2^64/phi spread sequential keys evenly
+        private int slot(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        }
+
+        private static byte flags(AccountStatus status, AccountType type) {
+            return (byte) (status.ordinal() | type.ordinal() << 4);
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Table table = new Table();
+    private volatile boolean ready;
+    private EventBus.Subscription subscription;
+
+    // Hook calls made while a rebuild is streaming, replayed onto the new table
+    private List<Runnable> pending;
+    private boolean rebuilding;
+    private boolean rescan;
+
+    private final ScheduledExecutorService retries;
+
+    private AccountDirectory() {
+        retries = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "account-directory-retry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static AccountDirectory getInstance() {
+        return INSTANCE;
+    }
+
+    /** Subscribes to changes from other instances and loads every account in the background. */
+    public synchronized void start() {
+        if (subscription != null) {
+            return;
+        }
+        subscription = EventBus.getInstance().subscribe("account-directory", EntityInvalidated.class,
+                new EventBus.Subscriber<>() {
+                    @Override
+                    public void onEvents(List<EntityInvalidated> events) {
+                        onInvalidated(events);
+                    }
+
+                    @Override
+                    public void onOverflow() {
+                        rebuildInBackground();
+                    }
+                });
+        rebuildInBackground();
+    }
+
+    public synchronized void stop() {
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+    }
+
+    /** False until the first load has finished; lookups find nothing before that, except {@link #lookupByNumber}. */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Entry findByNumber(String accountNumber) {
+        if (accountNumber == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            int entry = table.find(accountNumber.trim());
+            return entry >= 0 ? table.entry(entry) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Like {@link #findByNumber}, but asks the database while the directory is not loaded
+     * (still loading, or its last load failed), so a number typed in full still resolves.
+     */
+    public Entry lookupByNumber(String accountNumber) {
+        if (ready) {
+            return findByNumber(accountNumber);
+        }
+        if (accountNumber == null || accountNumber.isBlank()) {
+            return null;
+        }
+        try {
+            Account account = new AccountDAO().findByAccountNumber(accountNumber.trim());
+            return account == null ? null : new Entry(account.getId(), account.getAccountNumber(),
+                    account.getCustomerId(), account.getStatus(), account.getAccountType());
+        } catch (SQLException e) {
+            System.err.println("Account lookup failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public Entry findById(long id) {
+        lock.readLock().lock();
+        try {
+            int entry = table.find(id);
+            return entry >= 0 ? table.entry(entry) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Up to {@code limit} accounts passing {@code filter} whose number starts with {@code prefix}, shortest and lowest first. */
+    public List<Entry> search(String prefix, int limit, Predicate<Entry> filter) {
+        lock.readLock().lock();
+        try {
+            return table.search(prefix == null ? "" : prefix.trim(), limit, filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return table.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Hooks (called by the DAOs after their statement succeeded) ---
+
+    void onSaved(Account account) {
+        long id = account.getId();
+        String number = account.getAccountNumber();
+        long customerId = account.getCustomerId();
+        AccountStatus status = account.getStatus();
+        AccountType type = account.getAccountType();
+        apply(() -> table.put(id, number, customerId, status, type, true));
+    }
+
+    void onStatusChanged(long id, AccountStatus status) {
+        apply(() -> {
+            int entry = table.find(id);
+            if (entry >= 0) {
+                table.setStatus(entry, status);
+            }
+        });
+    }
+
+    void onCustomerChanged(List<Long> accountIds, long customerId) {
+        apply(() -> {
+            for (long id : accountIds) {
+                int entry = table.find(id);
+                if (entry >= 0) {
+                    table.setCustomer(entry, customerId);
+                }
+            }
+        });
+    }
+
+    // Holds the monitor throughout, so a change cannot slip between a rebuild's swap and its replay
+    private synchronized void apply(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (pending != null) {
+            pending.add(change);
+        }
+    }
+
+    // --- Other instances ---
+
+    private void onInvalidated(List<EntityInvalidated> events) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (EntityInvalidated event : events) {
+            if (event.getEntity() == Entity.ALL) {
+                rebuildInBackground();
+                return;
+            }
+            if (event.getEntity() == Entity.ACCOUNT) {
+                ids.add(event.getEntityId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+            Long[] all = ids.toArray(new Long[0]);
+            for (int from = 0; from < all.length; from += ID_CHUNK) {
+                int to = Math.min(all.length, from + ID_CHUNK);
+                String sql = "SELECT id, account_number, customer_id, status, account_type FROM accounts WHERE id IN ("
+                        + "?,".repeat(to - from - 1) + "?)";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = from; i < to; i++) {
+                        pstmt.setLong(i - from + 1, all[i]);
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            long id = rs.getLong(1);
+                            String number = rs.getString(2);
+                            long customerId = rs.getLong(3);
+                            AccountStatus status = AccountStatus.valueOf(rs.getString(4));
+                            AccountType type = AccountType.valueOf(rs.getString(5));
+                            apply(() -> table.put(id, number, customerId, status, type, true));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Account directory refresh failed: " + e.getMessage());
+            rebuildInBackground();
+        }
+    }
+
+    // --- Rebuild ---
+
+    private void rebuildInBackground() {
+        synchronized (this) {
+            if (rebuilding) {
+                rescan = true;
+                return;
+            }
+            rebuilding = true;
+            pending = new ArrayList<>();
+        }
+        Thread thread = new Thread(this::rebuild, "account-directory-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        Table loaded = new Table();
+        String sql = "SELECT id, account_number, customer_id, status, account_type FROM accounts";
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Connector/J streams rows one at a time instead of buffering the whole result
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    loaded.put(rs.getLong(1), rs.getString(2), rs.getLong(3),
+                            AccountStatus.valueOf(rs.getString(4)), AccountType.valueOf(rs.getString(5)), false);
+                }
+            }
+            loaded.finishLoad();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Account directory rebuild failed: " + e.getMessage());
+            loaded = null;
+        }
+
+        boolean again;
+        synchronized (this) {
+            if (loaded != null) {
+                lock.writeLock().lock();
+                try {
+                    table = loaded;
+                    // Hooks write through the `table` field, so replaying them updates the new one
+                    pending.forEach(Runnable::run);
+                    ready = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                System.out.printf("Account directory loaded %d accounts in %d ms%n",
+                        loaded.size, (System.nanoTime() - start) / 1_000_000);
+            }
+            pending = null;
+            rebuilding = false;
+            again = rescan;
+            rescan = false;
+        }
+        if (again) {
+            rebuildInBackground();
+        } else if (loaded == null) {
+            // Until a load succeeds, autocomplete has nothing (or stale data) to offer
+            retries.schedule(this::rebuildInBackground, RETRY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    static long parse(String accountNumber) {
+        return isRegularPrefix(accountNumber) ? Long.parseLong(accountNumber) : IRREGULAR;
+    }
+
+    // Digits only, no leading zero and short enough for a long, so the string and the number map one to one
+    private static boolean isRegularPrefix(String text) {
+        int length = text.length();
+        if (length == 0 || length > MAX_DIGITS || text.charAt(0) == '0') {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
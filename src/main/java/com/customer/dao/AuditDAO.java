@@ -0,0 +1,103 @@
+package com.customer.dao;
+
+import com.customer.model.AuditAction;
+import com.customer.model.AuditEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AuditDAO {
+
+    private final ConnectionRouter router;
+
+    public AuditDAO() {
+        this.router = ConnectionRouter.getInstance();
+    }
+
+    /**
+     * Inserts a batch of events in one transaction on {@code conn}. Events already
+     * stored (same source and sequence, from a delivery retried after a crash) are skipped.
+     */
+    public void insertBatch(Connection conn, List<AuditEvent> events) throws SQLException {
+        String sql = "INSERT IGNORE INTO audit_log (source, seq, occurred_at, user_id, username, action, " +
+                     "entity_type, entity_id, detail) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (AuditEvent event : events) {
+                pstmt.setString(1, event.getSource());
+                pstmt.setLong(2, event.getSequence());
+                pstmt.setTimestamp(3, Timestamp.valueOf(event.getOccurredAt()));
+                if (event.getUserId() != null) {
+                    pstmt.setLong(4, event.getUserId());
+                } else {
+                    pstmt.setNull(4, Types.BIGINT);
+                }
+                pstmt.setString(5, event.getUsername());
+                pstmt.setString(6, event.getAction().name());
+                pstmt.setString(7, event.getEntityType());
+                if (event.getEntityId() != null) {
+                    pstmt.setLong(8, event.getEntityId());
+                } else {
+                    pstmt.setNull(8, Types.BIGINT);
+                }
+                pstmt.setString(9, event.getDetail());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /** Newest first; null filters are ignored. */
+    public List<AuditEvent> search(LocalDate from, LocalDate to, AuditAction action, String username, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT source, seq, occurred_at, user_id, username, action, entity_type, entity_id, detail " +
+                "FROM audit_log WHERE occurred_at >= ? AND occurred_at < ?");
+        List<Object> params = new ArrayList<>();
+        params.add(Timestamp.valueOf(from.atStartOfDay()));
+        params.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        if (action != null) {
+            sql.append(" AND action = ?");
+            params.add(action.name());
+        }
+        if (username != null && !username.isBlank()) {
+            sql.append(" AND username = ?");
+            params.add(username.trim());
+        }
+        sql.append(" ORDER BY occurred_at DESC, seq DESC LIMIT ").append(limit);
+
+        List<AuditEvent> events = new ArrayList<>();
+        try (Connection conn = router.getReportingConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long userId = rs.getLong("user_id");
+                    Long user = rs.wasNull() ? null : userId;
+                    long entityId = rs.getLong("entity_id");
+                    Long entity = rs.wasNull() ? null : entityId;
+                    events.add(new AuditEvent(rs.getString("source"), rs.getLong("seq"),
+                            rs.getTimestamp("occurred_at").toLocalDateTime(), user, rs.getString("username"),
+                            AuditAction.valueOf(rs.getString("action")), rs.getString("entity_type"), entity,
+                            rs.getString("detail")));
+                }
+            }
+        }
+        return events;
+    }
+}
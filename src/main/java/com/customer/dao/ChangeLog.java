@@ -0,0 +1,270 @@
+package com.customer.dao;
+
+import com.customer.event.EntityInvalidated;
+import com.customer.event.EntityInvalidated.Entity;
+import com.customer.event.EntityInvalidated.Operation;
+import com.customer.event.EventBus;
+import com.customer.util.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps in-memory state coherent across app instances that share one database.
+ *
+ * Every DAO mutation appends a change_log row in the same transaction as the
+ * change itself. Each instance tails the table with a high-water-mark poll
+ * ({@code id > mark}) and republishes rows written by other instances as
+ * {@link EntityInvalidated} events on the {@link EventBus}.
+ *
+ * Coherence lag (commit on another instance until we publish the
+ * invalidation) is bounded by the poll interval and recorded in a histogram.
+ * Rows older than {@link #RETENTION_HOURS} are pruned by whichever instance
+ * gets there first.
+ */
+public class ChangeLog {
+
+    private static final ChangeLog INSTANCE = new ChangeLog();
+
+    private static final long DEFAULT_POLL_MS = 250;
+    private static final int POLL_BATCH = 1000;
+    // An id below the newest one we have seen but still missing after this long is treated as rolled back
+    private static final long GAP_TIMEOUT_MS = 10_000;
+    static final int RETENTION_HOURS = 24;
+    private static final long PRUNE_INTERVAL_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final int PRUNE_BATCH = 5000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO change_log (entity, entity_id, operation, instance_id) VALUES (?, ?, ?, ?)";
+    private static final String POLL_SQL =
+            "SELECT id, entity, entity_id, operation, instance_id, " +
+            "TIMESTAMPDIFF(MICROSECOND, created_at, NOW(3)) AS age_us " +
+            "FROM change_log WHERE id > ? ORDER BY id LIMIT " + POLL_BATCH;
+    private static final String PRUNE_SQL =
+            "DELETE FROM change_log WHERE created_at < NOW(3) - INTERVAL " + RETENTION_HOURS + " HOUR LIMIT " + PRUNE_BATCH;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final long pollMs = Long.getLong("changelog.pollMs", DEFAULT_POLL_MS);
+    private final LatencyHistogram lag = new LatencyHistogram();
+
+    private ScheduledExecutorService tailer;
+    private Connection tailConnection;
+
+    // Every id <= mark has been handled; ids above it that were already handled are in `seen`
+    private long mark = -1;
+    private final TreeSet<Long> seen = new TreeSet<>();
+    private long stuckSinceMs = 0;
+    private long lastPruneMs = 0;
+
+    private ChangeLog() {
+    }
+
+    public static ChangeLog getInstance() {
+        return INSTANCE;
+    }
+
+    public interface Mutation {
+        void run() throws SQLException;
+    }
+
+    /**
+     * Runs {@code mutation} in one transaction on {@code conn}. When the caller
+     * already has a transaction open (auto-commit off) the mutation joins it and
+     * the caller commits.
+     */
+    static void atomically(Connection conn, Mutation mutation) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            mutation.run();
+            return;
+        }
+
+        conn.setAutoCommit(false);
+        try {
+            mutation.run();
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // Must be called inside the mutation's transaction, see atomically()
+    void record(Connection conn, Entity entity, long entityId, Operation operation) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+            pstmt.setString(1, entity.name());
+            pstmt.setLong(2, entityId);
+            pstmt.setString(3, operation.name());
+            pstmt.setString(4, instanceId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Batched form of record() for bulk inserts; same transaction rule
+    void recordBatch(Connection conn, Entity entity, long[] entityIds, Operation operation) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+            for (long entityId : entityIds) {
+                pstmt.setString(1, entity.name());
+                pstmt.setLong(2, entityId);
+                pstmt.setString(3, operation.name());
+                pstmt.setString(4, instanceId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /** Identifies this app instance in the shared tables. */
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public LatencyHistogram getLagHistogram() {
+        return lag;
+    }
+
+    public long getPollIntervalMs() {
+        return pollMs;
+    }
+
+    // --- Tailing ---
+
+    public synchronized void startTailing() {
+        if (tailer != null) {
+            return;
+        }
+        tailer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-log-tail");
+            t.setDaemon(true);
+            return t;
+        });
+        tailer.scheduleWithFixedDelay(this::tick, pollMs, pollMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopTailing() {
+        if (tailer != null) {
+            tailer.shutdownNow();
+            tailer = null;
+        }
+        if (tailConnection != null) {
+            try {
+                tailConnection.close();
+            } catch (SQLException e) {
+                // Already broken
+            }
+            tailConnection = null;
+        }
+    }
+
+    private void tick() {
+        try {
+            if (tailConnection == null || tailConnection.isClosed()) {
+                tailConnection = DatabaseManager.getInstance().openDedicatedConnection();
+            }
+            if (mark < 0) {
+                mark = startingMark();
+            }
+            poll();
+            long now = System.currentTimeMillis();
+            if (now - lastPruneMs > PRUNE_INTERVAL_MS) {
+                lastPruneMs = now;
+                prune();
+            }
+        } catch (SQLException e) {
+            System.err.println("Change log poll failed: " + e.getMessage());
+            try {
+                if (tailConnection != null) tailConnection.close();
+            } catch (SQLException ex) {
+                // Already broken
+            }
+            tailConnection = null;
+        }
+    }
+
+    // Start from the current end of the log: state loaded after startup is already fresh
+    private long startingMark() throws SQLException {
+        try (Statement stmt = tailConnection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM change_log")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private void poll() throws SQLException {
+        try (PreparedStatement pstmt = tailConnection.prepareStatement(POLL_SQL)) {
+            pstmt.setLong(1, mark);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                EventBus bus = EventBus.getInstance();
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    if (!seen.add(id) || instanceId.equals(rs.getString(5))) {
+                        continue;
+                    }
+                    lag.record(TimeUnit.MICROSECONDS.toNanos(Math.max(0, rs.getLong(6))));
+                    bus.publish(new EntityInvalidated(
+                            Entity.valueOf(rs.getString(2)), rs.getLong(3), Operation.valueOf(rs.getString(4))));
+                }
+            }
+        }
+
+        // Away longer than the retention window: rows we never read are gone, so anything may be stale
+        if (!seen.isEmpty() && seen.first() > mark + 1 && stuckSinceMs == 0 && isPruned(mark + 1)) {
+            EventBus.getInstance().publish(EntityInvalidated.all());
+            mark = seen.first() - 1;
+        }
+        advanceMark();
+    }
+
+    /**
+     * Auto-increment ids are assigned at insert but become visible at commit, so a
+     * lower id can show up after a higher one. The mark only moves over ids we have
+     * actually handled; a hole that stays open past GAP_TIMEOUT_MS is assumed to be a
+     * rolled-back insert and skipped, with a full invalidation in case it was not.
+     */
+    private void advanceMark() {
+        while (!seen.isEmpty() && seen.first() == mark + 1) {
+            mark = seen.pollFirst();
+        }
+        if (seen.isEmpty()) {
+            stuckSinceMs = 0;
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (stuckSinceMs == 0) {
+            stuckSinceMs = now;
+        } else if (now - stuckSinceMs > GAP_TIMEOUT_MS) {
+            mark = seen.first() - 1;
+            stuckSinceMs = 0;
+            EventBus.getInstance().publish(EntityInvalidated.all());
+            advanceMark();
+        }
+    }
+
+    private boolean isPruned(long id) throws SQLException {
+        try (Statement stmt = tailConnection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(id) FROM change_log")) {
+            return rs.next() && rs.getLong(1) > id;
+        }
+    }
+
+    private void prune() throws SQLException {
+        try (Statement stmt = tailConnection.createStatement()) {
+            while (stmt.executeUpdate(PRUNE_SQL) == PRUNE_BATCH) {
+                // Small batches keep each delete short so inserts are not held up
+            }
+        }
+    }
+}
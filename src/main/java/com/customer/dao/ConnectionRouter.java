@@ -0,0 +1,298 @@
+package com.customer.dao;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Routes reporting reads to a read replica when one is configured.
+ *
+ * Replica settings come from system properties:
+ *   db.replica.url, db.replica.user, db.replica.password,
+ *   db.replica.maxStalenessMs (default 5000).
+ *
+ * Lag is measured with a heartbeat row that is written to the primary once a
+ * second and read back from the replica. A reporting read falls back to the
+ * primary when the replica is not configured, unreachable, lagging more than
+ * the staleness bound, or could still be missing a write made by this
+ * instance (read-your-own-writes).
+ */
+public class ConnectionRouter {
+
+    private static final ConnectionRouter INSTANCE = new ConnectionRouter();
+
+    private static final int REPLICA_POOL_SIZE = 4;
+    private static final long BORROW_TIMEOUT_MS = 500;
+    private static final long HEARTBEAT_INTERVAL_MS = 1000;
+    private static final long DEFAULT_MAX_STALENESS_MS = 5000;
+
+    private static final String HEARTBEAT_TABLE =
+            "CREATE TABLE IF NOT EXISTS replication_heartbeat (id INT PRIMARY KEY, beat_time BIGINT NOT NULL)";
+    private static final String HEARTBEAT_UPDATE = "UPDATE replication_heartbeat SET beat_time = ? WHERE id = 1";
+    private static final String HEARTBEAT_INSERT = "INSERT INTO replication_heartbeat (id, beat_time) VALUES (1, ?)";
+    private static final String HEARTBEAT_READ = "SELECT beat_time FROM replication_heartbeat WHERE id = 1";
+
+    private final PrimarySource primary;
+    private final String replicaUrl;
+    private final String replicaUser;
+    private final String replicaPassword;
+    private final long maxStalenessMs;
+
+    private final BlockingQueue<Connection> idleReplicas = new ArrayBlockingQueue<>(REPLICA_POOL_SIZE);
+    private final Semaphore replicaPermits = new Semaphore(REPLICA_POOL_SIZE);
+
+    // Updated by the heartbeat thread, read on every routing decision
+    private volatile long replicaLagMs = Long.MAX_VALUE;
+    private volatile boolean replicaHealthy = false;
+    private volatile long lastPrimaryWriteMs = 0;
+
+    private volatile ScheduledExecutorService heartbeat;
+    private Connection heartbeatPrimary;
+    private Connection heartbeatReplica;
+
+    private ConnectionRouter() {
+        this(new PrimarySource() {
+                    @Override
+                    public Connection shared() {
+                        return DatabaseManager.getInstance().getConnection();
+                    }
+
+                    @Override
+                    public Connection openDedicated() throws SQLException {
+                        return DatabaseManager.getInstance().openDedicatedConnection();
+                    }
+                },
+                System.getProperty("db.replica.url"),
+                System.getProperty("db.replica.user", ""),
+                System.getProperty("db.replica.password", ""),
+                Long.getLong("db.replica.maxStalenessMs", DEFAULT_MAX_STALENESS_MS));
+    }
+
+    // Lets the router run against any pair of databases, e.g. two local embedded ones
+    ConnectionRouter(PrimarySource primary, String replicaUrl, String replicaUser, String replicaPassword, long maxStalenessMs) {
+        this.primary = primary;
+        this.replicaUrl = replicaUrl;
+        this.replicaUser = replicaUser;
+        this.replicaPassword = replicaPassword;
+        this.maxStalenessMs = maxStalenessMs;
+    }
+
+    public static ConnectionRouter getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isReplicaConfigured() {
+        return replicaUrl != null && !replicaUrl.isBlank();
+    }
+
+    public long getReplicaLagMs() {
+        return replicaLagMs;
+    }
+
+    /**
+     * Connection for a reporting read. Always close it when done: a replica
+     * connection goes back to the pool, closing a primary fallback is a no-op.
+     */
+    public Connection getReportingConnection() {
+        if (canUseReplica()) {
+            Connection replica = borrowReplica();
+            if (replica != null) {
+                return replica;
+            }
+        }
+        return primaryLease();
+    }
+
+    // Called by the instrumentation layer after any write so our own writes are read back from the primary
+    void recordPrimaryWrite() {
+        lastPrimaryWriteMs = System.currentTimeMillis();
+    }
+
+    private boolean canUseReplica() {
+        if (!isReplicaConfigured()) {
+            return false;
+        }
+        if (heartbeat == null) {
+            ensureHeartbeatStarted();
+        }
+        if (!replicaHealthy || replicaLagMs > maxStalenessMs) {
+            return false;
+        }
+        // The replica may still be missing a write we made less than `lag` ago
+        long sinceLastWrite = System.currentTimeMillis() - lastPrimaryWriteMs;
+        return sinceLastWrite > replicaLagMs;
+    }
+
+    /**
+     * Starts lag measurement and opens the replica pool ahead of the first report,
+     * so that report does not pay for the connections. No-op without a replica.
+     */
+    public void warmUp() {
+        if (!isReplicaConfigured()) {
+            return;
+        }
+        ensureHeartbeatStarted();
+        while (idleReplicas.remainingCapacity() > 0) {
+            try {
+                idleReplicas.offer(InstrumentedConnection.wrap(DriverManager.getConnection(replicaUrl, replicaUser, replicaPassword)));
+            } catch (SQLException e) {
+                System.err.println("Replica warm-up failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    // --- Replica pool ---
+
+    private Connection borrowReplica() {
+        try {
+            if (!replicaPermits.tryAcquire(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        Connection conn = idleReplicas.poll();
+        try {
+            if (conn == null || conn.isClosed()) {
+                conn = InstrumentedConnection.wrap(DriverManager.getConnection(replicaUrl, replicaUser, replicaPassword));
+            }
+        } catch (SQLException e) {
+            System.err.println("Replica connection failed, using primary: " + e.getMessage());
+            replicaHealthy = false;
+            replicaPermits.release();
+            return null;
+        }
+
+        Connection pooled = conn;
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close")) {
+                        if (!released.compareAndSet(false, true)) {
+                            return null;
+                        }
+                        if (!pooled.isClosed() && pooled.getAutoCommit()) {
+                            idleReplicas.offer(pooled);
+                        } else {
+                            pooled.close();
+                        }
+                        replicaPermits.release();
+                        return null;
+                    }
+                    return InstrumentedConnection.invokeDelegate(pooled, method, args);
+                });
+    }
+
+    // Shared primary connection behind a close() that does nothing, so callers can always use try-with-resources
+    private Connection primaryLease() {
+        Connection shared = primary.shared();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close")) {
+                        return null;
+                    }
+                    return InstrumentedConnection.invokeDelegate(shared, method, args);
+                });
+    }
+
+    // --- Heartbeat / lag measurement ---
+
+    private synchronized void ensureHeartbeatStarted() {
+        if (heartbeat != null) {
+            return;
+        }
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeat.scheduleWithFixedDelay(this::beat, 0, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void beat() {
+        long now = System.currentTimeMillis();
+        try {
+            // Dedicated connection: never mixes with a transaction open on the shared primary connection
+            if (heartbeatPrimary == null || heartbeatPrimary.isClosed()) {
+                heartbeatPrimary = primary.openDedicated();
+                try (Statement stmt = heartbeatPrimary.createStatement()) {
+                    stmt.execute(HEARTBEAT_TABLE);
+                }
+            }
+            try (PreparedStatement update = heartbeatPrimary.prepareStatement(HEARTBEAT_UPDATE)) {
+                update.setLong(1, now);
+                if (update.executeUpdate() == 0) {
+                    try (PreparedStatement insert = heartbeatPrimary.prepareStatement(HEARTBEAT_INSERT)) {
+                        insert.setLong(1, now);
+                        insert.executeUpdate();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            closeQuietly(heartbeatPrimary);
+            heartbeatPrimary = null;
+        }
+
+        try {
+            if (heartbeatReplica == null || heartbeatReplica.isClosed()) {
+                heartbeatReplica = DriverManager.getConnection(replicaUrl, replicaUser, replicaPassword);
+            }
+            try (Statement stmt = heartbeatReplica.createStatement();
+                 ResultSet rs = stmt.executeQuery(HEARTBEAT_READ)) {
+                replicaLagMs = rs.next() ? Math.max(0, System.currentTimeMillis() - rs.getLong(1)) : Long.MAX_VALUE;
+            }
+            replicaHealthy = true;
+        } catch (SQLException e) {
+            replicaHealthy = false;
+            replicaLagMs = Long.MAX_VALUE;
+            closeQuietly(heartbeatReplica);
+            heartbeatReplica = null;
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+            heartbeat = null;
+        }
+        closeQuietly(heartbeatPrimary);
+        closeQuietly(heartbeatReplica);
+        Connection conn;
+        while ((conn = idleReplicas.poll()) != null) {
+            closeQuietly(conn);
+        }
+    }
+
+    interface PrimarySource {
+        Connection shared();
+
+        Connection openDedicated() throws SQLException;
+    }
+
+    private void closeQuietly(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // Already broken
+        }
+    }
+}
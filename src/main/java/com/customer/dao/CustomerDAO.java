@@ -1,5 +1,8 @@
 package com.customer.dao;
 
+import com.customer.event.EntityInvalidated.Entity;
+import com.customer.event.EntityInvalidated.Operation;
+import com.customer.model.AccountType;
 import com.customer.model.Customer;
 import com.customer.model.CustomerType;
 
@@ -14,6 +17,10 @@ import java.util.List;
 import java.util.Map;
 
 public class CustomerDAO {
+    private static final String INSERT_SQL =
+            "INSERT INTO customers (full_name, phone, email, address, date_of_birth, customer_type, created_date) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
     private final Connection connection;
 
     public CustomerDAO() {
@@ -22,27 +29,62 @@ public class CustomerDAO {
 
     // Create
     public void save(Customer customer) throws SQLException {
-        String sql = "INSERT INTO customers (full_name, phone, email, address, date_of_birth, customer_type, created_date) "
-                +
-                "VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, customer.getFullName());
-            pstmt.setString(2, customer.getPhone());
-            pstmt.setString(3, customer.getEmail());
-            pstmt.setString(4, customer.getAddress());
-            pstmt.setDate(5, customer.getDateOfBirth() != null ? Date.valueOf(customer.getDateOfBirth()) : null);
-            pstmt.setString(6, customer.getCustomerType().name());
-            pstmt.setTimestamp(7, customer.getCreatedDate() != null ? Timestamp.valueOf(customer.getCreatedDate()) : Timestamp.valueOf(LocalDateTime.now()));
-
-            pstmt.executeUpdate();
+        ChangeLog.atomically(connection, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                bindInsert(pstmt, customer);
+                pstmt.executeUpdate();
 
-            // Get the generated ID
-            ResultSet rs = pstmt.getGeneratedKeys();
-            if (rs.next()) {
-                customer.setId(rs.getLong(1));
+                // Get the generated ID
+                ResultSet rs = pstmt.getGeneratedKeys();
+                if (rs.next()) {
+                    customer.setId(rs.getLong(1));
+                }
             }
+            ChangeLog.getInstance().record(connection, Entity.CUSTOMER, customer.getId(), Operation.INSERT);
+        });
+    }
+
+    /**
+     * Inserts all customers with one batched statement on {@code conn} and sets
+     * their generated ids, in list order. Joins the caller's transaction when
+     * auto-commit is off.
+     */
+    public void insertBatch(Connection conn, List<Customer> customers) throws SQLException {
+        if (customers.isEmpty()) {
+            return;
         }
+        ChangeLog.atomically(conn, () -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Customer customer : customers) {
+                    bindInsert(pstmt, customer);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    for (Customer customer : customers) {
+                        if (!rs.next()) {
+                            throw new SQLException("Missing generated key for customer " + customer.getFullName());
+                        }
+                        customer.setId(rs.getLong(1));
+                    }
+                }
+            }
+            long[] ids = new long[customers.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = customers.get(i).getId();
+            }
+            ChangeLog.getInstance().recordBatch(conn, Entity.CUSTOMER, ids, Operation.INSERT);
+        });
+    }
+
+    private static void bindInsert(PreparedStatement pstmt, Customer customer) throws SQLException {
+        pstmt.setString(1, customer.getFullName());
+        pstmt.setString(2, customer.getPhone());
+        pstmt.setString(3, customer.getEmail());
+        pstmt.setString(4, customer.getAddress());
+        pstmt.setDate(5, customer.getDateOfBirth() != null ? Date.valueOf(customer.getDateOfBirth()) : null);
+        pstmt.setString(6, customer.getCustomerType().name());
+        pstmt.setTimestamp(7, customer.getCreatedDate() != null ? Timestamp.valueOf(customer.getCreatedDate()) : Timestamp.valueOf(LocalDateTime.now()));
     }
 
     // Read All
@@ -83,27 +125,33 @@ public class CustomerDAO {
         String sql = "UPDATE customers SET full_name = ?, phone = ?, email = ?, address = ?, " +
                 "date_of_birth = ?, customer_type = ? WHERE id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, customer.getFullName());
-            pstmt.setString(2, customer.getPhone());
-            pstmt.setString(3, customer.getEmail());
-            pstmt.setString(4, customer.getAddress());
-            pstmt.setDate(5, customer.getDateOfBirth() != null ? Date.valueOf(customer.getDateOfBirth()) : null);
-            pstmt.setString(6, customer.getCustomerType().name());
-            pstmt.setLong(7, customer.getId());
-
-            pstmt.executeUpdate();
-        }
+        ChangeLog.atomically(connection, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setString(1, customer.getFullName());
+                pstmt.setString(2, customer.getPhone());
+                pstmt.setString(3, customer.getEmail());
+                pstmt.setString(4, customer.getAddress());
+                pstmt.setDate(5, customer.getDateOfBirth() != null ? Date.valueOf(customer.getDateOfBirth()) : null);
+                pstmt.setString(6, customer.getCustomerType().name());
+                pstmt.setLong(7, customer.getId());
+
+                pstmt.executeUpdate();
+            }
+            ChangeLog.getInstance().record(connection, Entity.CUSTOMER, customer.getId(), Operation.UPDATE);
+        });
     }
 
     // Delete
     public void delete(long id) throws SQLException {
         String sql = "DELETE FROM customers WHERE id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setLong(1, id);
-            pstmt.executeUpdate();
-        }
+        ChangeLog.atomically(connection, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setLong(1, id);
+                pstmt.executeUpdate();
+            }
+            ChangeLog.getInstance().record(connection, Entity.CUSTOMER, id, Operation.DELETE);
+        });
     }
 
     // Search by keyword (name, phone, or email)
@@ -253,4 +301,173 @@ public class CustomerDAO {
 
         return distribution;
     }
+
+    // --- Deduplication ---
+
+    public interface MatchRowHandler {
+        void onCustomer(long id, String fullName, String phone, String email, LocalDate dateOfBirth);
+    }
+
+    /**
+     * Streams the fields duplicate detection compares, for every customer. Runs on
+     * its own connection with a streaming result set, so memory stays flat and the
+     * shared connection is not held up.
+     */
+    public void streamForMatching(MatchRowHandler handler) throws SQLException {
+        String sql = "SELECT id, full_name, phone, email, date_of_birth FROM customers";
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Date dob = rs.getDate(5);
+                    handler.onCustomer(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                            dob != null ? dob.toLocalDate() : null);
+                }
+            }
+        }
+    }
+
+    /** How many rows a merge moved to the surviving customer. */
+    public static class MergeResult {
+        private final int accounts;
+        private final int loans;
+
+        MergeResult(int accounts, int loans) {
+            this.accounts = accounts;
+            this.loans = loans;
+        }
+
+        public int getAccounts() { return accounts; }
+        public int getLoans() { return loans; }
+    }
+
+    /**
+     * Refused merge: both customers have an open (not CLOSED) account of the same type,
+     * and a customer may only have one, see {@link AccountDAO#hasAccountOfType}.
+     */
+    public static class AccountTypeConflict extends SQLException {
+        private final List<AccountType> types;
+
+        AccountTypeConflict(List<AccountType> types) {
+            super("Both customers have an open account of type " + types);
+            this.types = types;
+        }
+
+        public List<AccountType> getTypes() { return types; }
+    }
+
+    /**
+     * Merges {@code duplicateId} into {@code survivorId} in one transaction: its
+     * accounts and loans are re-pointed, contact fields the survivor lacks are
+     * copied over, and the duplicate is deleted.
+     *
+     * @throws AccountTypeConflict if the survivor would end up with two open accounts
+     *         of one type; nothing is changed and one of them has to be closed first
+     */
+    public MergeResult merge(long survivorId, long duplicateId) throws SQLException {
+        if (survivorId == duplicateId) {
+            throw new SQLException("Cannot merge customer " + survivorId + " into itself");
+        }
+        int[] moved = new int[2];
+        List<Long> movedAccounts = new ArrayList<>();
+        ChangeLog.atomically(connection, () -> {
+            // Lock both rows in id order, so two merges touching the same customers cannot deadlock
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "SELECT id FROM customers WHERE id IN (?, ?) ORDER BY id FOR UPDATE")) {
+                pstmt.setLong(1, survivorId);
+                pstmt.setLong(2, duplicateId);
+                int found = 0;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        found++;
+                    }
+                }
+                if (found != 2) {
+                    throw new SQLException("Customer " + survivorId + " or " + duplicateId + " no longer exists");
+                }
+            }
+
+            List<Long> accountIds = idsOwnedBy("accounts", duplicateId);
+            List<AccountType> conflicts = sharedOpenAccountTypes(survivorId, duplicateId);
+            if (!conflicts.isEmpty()) {
+                throw new AccountTypeConflict(conflicts);
+            }
+            movedAccounts.addAll(accountIds);
+            List<Long> loanIds = idsOwnedBy("loans", duplicateId);
+            repoint("accounts", survivorId, duplicateId);
+            repoint("loans", survivorId, duplicateId);
+
+            String fill = "UPDATE customers s JOIN customers d ON d.id = ? " +
+                    "SET s.phone = COALESCE(NULLIF(s.phone, ''), d.phone), " +
+                    "s.email = COALESCE(NULLIF(s.email, ''), d.email), " +
+                    "s.address = COALESCE(NULLIF(s.address, ''), d.address), " +
+                    "s.date_of_birth = COALESCE(s.date_of_birth, d.date_of_birth) " +
+                    "WHERE s.id = ?";
+            try (PreparedStatement pstmt = connection.prepareStatement(fill)) {
+                pstmt.setLong(1, duplicateId);
+                pstmt.setLong(2, survivorId);
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM customers WHERE id = ?")) {
+                pstmt.setLong(1, duplicateId);
+                pstmt.executeUpdate();
+            }
+
+            ChangeLog changeLog = ChangeLog.getInstance();
+            for (long id : accountIds) {
+                changeLog.record(connection, Entity.ACCOUNT, id, Operation.UPDATE);
+            }
+            for (long id : loanIds) {
+                changeLog.record(connection, Entity.LOAN, id, Operation.UPDATE);
+            }
+            changeLog.record(connection, Entity.CUSTOMER, survivorId, Operation.UPDATE);
+            changeLog.record(connection, Entity.CUSTOMER, duplicateId, Operation.DELETE);
+            moved[0] = accountIds.size();
+            moved[1] = loanIds.size();
+        });
+        AccountDirectory.getInstance().onCustomerChanged(movedAccounts, survivorId);
+        return new MergeResult(moved[0], moved[1]);
+    }
+
+    private List<Long> idsOwnedBy(String table, long customerId) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT id FROM " + table + " WHERE customer_id = ? FOR UPDATE")) {
+            pstmt.setLong(1, customerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Types both customers hold an open account of; the survivor's rows are locked too, so none can close or open meanwhile
+    private List<AccountType> sharedOpenAccountTypes(long survivorId, long duplicateId) throws SQLException {
+        String sql = "SELECT DISTINCT d.account_type FROM accounts d " +
+                "JOIN accounts s ON s.customer_id = ? AND s.account_type = d.account_type AND s.status != 'CLOSED' " +
+                "WHERE d.customer_id = ? AND d.status != 'CLOSED' FOR UPDATE";
+        List<AccountType> types = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setLong(1, survivorId);
+            pstmt.setLong(2, duplicateId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    types.add(AccountType.valueOf(rs.getString(1)));
+                }
+            }
+        }
+        return types;
+    }
+
+    private void repoint(String table, long survivorId, long duplicateId) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "UPDATE " + table + " SET customer_id = ? WHERE customer_id = ?")) {
+            pstmt.setLong(1, survivorId);
+            pstmt.setLong(2, duplicateId);
+            pstmt.executeUpdate();
+        }
+    }
 }
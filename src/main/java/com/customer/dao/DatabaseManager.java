@@ -5,8 +5,16 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class DatabaseManager {
@@ -19,6 +27,12 @@ public class DatabaseManager {
     private static final String DB_URL = "jdbc:mysql://" + DB_HOST + ":" + DB_PORT + "/" + DB_NAME
             + "?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true";
 
+    // Query stats are written to diagnostics/query-stats.txt at this interval
+    private static final long QUERY_STATS_DUMP_SECONDS = 60;
+
+    private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE IF NOT EXISTS\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CREATE_INDEX = Pattern.compile("CREATE (?:UNIQUE )?INDEX\\s+(\\w+)\\s+ON\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
     private static DatabaseManager instance;
     private Connection connection;
 
@@ -28,8 +42,10 @@ public class DatabaseManager {
             Class.forName("com.mysql.cj.jdbc.Driver");
 
             // Connect to MySQL
-            connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-            initializeDatabase();
+            // The schema is checked separately (ensureSchema), so connecting stays cheap
+            connection = InstrumentedConnection.wrap(DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD));
+            QueryMetrics.getInstance().startPeriodicDump(QUERY_STATS_DUMP_SECONDS);
+            ChangeLog.getInstance().startTailing();
             System.out.println("MySQL Database connected successfully!");
             System.out.println("Database: " + DB_NAME + " @ " + DB_HOST + ":" + DB_PORT);
         } catch (ClassNotFoundException e) {
@@ -41,6 +57,11 @@ public class DatabaseManager {
         }
     }
 
+    /** Whether the instance exists, without connecting if it does not. */
+    public static synchronized boolean isInitialized() {
+        return instance != null;
+    }
+
     public static synchronized DatabaseManager getInstance() {
         if (instance == null) {
             instance = new DatabaseManager();
@@ -49,49 +70,179 @@ public class DatabaseManager {
     }
 
     public Connection getConnection() {
+        long start = System.nanoTime();
         try {
             if (connection == null || connection.isClosed()) {
-                connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+                connection = InstrumentedConnection.wrap(DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD));
             }
         } catch (SQLException e) {
+            // Callers see a null or closed connection; see isConnected()
             System.err.println("Failed to get connection: " + e.getMessage());
-            e.printStackTrace();
-            // Re-throw or handle accordingly, but returning null causes the NPE
+        } finally {
+            QueryMetrics.getInstance().recordConnectionWait(System.nanoTime() - start);
         }
         return connection;
     }
 
-    private void initializeDatabase() {
+    /** Whether the shared connection is open, reconnecting first if it was lost. */
+    public boolean isConnected() {
+        Connection conn = getConnection();
+        try {
+            return conn != null && !conn.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Separate, uninstrumented connection for background diagnostics; caller must close it
+    public Connection openDedicatedConnection() throws SQLException {
+        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    }
+
+    // Like openDedicatedConnection, but the driver rewrites batched inserts into multi-row statements
+    public Connection openBatchConnection() throws SQLException {
+        return DriverManager.getConnection(DB_URL + "&rewriteBatchedStatements=true", DB_USER, DB_PASSWORD);
+    }
+
+    /**
+     * Brings the database up to the schema script without replaying all of it on
+     * each start: only the CREATE TABLE and CREATE INDEX statements for tables and
+     * indexes that do not exist yet are run, so indexes added to the script later
+     * also reach existing databases. The script's other statements (seed rows)
+     * run only when a table had to be created.
+     */
+    public synchronized void ensureSchema() {
+        String script = loadSchemaScript();
+        if (script == null || connection == null) {
+            return;
+        }
+        Set<String> existing = new HashSet<>();
         try {
-            // Read mysql-schema.sql from resources
-            InputStream is = getClass().getClassLoader()
-                    .getResourceAsStream("database/mysql-schema.sql");
+            loadExistingSchema(existing);
+        } catch (SQLException e) {
+            System.err.println("Schema check failed: " + e.getMessage());
+            return;
+        }
 
-            if (is == null) {
-                System.err.println("mysql-schema.sql not found in resources");
-                return;
+        List<String> statements = splitStatements(script);
+        List<String> missing = new ArrayList<>();
+        boolean createsTable = false;
+        for (String statement : statements) {
+            String name = createdObject(statement);
+            if (name != null && !existing.contains(name)) {
+                missing.add(name);
+                createsTable |= name.indexOf('.') < 0;
             }
+        }
+        if (missing.isEmpty()) {
+            System.out.println("Database schema up to date");
+            return;
+        }
 
-            String sql = new BufferedReader(new InputStreamReader(is))
-                    .lines()
-                    .collect(Collectors.joining("\n"));
+        System.out.println("Missing from schema " + missing + ", creating them");
+        List<String> run = new ArrayList<>();
+        for (String statement : statements) {
+            String name = createdObject(statement);
+            if (name != null ? missing.contains(name) : createsTable) {
+                run.add(statement);
+            }
+        }
+        initializeDatabase(run);
+    }
 
+    // "table" for CREATE TABLE, "table.index" for CREATE INDEX, null for anything else; lower-cased
+    private static String createdObject(String statement) {
+        Matcher table = CREATE_TABLE.matcher(statement);
+        if (table.lookingAt()) {
+            return table.group(1).toLowerCase();
+        }
+        Matcher index = CREATE_INDEX.matcher(statement);
+        if (index.lookingAt()) {
+            return index.group(2).toLowerCase() + "." + index.group(1).toLowerCase();
+        }
+        return null;
+    }
+
+    // Names of the tables and indexes in the database, in the form createdObject() uses
+    private void loadExistingSchema(Set<String> existing) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getTables(DB_NAME, null, "%", new String[]{"TABLE"})) {
+            while (rs.next()) {
+                existing.add(rs.getString("TABLE_NAME").toLowerCase());
+            }
+        }
+        String sql = "SELECT DISTINCT TABLE_NAME, INDEX_NAME FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, DB_NAME);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString(1).toLowerCase() + "." + rs.getString(2).toLowerCase());
+                }
+            }
+        }
+    }
+    private String loadSchemaScript() {
+        // Read mysql-schema.sql from resources
+        InputStream is = getClass().getClassLoader()
+                .getResourceAsStream("database/mysql-schema.sql");
+
+        if (is == null) {
+            System.err.println("mysql-schema.sql not found in resources");
+            return null;
+        }
+
+        return new BufferedReader(new InputStreamReader(is))
+                .lines()
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Splits the script into statements. Comments are removed first, whole-line and
+     * trailing ones alike: a comment may contain a semicolon, and every CREATE TABLE
+     * in the script starts with a comment line.
+     */
+    private static List<String> splitStatements(String script) {
+        StringBuilder code = new StringBuilder(script.length());
+        for (String line : script.split("\n")) {
+            code.append(stripComment(line)).append('\n');
+        }
+        List<String> statements = new ArrayList<>();
+        for (String statement : code.toString().split(";")) {
+            String trimmed = statement.trim();
+            if (!trimmed.isEmpty()) {
+                statements.add(trimmed);
+            }
+        }
+        return statements;
+    }
+
+    // Cuts a "-- " comment off the line, unless it is inside a quoted string
+    private static String stripComment(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '-' && line.startsWith("--", i)
+                    && (i + 2 == line.length() || Character.isWhitespace(line.charAt(i + 2)))) {
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+
+    private void initializeDatabase(List<String> statements) {
+        try {
             // Execute the schema
             try (Statement statement = connection.createStatement()) {
-                // Split by semicolon and execute each statement
-                String[] statements = sql.split(";");
-                for (String stmt : statements) {
-                    String trimmed = stmt.trim();
-                    if (!trimmed.isEmpty() && !trimmed.startsWith("--")) {
-                        try {
-                            System.out.println("Executing SQL: " + (trimmed.length() > 50 ? trimmed.substring(0, 50) + "..." : trimmed));
-                            statement.execute(trimmed);
-                        } catch (SQLException e) {
-                            // Ignore "database already exists" or "index already exists" or "table already exists" errors
-                            if (!e.getMessage().contains("already exists") && !e.getMessage().contains("Duplicate")) {
-                                System.err.println("SQL Error executing: " + trimmed);
-                                System.err.println("Error details: " + e.getMessage());
-                            }
+                for (String sql : statements) {
+                    try {
+                        System.out.println("Executing SQL: " + (sql.length() > 50 ? sql.substring(0, 50) + "..." : sql));
+                        statement.execute(sql);
+                    } catch (SQLException e) {
+                        // Ignore "database already exists" or "index already exists" or "table already exists" errors
+                        if (!e.getMessage().contains("already exists") && !e.getMessage().contains("Duplicate")) {
+                            System.err.println("SQL Error executing: " + sql);
+                            System.err.println("Error details: " + e.getMessage());
                         }
                     }
                 }
@@ -106,6 +257,9 @@ public class DatabaseManager {
     }
 
     public void close() {
+        QueryMetrics.getInstance().stopPeriodicDump();
+        ConnectionRouter.getInstance().shutdown();
+        ChangeLog.getInstance().stopTailing();
         try {
             if (connection != null && !connection.isClosed()) {
                 connection.close();
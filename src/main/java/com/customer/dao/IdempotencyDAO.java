@@ -0,0 +1,67 @@
+package com.customer.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class IdempotencyDAO {
+
+    public static class Entry {
+        private final String request;
+        private final long transactionId;
+        private final long createdAtMillis;
+
+        public Entry(String request, long transactionId, long createdAtMillis) {
+            this.request = request;
+            this.transactionId = transactionId;
+            this.createdAtMillis = createdAtMillis;
+        }
+
+        public String getRequest() { return request; }
+        public long getTransactionId() { return transactionId; }
+        /** When the key was claimed, in epoch millis. */
+        public long getCreatedAtMillis() { return createdAtMillis; }
+    }
+
+    public Entry find(String key) throws SQLException {
+        return find(DatabaseManager.getInstance().getConnection(), key);
+    }
+
+    public Entry find(Connection conn, String key) throws SQLException {
+        String sql = "SELECT request, transaction_id, created_at FROM idempotency WHERE idem_key = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, key);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new Entry(rs.getString(1), rs.getLong(2), rs.getTimestamp(3).getTime());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Claims {@code key} for a posting, inside the posting's own transaction on {@code conn}.
+     * Throws SQLIntegrityConstraintViolationException when the key was already used; a
+     * concurrent claim of the same key waits on the row lock until the other posting ends.
+     */
+    public void insert(Connection conn, String key, String request, long transactionId) throws SQLException {
+        String sql = "INSERT INTO idempotency (idem_key, request, transaction_id) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, key);
+            pstmt.setString(2, request);
+            pstmt.setLong(3, transactionId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /** Deletes at most {@code limit} keys older than {@code retentionHours}; returns how many went. */
+    public int deleteExpired(Connection conn, int retentionHours, int limit) throws SQLException {
+        String sql = "DELETE FROM idempotency WHERE created_at < NOW(3) - INTERVAL " + retentionHours + " HOUR LIMIT " + limit;
+        try (Statement stmt = conn.createStatement()) {
+            return stmt.executeUpdate(sql);
+        }
+    }
+}
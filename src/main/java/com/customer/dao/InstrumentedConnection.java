@@ -0,0 +1,183 @@
+package com.customer.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Dynamic proxy around a JDBC {@link Connection} that times every statement
+ * execution and counts returned rows. Samples go to {@link QueryMetrics},
+ * tagged with the DAO method that issued the statement.
+ */
+final class InstrumentedConnection implements InvocationHandler {
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    private static final String INTERNAL_PREFIX = InstrumentedConnection.class.getName();
+
+    private final Connection delegate;
+
+    private InstrumentedConnection(Connection delegate) {
+        this.delegate = delegate;
+    }
+
+    static Connection wrap(Connection connection) {
+        if (connection == null || Proxy.isProxyClass(connection.getClass())) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new InstrumentedConnection(connection));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Object result = invokeDelegate(delegate, method, args);
+
+        String name = method.getName();
+        if (result instanceof Statement
+                && (name.equals("prepareStatement") || name.equals("prepareCall") || name.equals("createStatement"))) {
+            String sql = name.equals("createStatement") ? null : (String) args[0];
+            Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                    : result instanceof PreparedStatement ? PreparedStatement.class
+                    : Statement.class;
+            return Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{type},
+                    new StatementHandler((Statement) result, sql));
+        }
+        return result;
+    }
+
+    static Object invokeDelegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Name of the first application frame outside the JDBC layer, e.g. "ReportDAO.getTopActiveAccounts"
+    static String findCaller() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(f -> {
+                    String cls = f.getClassName();
+                    return cls.startsWith("com.customer.")
+                            && !cls.startsWith(INTERNAL_PREFIX)
+                            && !cls.equals(DatabaseManager.class.getName());
+                })
+                .findFirst()
+                .map(f -> {
+                    String cls = f.getClassName();
+                    return cls.substring(cls.lastIndexOf('.') + 1) + "." + f.getMethodName();
+                })
+                .orElse("unknown"));
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement delegate;
+        private final String preparedSql;
+        private QueryMetrics.QueryStats lastStats;
+        // Bound parameters of a PreparedStatement, kept for the slow query log
+        private Object[] params = new Object[0];
+
+        StatementHandler(Statement delegate, String preparedSql) {
+            this.delegate = delegate;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                Object result = invokeDelegate(delegate, method, args);
+                if (name.equals("getResultSet") && result != null && lastStats != null) {
+                    return wrapResultSet((ResultSet) result, lastStats);
+                }
+                if (preparedSql != null) {
+                    captureParameter(name, args);
+                }
+                return result;
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String
+                    ? (String) args[0]
+                    : preparedSql;
+            String caller = findCaller();
+            QueryMetrics.QueryStats stats = QueryMetrics.getInstance().statsFor(sql, caller);
+            lastStats = stats;
+
+            long start = System.nanoTime();
+            try {
+                Object result = invokeDelegate(delegate, method, args);
+                if (isWrite(sql)) {
+                    ConnectionRouter.getInstance().recordPrimaryWrite();
+                }
+                if (result instanceof ResultSet) {
+                    return wrapResultSet((ResultSet) result, stats);
+                }
+                if (result instanceof Integer) {
+                    stats.rows.add(Math.max(0, (Integer) result));
+                } else if (result instanceof Long) {
+                    stats.rows.add(Math.max(0, (Long) result));
+                }
+                return result;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                stats.latency.record(elapsed);
+
+                SlowQueryLog slowLog = SlowQueryLog.getInstance();
+                if (slowLog.isSlow(elapsed)) {
+                    slowLog.record(stats.sql, sql, caller, elapsed, sql == preparedSql ? params.clone() : null);
+                }
+            }
+        }
+
+        private void captureParameter(String name, Object[] args) {
+            if (name.equals("clearParameters")) {
+                params = new Object[0];
+                return;
+            }
+            if (!name.startsWith("set") || args == null || args.length < 2 || !(args[0] instanceof Integer)) {
+                return;
+            }
+            int index = (Integer) args[0];
+            if (index < 1) {
+                return;
+            }
+            if (index > params.length) {
+                params = Arrays.copyOf(params, index);
+            }
+            params[index - 1] = name.equals("setNull") ? null : args[1];
+        }
+    }
+
+    // Anything other than SELECT/SHOW/EXPLAIN counts as a write
+    private static boolean isWrite(String sql) {
+        if (sql == null) return false;
+        String trimmed = sql.stripLeading();
+        return !(trimmed.regionMatches(true, 0, "SELECT", 0, 6)
+                || trimmed.regionMatches(true, 0, "SHOW", 0, 4)
+                || trimmed.regionMatches(true, 0, "EXPLAIN", 0, 7));
+    }
+
+    private static ResultSet wrapResultSet(ResultSet resultSet, QueryMetrics.QueryStats stats) {
+        return (ResultSet) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    Object result = invokeDelegate(resultSet, method, args);
+                    if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                        stats.rows.increment();
+                    }
+                    return result;
+                });
+    }
+}
@@ -0,0 +1,348 @@
+package com.customer.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Job rows, leases and run history for the job scheduler.
+ *
+ * A lease is the pair (lease_owner, lease_until) on the job's row, taken and
+ * renewed against the database clock so workstation clocks do not matter.
+ * Every write made while running a job is conditional on still holding the
+ * lease, so an instance that lost it (stalled past lease_until) cannot
+ * overwrite the instance that took over. Every method runs on the connection
+ * it is given.
+ */
+public class JobDAO {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+    public static final String ABANDONED = "ABANDONED";
+
+    private static final int MAX_MESSAGE = 500;
+
+    /** A lease won by {@link #tryAcquire}. */
+    public static class Lease {
+        private final long runId;
+        private final LocalDateTime dueAt;
+        private final boolean resumed;
+        private final String checkpoint;
+
+        Lease(long runId, LocalDateTime dueAt, boolean resumed, String checkpoint) {
+            this.runId = runId;
+            this.dueAt = dueAt;
+            this.resumed = resumed;
+            this.checkpoint = checkpoint;
+        }
+
+        public long getRunId() { return runId; }
+        public LocalDateTime getDueAt() { return dueAt; }
+        /** The previous owner stopped mid-run; {@link #getCheckpoint()} is where it got to. */
+        public boolean isResumed() { return resumed; }
+        public String getCheckpoint() { return checkpoint; }
+    }
+
+    public static class JobState {
+        private final String name;
+        private final String schedule;
+        private final boolean enabled;
+        private final String status;
+        private final LocalDateTime nextRunAt;
+        private final String leaseOwner;
+        private final LocalDateTime leaseUntil;
+        private final String checkpoint;
+
+        JobState(String name, String schedule, boolean enabled, String status, LocalDateTime nextRunAt,
+                 String leaseOwner, LocalDateTime leaseUntil, String checkpoint) {
+            this.name = name;
+            this.schedule = schedule;
+            this.enabled = enabled;
+            this.status = status;
+            this.nextRunAt = nextRunAt;
+            this.leaseOwner = leaseOwner;
+            this.leaseUntil = leaseUntil;
+            this.checkpoint = checkpoint;
+        }
+
+        public String getName() { return name; }
+        public String getSchedule() { return schedule; }
+        public boolean isEnabled() { return enabled; }
+        public String getStatus() { return status; }
+        public LocalDateTime getNextRunAt() { return nextRunAt; }
+        public String getLeaseOwner() { return leaseOwner; }
+        public LocalDateTime getLeaseUntil() { return leaseUntil; }
+        public String getCheckpoint() { return checkpoint; }
+    }
+
+    public static class JobRun {
+        private final long id;
+        private final String jobName;
+        private final String instanceId;
+        private final LocalDateTime dueAt;
+        private final LocalDateTime startedAt;
+        private final LocalDateTime finishedAt;
+        private final String status;
+        private final boolean resumed;
+        private final Long millis;
+        private final String message;
+
+        JobRun(long id, String jobName, String instanceId, LocalDateTime dueAt, LocalDateTime startedAt,
+               LocalDateTime finishedAt, String status, boolean resumed, Long millis, String message) {
+            this.id = id;
+            this.jobName = jobName;
+            this.instanceId = instanceId;
+            this.dueAt = dueAt;
+            this.startedAt = startedAt;
+            this.finishedAt = finishedAt;
+            this.status = status;
+            this.resumed = resumed;
+            this.millis = millis;
+            this.message = message;
+        }
+
+        public long getId() { return id; }
+        public String getJobName() { return jobName; }
+        public String getInstanceId() { return instanceId; }
+        public LocalDateTime getDueAt() { return dueAt; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public String getStatus() { return status; }
+        public boolean isResumed() { return resumed; }
+        public Long getMillis() { return millis; }
+        public String getMessage() { return message; }
+    }
+
+    /**
+     * Creates the job's row if it is new. A changed schedule replaces the stored one
+     * and its next run time; otherwise the stored next run time is kept.
+     */
+    public void ensureJob(Connection conn, String name, String schedule, LocalDateTime nextRunAt) throws SQLException {
+        // Assignments apply left to right: next_run_at is compared against the old schedule
+        String sql = "INSERT INTO scheduled_jobs (name, schedule, next_run_at) VALUES (?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE " +
+                     "next_run_at = IF(schedule = VALUES(schedule), next_run_at, VALUES(next_run_at)), " +
+                     "schedule = VALUES(schedule)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, name);
+            pstmt.setString(2, schedule);
+            pstmt.setTimestamp(3, Timestamp.valueOf(nextRunAt));
+            pstmt.executeUpdate();
+        }
+    }
+
+    /** Names of enabled jobs that are due, or were left RUNNING by an owner whose lease ran out. */
+    public List<String> findRunnable(Connection conn) throws SQLException {
+        String sql = "SELECT name FROM scheduled_jobs WHERE enabled " +
+                     "AND (lease_until IS NULL OR lease_until < NOW(3)) " +
+                     "AND (status = 'RUNNING' OR next_run_at <= NOW(3))";
+        List<String> names = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Takes the lease on {@code name} for {@code owner} if the job is enabled, not
+     * leased, and either due or left RUNNING by an expired owner. A due job's next run
+     * moves to {@code nextRunAt}; a resumed one keeps its fire time and checkpoint, and
+     * the run it interrupted is marked ABANDONED. Opens a run history row.
+     *
+     * @return the lease, or null when the job is not runnable or another instance got it
+     */
+    public Lease tryAcquire(Connection conn, String name, String owner, int leaseSeconds,
+                            LocalDateTime nextRunAt) throws SQLException {
+        Lease[] lease = new Lease[1];
+        ChangeLog.atomically(conn, () -> {
+            String select = "SELECT status, next_run_at, due_at, checkpoint, run_id, next_run_at <= NOW(3) " +
+                            "FROM scheduled_jobs WHERE name = ? AND enabled " +
+                            "AND (lease_until IS NULL OR lease_until < NOW(3)) FOR UPDATE";
+            boolean resumed;
+            LocalDateTime dueAt;
+            String checkpoint;
+            long previousRun;
+            try (PreparedStatement pstmt = conn.prepareStatement(select)) {
+                pstmt.setString(1, name);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return;
+                    }
+                    resumed = RUNNING.equals(rs.getString(1));
+                    if (!resumed && !rs.getBoolean(6)) {
+                        return;
+                    }
+                    Timestamp previousDue = rs.getTimestamp(3);
+                    dueAt = resumed && previousDue != null ? previousDue.toLocalDateTime() : rs.getTimestamp(2).toLocalDateTime();
+                    checkpoint = resumed ? rs.getString(4) : null;
+                    previousRun = rs.getLong(5);
+                }
+            }
+
+            if (resumed && previousRun > 0) {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE job_runs SET status = ?, finished_at = NOW(3) WHERE id = ? AND status = ?")) {
+                    pstmt.setString(1, ABANDONED);
+                    pstmt.setLong(2, previousRun);
+                    pstmt.setString(3, RUNNING);
+                    pstmt.executeUpdate();
+                }
+            }
+
+            long runId;
+            String insert = "INSERT INTO job_runs (job_name, instance_id, due_at, started_at, status, resumed) " +
+                            "VALUES (?, ?, ?, NOW(3), ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, name);
+                pstmt.setString(2, owner);
+                pstmt.setTimestamp(3, Timestamp.valueOf(dueAt));
+                pstmt.setString(4, RUNNING);
+                pstmt.setBoolean(5, resumed);
+                pstmt.executeUpdate();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new SQLException("Creating job run failed, no ID obtained.");
+                    }
+                    runId = keys.getLong(1);
+                }
+            }
+
+            String update = "UPDATE scheduled_jobs SET status = ?, lease_owner = ?, " +
+                            "lease_until = NOW(3) + INTERVAL ? SECOND, due_at = ?, run_id = ?" +
+                            (resumed ? " " : ", next_run_at = ?, checkpoint = NULL ") +
+                            "WHERE name = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(update)) {
+                int i = 1;
+                pstmt.setString(i++, RUNNING);
+                pstmt.setString(i++, owner);
+                pstmt.setInt(i++, leaseSeconds);
+                pstmt.setTimestamp(i++, Timestamp.valueOf(dueAt));
+                pstmt.setLong(i++, runId);
+                if (!resumed) {
+                    pstmt.setTimestamp(i++, Timestamp.valueOf(nextRunAt));
+                }
+                pstmt.setString(i, name);
+                pstmt.executeUpdate();
+            }
+            lease[0] = new Lease(runId, dueAt, resumed, checkpoint);
+        });
+        return lease[0];
+    }
+
+    /** Extends the lease; false if {@code owner} no longer holds it. */
+    public boolean renew(Connection conn, String name, String owner, int leaseSeconds) throws SQLException {
+        String sql = "UPDATE scheduled_jobs SET lease_until = NOW(3) + INTERVAL ? SECOND " +
+                     "WHERE name = ? AND lease_owner = ? AND status = 'RUNNING'";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, leaseSeconds);
+            pstmt.setString(2, name);
+            pstmt.setString(3, owner);
+            return pstmt.executeUpdate() == 1;
+        }
+    }
+
+    /** Stores the run's progress and extends the lease; false if {@code owner} no longer holds it. */
+    public boolean saveCheckpoint(Connection conn, String name, String owner, int leaseSeconds,
+                                  String checkpoint) throws SQLException {
+        String sql = "UPDATE scheduled_jobs SET checkpoint = ?, lease_until = NOW(3) + INTERVAL ? SECOND " +
+                     "WHERE name = ? AND lease_owner = ? AND status = 'RUNNING'";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, checkpoint);
+            pstmt.setInt(2, leaseSeconds);
+            pstmt.setString(3, name);
+            pstmt.setString(4, owner);
+            return pstmt.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * Ends the run: the job goes back to IDLE with its lease and checkpoint cleared
+     * (only if {@code owner} still holds it) and the history row gets its outcome.
+     */
+    public void finish(Connection conn, String name, String owner, long runId, String status,
+                       long millis, String message) throws SQLException {
+        ChangeLog.atomically(conn, () -> {
+            String release = "UPDATE scheduled_jobs SET status = 'IDLE', lease_owner = NULL, lease_until = NULL, " +
+                             "checkpoint = NULL WHERE name = ? AND lease_owner = ? AND run_id = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(release)) {
+                pstmt.setString(1, name);
+                pstmt.setString(2, owner);
+                pstmt.setLong(3, runId);
+                pstmt.executeUpdate();
+            }
+            String record = "UPDATE job_runs SET finished_at = NOW(3), status = ?, millis = ?, message = ? " +
+                            "WHERE id = ? AND status = 'RUNNING'";
+            try (PreparedStatement pstmt = conn.prepareStatement(record)) {
+                pstmt.setString(1, status);
+                pstmt.setLong(2, millis);
+                pstmt.setString(3, message != null && message.length() > MAX_MESSAGE ? message.substring(0, MAX_MESSAGE) : message);
+                pstmt.setLong(4, runId);
+                pstmt.executeUpdate();
+            }
+        });
+    }
+
+    /** Makes the job due now, unless it is running; false if there is no such job or it is running. */
+    public boolean makeDue(Connection conn, String name) throws SQLException {
+        String sql = "UPDATE scheduled_jobs SET next_run_at = NOW(3) WHERE name = ? AND status = 'IDLE'";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, name);
+            return pstmt.executeUpdate() == 1;
+        }
+    }
+
+    public List<JobState> findAll(Connection conn) throws SQLException {
+        String sql = "SELECT name, schedule, enabled, status, next_run_at, lease_owner, lease_until, checkpoint " +
+                     "FROM scheduled_jobs ORDER BY name";
+        List<JobState> jobs = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                Timestamp leaseUntil = rs.getTimestamp(7);
+                jobs.add(new JobState(rs.getString(1), rs.getString(2), rs.getBoolean(3), rs.getString(4),
+                        rs.getTimestamp(5).toLocalDateTime(), rs.getString(6),
+                        leaseUntil != null ? leaseUntil.toLocalDateTime() : null, rs.getString(8)));
+            }
+        }
+        return jobs;
+    }
+
+    /** The newest {@code limit} runs, of one job or of all when {@code name} is null. */
+    public List<JobRun> findRuns(Connection conn, String name, int limit) throws SQLException {
+        String sql = "SELECT id, job_name, instance_id, due_at, started_at, finished_at, status, resumed, millis, message " +
+                     "FROM job_runs " + (name != null ? "WHERE job_name = ? " : "") +
+                     "ORDER BY id DESC LIMIT ?";
+        List<JobRun> runs = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (name != null) {
+                pstmt.setString(i++, name);
+            }
+            pstmt.setInt(i, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp finishedAt = rs.getTimestamp(6);
+                    Long millis = rs.getLong(9);
+                    if (rs.wasNull()) {
+                        millis = null;
+                    }
+                    runs.add(new JobRun(rs.getLong(1), rs.getString(2), rs.getString(3),
+                            rs.getTimestamp(4).toLocalDateTime(), rs.getTimestamp(5).toLocalDateTime(),
+                            finishedAt != null ? finishedAt.toLocalDateTime() : null, rs.getString(7),
+                            rs.getBoolean(8), millis, rs.getString(10)));
+                }
+            }
+        }
+        return runs;
+    }
+}
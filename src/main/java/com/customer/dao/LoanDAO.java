@@ -1,7 +1,10 @@
 package com.customer.dao;
 
+import com.customer.event.EntityInvalidated.Entity;
+import com.customer.event.EntityInvalidated.Operation;
 import com.customer.model.Loan;
 import com.customer.model.LoanStatus;
+import com.customer.model.Money;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.Year;
@@ -15,6 +18,10 @@ public class LoanDAO {
         this.connection = DatabaseManager.getInstance().getConnection();
     }
 
+    public interface ExposureHandler {
+        void onLoan(long id, LoanStatus status, Money remainingBalance, LocalDate endDate);
+    }
+
     public String generateLoanNumber() throws SQLException {
         String year = String.valueOf(Year.now().getValue());
         String prefix = "LN" + year;
@@ -40,33 +47,36 @@ public class LoanDAO {
                      "term_months, monthly_payment, total_paid, remaining_balance, status, purpose, " +
                      "created_by, created_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setLong(1, loan.getCustomerId());
-            stmt.setString(2, loan.getLoanNumber());
-            stmt.setBigDecimal(3, loan.getPrincipalAmount());
-            stmt.setBigDecimal(4, loan.getInterestRate());
-            stmt.setInt(5, loan.getTermMonths());
-            stmt.setBigDecimal(6, loan.getMonthlyPayment());
-            stmt.setBigDecimal(7, loan.getTotalPaid());
-            stmt.setBigDecimal(8, loan.getRemainingBalance());
-            stmt.setString(9, loan.getStatus().name());
-            stmt.setString(10, loan.getPurpose());
-            stmt.setLong(11, loan.getCreatedBy());
-            stmt.setTimestamp(12, Timestamp.valueOf(loan.getCreatedDate()));
-
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Creating loan failed, no rows affected.");
-            }
+        ChangeLog.atomically(connection, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setLong(1, loan.getCustomerId());
+                stmt.setString(2, loan.getLoanNumber());
+                MoneyColumns.set(stmt, 3, loan.getPrincipalAmount());
+                stmt.setBigDecimal(4, loan.getInterestRate());
+                stmt.setInt(5, loan.getTermMonths());
+                MoneyColumns.set(stmt, 6, loan.getMonthlyPayment());
+                MoneyColumns.set(stmt, 7, loan.getTotalPaid());
+                MoneyColumns.set(stmt, 8, loan.getRemainingBalance());
+                stmt.setString(9, loan.getStatus().name());
+                stmt.setString(10, loan.getPurpose());
+                stmt.setLong(11, loan.getCreatedBy());
+                stmt.setTimestamp(12, Timestamp.valueOf(loan.getCreatedDate()));
+
+                int affectedRows = stmt.executeUpdate();
+                if (affectedRows == 0) {
+                    throw new SQLException("Creating loan failed, no rows affected.");
+                }
 
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    loan.setId(generatedKeys.getLong(1));
-                } else {
-                    throw new SQLException("Creating loan failed, no ID obtained.");
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        loan.setId(generatedKeys.getLong(1));
+                    } else {
+                        throw new SQLException("Creating loan failed, no ID obtained.");
+                    }
                 }
             }
-        }
+            ChangeLog.getInstance().record(connection, Entity.LOAN, loan.getId(), Operation.INSERT);
+        });
     }
 
     public void update(Loan loan) throws SQLException {
@@ -76,28 +86,31 @@ public class LoanDAO {
         sql.append("total_paid = ?, remaining_balance = ? ");
         sql.append("WHERE id = ?");
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
-            stmt.setString(1, loan.getStatus().name());
-            stmt.setTimestamp(2, loan.getApprovedDate() != null ? Timestamp.valueOf(loan.getApprovedDate()) : null);
-            if (loan.getApprovedBy() > 0) {
-                stmt.setLong(3, loan.getApprovedBy());
-            } else {
-                stmt.setNull(3, Types.BIGINT);
-            }
-            stmt.setString(4, loan.getApprovalNote());
-            stmt.setDate(5, loan.getStartDate() != null ? Date.valueOf(loan.getStartDate()) : null);
-            stmt.setDate(6, loan.getEndDate() != null ? Date.valueOf(loan.getEndDate()) : null);
-            if (loan.getLoanAccountId() > 0) {
-                stmt.setLong(7, loan.getLoanAccountId());
-            } else {
-                stmt.setNull(7, Types.BIGINT);
-            }
-            stmt.setBigDecimal(8, loan.getTotalPaid());
-            stmt.setBigDecimal(9, loan.getRemainingBalance());
-            stmt.setLong(10, loan.getId());
+        ChangeLog.atomically(connection, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+                stmt.setString(1, loan.getStatus().name());
+                stmt.setTimestamp(2, loan.getApprovedDate() != null ? Timestamp.valueOf(loan.getApprovedDate()) : null);
+                if (loan.getApprovedBy() > 0) {
+                    stmt.setLong(3, loan.getApprovedBy());
+                } else {
+                    stmt.setNull(3, Types.BIGINT);
+                }
+                stmt.setString(4, loan.getApprovalNote());
+                stmt.setDate(5, loan.getStartDate() != null ? Date.valueOf(loan.getStartDate()) : null);
+                stmt.setDate(6, loan.getEndDate() != null ? Date.valueOf(loan.getEndDate()) : null);
+                if (loan.getLoanAccountId() > 0) {
+                    stmt.setLong(7, loan.getLoanAccountId());
+                } else {
+                    stmt.setNull(7, Types.BIGINT);
+                }
+                MoneyColumns.set(stmt, 8, loan.getTotalPaid());
+                MoneyColumns.set(stmt, 9, loan.getRemainingBalance());
+                stmt.setLong(10, loan.getId());
 
-            stmt.executeUpdate();
-        }
+                stmt.executeUpdate();
+            }
+            ChangeLog.getInstance().record(connection, Entity.LOAN, loan.getId(), Operation.UPDATE);
+        });
     }
 
     public Loan findById(long id) throws SQLException {
@@ -113,7 +126,7 @@ public class LoanDAO {
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractLoanFromResultSet(rs);
+                    return RowMappers.LOAN.planFor(sql, rs).map(rs);
                 }
             }
         }
@@ -134,9 +147,7 @@ public class LoanDAO {
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setLong(1, customerId);
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    loans.add(extractLoanFromResultSet(rs));
-                }
+                loans.addAll(RowMappers.LOAN.mapAll(sql, rs));
             }
         }
         return loans;
@@ -185,9 +196,7 @@ public class LoanDAO {
             }
 
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    loans.add(extractLoanFromResultSet(rs));
-                }
+                loans.addAll(RowMappers.LOAN.mapAll(sql.toString(), rs));
             }
         }
         return loans;
@@ -210,70 +219,25 @@ public class LoanDAO {
         return false;
     }
 
-    private Loan extractLoanFromResultSet(ResultSet rs) throws SQLException {
-        Loan loan = new Loan();
-        loan.setId(rs.getLong("id"));
-        loan.setCustomerId(rs.getLong("customer_id"));
-
-        long loanAccountId = rs.getLong("loan_account_id");
-        if (!rs.wasNull()) {
-            loan.setLoanAccountId(loanAccountId);
-        }
-
-        loan.setLoanNumber(rs.getString("loan_number"));
-        loan.setPrincipalAmount(rs.getBigDecimal("principal_amount"));
-        loan.setInterestRate(rs.getBigDecimal("interest_rate"));
-        loan.setTermMonths(rs.getInt("term_months"));
-        loan.setMonthlyPayment(rs.getBigDecimal("monthly_payment"));
-        loan.setTotalPaid(rs.getBigDecimal("total_paid"));
-        loan.setRemainingBalance(rs.getBigDecimal("remaining_balance"));
-
-        String statusStr = rs.getString("status");
-        if (statusStr != null) {
-            loan.setStatus(LoanStatus.valueOf(statusStr));
-        }
-
-        loan.setPurpose(rs.getString("purpose"));
-
-        Timestamp appliedDate = rs.getTimestamp("applied_date");
-        if (appliedDate != null) {
-            loan.setAppliedDate(appliedDate.toLocalDateTime());
-        }
-
-        Timestamp approvedDate = rs.getTimestamp("approved_date");
-        if (approvedDate != null) {
-            loan.setApprovedDate(approvedDate.toLocalDateTime());
-        }
-
-        long approvedBy = rs.getLong("approved_by");
-        if (!rs.wasNull()) {
-            loan.setApprovedBy(approvedBy);
-        }
-
-        loan.setApprovalNote(rs.getString("approval_note"));
-
-        Date startDate = rs.getDate("start_date");
-        if (startDate != null) {
-            loan.setStartDate(startDate.toLocalDate());
-        }
-
-        Date endDate = rs.getDate("end_date");
-        if (endDate != null) {
-            loan.setEndDate(endDate.toLocalDate());
-        }
-
-        loan.setCreatedBy(rs.getLong("created_by"));
-
-        Timestamp createdDate = rs.getTimestamp("created_date");
-        if (createdDate != null) {
-            loan.setCreatedDate(createdDate.toLocalDateTime());
+    /**
+     * Streams every loan still being repaid (DISBURSED or OVERDUE) with what is
+     * left to repay, on its own connection so a large portfolio does not hold
+     * up the shared one.
+     */
+    public void streamActiveExposures(ExposureHandler handler) throws SQLException {
+        String sql = "SELECT id, status, remaining_balance, end_date FROM loans " +
+                     "WHERE status IN ('DISBURSED', 'OVERDUE') AND remaining_balance > 0";
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Connector/J streams rows one at a time instead of buffering the whole result
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Date endDate = rs.getDate(4);
+                    handler.onLoan(rs.getLong(1), LoanStatus.valueOf(rs.getString(2)), MoneyColumns.get(rs, 3),
+                            endDate != null ? endDate.toLocalDate() : null);
+                }
+            }
         }
-
-        // Transient fields
-        loan.setCustomerName(rs.getString("customer_name"));
-        loan.setApproverName(rs.getString("approver_name"));
-        loan.setCreatorName(rs.getString("creator_name"));
-
-        return loan;
     }
 }
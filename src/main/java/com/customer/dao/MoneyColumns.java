@@ -0,0 +1,51 @@
+package com.customer.dao;
+
+import com.customer.model.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Reads and binds {@link Money} against the DECIMAL(15,2) money columns.
+ * Computed columns (AVG, a rate times an amount) can come back with more
+ * decimals; those are rounded half up to the cent.
+ */
+final class MoneyColumns {
+
+    private MoneyColumns() {
+    }
+
+    /** The column as Money, or null when it is SQL NULL. */
+    static Money get(ResultSet rs, int column) throws SQLException {
+        BigDecimal value = rs.getBigDecimal(column);
+        return value != null ? Money.of(value, RoundingMode.HALF_UP) : null;
+    }
+
+    static Money get(ResultSet rs, String column) throws SQLException {
+        BigDecimal value = rs.getBigDecimal(column);
+        return value != null ? Money.of(value, RoundingMode.HALF_UP) : null;
+    }
+
+    /** The column as Money, with SQL NULL (a SUM over no rows) read as zero. */
+    static Money getOrZero(ResultSet rs, int column) throws SQLException {
+        Money value = get(rs, column);
+        return value != null ? value : Money.ZERO;
+    }
+
+    static Money getOrZero(ResultSet rs, String column) throws SQLException {
+        Money value = get(rs, column);
+        return value != null ? value : Money.ZERO;
+    }
+
+    static void set(PreparedStatement ps, int index, Money value) throws SQLException {
+        if (value != null) {
+            ps.setBigDecimal(index, value.toBigDecimal());
+        } else {
+            ps.setNull(index, Types.DECIMAL);
+        }
+    }
+}
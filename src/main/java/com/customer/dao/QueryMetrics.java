@@ -0,0 +1,214 @@
+package com.customer.dao;
+
+import com.customer.util.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Per-query latency statistics collected by {@link InstrumentedConnection}.
+ * Samples are grouped by SQL shape (literals replaced with '?') and by the DAO
+ * method that issued the statement.
+ */
+public class QueryMetrics {
+
+    private static final QueryMetrics INSTANCE = new QueryMetrics();
+
+    private static final String DUMP_DIR = "diagnostics";
+    private static final String DUMP_FILE = "query-stats.txt";
+    private static final int SHAPE_CACHE_LIMIT = 2000;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, String> shapeCache = new ConcurrentHashMap<>();
+    private final LatencyHistogram connectionWait = new LatencyHistogram();
+    private ScheduledExecutorService dumpScheduler;
+
+    private QueryMetrics() {
+    }
+
+    public static QueryMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    // --- Recording ---
+
+    QueryStats statsFor(String sql, String caller) {
+        String shape = normalizeSql(sql);
+        String key = caller + '\u0000' + shape;
+        QueryStats existing = stats.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        return stats.computeIfAbsent(key, k -> new QueryStats(shape, caller));
+    }
+
+    public void recordConnectionWait(long nanos) {
+        connectionWait.record(nanos);
+    }
+
+    public void reset() {
+        stats.clear();
+        connectionWait.reset();
+    }
+
+    // --- Reading ---
+
+    public List<Snapshot> snapshot() {
+        List<Snapshot> result = new ArrayList<>();
+        for (QueryStats s : stats.values()) {
+            result.add(new Snapshot(s.caller, s.sql, s.latency, s.rows.sum()));
+        }
+        result.sort(Comparator.comparingDouble(Snapshot::getTotalMillis).reversed());
+        return result;
+    }
+
+    public Snapshot connectionWaitSnapshot() {
+        return new Snapshot("DatabaseManager.getConnection", "(connection wait)", connectionWait, 0);
+    }
+
+    // --- Periodic dump ---
+
+    public synchronized void startPeriodicDump(long intervalSeconds) {
+        if (dumpScheduler != null) {
+            return;
+        }
+        dumpScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "query-metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumpScheduler.scheduleAtFixedRate(() -> {
+            try {
+                dump(new File(DUMP_DIR, DUMP_FILE));
+            } catch (IOException e) {
+                System.err.println("Failed to write query stats: " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopPeriodicDump() {
+        if (dumpScheduler != null) {
+            dumpScheduler.shutdownNow();
+            dumpScheduler = null;
+        }
+    }
+
+    public void dump(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+
+        List<Snapshot> rows = snapshot();
+        try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            out.println("# Query stats at " + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            out.printf("%-45s %8s %10s %10s %10s %10s %10s  %s%n",
+                    "CALLER", "COUNT", "P50(ms)", "P99(ms)", "P999(ms)", "MAX(ms)", "ROWS", "SQL");
+
+            Snapshot wait = connectionWaitSnapshot();
+            writeRow(out, wait);
+            for (Snapshot row : rows) {
+                writeRow(out, row);
+            }
+        }
+    }
+
+    private void writeRow(PrintWriter out, Snapshot s) {
+        out.printf("%-45s %8d %10.3f %10.3f %10.3f %10.3f %10d  %s%n",
+                s.getCaller(), s.getCount(), s.getP50Millis(), s.getP99Millis(), s.getP999Millis(),
+                s.getMaxMillis(), s.getRows(), s.getSql());
+    }
+
+    // --- SQL shape ---
+
+    /**
+     * Collapse a statement to its shape: literals become '?', IN lists collapse
+     * to a single placeholder and whitespace is normalized.
+     */
+    public String normalizeSql(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String cached = shapeCache.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("IN (?)");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+
+        if (shapeCache.size() > SHAPE_CACHE_LIMIT) {
+            shapeCache.clear();
+        }
+        shapeCache.put(sql, shape);
+        return shape;
+    }
+
+    static class QueryStats {
+        final String sql;
+        final String caller;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder rows = new LongAdder();
+
+        QueryStats(String sql, String caller) {
+            this.sql = sql;
+            this.caller = caller;
+        }
+    }
+
+    public static class Snapshot {
+        private final String caller;
+        private final String sql;
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final double p999Millis;
+        private final double maxMillis;
+        private final long rows;
+
+        Snapshot(String caller, String sql, LatencyHistogram histogram, long rows) {
+            this.caller = caller;
+            this.sql = sql;
+            this.count = histogram.getCount();
+            this.meanMillis = histogram.getMean() / 1_000_000.0;
+            this.p50Millis = histogram.getValueAtPercentile(50) / 1_000_000.0;
+            this.p99Millis = histogram.getValueAtPercentile(99) / 1_000_000.0;
+            this.p999Millis = histogram.getValueAtPercentile(99.9) / 1_000_000.0;
+            this.maxMillis = histogram.getMax() / 1_000_000.0;
+            this.rows = rows;
+        }
+
+        public String getCaller() { return caller; }
+        public String getSql() { return sql; }
+        public long getCount() { return count; }
+        public double getMeanMillis() { return meanMillis; }
+        public double getP50Millis() { return p50Millis; }
+        public double getP99Millis() { return p99Millis; }
+        public double getP999Millis() { return p999Millis; }
+        public double getMaxMillis() { return maxMillis; }
+        public double getTotalMillis() { return meanMillis * count; }
+        public long getRows() { return rows; }
+    }
+}
@@ -2,22 +2,26 @@ package com.customer.dao;
 
 import com.customer.model.*;
 import com.customer.model.dto.DashboardStats;
+import com.customer.model.dto.GroupTotals;
 
-import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ReportDAO {
     private final Connection connection;
+    // Aggregations and report listings may be served by the read replica
+    private final ConnectionRouter router;
 
     public ReportDAO() {
         this.connection = DatabaseManager.getInstance().getConnection();
+        this.router = ConnectionRouter.getInstance();
     }
 
     // --- Dashboard Aggregations ---
@@ -33,28 +37,26 @@ public class ReportDAO {
         return 0;
     }
 
-    public BigDecimal getTotalBalance() throws SQLException {
+    public Money getTotalBalance() throws SQLException {
         String sql = "SELECT SUM(balance) FROM accounts";
         try (Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             if (rs.next()) {
-                BigDecimal total = rs.getBigDecimal(1);
-                return total != null ? total : BigDecimal.ZERO;
+                return MoneyColumns.getOrZero(rs, 1);
             }
         }
-        return BigDecimal.ZERO;
+        return Money.ZERO;
     }
 
-    public BigDecimal getTotalLoans() throws SQLException {
+    public Money getTotalLoans() throws SQLException {
         String sql = "SELECT SUM(principal_amount) FROM loans WHERE status = 'DISBURSED' OR status = 'OVERDUE'";
         try (Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             if (rs.next()) {
-                BigDecimal total = rs.getBigDecimal(1);
-                return total != null ? total : BigDecimal.ZERO;
+                return MoneyColumns.getOrZero(rs, 1);
             }
         }
-        return BigDecimal.ZERO;
+        return Money.ZERO;
     }
 
     public int getTodayTransactionCount() throws SQLException {
@@ -89,7 +91,7 @@ public class ReportDAO {
     // Calculate total balance at end of specific month (Approximate based on current balance - transactions since then? No, that's too hard)
     // For simplicity, we might just track "created accounts balance" or similar, but accurate historical balance requires transaction replay.
     // Plan B for Balance Comparison: Just use current balance vs. (Current Balance - Net Transactions this Month)
-    public BigDecimal getBalanceInMonth(int year, int month) throws SQLException {
+    public Money getBalanceInMonth(int year, int month) throws SQLException {
         // This is complex. Let's simplify:
         // Current Balance = X
         // Transactions since Start of Month: In/Out
@@ -100,7 +102,7 @@ public class ReportDAO {
         // So we reverse calculate from current balance.
 
         // 1. Get current total balance
-        BigDecimal currentTotal = getTotalBalance();
+        Money currentTotal = getTotalBalance();
 
         // 2. Get net change since start of current month
         LocalDate startOfCurrentMonth = LocalDate.now().withDayOfMonth(1);
@@ -134,9 +136,9 @@ public class ReportDAO {
                  pstmt.setTimestamp(1, Timestamp.valueOf(cutoff));
                  try (ResultSet rs = pstmt.executeQuery()) {
                      if (rs.next()) {
-                         BigDecimal netChange = rs.getBigDecimal(1);
+                         Money netChange = MoneyColumns.get(rs, 1);
                          if (netChange != null) {
-                             return currentTotal.subtract(netChange);
+                             return currentTotal.minus(netChange);
                          }
                      }
                  }
@@ -155,12 +157,11 @@ public class ReportDAO {
                      "JOIN customers c ON a.customer_id = c.id " +
                      "ORDER BY a.balance DESC LIMIT ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = router.getReportingConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, limit);
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    accounts.add(extractAccountFromResultSet(rs));
-                }
+                accounts.addAll(RowMappers.ACCOUNT.mapAll(sql, rs));
             }
         }
         return accounts;
@@ -177,15 +178,177 @@ public class ReportDAO {
                      "GROUP BY a.id " +
                      "ORDER BY txn_count DESC LIMIT ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = router.getReportingConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                accounts.addAll(RowMappers.ACCOUNT.mapAll(sql, rs));
+            }
+        }
+        return accounts;
+    }
+
+    /** Accounts with customer names for the given ids, in no particular order. */
+    public List<Account> getAccountsByIds(List<Long> ids) throws SQLException {
+        List<Account> accounts = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return accounts;
+        }
+        String sql = "SELECT a.*, c.full_name as customer_name " +
+                     "FROM accounts a " +
+                     "JOIN customers c ON a.customer_id = c.id " +
+                     "WHERE a.id IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
+
+        try (Connection conn = router.getReportingConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setLong(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                accounts.addAll(RowMappers.ACCOUNT.mapAll(sql, rs));
+            }
+        }
+        return accounts;
+    }
+
+    public interface PostingHandler {
+        void onPosting(long id, long accountId, Money amount, LocalDateTime createdDate);
+    }
+
+    /**
+     * Streams every transaction row dated on or after {@code since} with id up to the
+     * newest id at the time of the call, and returns that id. Runs on its own primary
+     * connection with a streaming result set, so memory stays flat however many rows
+     * there are and the shared connection is not held up.
+     */
+    public long streamPostingsSince(LocalDate since, PostingHandler handler) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+            long maxId;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM transactions")) {
+                maxId = rs.next() ? rs.getLong(1) : 0;
+            }
+
+            String sql = "SELECT id, account_id, amount, created_date FROM transactions " +
+                         "WHERE created_date >= ? AND id <= ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // Connector/J streams rows one at a time instead of buffering the whole result
+                pstmt.setFetchSize(Integer.MIN_VALUE);
+                pstmt.setTimestamp(1, Timestamp.valueOf(since.atStartOfDay()));
+                pstmt.setLong(2, maxId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.onPosting(rs.getLong(1), rs.getLong(2), MoneyColumns.get(rs, 3),
+                                rs.getTimestamp(4).toLocalDateTime());
+                    }
+                }
+            }
+            return maxId;
+        }
+    }
+
+    public interface BalanceStepHandler {
+        /** {@code signedAmount} is the change this row made to its account's balance. */
+        void onStep(long accountId, TransactionType type, Money signedAmount, LocalDateTime createdDate);
+    }
+
+    // Rows since ? (a range on idx_transactions_date) plus, for each account among them, its
+    // rows on the date of its last earlier posting: the predecessor LAG needs for the first step.
+    // One index lookup per active account, as for statements.
+    private static final String BALANCE_STEPS_SQL =
+            "SELECT account_id, transaction_type, created_date, signed_amount FROM (" +
+            "SELECT s.account_id, s.transaction_type, s.created_date, s.seed, " +
+            "s.balance_after - LAG(s.balance_after, 1, 0) OVER (PARTITION BY s.account_id ORDER BY s.created_date, s.id) AS signed_amount " +
+            "FROM (" +
+            "SELECT account_id, id, transaction_type, created_date, balance_after, 0 AS seed " +
+            "FROM transactions WHERE created_date >= ? " +
+            "UNION ALL " +
+            "SELECT p.account_id, p.id, p.transaction_type, p.created_date, p.balance_after, 1 " +
+            "FROM (SELECT r.account_id, (SELECT MAX(x.created_date) FROM transactions x " +
+            "WHERE x.account_id = r.account_id AND x.created_date < ?) AS seed_date " +
+            "FROM (SELECT DISTINCT account_id FROM transactions WHERE created_date >= ?) r) a " +
+            "JOIN transactions p ON p.account_id = a.account_id AND p.created_date = a.seed_date" +
+            ") s) steps WHERE seed = 0";
+
+    /**
+     * Streams every transaction row dated at or after {@code since} with the change it
+     * made to its account's balance, which tells the paying side of a transfer from the
+     * receiving one. Same dedicated streaming connection as {@link #streamPostingsSince}.
+     */
+    public void streamBalanceStepsSince(LocalDateTime since, BalanceStepHandler handler) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection();
+             PreparedStatement pstmt = conn.prepareStatement(BALANCE_STEPS_SQL,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            Timestamp start = Timestamp.valueOf(since);
+            pstmt.setTimestamp(1, start);
+            pstmt.setTimestamp(2, start);
+            pstmt.setTimestamp(3, start);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    accounts.add(extractAccountFromResultSet(rs));
+                    handler.onStep(rs.getLong(1), TransactionType.valueOf(rs.getString(2)), MoneyColumns.get(rs, 4),
+                            rs.getTimestamp(3).toLocalDateTime());
                 }
             }
         }
-        return accounts;
+    }
+
+    public interface LedgerRowHandler {
+        /** {@code targetAccountId} is 0 when the row has no target account. */
+        void onRow(long id, long accountId, long targetAccountId, TransactionType type, Money amount, LocalDateTime createdDate);
+    }
+
+    private static final String LEDGER_SELECT =
+            "SELECT id, account_id, target_account_id, transaction_type, amount, created_date FROM transactions ";
+
+    /**
+     * Streams every transaction row up to the newest id at the time of the call, in
+     * id order, and returns that id. Same dedicated streaming connection as
+     * {@link #streamPostingsSince}.
+     */
+    public long streamLedger(LedgerRowHandler handler) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+            long maxId;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM transactions")) {
+                maxId = rs.next() ? rs.getLong(1) : 0;
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(LEDGER_SELECT + "WHERE id <= ? ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(Integer.MIN_VALUE);
+                pstmt.setLong(1, maxId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    readLedgerRows(rs, handler);
+                }
+            }
+            return maxId;
+        }
+    }
+
+    /** The ledger rows with the given ids, fetched in IN-lists of at most 1000 ids. */
+    public void getLedgerRowsByIds(List<Long> ids, LedgerRowHandler handler) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+            for (int from = 0; from < ids.size(); from += 1000) {
+                int to = Math.min(ids.size(), from + 1000);
+                String sql = LEDGER_SELECT + "WHERE id IN (" + "?,".repeat(to - from - 1) + "?)";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = from; i < to; i++) {
+                        pstmt.setLong(i - from + 1, ids.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        readLedgerRows(rs, handler);
+                    }
+                }
+            }
+        }
+    }
+
+    private void readLedgerRows(ResultSet rs, LedgerRowHandler handler) throws SQLException {
+        while (rs.next()) {
+            handler.onRow(rs.getLong(1), rs.getLong(2), rs.getLong(3), TransactionType.valueOf(rs.getString(4)),
+                    MoneyColumns.getOrZero(rs, 5), rs.getTimestamp(6).toLocalDateTime());
+        }
     }
 
     // --- Chart Data ---
@@ -193,7 +356,8 @@ public class ReportDAO {
     public Map<CustomerType, Integer> getCustomerDistribution() throws SQLException {
         Map<CustomerType, Integer> map = new HashMap<>();
         String sql = "SELECT customer_type, COUNT(*) FROM customers GROUP BY customer_type";
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = router.getReportingConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
                 try {
@@ -210,7 +374,8 @@ public class ReportDAO {
     public Map<AccountType, Integer> getAccountTypeDistribution() throws SQLException {
         Map<AccountType, Integer> map = new HashMap<>();
         String sql = "SELECT account_type, COUNT(*) FROM accounts GROUP BY account_type";
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = router.getReportingConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
                 try {
@@ -227,7 +392,8 @@ public class ReportDAO {
     public Map<LoanStatus, Integer> getLoanStatusDistribution() throws SQLException {
         Map<LoanStatus, Integer> map = new HashMap<>();
         String sql = "SELECT status, COUNT(*) FROM loans GROUP BY status";
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = router.getReportingConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
                 try {
@@ -250,7 +416,8 @@ public class ReportDAO {
                      "GROUP BY DATE_FORMAT(created_date, '%Y-%m') " +
                      "ORDER BY month ASC";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = router.getReportingConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, months);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -261,14 +428,14 @@ public class ReportDAO {
         return map;
     }
 
-    public Map<String, BigDecimal> getBalanceTrendByMonth(int months) throws SQLException {
+    public Map<String, Money> getBalanceTrendByMonth(int months) throws SQLException {
         // This is tricky without history table.
         // We will approximate by: Sum of all deposits - withdrawals for each month
         // This represents "Net Flow" rather than "Total Balance".
         // For a Trend Line, Net Flow is useful, or we can accumulate it.
         // Let's return Net Flow per month.
 
-        Map<String, BigDecimal> map = new HashMap<>();
+        Map<String, Money> map = new HashMap<>();
         String sql = "SELECT DATE_FORMAT(created_date, '%Y-%m') as month, " +
                      "SUM(CASE WHEN transaction_type = 'DEPOSIT' THEN amount " +
                      "         WHEN transaction_type = 'WITHDRAW' THEN -amount " +
@@ -280,12 +447,12 @@ public class ReportDAO {
                      "GROUP BY DATE_FORMAT(created_date, '%Y-%m') " +
                      "ORDER BY month ASC";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = router.getReportingConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, months);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    BigDecimal val = rs.getBigDecimal(2);
-                    map.put(rs.getString(1), val != null ? val : BigDecimal.ZERO);
+                    map.put(rs.getString(1), MoneyColumns.getOrZero(rs, 2));
                 }
             }
         }
@@ -295,16 +462,117 @@ public class ReportDAO {
     // --- Reports ---
 
     public List<Transaction> getTransactionsByFilter(LocalDate from, LocalDate to, TransactionType type, Long accountId) throws SQLException {
-        List<Transaction> transactions = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(TRANSACTION_DETAIL_SELECT);
+        List<Object> params = new ArrayList<>();
+        appendTransactionFilter(sql, params, from, to, type, accountId);
+        sql.append("ORDER BY t.created_date DESC, t.id DESC");
+        return queryList(RowMappers.TRANSACTION, sql.toString(), params);
+    }
+
+    public List<Loan> getLoansByFilter(LocalDate from, LocalDate to, LoanStatus status) throws SQLException {
+        StringBuilder sql = new StringBuilder(LOAN_DETAIL_SELECT);
+        List<Object> params = new ArrayList<>();
+        appendLoanFilter(sql, params, from, to, status);
+        sql.append("ORDER BY l.created_date DESC, l.id DESC");
+        return queryList(RowMappers.LOAN, sql.toString(), params);
+    }
+
+    // --- Report Aggregation ---
+
+    private static final String TRANSACTION_DETAIL_SELECT =
+            "SELECT t.*, a.account_number, ta.account_number as target_account_number, u.full_name as created_by_name " +
+            "FROM transactions t " +
+            "LEFT JOIN accounts a ON t.account_id = a.id " +
+            "LEFT JOIN accounts ta ON t.target_account_id = ta.id " +
+            "LEFT JOIN users u ON t.created_by = u.id ";
+    private static final String LOAN_DETAIL_SELECT =
+            "SELECT l.*, c.full_name as customer_name " +
+            "FROM loans l " +
+            "JOIN customers c ON l.customer_id = c.id ";
+
+    /**
+     * Count and amount per transaction type for the filter, with the grand total
+     * taken from the ROLLUP row. No joins: the summary only needs the base table.
+     */
+    public GroupTotals<TransactionType> getTransactionTotals(LocalDate from, LocalDate to, TransactionType type, Long accountId) throws SQLException {
         StringBuilder sql = new StringBuilder(
-                "SELECT t.*, a.account_number, ta.account_number as target_account_number, u.full_name as created_by_name " +
-                "FROM transactions t " +
-                "LEFT JOIN accounts a ON t.account_id = a.id " +
-                "LEFT JOIN accounts ta ON t.target_account_id = ta.id " +
-                "LEFT JOIN users u ON t.created_by = u.id " +
-                "WHERE t.created_date BETWEEN ? AND ? ");
+                "SELECT t.transaction_type, COUNT(*) as cnt, COALESCE(SUM(t.amount), 0) as total FROM transactions t ");
+        List<Object> params = new ArrayList<>();
+        appendTransactionFilter(sql, params, from, to, type, accountId);
+        sql.append("GROUP BY t.transaction_type WITH ROLLUP");
+
+        GroupTotals<TransactionType> totals = new GroupTotals<>(TransactionType.class);
+        queryRollup(sql.toString(), params, (key, count, amount) -> {
+            if (key == null) {
+                totals.setTotalCount(count);
+                totals.setTotalAmount(amount);
+            } else {
+                totals.put(TransactionType.valueOf(key), count, amount);
+            }
+        });
+        return totals;
+    }
 
+    /** Count and principal per loan status for the filter, grand total from the ROLLUP row. */
+    public GroupTotals<LoanStatus> getLoanTotals(LocalDate from, LocalDate to, LoanStatus status) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT l.status, COUNT(*) as cnt, COALESCE(SUM(l.principal_amount), 0) as total " +
+                "FROM loans l JOIN customers c ON l.customer_id = c.id ");
         List<Object> params = new ArrayList<>();
+        appendLoanFilter(sql, params, from, to, status);
+        sql.append("GROUP BY l.status WITH ROLLUP");
+
+        GroupTotals<LoanStatus> totals = new GroupTotals<>(LoanStatus.class);
+        queryRollup(sql.toString(), params, (key, count, amount) -> {
+            if (key == null) {
+                totals.setTotalCount(count);
+                totals.setTotalAmount(amount);
+            } else {
+                totals.put(LoanStatus.valueOf(key), count, amount);
+            }
+        });
+        return totals;
+    }
+
+    /**
+     * One page of report detail rows, newest first. Pages are keyed on the last row of
+     * the previous page ({@code after}, null for the first page) rather than an offset,
+     * so a deep page costs the same as the first one.
+     */
+    public List<Transaction> getTransactionsPage(LocalDate from, LocalDate to, TransactionType type, Long accountId,
+                                                 Transaction after, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder(TRANSACTION_DETAIL_SELECT);
+        List<Object> params = new ArrayList<>();
+        appendTransactionFilter(sql, params, from, to, type, accountId);
+        if (after != null) {
+            sql.append("AND (t.created_date < ? OR (t.created_date = ? AND t.id < ?)) ");
+            params.add(Timestamp.valueOf(after.getCreatedDate()));
+            params.add(Timestamp.valueOf(after.getCreatedDate()));
+            params.add(after.getId());
+        }
+        sql.append("ORDER BY t.created_date DESC, t.id DESC LIMIT ?");
+        params.add(limit);
+        return queryList(RowMappers.TRANSACTION, sql.toString(), params);
+    }
+
+    public List<Loan> getLoansPage(LocalDate from, LocalDate to, LoanStatus status, Loan after, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder(LOAN_DETAIL_SELECT);
+        List<Object> params = new ArrayList<>();
+        appendLoanFilter(sql, params, from, to, status);
+        if (after != null) {
+            sql.append("AND (l.created_date < ? OR (l.created_date = ? AND l.id < ?)) ");
+            params.add(Timestamp.valueOf(after.getCreatedDate()));
+            params.add(Timestamp.valueOf(after.getCreatedDate()));
+            params.add(after.getId());
+        }
+        sql.append("ORDER BY l.created_date DESC, l.id DESC LIMIT ?");
+        params.add(limit);
+        return queryList(RowMappers.LOAN, sql.toString(), params);
+    }
+
+    private void appendTransactionFilter(StringBuilder sql, List<Object> params,
+                                         LocalDate from, LocalDate to, TransactionType type, Long accountId) {
+        sql.append("WHERE t.created_date BETWEEN ? AND ? ");
         params.add(Timestamp.valueOf(from.atStartOfDay()));
         params.add(Timestamp.valueOf(to.atTime(LocalTime.MAX)));
 
@@ -318,32 +586,10 @@ public class ReportDAO {
             params.add(accountId);
             params.add(accountId);
         }
-
-        sql.append("ORDER BY t.created_date DESC");
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
-            for (int i = 0; i < params.size(); i++) {
-                pstmt.setObject(i + 1, params.get(i));
-            }
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    transactions.add(mapResultSetToTransaction(rs));
-                }
-            }
-        }
-        return transactions;
     }
 
-    public List<Loan> getLoansByFilter(LocalDate from, LocalDate to, LoanStatus status) throws SQLException {
-        List<Loan> loans = new ArrayList<>();
-        StringBuilder sql = new StringBuilder(
-                "SELECT l.*, c.full_name as customer_name " +
-                "FROM loans l " +
-                "JOIN customers c ON l.customer_id = c.id " +
-                "WHERE l.created_date BETWEEN ? AND ? ");
-
-        List<Object> params = new ArrayList<>();
+    private void appendLoanFilter(StringBuilder sql, List<Object> params, LocalDate from, LocalDate to, LoanStatus status) {
+        sql.append("WHERE l.created_date BETWEEN ? AND ? ");
         params.add(Timestamp.valueOf(from.atStartOfDay()));
         params.add(Timestamp.valueOf(to.atTime(LocalTime.MAX)));
 
@@ -351,145 +597,142 @@ public class ReportDAO {
             sql.append("AND l.status = ? ");
             params.add(status.name());
         }
+    }
 
-        sql.append("ORDER BY l.created_date DESC");
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+    private <T> List<T> queryList(RowMapper<T> mapper, String sql, List<Object> params) throws SQLException {
+        try (Connection conn = router.getReportingConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             for (int i = 0; i < params.size(); i++) {
                 pstmt.setObject(i + 1, params.get(i));
             }
-
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    loans.add(mapResultSetToLoan(rs));
-                }
+                return mapper.mapAll(sql, rs);
             }
         }
-        return loans;
     }
 
-    public BigDecimal getOpeningBalance(long accountId, LocalDate date) throws SQLException {
-        // Opening balance at start of date = Current Balance - Net transactions since date
-        // Wait, "since date" means from date to NOW.
-        // Opening Balance = Current Balance - (Sum of (Deposits - Withdrawals) from date to NOW)
-        // Note: We need to be careful with signs.
-        // Current = Opening + NetChange
-        // Opening = Current - NetChange
+    private interface RollupRow {
+        /** {@code key} is null on the ROLLUP (grand total) row. */
+        void accept(String key, int count, Money amount);
+    }
 
-        // First get current balance
-        BigDecimal currentBalance = BigDecimal.ZERO;
-        String balSql = "SELECT balance FROM accounts WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(balSql)) {
-            pstmt.setLong(1, accountId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    currentBalance = rs.getBigDecimal(1);
-                }
+    private void queryRollup(String sql, List<Object> params, RollupRow row) throws SQLException {
+        try (Connection conn = router.getReportingConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
             }
-        }
-
-        // Calculate net change from date to NOW
-        String txnSql = "SELECT " +
-                "SUM(CASE " +
-                "  WHEN account_id = ? AND transaction_type = 'DEPOSIT' THEN amount " +
-                "  WHEN account_id = ? AND transaction_type = 'WITHDRAW' THEN -amount " +
-                "  WHEN account_id = ? AND transaction_type = 'TRANSFER' THEN -amount " +
-                "  WHEN target_account_id = ? AND transaction_type = 'TRANSFER' THEN amount " +
-                "  WHEN account_id = ? AND transaction_type = 'LOAN_DISBURSEMENT' THEN amount " +
-                "  WHEN account_id = ? AND transaction_type = 'LOAN_PAYMENT' THEN -amount " +
-                "  ELSE 0 END) " +
-                "FROM transactions " +
-                "WHERE created_date >= ?";
-
-        // NOTE: For Transfer, Source is Debit (-), Target is Credit (+)
-
-        try (PreparedStatement pstmt = connection.prepareStatement(txnSql)) {
-            pstmt.setLong(1, accountId);
-            pstmt.setLong(2, accountId);
-            pstmt.setLong(3, accountId);
-            pstmt.setLong(4, accountId);
-            pstmt.setLong(5, accountId);
-            pstmt.setLong(6, accountId);
-            pstmt.setTimestamp(7, Timestamp.valueOf(date.atStartOfDay()));
-
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    BigDecimal netChange = rs.getBigDecimal(1);
-                    if (netChange != null) {
-                        return currentBalance.subtract(netChange);
-                    }
+                while (rs.next()) {
+                    row.accept(rs.getString(1), rs.getInt(2), MoneyColumns.getOrZero(rs, 3));
                 }
             }
         }
-
-        return currentBalance;
     }
 
-    // --- Helpers ---
+    // --- Statements ---
 
-    private Account extractAccountFromResultSet(ResultSet rs) throws SQLException {
-        Account account = new Account();
-        account.setId(rs.getLong("id"));
-        account.setCustomerId(rs.getLong("customer_id"));
-        account.setAccountNumber(rs.getString("account_number"));
-        account.setAccountType(AccountType.valueOf(rs.getString("account_type")));
-        account.setBalance(rs.getBigDecimal("balance"));
-        account.setInterestRate(rs.getDouble("interest_rate"));
-        account.setTermMonths(rs.getInt("term_months"));
-        account.setStatus(AccountStatus.valueOf(rs.getString("status")));
+    public interface StatementRowHandler {
+        /**
+         * One statement row, ascending by (created_date, id). {@code signedAmount} is the
+         * change in the account's balance made by this row. Rows dated before the period
+         * start are seed rows: only their balance_after (the opening balance) is meaningful.
+         */
+        void onRow(long accountId, Transaction transaction, Money signedAmount) throws SQLException;
+    }
 
-        Timestamp created = rs.getTimestamp("created_date");
-        if (created != null) account.setCreatedDate(created.toLocalDateTime());
+    // Each account's own rows in the period (a transfer has one row per side, a range on
+    // idx_transactions_account_date) plus its rows on the date of its last earlier posting,
+    // whose balance_after seeds the opening balance: one index lookup per account, not per row.
+    // The signed amount is the step in balance_after; accounts open at zero, so the very first
+    // row of an account steps from 0. {@code accountFilter} applies to both account id columns.
+    private static String statementSql(String accountFilter, String orderBy) {
+        return "SELECT t.*, a.account_number, ta.account_number as target_account_number, u.full_name as created_by_name " +
+                "FROM (SELECT s.*, " +
+                "s.balance_after - LAG(s.balance_after, 1, 0) OVER (PARTITION BY s.account_id ORDER BY s.created_date, s.id) as signed_amount " +
+                "FROM (" +
+                "SELECT * FROM transactions WHERE account_id " + accountFilter + " AND created_date BETWEEN ? AND ? " +
+                "UNION ALL " +
+                "SELECT p.* FROM (SELECT x.id AS account_id, (SELECT MAX(y.created_date) FROM transactions y " +
+                "WHERE y.account_id = x.id AND y.created_date < ?) AS seed_date " +
+                "FROM accounts x WHERE x.id " + accountFilter + ") b " +
+                "JOIN transactions p ON p.account_id = b.account_id AND p.created_date = b.seed_date" +
+                ") s) t " +
+                "LEFT JOIN accounts a ON t.account_id = a.id " +
+                "LEFT JOIN accounts ta ON t.target_account_id = ta.id " +
+                "LEFT JOIN users u ON t.created_by = u.id " +
+                "ORDER BY " + orderBy;
+    }
 
-        // Handle customer_name if present
-        try {
-            String name = rs.getString("customer_name");
-            if (name != null) account.setCustomerName(name);
-        } catch (SQLException e) { /* ignore */ }
+    private static final String STATEMENT_ACCOUNT_SQL = statementSql("= ?", "t.created_date ASC, t.id ASC");
+    private static final String STATEMENT_RANGE_SQL = statementSql("BETWEEN ? AND ?",
+            "t.account_id ASC, t.created_date ASC, t.id ASC");
 
-        return account;
+    public void streamStatementRows(long accountId, LocalDate from, LocalDate to, StatementRowHandler handler) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(STATEMENT_ACCOUNT_SQL)) {
+            bindStatement(pstmt, from, to, accountId);
+            streamStatement(STATEMENT_ACCOUNT_SQL, pstmt, handler);
+        }
     }
 
-    private Transaction mapResultSetToTransaction(ResultSet rs) throws SQLException {
-        Transaction transaction = new Transaction();
-        transaction.setId(rs.getLong("id"));
-        transaction.setAccountId(rs.getLong("account_id"));
-        transaction.setTransactionType(TransactionType.valueOf(rs.getString("transaction_type")));
-        transaction.setAmount(rs.getBigDecimal("amount"));
-        transaction.setTargetAccountId(rs.getLong("target_account_id"));
-        transaction.setBalanceAfter(rs.getBigDecimal("balance_after"));
-        transaction.setDescription(rs.getString("description"));
-        transaction.setReferenceNumber(rs.getString("reference_number"));
-        transaction.setCreatedBy(rs.getLong("created_by"));
-        transaction.setCreatedDate(rs.getTimestamp("created_date").toLocalDateTime());
+    // --- Bulk Statements ---
 
-        try {
-            transaction.setAccountNumber(rs.getString("account_number"));
-            transaction.setTargetAccountNumber(rs.getString("target_account_number"));
-            transaction.setCreatedByName(rs.getString("created_by_name"));
-        } catch (SQLException e) { /* ignore */ }
+    // Keyset page of ACTIVE accounts ordered by id, for streaming through all accounts
+    public List<Account> getActiveAccountsPage(long afterId, int limit) throws SQLException {
+        List<Account> accounts = new ArrayList<>();
+        String sql = "SELECT a.*, c.full_name as customer_name " +
+                     "FROM accounts a " +
+                     "JOIN customers c ON a.customer_id = c.id " +
+                     "WHERE a.status = 'ACTIVE' AND a.id > ? " +
+                     "ORDER BY a.id ASC LIMIT ?";
 
-        return transaction;
+        try (Connection conn = router.getReportingConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, afterId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                accounts.addAll(RowMappers.ACCOUNT.mapAll(sql, rs));
+            }
+        }
+        return accounts;
     }
 
-    private Loan mapResultSetToLoan(ResultSet rs) throws SQLException {
-        Loan loan = new Loan();
-        loan.setId(rs.getLong("id"));
-        loan.setCustomerId(rs.getLong("customer_id"));
-        loan.setPrincipalAmount(rs.getBigDecimal("principal_amount"));
-        loan.setInterestRate(BigDecimal.valueOf(rs.getDouble("interest_rate")));
-        loan.setTermMonths(rs.getInt("term_months"));
-        loan.setStartDate(rs.getDate("start_date").toLocalDate());
-        if (rs.getDate("end_date") != null) {
-            loan.setEndDate(rs.getDate("end_date").toLocalDate());
+    // Statement rows for every account in [fromId, toId], grouped by account
+    public void streamStatementRows(long fromId, long toId, LocalDate from, LocalDate to, StatementRowHandler handler) throws SQLException {
+        try (Connection conn = router.getReportingConnection();
+             PreparedStatement pstmt = conn.prepareStatement(STATEMENT_RANGE_SQL)) {
+            bindStatement(pstmt, from, to, fromId, toId);
+            streamStatement(STATEMENT_RANGE_SQL, pstmt, handler);
         }
-        loan.setStatus(LoanStatus.valueOf(rs.getString("status")));
-        loan.setCreatedDate(rs.getTimestamp("created_date").toLocalDateTime());
+    }
 
-        try {
-            loan.setCustomerName(rs.getString("customer_name"));
-        } catch (SQLException e) { /* ignore */ }
+    // Parameters in statementSql order: accounts, period start and end, period start (seed lookup), accounts
+    private void bindStatement(PreparedStatement pstmt, LocalDate from, LocalDate to, long... accountParams) throws SQLException {
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        int index = 1;
+        for (long param : accountParams) {
+            pstmt.setLong(index++, param);
+        }
+        pstmt.setTimestamp(index++, start);
+        pstmt.setTimestamp(index++, Timestamp.valueOf(to.atTime(LocalTime.MAX)));
+        pstmt.setTimestamp(index++, start);
+        for (long param : accountParams) {
+            pstmt.setLong(index++, param);
+        }
+    }
 
-        return loan;
+    private void streamStatement(String sql, PreparedStatement pstmt, StatementRowHandler handler) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            RowMapper.Plan<Transaction> plan = null;
+            int signedColumn = 0;
+            while (rs.next()) {
+                if (plan == null) {
+                    plan = RowMappers.TRANSACTION.planFor(sql, rs);
+                    signedColumn = rs.findColumn("signed_amount");
+                }
+                Transaction transaction = plan.map(rs);
+                handler.onRow(transaction.getAccountId(), transaction, MoneyColumns.get(rs, signedColumn));
+            }
+        }
     }
 }
@@ -0,0 +1,117 @@
+package com.customer.dao;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps result set rows to model objects by column index.
+ *
+ * Column positions are resolved once from the {@link ResultSetMetaData} into a
+ * {@link Plan}, and plans are cached per SQL text. Optional columns that a
+ * query does not select simply resolve to index 0 and are skipped, so mapping
+ * a row never throws or catches an exception and never looks a column up by name.
+ */
+public class RowMapper<T> {
+
+    // Dynamic WHERE clauses give a handful of variants per query; this only guards against runaway growth
+    private static final int MAX_CACHED_PLANS = 256;
+
+    private final Planner<T> planner;
+    private final Map<String, CachedPlan<T>> plans = new ConcurrentHashMap<>();
+
+    public RowMapper(Planner<T> planner) {
+        this.planner = planner;
+    }
+
+    public interface Plan<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    public interface Planner<T> {
+        Plan<T> plan(Columns columns);
+    }
+
+    /**
+     * Plan for the result set of {@code sql}. The cached plan is reused as long
+     * as the result set still has the same column count.
+     */
+    public Plan<T> planFor(String sql, ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        CachedPlan<T> cached = plans.get(sql);
+        if (cached != null && cached.columnCount == meta.getColumnCount()) {
+            return cached.plan;
+        }
+
+        Columns columns = new Columns(meta);
+        CachedPlan<T> fresh = new CachedPlan<>(planner.plan(columns), columns.count());
+        if (plans.size() >= MAX_CACHED_PLANS) {
+            plans.clear();
+        }
+        plans.put(sql, fresh);
+        return fresh.plan;
+    }
+
+    public List<T> mapAll(String sql, ResultSet rs) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        Plan<T> plan = null;
+        while (rs.next()) {
+            if (plan == null) {
+                plan = planFor(sql, rs);
+            }
+            rows.add(plan.map(rs));
+        }
+        return rows;
+    }
+
+    // First row only, or null when the result set is empty
+    public T mapFirst(String sql, ResultSet rs) throws SQLException {
+        return rs.next() ? planFor(sql, rs).map(rs) : null;
+    }
+
+    void clearCache() {
+        plans.clear();
+    }
+
+    /**
+     * Column label to 1-based index, resolved from result set metadata.
+     * Labels are case-insensitive; when a label repeats the first one wins,
+     * the same rule {@link ResultSet#findColumn} uses.
+     */
+    public static class Columns {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final int count;
+
+        Columns(ResultSetMetaData meta) throws SQLException {
+            this.count = meta.getColumnCount();
+            for (int i = 1; i <= count; i++) {
+                indexes.putIfAbsent(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        // 0 when the query does not select this column
+        public int indexOf(String label) {
+            return indexes.getOrDefault(label.toLowerCase(Locale.ROOT), 0);
+        }
+
+        public int count() {
+            return count;
+        }
+    }
+
+    private static class CachedPlan<T> {
+        final Plan<T> plan;
+        final int columnCount;
+
+        CachedPlan(Plan<T> plan, int columnCount) {
+            this.plan = plan;
+            this.columnCount = columnCount;
+        }
+    }
+}
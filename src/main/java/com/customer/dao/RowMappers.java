@@ -0,0 +1,204 @@
+package com.customer.dao;
+
+import com.customer.model.Account;
+import com.customer.model.AccountStatus;
+import com.customer.model.AccountType;
+import com.customer.model.Loan;
+import com.customer.model.LoanStatus;
+import com.customer.model.Transaction;
+import com.customer.model.TransactionType;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Shared row mappers for the DAOs. Every column is optional: a query that
+ * does not select a column leaves the matching field at its default.
+ */
+public final class RowMappers {
+
+    public static final RowMapper<Account> ACCOUNT = new RowMapper<>(RowMappers::accountPlan);
+    public static final RowMapper<Transaction> TRANSACTION = new RowMapper<>(RowMappers::transactionPlan);
+    public static final RowMapper<Loan> LOAN = new RowMapper<>(RowMappers::loanPlan);
+
+    private RowMappers() {
+    }
+
+    // --- Account ---
+
+    private static RowMapper.Plan<Account> accountPlan(RowMapper.Columns c) {
+        int id = c.indexOf("id");
+        int customerId = c.indexOf("customer_id");
+        int accountNumber = c.indexOf("account_number");
+        int accountType = c.indexOf("account_type");
+        int balance = c.indexOf("balance");
+        int interestRate = c.indexOf("interest_rate");
+        int termMonths = c.indexOf("term_months");
+        int status = c.indexOf("status");
+        int createdDate = c.indexOf("created_date");
+        int closedDate = c.indexOf("closed_date");
+        int customerName = c.indexOf("customer_name");
+
+        return rs -> {
+            Account account = new Account();
+            if (id > 0) account.setId(rs.getLong(id));
+            if (customerId > 0) account.setCustomerId(rs.getLong(customerId));
+            if (accountNumber > 0) account.setAccountNumber(rs.getString(accountNumber));
+            if (accountType > 0) account.setAccountType(AccountType.valueOf(rs.getString(accountType)));
+            if (balance > 0) account.setBalance(MoneyColumns.get(rs, balance));
+            if (interestRate > 0) account.setInterestRate(rs.getDouble(interestRate));
+            if (termMonths > 0) account.setTermMonths(rs.getInt(termMonths));
+            if (status > 0) account.setStatus(AccountStatus.valueOf(rs.getString(status)));
+
+            if (createdDate > 0) {
+                Timestamp created = rs.getTimestamp(createdDate);
+                if (created != null) account.setCreatedDate(created.toLocalDateTime());
+            }
+            if (closedDate > 0) {
+                Timestamp closed = rs.getTimestamp(closedDate);
+                if (closed != null) account.setClosedDate(closed.toLocalDateTime());
+            }
+
+            // Transient field
+            if (customerName > 0) {
+                String name = rs.getString(customerName);
+                if (name != null) account.setCustomerName(name);
+            }
+            return account;
+        };
+    }
+
+    // --- Transaction ---
+
+    private static RowMapper.Plan<Transaction> transactionPlan(RowMapper.Columns c) {
+        int id = c.indexOf("id");
+        int accountId = c.indexOf("account_id");
+        int transactionType = c.indexOf("transaction_type");
+        int amount = c.indexOf("amount");
+        int targetAccountId = c.indexOf("target_account_id");
+        int balanceAfter = c.indexOf("balance_after");
+        int description = c.indexOf("description");
+        int referenceNumber = c.indexOf("reference_number");
+        int createdBy = c.indexOf("created_by");
+        int createdDate = c.indexOf("created_date");
+        int accountNumber = c.indexOf("account_number");
+        int targetAccountNumber = c.indexOf("target_account_number");
+        int createdByName = c.indexOf("created_by_name");
+
+        return rs -> {
+            Transaction transaction = new Transaction();
+            if (id > 0) transaction.setId(rs.getLong(id));
+            if (accountId > 0) transaction.setAccountId(rs.getLong(accountId));
+            if (transactionType > 0) transaction.setTransactionType(TransactionType.valueOf(rs.getString(transactionType)));
+            if (amount > 0) transaction.setAmount(MoneyColumns.get(rs, amount));
+            if (targetAccountId > 0) transaction.setTargetAccountId(rs.getLong(targetAccountId));
+            if (balanceAfter > 0) transaction.setBalanceAfter(MoneyColumns.get(rs, balanceAfter));
+            if (description > 0) transaction.setDescription(rs.getString(description));
+            if (referenceNumber > 0) transaction.setReferenceNumber(rs.getString(referenceNumber));
+            if (createdBy > 0) transaction.setCreatedBy(rs.getLong(createdBy));
+
+            if (createdDate > 0) {
+                Timestamp created = rs.getTimestamp(createdDate);
+                if (created != null) transaction.setCreatedDate(created.toLocalDateTime());
+            }
+
+            // Joined display columns
+            if (accountNumber > 0) transaction.setAccountNumber(rs.getString(accountNumber));
+            if (targetAccountNumber > 0) transaction.setTargetAccountNumber(rs.getString(targetAccountNumber));
+            if (createdByName > 0) transaction.setCreatedByName(rs.getString(createdByName));
+            return transaction;
+        };
+    }
+
+    // --- Loan ---
+
+    private static RowMapper.Plan<Loan> loanPlan(RowMapper.Columns c) {
+        int id = c.indexOf("id");
+        int customerId = c.indexOf("customer_id");
+        int loanAccountId = c.indexOf("loan_account_id");
+        int loanNumber = c.indexOf("loan_number");
+        int principalAmount = c.indexOf("principal_amount");
+        int interestRate = c.indexOf("interest_rate");
+        int termMonths = c.indexOf("term_months");
+        int monthlyPayment = c.indexOf("monthly_payment");
+        int totalPaid = c.indexOf("total_paid");
+        int remainingBalance = c.indexOf("remaining_balance");
+        int status = c.indexOf("status");
+        int purpose = c.indexOf("purpose");
+        int appliedDate = c.indexOf("applied_date");
+        int approvedDate = c.indexOf("approved_date");
+        int approvedBy = c.indexOf("approved_by");
+        int approvalNote = c.indexOf("approval_note");
+        int startDate = c.indexOf("start_date");
+        int endDate = c.indexOf("end_date");
+        int createdBy = c.indexOf("created_by");
+        int createdDate = c.indexOf("created_date");
+        int customerName = c.indexOf("customer_name");
+        int approverName = c.indexOf("approver_name");
+        int creatorName = c.indexOf("creator_name");
+
+        return rs -> {
+            Loan loan = new Loan();
+            if (id > 0) loan.setId(rs.getLong(id));
+            if (customerId > 0) loan.setCustomerId(rs.getLong(customerId));
+
+            if (loanAccountId > 0) {
+                long value = rs.getLong(loanAccountId);
+                if (!rs.wasNull()) loan.setLoanAccountId(value);
+            }
+
+            if (loanNumber > 0) loan.setLoanNumber(rs.getString(loanNumber));
+            if (principalAmount > 0) loan.setPrincipalAmount(MoneyColumns.get(rs, principalAmount));
+            if (interestRate > 0) loan.setInterestRate(rs.getBigDecimal(interestRate));
+            if (termMonths > 0) loan.setTermMonths(rs.getInt(termMonths));
+            if (monthlyPayment > 0) loan.setMonthlyPayment(MoneyColumns.get(rs, monthlyPayment));
+            if (totalPaid > 0) loan.setTotalPaid(MoneyColumns.get(rs, totalPaid));
+            if (remainingBalance > 0) loan.setRemainingBalance(MoneyColumns.get(rs, remainingBalance));
+
+            if (status > 0) {
+                String value = rs.getString(status);
+                if (value != null) loan.setStatus(LoanStatus.valueOf(value));
+            }
+
+            if (purpose > 0) loan.setPurpose(rs.getString(purpose));
+
+            if (appliedDate > 0) {
+                Timestamp value = rs.getTimestamp(appliedDate);
+                if (value != null) loan.setAppliedDate(value.toLocalDateTime());
+            }
+            if (approvedDate > 0) {
+                Timestamp value = rs.getTimestamp(approvedDate);
+                if (value != null) loan.setApprovedDate(value.toLocalDateTime());
+            }
+            if (approvedBy > 0) {
+                long value = rs.getLong(approvedBy);
+                if (!rs.wasNull()) loan.setApprovedBy(value);
+            }
+
+            if (approvalNote > 0) loan.setApprovalNote(rs.getString(approvalNote));
+
+            if (startDate > 0) {
+                Date value = rs.getDate(startDate);
+                if (value != null) loan.setStartDate(value.toLocalDate());
+            }
+            if (endDate > 0) {
+                Date value = rs.getDate(endDate);
+                if (value != null) loan.setEndDate(value.toLocalDate());
+            }
+
+            if (createdBy > 0) loan.setCreatedBy(rs.getLong(createdBy));
+            if (createdDate > 0) {
+                Timestamp value = rs.getTimestamp(createdDate);
+                if (value != null) loan.setCreatedDate(value.toLocalDateTime());
+            }
+
+            // Transient fields
+            if (customerName > 0) loan.setCustomerName(rs.getString(customerName));
+            if (approverName > 0) loan.setApproverName(rs.getString(approverName));
+            if (creatorName > 0) loan.setCreatorName(rs.getString(creatorName));
+            return loan;
+        };
+    }
+}
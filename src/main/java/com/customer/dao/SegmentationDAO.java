@@ -0,0 +1,270 @@
+package com.customer.dao;
+
+import com.customer.event.EntityInvalidated.Entity;
+import com.customer.event.EntityInvalidated.Operation;
+import com.customer.model.CustomerType;
+import com.customer.model.Money;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries behind customer segmentation: per-customer features as grouped
+ * aggregates (one statement per feature, not one per customer), the customers
+ * touched since a watermark, and the batched customer_type write-back.
+ *
+ * Every method runs on the connection it is given, so a run can use one
+ * dedicated connection throughout. Methods taking {@code ids} restrict the
+ * query to those customers (in IN-lists of {@link #ID_CHUNK}); null means all.
+ */
+public class SegmentationDAO {
+
+    private static final int ID_CHUNK = 1000;
+    // Change log rows are inserted before commit, so a run also rereads a little before its watermark
+    private static final long WATERMARK_OVERLAP_MS = TimeUnit.MINUTES.toMillis(1);
+
+    public interface CustomerRowHandler {
+        void onCustomer(long id, CustomerType type);
+    }
+
+    public interface AmountHandler {
+        void onAmount(long customerId, Money amount);
+    }
+
+    public interface LoanCountHandler {
+        void onLoans(long customerId, int active, int overdue);
+    }
+
+    public static class LastRun {
+        private final Timestamp startedAt;
+        private final LocalDateTime volumeFrom;
+
+        LastRun(Timestamp startedAt, LocalDateTime volumeFrom) {
+            this.startedAt = startedAt;
+            this.volumeFrom = volumeFrom;
+        }
+
+        public Timestamp getStartedAt() { return startedAt; }
+        public LocalDateTime getVolumeFrom() { return volumeFrom; }
+    }
+
+    private interface ChunkQuery {
+        void run(String idFilter, long[] ids, int from, int to) throws SQLException;
+    }
+
+    // --- Features ---
+
+    /** Customers in id order, with their current type (null if the stored value is unknown). */
+    public void streamCustomers(Connection conn, long[] ids, CustomerRowHandler handler) throws SQLException {
+        forEachChunk(ids, "id", (filter, chunk, from, to) -> {
+            String sql = "SELECT id, customer_type FROM customers" + (filter.isEmpty() ? "" : " WHERE " + filter) + " ORDER BY id";
+            query(conn, sql, null, chunk, from, to, rs -> handler.onCustomer(rs.getLong(1), typeOf(rs.getString(2))));
+        });
+    }
+
+    /** Sum of balances over each customer's accounts that are not closed. */
+    public void streamBalances(Connection conn, long[] ids, AmountHandler handler) throws SQLException {
+        forEachChunk(ids, "customer_id", (filter, chunk, from, to) -> {
+            String sql = "SELECT customer_id, SUM(balance) FROM accounts WHERE status <> 'CLOSED'" +
+                         (filter.isEmpty() ? "" : " AND " + filter) + " GROUP BY customer_id";
+            query(conn, sql, null, chunk, from, to, rs -> handler.onAmount(rs.getLong(1), MoneyColumns.getOrZero(rs, 2)));
+        });
+    }
+
+    /** Sum of transaction amounts on each customer's accounts dated on or after {@code since}. Each side of a transfer has its own row. */
+    public void streamVolumes(Connection conn, LocalDateTime since, long[] ids, AmountHandler handler) throws SQLException {
+        forEachChunk(ids, "a.customer_id", (filter, chunk, from, to) -> {
+            String sql = "SELECT a.customer_id, SUM(t.amount) FROM transactions t " +
+                         "JOIN accounts a ON a.id = t.account_id " +
+                         "WHERE t.created_date >= ?" + (filter.isEmpty() ? "" : " AND " + filter) + " GROUP BY a.customer_id";
+            query(conn, sql, Timestamp.valueOf(since), chunk, from, to,
+                    rs -> handler.onAmount(rs.getLong(1), MoneyColumns.getOrZero(rs, 2)));
+        });
+    }
+
+    /** Loans per customer still being repaid (DISBURSED or OVERDUE), and how many of those are OVERDUE. */
+    public void streamLoanCounts(Connection conn, long[] ids, LoanCountHandler handler) throws SQLException {
+        forEachChunk(ids, "customer_id", (filter, chunk, from, to) -> {
+            String sql = "SELECT customer_id, SUM(status IN ('DISBURSED', 'OVERDUE')), SUM(status = 'OVERDUE') " +
+                         "FROM loans WHERE status IN ('DISBURSED', 'OVERDUE')" +
+                         (filter.isEmpty() ? "" : " AND " + filter) + " GROUP BY customer_id";
+            query(conn, sql, null, chunk, from, to, rs -> handler.onLoans(rs.getLong(1), rs.getInt(2), rs.getInt(3)));
+        });
+    }
+
+    // --- Watermark ---
+
+    public Timestamp now(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT NOW(3)")) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    /** The newest finished run, or null if there is none. */
+    public LastRun findLastRun(Connection conn) throws SQLException {
+        String sql = "SELECT started_at, volume_from FROM segmentation_runs ORDER BY id DESC LIMIT 1";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? new LastRun(rs.getTimestamp(1), rs.getTimestamp(2).toLocalDateTime()) : null;
+        }
+    }
+
+    public void saveRun(Connection conn, String mode, Timestamp startedAt, LocalDateTime volumeFrom,
+                        int scored, int changed, long millis) throws SQLException {
+        String sql = "INSERT INTO segmentation_runs (mode, started_at, volume_from, scored, changed, millis) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, mode);
+            pstmt.setTimestamp(2, startedAt);
+            pstmt.setTimestamp(3, Timestamp.valueOf(volumeFrom));
+            pstmt.setInt(4, scored);
+            pstmt.setInt(5, changed);
+            pstmt.setLong(6, millis);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /** False if change log rows written after {@code since} may already have been pruned. */
+    public boolean canTrackChangesSince(Connection conn, Timestamp since) throws SQLException {
+        long oldest = now(conn).getTime() - TimeUnit.HOURS.toMillis(ChangeLog.RETENTION_HOURS);
+        return since.getTime() - WATERMARK_OVERLAP_MS > oldest;
+    }
+
+    /**
+     * Sorted ids of customers whose features may have changed since {@code since}:
+     * the customer row, one of its accounts (balances change with every posting) or
+     * one of its loans is in the change log, or it has transactions that dropped
+     * out of the volume window as it moved from {@code oldVolumeFrom} to
+     * {@code newVolumeFrom}.
+     */
+    public long[] findTouchedCustomers(Connection conn, Timestamp since, LocalDateTime oldVolumeFrom,
+                                       LocalDateTime newVolumeFrom) throws SQLException {
+        String sql = "SELECT entity_id FROM change_log WHERE created_at >= ? AND entity = 'CUSTOMER' " +
+                     "UNION SELECT a.customer_id FROM change_log c JOIN accounts a ON a.id = c.entity_id " +
+                     "WHERE c.created_at >= ? AND c.entity = 'ACCOUNT' " +
+                     "UNION SELECT l.customer_id FROM change_log c JOIN loans l ON l.id = c.entity_id " +
+                     "WHERE c.created_at >= ? AND c.entity = 'LOAN' " +
+                     "UNION SELECT a.customer_id FROM transactions t JOIN accounts a ON a.id = t.account_id " +
+                     "WHERE t.created_date >= ? AND t.created_date < ?";
+        Timestamp from = new Timestamp(since.getTime() - WATERMARK_OVERLAP_MS);
+        long[] ids = new long[1024];
+        int count = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, from);
+            pstmt.setTimestamp(2, from);
+            pstmt.setTimestamp(3, from);
+            pstmt.setTimestamp(4, Timestamp.valueOf(oldVolumeFrom));
+            pstmt.setTimestamp(5, Timestamp.valueOf(newVolumeFrom));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = rs.getLong(1);
+                }
+            }
+        }
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    // --- Write-back ---
+
+    /**
+     * Sets {@code to} on the given customers that are still {@code from} (null for
+     * no type), in one statement and transaction, and returns how many rows
+     * changed. The type guard leaves alone anyone edited since their features
+     * were read.
+     */
+    public int updateTypes(Connection conn, CustomerType from, CustomerType to, long[] ids, int offset, int length)
+            throws SQLException {
+        int[] updated = {0};
+        ChangeLog.atomically(conn, () -> {
+            String sql = "UPDATE customers SET customer_type = ? WHERE " +
+                         (from != null ? "customer_type = ?" : "customer_type IS NULL") + " AND " + inList("id", length);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int index = 1;
+                pstmt.setString(index++, to.name());
+                if (from != null) {
+                    pstmt.setString(index++, from.name());
+                }
+                for (int i = 0; i < length; i++) {
+                    pstmt.setLong(index++, ids[offset + i]);
+                }
+                updated[0] = pstmt.executeUpdate();
+            }
+            if (updated[0] > 0) {
+                ChangeLog.getInstance().recordBatch(conn, Entity.CUSTOMER,
+                        Arrays.copyOfRange(ids, offset, offset + length), Operation.UPDATE);
+            }
+        });
+        return updated[0];
+    }
+
+    // --- Helpers ---
+
+    private interface RowConsumer {
+        void accept(ResultSet rs) throws SQLException;
+    }
+
+    private static void forEachChunk(long[] ids, String column, ChunkQuery query) throws SQLException {
+        if (ids == null) {
+            query.run("", null, 0, 0);
+            return;
+        }
+        for (int from = 0; from < ids.length; from += ID_CHUNK) {
+            int to = Math.min(ids.length, from + ID_CHUNK);
+            query.run(inList(column, to - from), ids, from, to);
+        }
+    }
+
+    // `since`, when given, is the first parameter; the chunk's ids follow it
+    private static void query(Connection conn, String sql, Timestamp since, long[] ids, int from, int to,
+                              RowConsumer consumer) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            int first = 1;
+            if (since != null) {
+                pstmt.setTimestamp(first++, since);
+            }
+            if (ids == null) {
+                // A full run reads every customer; stream instead of buffering the result
+                pstmt.setFetchSize(Integer.MIN_VALUE);
+            } else {
+                for (int i = from; i < to; i++) {
+                    pstmt.setLong(first + i - from, ids[i]);
+                }
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(rs);
+                }
+            }
+        }
+    }
+
+    private static String inList(String column, int size) {
+        StringBuilder sql = new StringBuilder(column.length() + 6 + size * 2).append(column).append(" IN (");
+        for (int i = 0; i < size; i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        return sql.append(')').toString();
+    }
+
+    private static CustomerType typeOf(String value) {
+        try {
+            return value != null ? CustomerType.valueOf(value) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
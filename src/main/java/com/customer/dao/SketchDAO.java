@@ -0,0 +1,109 @@
+package com.customer.dao;
+
+import com.customer.model.Money;
+import com.customer.model.TransactionType;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Storage for the per-day analytics sketches and the raw-row scan that builds
+ * a day's sketches when they are not stored yet.
+ */
+public class SketchDAO {
+
+    public static final String DISTINCT_CUSTOMERS = "DISTINCT_CUSTOMERS";
+    public static final String AMOUNT_QUANTILES = "AMOUNT_QUANTILES";
+
+    private final Connection connection;
+    private final ConnectionRouter router;
+
+    public SketchDAO() {
+        this.connection = DatabaseManager.getInstance().getConnection();
+        this.router = ConnectionRouter.getInstance();
+    }
+
+    public static class StoredSketch {
+        private final LocalDate day;
+        private final String metric;
+        private final String dimension;
+        private final byte[] payload;
+
+        public StoredSketch(LocalDate day, String metric, String dimension, byte[] payload) {
+            this.day = day;
+            this.metric = metric;
+            this.dimension = dimension;
+            this.payload = payload;
+        }
+
+        public LocalDate getDay() { return day; }
+        public String getMetric() { return metric; }
+        public String getDimension() { return dimension; }
+        public byte[] getPayload() { return payload; }
+    }
+
+    public List<StoredSketch> findByDayRange(LocalDate from, LocalDate to) throws SQLException {
+        List<StoredSketch> sketches = new ArrayList<>();
+        String sql = "SELECT sketch_day, metric, dimension, payload FROM analytics_sketches " +
+                     "WHERE sketch_day BETWEEN ? AND ?";
+        try (Connection conn = router.getReportingConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(from));
+            pstmt.setDate(2, Date.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    sketches.add(new StoredSketch(rs.getDate(1).toLocalDate(), rs.getString(2),
+                            rs.getString(3), rs.getBytes(4)));
+                }
+            }
+        }
+        return sketches;
+    }
+
+    /** Writes the sketches of one or more days in one transaction, replacing any stored ones. */
+    public void save(List<StoredSketch> sketches) throws SQLException {
+        String sql = "INSERT INTO analytics_sketches (sketch_day, metric, dimension, payload) VALUES (?, ?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE payload = VALUES(payload)";
+        ChangeLog.atomically(connection, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (StoredSketch sketch : sketches) {
+                    pstmt.setDate(1, Date.valueOf(sketch.getDay()));
+                    pstmt.setString(2, sketch.getMetric());
+                    pstmt.setString(3, sketch.getDimension());
+                    pstmt.setBytes(4, sketch.getPayload());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+        });
+    }
+
+    public interface DayRowHandler {
+        void onRow(LocalDate day, long customerId, TransactionType type, Money amount);
+    }
+
+    /** Streams the day, customer, type and amount of every transaction from {@code from} to {@code to} inclusive. */
+    public void streamDays(LocalDate from, LocalDate to, DayRowHandler handler) throws SQLException {
+        String sql = "SELECT t.created_date, a.customer_id, t.transaction_type, t.amount " +
+                     "FROM transactions t JOIN accounts a ON t.account_id = a.id " +
+                     "WHERE t.created_date >= ? AND t.created_date < ?";
+        try (Connection conn = router.getReportingConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            pstmt.setTimestamp(2, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.onRow(rs.getTimestamp(1).toLocalDateTime().toLocalDate(), rs.getLong(2),
+                            TransactionType.valueOf(rs.getString(3)), MoneyColumns.get(rs, 4));
+                }
+            }
+        }
+    }
+}
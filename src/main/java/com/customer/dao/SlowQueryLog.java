@@ -0,0 +1,234 @@
+package com.customer.dao;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs statements slower than a threshold to a rolling, size-capped file
+ * (diagnostics/slow-query.log). The first time a statement shape is seen, its
+ * EXPLAIN FORMAT=JSON plan is captured and written alongside.
+ * All file and EXPLAIN work runs on a background thread.
+ */
+public class SlowQueryLog {
+
+    private static final SlowQueryLog INSTANCE = new SlowQueryLog();
+
+    private static final String LOG_DIR = "diagnostics";
+    private static final String LOG_FILE = "slow-query.log";
+    private static final long MAX_FILE_BYTES = 5L * 1024 * 1024;
+    private static final int MAX_ROLLED_FILES = 3;
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final long DEFAULT_THRESHOLD_MS = 500;
+    private static final String REDACTED = "***";
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private volatile long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong("slowquery.threshold.ms", DEFAULT_THRESHOLD_MS));
+
+    private final Map<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor writer;
+
+    private SlowQueryLog() {
+        // Bounded queue: when the disk or DB is slower than the incoming rate we drop entries
+        // instead of stalling the thread that ran the query.
+        writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "slow-query-log");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    public static SlowQueryLog getInstance() {
+        return INSTANCE;
+    }
+
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    public void setThresholdMillis(long millis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= thresholdNanos;
+    }
+
+    /**
+     * Called from the statement proxy. {@code params} holds the raw bound values;
+     * they are only used to bind the EXPLAIN statement and are redacted before logging.
+     */
+    void record(String shape, String sql, String caller, long elapsedNanos, Object[] params) {
+        String id = fingerprintOf(shape);
+        Fingerprint fp = fingerprints.computeIfAbsent(id, k -> new Fingerprint(id, shape, caller));
+        fp.occurrences.increment();
+        boolean firstSeen = fp.markLogged();
+
+        LocalDateTime at = LocalDateTime.now();
+        writer.execute(() -> {
+            StringBuilder entry = new StringBuilder();
+            entry.append(at.format(TIME_FORMAT))
+                    .append(" [").append(id).append("] ")
+                    .append(caller).append(' ')
+                    .append(String.format(Locale.ROOT, "%.1fms", elapsedNanos / 1_000_000.0))
+                    .append(" params=").append(redact(params))
+                    .append(" seen=").append(fp.occurrences.sum())
+                    .append(System.lineSeparator());
+
+            if (firstSeen) {
+                entry.append("  sql: ").append(shape).append(System.lineSeparator());
+                String plan = explain(sql, params);
+                fp.explainJson = plan;
+                entry.append("  explain: ").append(plan.replace("\n", "\n    ")).append(System.lineSeparator());
+            }
+            append(entry.toString());
+        });
+    }
+
+    public List<Fingerprint> getFingerprints() {
+        return new ArrayList<>(fingerprints.values());
+    }
+
+    // --- EXPLAIN ---
+
+    private String explain(String sql, Object[] params) {
+        String verb = sql.trim().split("\\s+", 2)[0].toUpperCase(Locale.ROOT);
+        if (!verb.equals("SELECT") && !verb.equals("UPDATE") && !verb.equals("DELETE")) {
+            return "(not captured for " + verb + ")";
+        }
+
+        // A dedicated, uninstrumented connection keeps EXPLAIN out of the stats and
+        // away from any transaction open on the shared connection.
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection();
+             PreparedStatement stmt = conn.prepareStatement("EXPLAIN FORMAT=JSON " + sql)) {
+            if (params != null) {
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : "(empty plan)";
+            }
+        } catch (SQLException e) {
+            return "(explain failed: " + e.getMessage() + ")";
+        }
+    }
+
+    // --- File handling ---
+
+    private void append(String text) {
+        File dir = new File(LOG_DIR);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        File file = new File(dir, LOG_FILE);
+        if (file.length() + text.length() > MAX_FILE_BYTES) {
+            roll(dir);
+        }
+        try (Writer out = new FileWriter(file, StandardCharsets.UTF_8, true)) {
+            out.write(text);
+        } catch (IOException e) {
+            System.err.println("Failed to write slow query log: " + e.getMessage());
+        }
+    }
+
+    // slow-query.log -> .1 -> .2 -> .3, oldest is dropped
+    private void roll(File dir) {
+        File oldest = new File(dir, LOG_FILE + "." + MAX_ROLLED_FILES);
+        if (oldest.exists()) {
+            oldest.delete();
+        }
+        for (int i = MAX_ROLLED_FILES - 1; i >= 1; i--) {
+            File src = new File(dir, LOG_FILE + "." + i);
+            if (src.exists()) {
+                src.renameTo(new File(dir, LOG_FILE + "." + (i + 1)));
+            }
+        }
+        new File(dir, LOG_FILE).renameTo(new File(dir, LOG_FILE + ".1"));
+    }
+
+    // --- Helpers ---
+
+    static String redact(Object[] params) {
+        if (params == null || params.length == 0) {
+            return "[]";
+        }
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) sb.append(", ");
+            Object value = params[i];
+            if (value instanceof BigDecimal) {
+                sb.append(REDACTED);
+            } else if (value instanceof String) {
+                sb.append('\'').append(value).append('\'');
+            } else {
+                sb.append(value);
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    static String fingerprintOf(String shape) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(shape.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 6; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(shape.hashCode());
+        }
+    }
+
+    public static class Fingerprint {
+        private final String id;
+        private final String sql;
+        private final String firstCaller;
+        private final LongAdder occurrences = new LongAdder();
+        private volatile boolean logged;
+        private volatile String explainJson;
+
+        Fingerprint(String id, String sql, String firstCaller) {
+            this.id = id;
+            this.sql = sql;
+            this.firstCaller = firstCaller;
+        }
+
+        synchronized boolean markLogged() {
+            if (logged) return false;
+            logged = true;
+            return true;
+        }
+
+        public String getId() { return id; }
+        public String getSql() { return sql; }
+        public String getFirstCaller() { return firstCaller; }
+        public long getOccurrences() { return occurrences.sum(); }
+        public String getExplainJson() { return explainJson; }
+    }
+}
@@ -1,7 +1,8 @@
 package com.customer.dao;
 
+import com.customer.event.EntityInvalidated.Entity;
+import com.customer.event.EntityInvalidated.Operation;
 import com.customer.model.Transaction;
-import com.customer.model.TransactionType;
 
 import java.sql.*;
 import java.time.LocalDateTime;
@@ -25,37 +26,40 @@ public class TransactionDAO {
 
         // Do not close shared connection
         Connection conn = DatabaseManager.getInstance().getConnection();
-        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        ChangeLog.atomically(conn, () -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-            stmt.setLong(1, transaction.getAccountId());
-            stmt.setString(2, transaction.getTransactionType().name());
-            stmt.setBigDecimal(3, transaction.getAmount());
+                stmt.setLong(1, transaction.getAccountId());
+                stmt.setString(2, transaction.getTransactionType().name());
+                MoneyColumns.set(stmt, 3, transaction.getAmount());
 
-            if (transaction.getTargetAccountId() > 0) {
-                stmt.setLong(4, transaction.getTargetAccountId());
-            } else {
-                stmt.setNull(4, Types.BIGINT);
-            }
+                if (transaction.getTargetAccountId() > 0) {
+                    stmt.setLong(4, transaction.getTargetAccountId());
+                } else {
+                    stmt.setNull(4, Types.BIGINT);
+                }
 
-            stmt.setBigDecimal(5, transaction.getBalanceAfter());
-            stmt.setString(6, transaction.getDescription());
-            stmt.setString(7, transaction.getReferenceNumber());
-            stmt.setLong(8, transaction.getCreatedBy());
-            stmt.setTimestamp(9, Timestamp.valueOf(transaction.getCreatedDate()));
+                MoneyColumns.set(stmt, 5, transaction.getBalanceAfter());
+                stmt.setString(6, transaction.getDescription());
+                stmt.setString(7, transaction.getReferenceNumber());
+                stmt.setLong(8, transaction.getCreatedBy());
+                stmt.setTimestamp(9, Timestamp.valueOf(transaction.getCreatedDate()));
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Creating transaction failed, no rows affected.");
-            }
+                int affectedRows = stmt.executeUpdate();
+                if (affectedRows == 0) {
+                    throw new SQLException("Creating transaction failed, no rows affected.");
+                }
 
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    transaction.setId(generatedKeys.getLong(1));
-                } else {
-                    throw new SQLException("Creating transaction failed, no ID obtained.");
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        transaction.setId(generatedKeys.getLong(1));
+                    } else {
+                        throw new SQLException("Creating transaction failed, no ID obtained.");
+                    }
                 }
             }
-        }
+            ChangeLog.getInstance().record(conn, Entity.TRANSACTION, transaction.getId(), Operation.INSERT);
+        });
     }
 
     // Method to save transaction within an existing connection (for transactional atomicity)
@@ -71,37 +75,40 @@ public class TransactionDAO {
                 "balance_after, description, reference_number, created_by, created_date) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        ChangeLog.atomically(conn, () -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-            stmt.setLong(1, transaction.getAccountId());
-            stmt.setString(2, transaction.getTransactionType().name());
-            stmt.setBigDecimal(3, transaction.getAmount());
+                stmt.setLong(1, transaction.getAccountId());
+                stmt.setString(2, transaction.getTransactionType().name());
+                MoneyColumns.set(stmt, 3, transaction.getAmount());
 
-            if (transaction.getTargetAccountId() > 0) {
-                stmt.setLong(4, transaction.getTargetAccountId());
-            } else {
-                stmt.setNull(4, Types.BIGINT);
-            }
+                if (transaction.getTargetAccountId() > 0) {
+                    stmt.setLong(4, transaction.getTargetAccountId());
+                } else {
+                    stmt.setNull(4, Types.BIGINT);
+                }
 
-            stmt.setBigDecimal(5, transaction.getBalanceAfter());
-            stmt.setString(6, transaction.getDescription());
-            stmt.setString(7, transaction.getReferenceNumber());
-            stmt.setLong(8, transaction.getCreatedBy());
-            stmt.setTimestamp(9, Timestamp.valueOf(transaction.getCreatedDate()));
+                MoneyColumns.set(stmt, 5, transaction.getBalanceAfter());
+                stmt.setString(6, transaction.getDescription());
+                stmt.setString(7, transaction.getReferenceNumber());
+                stmt.setLong(8, transaction.getCreatedBy());
+                stmt.setTimestamp(9, Timestamp.valueOf(transaction.getCreatedDate()));
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Creating transaction failed, no rows affected.");
-            }
+                int affectedRows = stmt.executeUpdate();
+                if (affectedRows == 0) {
+                    throw new SQLException("Creating transaction failed, no rows affected.");
+                }
 
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    transaction.setId(generatedKeys.getLong(1));
-                } else {
-                    throw new SQLException("Creating transaction failed, no ID obtained.");
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        transaction.setId(generatedKeys.getLong(1));
+                    } else {
+                        throw new SQLException("Creating transaction failed, no ID obtained.");
+                    }
                 }
             }
-        }
+            ChangeLog.getInstance().record(conn, Entity.TRANSACTION, transaction.getId(), Operation.INSERT);
+        });
     }
 
     public List<Transaction> findByAccountId(long accountId) throws SQLException {
@@ -120,9 +127,7 @@ public class TransactionDAO {
             stmt.setLong(1, accountId);
 
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    transactions.add(mapResultSetToTransaction(rs));
-                }
+                transactions.addAll(RowMappers.TRANSACTION.mapAll(sql, rs));
             }
         }
         return transactions;
@@ -146,14 +151,37 @@ public class TransactionDAO {
             stmt.setTimestamp(3, Timestamp.valueOf(to));
 
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    transactions.add(mapResultSetToTransaction(rs));
-                }
+                transactions.addAll(RowMappers.TRANSACTION.mapAll(sql, rs));
             }
         }
         return transactions;
     }
 
+    public Transaction findById(long id) throws SQLException {
+        return findById(DatabaseManager.getInstance().getConnection(), id);
+    }
+
+    public Transaction findById(Connection conn, long id) throws SQLException {
+        String sql = "SELECT t.*, a.account_number, ta.account_number as target_account_number, u.full_name as created_by_name " +
+                "FROM transactions t " +
+                "LEFT JOIN accounts a ON t.account_id = a.id " +
+                "LEFT JOIN accounts ta ON t.target_account_id = ta.id " +
+                "LEFT JOIN users u ON t.created_by = u.id " +
+                "WHERE t.id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, id);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return RowMappers.TRANSACTION.planFor(sql, rs).map(rs);
+                }
+            }
+        }
+        return null;
+    }
+
     public Transaction findByReferenceNumber(String referenceNumber) throws SQLException {
         String sql = "SELECT t.*, a.account_number, ta.account_number as target_account_number, u.full_name as created_by_name " +
                 "FROM transactions t " +
@@ -169,33 +197,13 @@ public class TransactionDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return mapResultSetToTransaction(rs);
+                    return RowMappers.TRANSACTION.planFor(sql, rs).map(rs);
                 }
             }
         }
         return null;
     }
 
-    private Transaction mapResultSetToTransaction(ResultSet rs) throws SQLException {
-        Transaction transaction = new Transaction();
-        transaction.setId(rs.getLong("id"));
-        transaction.setAccountId(rs.getLong("account_id"));
-        transaction.setTransactionType(TransactionType.valueOf(rs.getString("transaction_type")));
-        transaction.setAmount(rs.getBigDecimal("amount"));
-        transaction.setTargetAccountId(rs.getLong("target_account_id"));
-        transaction.setBalanceAfter(rs.getBigDecimal("balance_after"));
-        transaction.setDescription(rs.getString("description"));
-        transaction.setReferenceNumber(rs.getString("reference_number"));
-        transaction.setCreatedBy(rs.getLong("created_by"));
-        transaction.setCreatedDate(rs.getTimestamp("created_date").toLocalDateTime());
-
-        transaction.setAccountNumber(rs.getString("account_number"));
-        transaction.setTargetAccountNumber(rs.getString("target_account_number"));
-        transaction.setCreatedByName(rs.getString("created_by_name"));
-
-        return transaction;
-    }
-
     public String generateReferenceNumber() {
         // Format: TXN + yyyyMMddHHmmssSSS + random 3 digits
         LocalDateTime now = LocalDateTime.now();
@@ -0,0 +1,19 @@
+package com.customer.event;
+
+import com.customer.model.AccountStatus;
+
+public class AccountStatusChanged extends DomainEvent {
+    private final long accountId;
+    private final AccountStatus oldStatus;
+    private final AccountStatus newStatus;
+
+    public AccountStatusChanged(long accountId, AccountStatus oldStatus, AccountStatus newStatus) {
+        this.accountId = accountId;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+    }
+
+    public long getAccountId() { return accountId; }
+    public AccountStatus getOldStatus() { return oldStatus; }
+    public AccountStatus getNewStatus() { return newStatus; }
+}
@@ -0,0 +1,16 @@
+package com.customer.event;
+
+public class CustomerUpdated extends DomainEvent {
+    public enum Change { CREATED, UPDATED, DELETED }
+
+    private final long customerId;
+    private final Change change;
+
+    public CustomerUpdated(long customerId, Change change) {
+        this.customerId = customerId;
+        this.change = change;
+    }
+
+    public long getCustomerId() { return customerId; }
+    public Change getChange() { return change; }
+}
@@ -0,0 +1,15 @@
+package com.customer.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Base class for events published on the {@link EventBus} after a change
+ * has been committed to the database.
+ */
+public abstract class DomainEvent {
+    private final LocalDateTime occurredAt = LocalDateTime.now();
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
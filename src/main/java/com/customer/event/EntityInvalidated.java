@@ -0,0 +1,30 @@
+package com.customer.event;
+
+/**
+ * Another app instance changed a row (seen through the shared change log).
+ * Anything cached for that entity should be reloaded. {@link Entity#ALL}
+ * means changes may have been missed and everything should be reloaded.
+ */
+public class EntityInvalidated extends DomainEvent {
+    public enum Entity { ACCOUNT, CUSTOMER, LOAN, TRANSACTION, ALL }
+
+    public enum Operation { INSERT, UPDATE, DELETE }
+
+    private final Entity entity;
+    private final long entityId;
+    private final Operation operation;
+
+    public EntityInvalidated(Entity entity, long entityId, Operation operation) {
+        this.entity = entity;
+        this.entityId = entityId;
+        this.operation = operation;
+    }
+
+    public static EntityInvalidated all() {
+        return new EntityInvalidated(Entity.ALL, 0, Operation.UPDATE);
+    }
+
+    public Entity getEntity() { return entity; }
+    public long getEntityId() { return entityId; }
+    public Operation getOperation() { return operation; }
+}
@@ -0,0 +1,225 @@
+package com.customer.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process event bus. Services publish {@link DomainEvent}s after commit;
+ * subscribers receive them in batches on their own thread.
+ *
+ * Events go through a pre-allocated ring buffer. Every subscriber has a
+ * cursor into the ring, and a publisher may only reuse a slot once all
+ * subscribers have read it (back-pressure). A publisher waits at most
+ * {@link #PUBLISH_TIMEOUT_MS} for a stuck subscriber; after that the
+ * subscriber is skipped ahead and told through {@link Subscriber#onOverflow()}
+ * to reload whatever it keeps, so a posting thread is never held up for long.
+ */
+public class EventBus {
+
+    private static final EventBus INSTANCE = new EventBus(4096);
+
+    private static final int MAX_BATCH = 256;
+    private static final long PUBLISH_TIMEOUT_MS = 20;
+    private static final long PUBLISH_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<DomainEvent> slots;
+    // Sequence last written to each slot; a reader trusts a slot only when it holds the expected sequence
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final List<Consumer<?>> consumers = new CopyOnWriteArrayList<>();
+    private final LongAdder overflows = new LongAdder();
+
+    EventBus(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    public static EventBus getInstance() {
+        return INSTANCE;
+    }
+
+    public interface Subscriber<E extends DomainEvent> {
+        /** Called on the subscriber's thread with one or more events, oldest first. The list is reused afterwards. */
+        void onEvents(List<E> events);
+
+        /** Events were skipped because this subscriber fell too far behind; reload from the database. */
+        default void onOverflow() {
+        }
+    }
+
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Receive every future event of {@code type} (including subclasses).
+     * Close the returned subscription to stop the subscriber's thread.
+     */
+    public <E extends DomainEvent> Subscription subscribe(String name, Class<E> type, Subscriber<E> subscriber) {
+        Consumer<E> consumer = new Consumer<>(name, type, subscriber, claimed.get());
+        consumers.add(consumer);
+        consumer.thread.start();
+        return () -> {
+            consumers.remove(consumer);
+            consumer.stop();
+        };
+    }
+
+    public void publish(DomainEvent event) {
+        long seq;
+        long deadline = 0;
+        while (true) {
+            long current = claimed.get();
+            seq = current + 1;
+            long wrapPoint = seq - capacity;
+            if (wrapPoint > minCursor()) {
+                long now = System.nanoTime();
+                if (deadline == 0) {
+                    deadline = now + TimeUnit.MILLISECONDS.toNanos(PUBLISH_TIMEOUT_MS);
+                } else if (now > deadline) {
+                    detachLaggards(wrapPoint);
+                    continue;
+                }
+                LockSupport.parkNanos(PUBLISH_WAIT_NANOS);
+                continue;
+            }
+            if (claimed.compareAndSet(current, seq)) {
+                break;
+            }
+        }
+
+        int index = (int) seq & mask;
+        slots.set(index, event);
+        published.set(index, seq);
+
+        for (Consumer<?> consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+        }
+    }
+
+    public long getPublishedCount() {
+        return claimed.get() + 1;
+    }
+
+    public long getOverflowCount() {
+        return overflows.sum();
+    }
+
+    // Lowest sequence still unread by an attached subscriber
+    private long minCursor() {
+        long min = Long.MAX_VALUE;
+        for (Consumer<?> consumer : consumers) {
+            if (!consumer.lagged) {
+                min = Math.min(min, consumer.cursor);
+            }
+        }
+        return min;
+    }
+
+    private void detachLaggards(long wrapPoint) {
+        for (Consumer<?> consumer : consumers) {
+            if (!consumer.lagged && consumer.cursor < wrapPoint) {
+                consumer.lagged = true;
+                overflows.increment();
+                System.err.println("Event subscriber '" + consumer.name + "' fell behind, skipping ahead");
+                LockSupport.unpark(consumer.thread);
+            }
+        }
+    }
+
+    private class Consumer<E extends DomainEvent> implements Runnable {
+        private final String name;
+        private final Class<E> type;
+        private final Subscriber<E> subscriber;
+        private final Thread thread;
+        private final List<E> batch = new ArrayList<>(MAX_BATCH);
+
+        // Last sequence read; written only by this consumer's thread (except on creation)
+        private volatile long cursor;
+        private volatile boolean lagged;
+        private volatile boolean running = true;
+
+        Consumer(String name, Class<E> type, Subscriber<E> subscriber, long startAfter) {
+            this.name = name;
+            this.type = type;
+            this.subscriber = subscriber;
+            this.cursor = startAfter;
+            this.thread = new Thread(this, "event-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        void stop() {
+            running = false;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                if (lagged) {
+                    resync();
+                    continue;
+                }
+
+                long next = cursor + 1;
+                long seq = next;
+                batch.clear();
+                while (seq - next < MAX_BATCH && published.get((int) seq & mask) == seq) {
+                    DomainEvent event = slots.get((int) seq & mask);
+                    if (type.isInstance(event)) {
+                        batch.add(type.cast(event));
+                    }
+                    seq++;
+                }
+
+                if (seq == next) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+                // A publisher gave up on us while we were reading; the slots may have been reused
+                if (lagged) {
+                    continue;
+                }
+
+                // Release the slots before delivering so publishers are not held up by a slow handler
+                cursor = seq - 1;
+                if (!batch.isEmpty()) {
+                    try {
+                        subscriber.onEvents(batch);
+                    } catch (Exception e) {
+                        System.err.println("Event subscriber '" + name + "' failed: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        private void resync() {
+            cursor = claimed.get();
+            lagged = false;
+            try {
+                subscriber.onOverflow();
+            } catch (Exception e) {
+                System.err.println("Event subscriber '" + name + "' failed to resync: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.customer.event;
+
+import com.customer.model.LoanStatus;
+
+public class LoanStatusChanged extends DomainEvent {
+    private final long loanId;
+    private final long customerId;
+    private final LoanStatus oldStatus;
+    private final LoanStatus newStatus;
+
+    public LoanStatusChanged(long loanId, long customerId, LoanStatus oldStatus, LoanStatus newStatus) {
+        this.loanId = loanId;
+        this.customerId = customerId;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+    }
+
+    public long getLoanId() { return loanId; }
+    public long getCustomerId() { return customerId; }
+    public LoanStatus getOldStatus() { return oldStatus; }
+    public LoanStatus getNewStatus() { return newStatus; }
+}
@@ -0,0 +1,25 @@
+package com.customer.event;
+
+import com.customer.model.Transaction;
+
+import java.util.List;
+
+/**
+ * A deposit, withdrawal or transfer was committed. A transfer carries both
+ * legs, the debit of the source account first.
+ */
+public class TransactionPosted extends DomainEvent {
+    private final List<Transaction> legs;
+
+    public TransactionPosted(Transaction... legs) {
+        this.legs = List.of(legs);
+    }
+
+    public Transaction getTransaction() {
+        return legs.get(0);
+    }
+
+    public List<Transaction> getLegs() {
+        return legs;
+    }
+}
@@ -1,7 +1,6 @@
 package com.customer.model;
 
 import javafx.beans.property.*;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 public class Account {
@@ -9,7 +8,7 @@ public class Account {
     private final LongProperty customerId;
     private final StringProperty accountNumber;
     private final ObjectProperty<AccountType> accountType;
-    private final ObjectProperty<BigDecimal> balance;
+    private final ObjectProperty<Money> balance;
     private final DoubleProperty interestRate;
     private final IntegerProperty termMonths;
     private final ObjectProperty<AccountStatus> status;
@@ -20,11 +19,11 @@ public class Account {
     private final StringProperty customerName;
 
     public Account() {
-        this(null, 0, "", AccountType.CHECKING, BigDecimal.ZERO, 0.0, 0, AccountStatus.ACTIVE, LocalDateTime.now(), null, "");
+        this(null, 0, "", AccountType.CHECKING, Money.ZERO, 0.0, 0, AccountStatus.ACTIVE, LocalDateTime.now(), null, "");
     }
 
     public Account(Long id, long customerId, String accountNumber, AccountType accountType,
-                  BigDecimal balance, double interestRate, int termMonths,
+                  Money balance, double interestRate, int termMonths,
                   AccountStatus status, LocalDateTime createdDate, LocalDateTime closedDate, String customerName) {
         this.id = new SimpleLongProperty(id != null ? id : 0);
         this.customerId = new SimpleLongProperty(customerId);
@@ -60,9 +59,9 @@ public class Account {
     public ObjectProperty<AccountType> accountTypeProperty() { return accountType; }
 
     // Balance Property
-    public BigDecimal getBalance() { return balance.get(); }
-    public void setBalance(BigDecimal balance) { this.balance.set(balance); }
-    public ObjectProperty<BigDecimal> balanceProperty() { return balance; }
+    public Money getBalance() { return balance.get(); }
+    public void setBalance(Money balance) { this.balance.set(balance); }
+    public ObjectProperty<Money> balanceProperty() { return balance; }
 
     // Interest Rate Property
     public double getInterestRate() { return interestRate.get(); }
@@ -0,0 +1,26 @@
+package com.customer.model;
+
+public enum AuditAction {
+    LOGIN_SUCCESS("Đăng nhập"),
+    LOGIN_FAILED("Đăng nhập thất bại"),
+    LOGOUT("Đăng xuất"),
+    ACCOUNT_FROZEN("Đóng băng tài khoản"),
+    ACCOUNT_UNFROZEN("Mở băng tài khoản"),
+    ACCOUNT_CLOSED("Đóng tài khoản"),
+    LOAN_APPROVED("Duyệt khoản vay"),
+    LOAN_REJECTED("Từ chối khoản vay"),
+    REPORT_EXPORTED("Xuất báo cáo"),
+    CUSTOMER_MERGED("Gộp khách hàng"),
+    CUSTOMERS_IMPORTED("Nhập khách hàng từ CSV"),
+    CUSTOMERS_SEGMENTED("Phân khúc khách hàng");
+
+    private final String displayName;
+
+    AuditAction(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,42 @@
+package com.customer.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * One audited action. {@code source} and {@code sequence} identify the event:
+ * the app instance that recorded it and its position in that instance's journal.
+ */
+public class AuditEvent {
+    private final String source;
+    private final long sequence;
+    private final LocalDateTime occurredAt;
+    private final Long userId;
+    private final String username;
+    private final AuditAction action;
+    private final String entityType;
+    private final Long entityId;
+    private final String detail;
+
+    public AuditEvent(String source, long sequence, LocalDateTime occurredAt, Long userId, String username,
+                      AuditAction action, String entityType, Long entityId, String detail) {
+        this.source = source;
+        this.sequence = sequence;
+        this.occurredAt = occurredAt;
+        this.userId = userId;
+        this.username = username;
+        this.action = action;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.detail = detail;
+    }
+
+    public String getSource() { return source; }
+    public long getSequence() { return sequence; }
+    public LocalDateTime getOccurredAt() { return occurredAt; }
+    public Long getUserId() { return userId; }
+    public String getUsername() { return username; }
+    public AuditAction getAction() { return action; }
+    public String getEntityType() { return entityType; }
+    public Long getEntityId() { return entityId; }
+    public String getDetail() { return detail; }
+}
@@ -10,12 +10,12 @@ public class Loan {
     private final LongProperty customerId;
     private final LongProperty loanAccountId;
     private final StringProperty loanNumber;
-    private final ObjectProperty<BigDecimal> principalAmount;
+    private final ObjectProperty<Money> principalAmount;
     private final ObjectProperty<BigDecimal> interestRate;
     private final IntegerProperty termMonths;
-    private final ObjectProperty<BigDecimal> monthlyPayment;
-    private final ObjectProperty<BigDecimal> totalPaid;
-    private final ObjectProperty<BigDecimal> remainingBalance;
+    private final ObjectProperty<Money> monthlyPayment;
+    private final ObjectProperty<Money> totalPaid;
+    private final ObjectProperty<Money> remainingBalance;
     private final ObjectProperty<LoanStatus> status;
     private final StringProperty purpose;
     private final ObjectProperty<LocalDateTime> appliedDate;
@@ -37,12 +37,12 @@ public class Loan {
         this.customerId = new SimpleLongProperty();
         this.loanAccountId = new SimpleLongProperty();
         this.loanNumber = new SimpleStringProperty();
-        this.principalAmount = new SimpleObjectProperty<>(BigDecimal.ZERO);
+        this.principalAmount = new SimpleObjectProperty<>(Money.ZERO);
         this.interestRate = new SimpleObjectProperty<>(new BigDecimal("12.00"));
         this.termMonths = new SimpleIntegerProperty();
-        this.monthlyPayment = new SimpleObjectProperty<>(BigDecimal.ZERO);
-        this.totalPaid = new SimpleObjectProperty<>(BigDecimal.ZERO);
-        this.remainingBalance = new SimpleObjectProperty<>(BigDecimal.ZERO);
+        this.monthlyPayment = new SimpleObjectProperty<>(Money.ZERO);
+        this.totalPaid = new SimpleObjectProperty<>(Money.ZERO);
+        this.remainingBalance = new SimpleObjectProperty<>(Money.ZERO);
         this.status = new SimpleObjectProperty<>(LoanStatus.PENDING);
         this.purpose = new SimpleStringProperty();
         this.appliedDate = new SimpleObjectProperty<>(LocalDateTime.now());
@@ -59,7 +59,7 @@ public class Loan {
         this.creatorName = new SimpleStringProperty();
     }
 
-    public Loan(long customerId, BigDecimal principalAmount, int termMonths, String purpose, long createdBy) {
+    public Loan(long customerId, Money principalAmount, int termMonths, String purpose, long createdBy) {
         this();
         this.customerId.set(customerId);
         this.principalAmount.set(principalAmount);
@@ -69,11 +69,11 @@ public class Loan {
     }
 
     // Calculate total amount to pay back
-    public BigDecimal getTotalAmount() {
+    public Money getTotalAmount() {
         if (monthlyPayment.get() != null && termMonths.get() > 0) {
-            return monthlyPayment.get().multiply(new BigDecimal(termMonths.get()));
+            return monthlyPayment.get().times(termMonths.get());
         }
-        return BigDecimal.ZERO;
+        return Money.ZERO;
     }
 
     // Getters and Property methods
@@ -94,9 +94,9 @@ public class Loan {
     public void setLoanNumber(String loanNumber) { this.loanNumber.set(loanNumber); }
     public StringProperty loanNumberProperty() { return loanNumber; }
 
-    public BigDecimal getPrincipalAmount() { return principalAmount.get(); }
-    public void setPrincipalAmount(BigDecimal principalAmount) { this.principalAmount.set(principalAmount); }
-    public ObjectProperty<BigDecimal> principalAmountProperty() { return principalAmount; }
+    public Money getPrincipalAmount() { return principalAmount.get(); }
+    public void setPrincipalAmount(Money principalAmount) { this.principalAmount.set(principalAmount); }
+    public ObjectProperty<Money> principalAmountProperty() { return principalAmount; }
 
     public BigDecimal getInterestRate() { return interestRate.get(); }
     public void setInterestRate(BigDecimal interestRate) { this.interestRate.set(interestRate); }
@@ -106,17 +106,17 @@ public class Loan {
     public void setTermMonths(int termMonths) { this.termMonths.set(termMonths); }
     public IntegerProperty termMonthsProperty() { return termMonths; }
 
-    public BigDecimal getMonthlyPayment() { return monthlyPayment.get(); }
-    public void setMonthlyPayment(BigDecimal monthlyPayment) { this.monthlyPayment.set(monthlyPayment); }
-    public ObjectProperty<BigDecimal> monthlyPaymentProperty() { return monthlyPayment; }
+    public Money getMonthlyPayment() { return monthlyPayment.get(); }
+    public void setMonthlyPayment(Money monthlyPayment) { this.monthlyPayment.set(monthlyPayment); }
+    public ObjectProperty<Money> monthlyPaymentProperty() { return monthlyPayment; }
 
-    public BigDecimal getTotalPaid() { return totalPaid.get(); }
-    public void setTotalPaid(BigDecimal totalPaid) { this.totalPaid.set(totalPaid); }
-    public ObjectProperty<BigDecimal> totalPaidProperty() { return totalPaid; }
+    public Money getTotalPaid() { return totalPaid.get(); }
+    public void setTotalPaid(Money totalPaid) { this.totalPaid.set(totalPaid); }
+    public ObjectProperty<Money> totalPaidProperty() { return totalPaid; }
 
-    public BigDecimal getRemainingBalance() { return remainingBalance.get(); }
-    public void setRemainingBalance(BigDecimal remainingBalance) { this.remainingBalance.set(remainingBalance); }
-    public ObjectProperty<BigDecimal> remainingBalanceProperty() { return remainingBalance; }
+    public Money getRemainingBalance() { return remainingBalance.get(); }
+    public void setRemainingBalance(Money remainingBalance) { this.remainingBalance.set(remainingBalance); }
+    public ObjectProperty<Money> remainingBalanceProperty() { return remainingBalance; }
 
     public LoanStatus getStatus() { return status.get(); }
     public void setStatus(LoanStatus status) { this.status.set(status); }
@@ -0,0 +1,203 @@
+package com.customer.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money, held as a count of hundredths in a long: the scale of
+ * the DECIMAL(15,2) money columns, so every stored amount converts exactly.
+ * Arithmetic throws ArithmeticException on overflow instead of wrapping, and
+ * every operation that can lose a digit takes an explicit RoundingMode.
+ *
+ * Immutable. Loops that add up many amounts can stay in a long with
+ * {@link #toMinor()} and {@link #ofMinor(long)} and build one Money at the end.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    private static final long ONE = 100;
+
+    public static final Money ZERO = new Money(0);
+
+    private final long minor;
+
+    private Money(long minor) {
+        this.minor = minor;
+    }
+
+    /** The amount with the given number of hundredths. */
+    public static Money ofMinor(long minor) {
+        return minor == 0 ? ZERO : new Money(minor);
+    }
+
+    public static Money of(long units) {
+        return ofMinor(Math.multiplyExact(units, ONE));
+    }
+
+    /** Exact conversion: throws if the amount has more than two decimals or does not fit. */
+    public static Money of(BigDecimal amount) {
+        return ofMinor(amount.movePointRight(SCALE).longValueExact());
+    }
+
+    public static Money of(BigDecimal amount, RoundingMode rounding) {
+        return ofMinor(amount.movePointRight(SCALE).setScale(0, rounding).longValueExact());
+    }
+
+    public static Money of(double amount, RoundingMode rounding) {
+        if (!Double.isFinite(amount)) {
+            throw new ArithmeticException("Not a finite amount: " + amount);
+        }
+        return of(BigDecimal.valueOf(amount), rounding);
+    }
+
+    /** Parses a plain decimal such as "1500000" or "1500000.50". */
+    public static Money parse(String text) {
+        return of(new BigDecimal(text.trim()));
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minor, other.minor));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minor, other.minor));
+    }
+
+    public Money negate() {
+        return ofMinor(Math.negateExact(minor));
+    }
+
+    public Money abs() {
+        return minor < 0 ? negate() : this;
+    }
+
+    public Money times(long factor) {
+        return ofMinor(Math.multiplyExact(minor, factor));
+    }
+
+    public Money times(BigDecimal factor, RoundingMode rounding) {
+        return ofMinor(BigDecimal.valueOf(minor).multiply(factor).setScale(0, rounding).longValueExact());
+    }
+
+    public Money dividedBy(long divisor, RoundingMode rounding) {
+        return ofMinor(divide(minor, divisor, rounding));
+    }
+
+    public int signum() {
+        return Long.signum(minor);
+    }
+
+    public boolean isZero() {
+        return minor == 0;
+    }
+
+    public boolean isPositive() {
+        return minor > 0;
+    }
+
+    public boolean isNegative() {
+        return minor < 0;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return minor > other.minor;
+    }
+
+    public boolean isLessThan(Money other) {
+        return minor < other.minor;
+    }
+
+    public Money max(Money other) {
+        return minor >= other.minor ? this : other;
+    }
+
+    public Money min(Money other) {
+        return minor <= other.minor ? this : other;
+    }
+
+    /** The amount in hundredths. */
+    public long toMinor() {
+        return minor;
+    }
+
+    /** The amount in whole units, rounded. */
+    public long toUnits(RoundingMode rounding) {
+        return divide(minor, ONE, rounding);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public double doubleValue() {
+        return minor / (double) ONE;
+    }
+
+    /** Whole units with grouping, rounded half up, like {@code String.format("%,.0f", amount)}. */
+    public String format() {
+        return String.format("%,d", toUnits(RoundingMode.HALF_UP));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minor, other.minor);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof Money && ((Money) o).minor == minor;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minor);
+    }
+
+    /** Plain decimal with two places, the form {@link #parse} reads back. */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    static long divide(long value, long divisor, RoundingMode rounding) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        long quotient = value / divisor;
+        long remainder = value % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        int sign = (value < 0) == (divisor < 0) ? 1 : -1;
+        boolean away;
+        switch (rounding) {
+            case UNNECESSARY:
+                throw new ArithmeticException("Rounding necessary");
+            case DOWN:
+                away = false;
+                break;
+            case UP:
+                away = true;
+                break;
+            case FLOOR:
+                away = sign < 0;
+                break;
+            case CEILING:
+                away = sign > 0;
+                break;
+            default:
+                // Compare the dropped part with one half, without overflowing
+                long rest = Math.abs(remainder);
+                long half = Math.abs(divisor / 2);
+                int cmp = divisor % 2 == 0 ? Long.compare(rest, half) : (rest > half ? 1 : -1);
+                if (rounding == RoundingMode.HALF_UP) {
+                    away = cmp >= 0;
+                } else if (rounding == RoundingMode.HALF_DOWN) {
+                    away = cmp > 0;
+                } else {
+                    away = cmp > 0 || cmp == 0 && (quotient & 1) != 0;
+                }
+        }
+        return away ? quotient + sign : quotient;
+    }
+}
@@ -1,16 +1,15 @@
 package com.customer.model;
 
 import javafx.beans.property.*;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 public class Transaction {
     private final LongProperty id = new SimpleLongProperty();
     private final LongProperty accountId = new SimpleLongProperty();
     private final ObjectProperty<TransactionType> transactionType = new SimpleObjectProperty<>();
-    private final ObjectProperty<BigDecimal> amount = new SimpleObjectProperty<>();
+    private final ObjectProperty<Money> amount = new SimpleObjectProperty<>();
     private final LongProperty targetAccountId = new SimpleLongProperty();
-    private final ObjectProperty<BigDecimal> balanceAfter = new SimpleObjectProperty<>();
+    private final ObjectProperty<Money> balanceAfter = new SimpleObjectProperty<>();
     private final StringProperty description = new SimpleStringProperty();
     private final StringProperty referenceNumber = new SimpleStringProperty();
     private final LongProperty createdBy = new SimpleLongProperty();
@@ -24,7 +23,7 @@ public class Transaction {
     public Transaction() {
     }
 
-    public Transaction(Long accountId, TransactionType type, BigDecimal amount,
+    public Transaction(Long accountId, TransactionType type, Money amount,
                       String description, Long createdBy) {
         setAccountId(accountId);
         setTransactionType(type);
@@ -72,15 +71,15 @@ public class Transaction {
         this.transactionType.set(transactionType);
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount.get();
     }
 
-    public ObjectProperty<BigDecimal> amountProperty() {
+    public ObjectProperty<Money> amountProperty() {
         return amount;
     }
 
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(Money amount) {
         this.amount.set(amount);
     }
 
@@ -96,15 +95,15 @@ public class Transaction {
         this.targetAccountId.set(targetAccountId);
     }
 
-    public BigDecimal getBalanceAfter() {
+    public Money getBalanceAfter() {
         return balanceAfter.get();
     }
 
-    public ObjectProperty<BigDecimal> balanceAfterProperty() {
+    public ObjectProperty<Money> balanceAfterProperty() {
         return balanceAfter;
     }
 
-    public void setBalanceAfter(BigDecimal balanceAfter) {
+    public void setBalanceAfter(Money balanceAfter) {
         this.balanceAfter.set(balanceAfter);
     }
 
@@ -1,9 +1,8 @@
 package com.customer.model.dto;
 
 import com.customer.model.Account;
-import com.customer.model.Transaction;
+import com.customer.model.Money;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -14,14 +13,16 @@ public class AccountStatementData {
     private LocalDate fromDate;
     private LocalDate toDate;
 
-    private BigDecimal openingBalance;
-    private BigDecimal closingBalance;
+    private Money openingBalance;
+    private Money closingBalance;
 
-    private List<Transaction> transactions = new ArrayList<>();
+    // Ascending by date; each line carries its signed amount and running balance
+    private List<StatementLine> lines = new ArrayList<>();
 
-    private BigDecimal totalDeposits = BigDecimal.ZERO;
-    private BigDecimal totalWithdrawals = BigDecimal.ZERO;
-    private BigDecimal totalTransfers = BigDecimal.ZERO;
+    private Money totalDeposits = Money.ZERO;
+    private Money totalWithdrawals = Money.ZERO;
+    private Money totalTransfers = Money.ZERO;
+    private int transactionCount;
 
     private String generatedBy;
     private LocalDateTime generatedAt;
@@ -36,23 +37,26 @@ public class AccountStatementData {
     public LocalDate getToDate() { return toDate; }
     public void setToDate(LocalDate toDate) { this.toDate = toDate; }
 
-    public BigDecimal getOpeningBalance() { return openingBalance; }
-    public void setOpeningBalance(BigDecimal openingBalance) { this.openingBalance = openingBalance; }
+    public Money getOpeningBalance() { return openingBalance; }
+    public void setOpeningBalance(Money openingBalance) { this.openingBalance = openingBalance; }
 
-    public BigDecimal getClosingBalance() { return closingBalance; }
-    public void setClosingBalance(BigDecimal closingBalance) { this.closingBalance = closingBalance; }
+    public Money getClosingBalance() { return closingBalance; }
+    public void setClosingBalance(Money closingBalance) { this.closingBalance = closingBalance; }
 
-    public List<Transaction> getTransactions() { return transactions; }
-    public void setTransactions(List<Transaction> transactions) { this.transactions = transactions; }
+    public List<StatementLine> getLines() { return lines; }
+    public void setLines(List<StatementLine> lines) { this.lines = lines; }
 
-    public BigDecimal getTotalDeposits() { return totalDeposits; }
-    public void setTotalDeposits(BigDecimal totalDeposits) { this.totalDeposits = totalDeposits; }
+    public Money getTotalDeposits() { return totalDeposits; }
+    public void setTotalDeposits(Money totalDeposits) { this.totalDeposits = totalDeposits; }
 
-    public BigDecimal getTotalWithdrawals() { return totalWithdrawals; }
-    public void setTotalWithdrawals(BigDecimal totalWithdrawals) { this.totalWithdrawals = totalWithdrawals; }
+    public Money getTotalWithdrawals() { return totalWithdrawals; }
+    public void setTotalWithdrawals(Money totalWithdrawals) { this.totalWithdrawals = totalWithdrawals; }
 
-    public BigDecimal getTotalTransfers() { return totalTransfers; }
-    public void setTotalTransfers(BigDecimal totalTransfers) { this.totalTransfers = totalTransfers; }
+    public Money getTotalTransfers() { return totalTransfers; }
+    public void setTotalTransfers(Money totalTransfers) { this.totalTransfers = totalTransfers; }
+
+    public int getTransactionCount() { return transactionCount; }
+    public void setTransactionCount(int transactionCount) { this.transactionCount = transactionCount; }
 
     public String getGeneratedBy() { return generatedBy; }
     public void setGeneratedBy(String generatedBy) { this.generatedBy = generatedBy; }
@@ -0,0 +1,29 @@
+package com.customer.model.dto;
+
+import com.customer.model.Money;
+import com.customer.model.TransactionType;
+
+/** Approximate transaction amount percentiles for one transaction type. */
+public class AmountPercentiles {
+    private TransactionType type;
+    private long count;
+    private Money p50 = Money.ZERO;
+    private Money p95 = Money.ZERO;
+    private Money p99 = Money.ZERO;
+
+    // Getters and Setters
+    public TransactionType getType() { return type; }
+    public void setType(TransactionType type) { this.type = type; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    public Money getP50() { return p50; }
+    public void setP50(Money p50) { this.p50 = p50; }
+
+    public Money getP95() { return p95; }
+    public void setP95(Money p95) { this.p95 = p95; }
+
+    public Money getP99() { return p99; }
+    public void setP99(Money p99) { this.p99 = p99; }
+}
@@ -0,0 +1,34 @@
+package com.customer.model.dto;
+
+import com.customer.model.TransactionType;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Sketch-based analytics for a date range; all figures are approximate. */
+public class AnalyticsReportData {
+    private LocalDate fromDate;
+    private LocalDate toDate;
+
+    private Map<LocalDate, Long> distinctCustomersByDay = new LinkedHashMap<>();
+    private long distinctCustomers;
+    private Map<TransactionType, AmountPercentiles> amountPercentiles = new EnumMap<>(TransactionType.class);
+
+    // Getters and Setters
+    public LocalDate getFromDate() { return fromDate; }
+    public void setFromDate(LocalDate fromDate) { this.fromDate = fromDate; }
+
+    public LocalDate getToDate() { return toDate; }
+    public void setToDate(LocalDate toDate) { this.toDate = toDate; }
+
+    public Map<LocalDate, Long> getDistinctCustomersByDay() { return distinctCustomersByDay; }
+    public void setDistinctCustomersByDay(Map<LocalDate, Long> distinctCustomersByDay) { this.distinctCustomersByDay = distinctCustomersByDay; }
+
+    public long getDistinctCustomers() { return distinctCustomers; }
+    public void setDistinctCustomers(long distinctCustomers) { this.distinctCustomers = distinctCustomers; }
+
+    public Map<TransactionType, AmountPercentiles> getAmountPercentiles() { return amountPercentiles; }
+    public void setAmountPercentiles(Map<TransactionType, AmountPercentiles> amountPercentiles) { this.amountPercentiles = amountPercentiles; }
+}
@@ -4,8 +4,8 @@ import com.customer.model.Account;
 import com.customer.model.AccountType;
 import com.customer.model.CustomerType;
 import com.customer.model.LoanStatus;
+import com.customer.model.Money;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -14,13 +14,13 @@ import java.util.Map;
 public class DashboardStats {
     // Current totals
     private int totalCustomers;
-    private BigDecimal totalBalance;
-    private BigDecimal totalLoans;
+    private Money totalBalance;
+    private Money totalLoans;
     private int todayTransactions;
 
     // Previous month totals for comparison
     private int previousMonthCustomers;
-    private BigDecimal previousMonthBalance;
+    private Money previousMonthBalance;
 
     // Distribution maps
     private Map<CustomerType, Integer> customerDistribution = new HashMap<>();
@@ -29,7 +29,7 @@ public class DashboardStats {
 
     // Trend maps (Month -> Value)
     private Map<String, Integer> transactionTrend = new HashMap<>();
-    private Map<String, BigDecimal> balanceTrend = new HashMap<>();
+    private Map<String, Money> balanceTrend = new HashMap<>();
 
     // Top lists
     private List<Account> topAccounts = new ArrayList<>();
@@ -39,11 +39,11 @@ public class DashboardStats {
     public int getTotalCustomers() { return totalCustomers; }
     public void setTotalCustomers(int totalCustomers) { this.totalCustomers = totalCustomers; }
 
-    public BigDecimal getTotalBalance() { return totalBalance; }
-    public void setTotalBalance(BigDecimal totalBalance) { this.totalBalance = totalBalance; }
+    public Money getTotalBalance() { return totalBalance; }
+    public void setTotalBalance(Money totalBalance) { this.totalBalance = totalBalance; }
 
-    public BigDecimal getTotalLoans() { return totalLoans; }
-    public void setTotalLoans(BigDecimal totalLoans) { this.totalLoans = totalLoans; }
+    public Money getTotalLoans() { return totalLoans; }
+    public void setTotalLoans(Money totalLoans) { this.totalLoans = totalLoans; }
 
     public int getTodayTransactions() { return todayTransactions; }
     public void setTodayTransactions(int todayTransactions) { this.todayTransactions = todayTransactions; }
@@ -51,8 +51,8 @@ public class DashboardStats {
     public int getPreviousMonthCustomers() { return previousMonthCustomers; }
     public void setPreviousMonthCustomers(int previousMonthCustomers) { this.previousMonthCustomers = previousMonthCustomers; }
 
-    public BigDecimal getPreviousMonthBalance() { return previousMonthBalance; }
-    public void setPreviousMonthBalance(BigDecimal previousMonthBalance) { this.previousMonthBalance = previousMonthBalance; }
+    public Money getPreviousMonthBalance() { return previousMonthBalance; }
+    public void setPreviousMonthBalance(Money previousMonthBalance) { this.previousMonthBalance = previousMonthBalance; }
 
     public Map<CustomerType, Integer> getCustomerDistribution() { return customerDistribution; }
     public void setCustomerDistribution(Map<CustomerType, Integer> customerDistribution) { this.customerDistribution = customerDistribution; }
@@ -66,8 +66,8 @@ public class DashboardStats {
     public Map<String, Integer> getTransactionTrend() { return transactionTrend; }
     public void setTransactionTrend(Map<String, Integer> transactionTrend) { this.transactionTrend = transactionTrend; }
 
-    public Map<String, BigDecimal> getBalanceTrend() { return balanceTrend; }
-    public void setBalanceTrend(Map<String, BigDecimal> balanceTrend) { this.balanceTrend = balanceTrend; }
+    public Map<String, Money> getBalanceTrend() { return balanceTrend; }
+    public void setBalanceTrend(Map<String, Money> balanceTrend) { this.balanceTrend = balanceTrend; }
 
     public List<Account> getTopAccounts() { return topAccounts; }
     public void setTopAccounts(List<Account> topAccounts) { this.topAccounts = topAccounts; }
@@ -84,12 +84,12 @@ public class DashboardStats {
     }
 
     public double getBalanceChangePercent() {
-        if (previousMonthBalance == null || previousMonthBalance.compareTo(BigDecimal.ZERO) == 0) {
-            return totalBalance != null && totalBalance.compareTo(BigDecimal.ZERO) > 0 ? 100.0 : 0.0;
+        if (previousMonthBalance == null || previousMonthBalance.isZero()) {
+            return totalBalance != null && totalBalance.isPositive() ? 100.0 : 0.0;
         }
         if (totalBalance == null) return -100.0;
 
-        BigDecimal diff = totalBalance.subtract(previousMonthBalance);
-        return diff.multiply(new BigDecimal(100)).divide(previousMonthBalance, 2, BigDecimal.ROUND_HALF_UP).doubleValue();
+        long diff = totalBalance.toMinor() - previousMonthBalance.toMinor();
+        return Math.round(diff * 10000.0 / previousMonthBalance.toMinor()) / 100.0;
     }
 }
@@ -0,0 +1,41 @@
+package com.customer.model.dto;
+
+import com.customer.model.Money;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counts and amounts per group key plus the grand total, as returned by a
+ * {@code GROUP BY ... WITH ROLLUP} query (the rollup row carries the total).
+ */
+public class GroupTotals<K extends Enum<K>> {
+    private final Map<K, Integer> counts;
+    private final Map<K, Money> amounts;
+    private int totalCount;
+    private Money totalAmount = Money.ZERO;
+
+    public GroupTotals(Class<K> keyType) {
+        this.counts = new EnumMap<>(keyType);
+        this.amounts = new EnumMap<>(keyType);
+    }
+
+    public void put(K key, int count, Money amount) {
+        counts.put(key, count);
+        amounts.put(key, amount);
+    }
+
+    public int getCount(K key) { return counts.getOrDefault(key, 0); }
+
+    public Money getAmount(K key) { return amounts.getOrDefault(key, Money.ZERO); }
+
+    public Map<K, Integer> getCounts() { return counts; }
+
+    public Map<K, Money> getAmounts() { return amounts; }
+
+    public int getTotalCount() { return totalCount; }
+    public void setTotalCount(int totalCount) { this.totalCount = totalCount; }
+
+    public Money getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(Money totalAmount) { this.totalAmount = totalAmount; }
+}
@@ -2,8 +2,8 @@ package com.customer.model.dto;
 
 import com.customer.model.Loan;
 import com.customer.model.LoanStatus;
+import com.customer.model.Money;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -15,12 +15,15 @@ public class LoanReportData {
     private LocalDate toDate;
     private LoanStatus filterStatus;
 
+    // Detail rows loaded so far, newest first; pages are added as the table is scrolled
     private List<Loan> loans = new ArrayList<>();
+    // Set once a page comes back short; rows deleted or re-filtered after the totals query never reach totalLoans
+    private boolean fullyLoaded;
     private int totalLoans;
-    private BigDecimal totalOutstanding = BigDecimal.ZERO;
+    private Money totalOutstanding = Money.ZERO;
 
     private Map<LoanStatus, Integer> statusDistribution = new HashMap<>();
-    private Map<LoanStatus, BigDecimal> statusAmounts = new HashMap<>();
+    private Map<LoanStatus, Money> statusAmounts = new HashMap<>();
 
     // Getters and Setters
     public LocalDate getFromDate() { return fromDate; }
@@ -35,15 +38,18 @@ public class LoanReportData {
     public List<Loan> getLoans() { return loans; }
     public void setLoans(List<Loan> loans) { this.loans = loans; }
 
+    public boolean isFullyLoaded() { return fullyLoaded; }
+    public void setFullyLoaded(boolean fullyLoaded) { this.fullyLoaded = fullyLoaded; }
+
     public int getTotalLoans() { return totalLoans; }
     public void setTotalLoans(int totalLoans) { this.totalLoans = totalLoans; }
 
-    public BigDecimal getTotalOutstanding() { return totalOutstanding; }
-    public void setTotalOutstanding(BigDecimal totalOutstanding) { this.totalOutstanding = totalOutstanding; }
+    public Money getTotalOutstanding() { return totalOutstanding; }
+    public void setTotalOutstanding(Money totalOutstanding) { this.totalOutstanding = totalOutstanding; }
 
     public Map<LoanStatus, Integer> getStatusDistribution() { return statusDistribution; }
     public void setStatusDistribution(Map<LoanStatus, Integer> statusDistribution) { this.statusDistribution = statusDistribution; }
 
-    public Map<LoanStatus, BigDecimal> getStatusAmounts() { return statusAmounts; }
-    public void setStatusAmounts(Map<LoanStatus, BigDecimal> statusAmounts) { this.statusAmounts = statusAmounts; }
+    public Map<LoanStatus, Money> getStatusAmounts() { return statusAmounts; }
+    public void setStatusAmounts(Map<LoanStatus, Money> statusAmounts) { this.statusAmounts = statusAmounts; }
 }
@@ -0,0 +1,35 @@
+package com.customer.model.dto;
+
+/**
+ * Two customers that look like the same person. The older record (lower id)
+ * is suggested as the one to keep.
+ */
+public class MergeCandidate {
+    private final long survivorId;
+    private final String survivorName;
+    private final long duplicateId;
+    private final String duplicateName;
+    private final double score;
+    private final String evidence;
+
+    public MergeCandidate(long survivorId, String survivorName, long duplicateId, String duplicateName,
+                          double score, String evidence) {
+        this.survivorId = survivorId;
+        this.survivorName = survivorName;
+        this.duplicateId = duplicateId;
+        this.duplicateName = duplicateName;
+        this.score = score;
+        this.evidence = evidence;
+    }
+
+    public long getSurvivorId() { return survivorId; }
+    public String getSurvivorName() { return survivorName; }
+    public long getDuplicateId() { return duplicateId; }
+    public String getDuplicateName() { return duplicateName; }
+
+    /** 0..1; higher is more likely the same person. */
+    public double getScore() { return score; }
+
+    /** What matched, e.g. "tên 0.97, SĐT, ngày sinh". */
+    public String getEvidence() { return evidence; }
+}
@@ -0,0 +1,43 @@
+package com.customer.model.dto;
+
+import com.customer.model.Money;
+import com.customer.model.Transaction;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of an account statement: the transaction, its effect on the
+ * account (positive = credit, negative = debit) and the balance after it.
+ */
+public class StatementLine {
+    private final Transaction transaction;
+    private final Money signedAmount;
+    private final Money runningBalance;
+
+    public StatementLine(Transaction transaction, Money signedAmount, Money runningBalance) {
+        this.transaction = transaction;
+        this.signedAmount = signedAmount;
+        this.runningBalance = runningBalance;
+    }
+
+    public Transaction getTransaction() { return transaction; }
+    public Money getSignedAmount() { return signedAmount; }
+    public Money getRunningBalance() { return runningBalance; }
+
+    public boolean isCredit() {
+        return signedAmount.signum() > 0;
+    }
+
+    // Null when the line is a credit, so table cells stay empty
+    public Money getDebit() {
+        return signedAmount.signum() < 0 ? signedAmount.negate() : null;
+    }
+
+    public Money getCredit() {
+        return signedAmount.signum() > 0 ? signedAmount : null;
+    }
+
+    public LocalDateTime getCreatedDate() { return transaction.getCreatedDate(); }
+    public String getReferenceNumber() { return transaction.getReferenceNumber(); }
+    public String getDescription() { return transaction.getDescription(); }
+}
@@ -1,9 +1,9 @@
 package com.customer.model.dto;
 
+import com.customer.model.Money;
 import com.customer.model.Transaction;
 import com.customer.model.TransactionType;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,13 +14,16 @@ public class TransactionReportData {
     private TransactionType filterType;
     private Long accountNumber;
 
+    // Detail rows loaded so far, newest first; pages are added as the table is scrolled
     private List<Transaction> transactions = new ArrayList<>();
+    // Set once a page comes back short; totalCount may come from the cube and differ from what SQL pages return
+    private boolean fullyLoaded;
     private int totalCount;
-    private BigDecimal totalAmount = BigDecimal.ZERO;
+    private Money totalAmount = Money.ZERO;
 
-    private BigDecimal depositTotal = BigDecimal.ZERO;
-    private BigDecimal withdrawTotal = BigDecimal.ZERO;
-    private BigDecimal transferTotal = BigDecimal.ZERO;
+    private Money depositTotal = Money.ZERO;
+    private Money withdrawTotal = Money.ZERO;
+    private Money transferTotal = Money.ZERO;
 
     // Getters and Setters
     public LocalDate getFromDate() { return fromDate; }
@@ -38,18 +41,21 @@ public class TransactionReportData {
     public List<Transaction> getTransactions() { return transactions; }
     public void setTransactions(List<Transaction> transactions) { this.transactions = transactions; }
 
+    public boolean isFullyLoaded() { return fullyLoaded; }
+    public void setFullyLoaded(boolean fullyLoaded) { this.fullyLoaded = fullyLoaded; }
+
     public int getTotalCount() { return totalCount; }
     public void setTotalCount(int totalCount) { this.totalCount = totalCount; }
 
-    public BigDecimal getTotalAmount() { return totalAmount; }
-    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    public Money getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(Money totalAmount) { this.totalAmount = totalAmount; }
 
-    public BigDecimal getDepositTotal() { return depositTotal; }
-    public void setDepositTotal(BigDecimal depositTotal) { this.depositTotal = depositTotal; }
+    public Money getDepositTotal() { return depositTotal; }
+    public void setDepositTotal(Money depositTotal) { this.depositTotal = depositTotal; }
 
-    public BigDecimal getWithdrawTotal() { return withdrawTotal; }
-    public void setWithdrawTotal(BigDecimal withdrawTotal) { this.withdrawTotal = withdrawTotal; }
+    public Money getWithdrawTotal() { return withdrawTotal; }
+    public void setWithdrawTotal(Money withdrawTotal) { this.withdrawTotal = withdrawTotal; }
 
-    public BigDecimal getTransferTotal() { return transferTotal; }
-    public void setTransferTotal(BigDecimal transferTotal) { this.transferTotal = transferTotal; }
+    public Money getTransferTotal() { return transferTotal; }
+    public void setTransferTotal(Money transferTotal) { this.transferTotal = transferTotal; }
 }
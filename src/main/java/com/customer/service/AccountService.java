@@ -1,13 +1,16 @@
 package com.customer.service;
 
 import com.customer.dao.AccountDAO;
+import com.customer.event.AccountStatusChanged;
+import com.customer.event.EventBus;
 import com.customer.model.Account;
 import com.customer.model.AccountStatus;
 import com.customer.model.AccountType;
+import com.customer.model.AuditAction;
+import com.customer.model.Money;
 import com.customer.model.Role;
 import com.customer.util.SessionManager;
 
-import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -29,6 +32,10 @@ public class AccountService {
         return accountDAO.search(keyword, type, status);
     }
 
+    public Account getAccountById(long id) throws SQLException {
+        return accountDAO.findById(id);
+    }
+
     public void openAccount(Account account) throws SQLException, ValidationException {
         // Permission check
         if (!canOpenAccount()) {
@@ -52,7 +59,7 @@ public class AccountService {
         account.setAccountNumber(accountDAO.generateAccountNumber());
 
         // Set defaults
-        account.setBalance(BigDecimal.ZERO);
+        account.setBalance(Money.ZERO);
         account.setStatus(AccountStatus.ACTIVE);
         account.setCreatedDate(LocalDateTime.now());
 
@@ -70,6 +77,8 @@ public class AccountService {
         }
 
         accountDAO.updateStatus(account.getId(), AccountStatus.FROZEN);
+        EventBus.getInstance().publish(new AccountStatusChanged(account.getId(), account.getStatus(), AccountStatus.FROZEN));
+        AuditTrail.getInstance().record(AuditAction.ACCOUNT_FROZEN, "ACCOUNT", account.getId(), account.getAccountNumber());
     }
 
     public void unfreezeAccount(Account account) throws SQLException, ValidationException {
@@ -82,6 +91,8 @@ public class AccountService {
         }
 
         accountDAO.updateStatus(account.getId(), AccountStatus.ACTIVE);
+        EventBus.getInstance().publish(new AccountStatusChanged(account.getId(), account.getStatus(), AccountStatus.ACTIVE));
+        AuditTrail.getInstance().record(AuditAction.ACCOUNT_UNFROZEN, "ACCOUNT", account.getId(), account.getAccountNumber());
     }
 
     public void closeAccount(Account account) throws SQLException, ValidationException {
@@ -94,11 +105,13 @@ public class AccountService {
         }
 
         // Check balance
-        if (account.getBalance().compareTo(BigDecimal.ZERO) != 0) {
+        if (!account.getBalance().isZero()) {
             throw new ValidationException("Account balance must be 0 to close.");
         }
 
         accountDAO.updateStatus(account.getId(), AccountStatus.CLOSED);
+        EventBus.getInstance().publish(new AccountStatusChanged(account.getId(), account.getStatus(), AccountStatus.CLOSED));
+        AuditTrail.getInstance().record(AuditAction.ACCOUNT_CLOSED, "ACCOUNT", account.getId(), account.getAccountNumber());
     }
 
     public double getInterestRateByTerm(int months) {
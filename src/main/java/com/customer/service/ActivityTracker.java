@@ -0,0 +1,258 @@
+package com.customer.service;
+
+import com.customer.dao.ReportDAO;
+import com.customer.event.EventBus;
+import com.customer.event.TransactionPosted;
+import com.customer.model.Money;
+import com.customer.model.Transaction;
+import com.customer.util.SpaceSaving;
+
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Most active accounts (by transaction count) and largest accounts by volume
+ * over the last day, 7 days and 30 days, answered from memory.
+ *
+ * Every posted transaction leg is added to a per-day pair of Space-Saving
+ * summaries, fed from {@link TransactionPosted} events. The closed days of each
+ * window are merged once per day, so a query only merges that with today's
+ * summaries, and the result is reused until the next posting. On startup the
+ * last 30 days are loaded with one streaming scan.
+ */
+public class ActivityTracker {
+
+    private static final ActivityTracker INSTANCE = new ActivityTracker();
+
+    // Counters per day and per merged window; far more than the number of accounts we rank
+    private static final int CAPACITY = 1024;
+
+    public enum Window {
+        TODAY(1), LAST_7_DAYS(7), LAST_30_DAYS(30);
+
+        private final int days;
+
+        Window(int days) {
+            this.days = days;
+        }
+
+        public int getDays() {
+            return days;
+        }
+    }
+
+    private static final int RETAINED_DAYS = Window.LAST_30_DAYS.getDays();
+
+    private static final class Day {
+        final SpaceSaving counts = new SpaceSaving(CAPACITY);
+        final SpaceSaving volumes = new SpaceSaving(CAPACITY);
+
+        void add(long accountId, Money amount) {
+            counts.add(accountId, 1);
+            if (amount != null) {
+                volumes.add(accountId, amount.toUnits(RoundingMode.HALF_UP));
+            }
+        }
+    }
+
+    private final TreeMap<LocalDate, Day> days = new TreeMap<>();
+    // Days before `today` merged per window; null when a day was added or changed since
+    private final Map<Window, Day> closed = new EnumMap<>(Window.class);
+    private LocalDate today = LocalDate.now();
+    // Last merge per window and metric, reused until the next posting
+    private final Map<Window, SpaceSaving> mergedCounts = new EnumMap<>(Window.class);
+    private final Map<Window, SpaceSaving> mergedVolumes = new EnumMap<>(Window.class);
+
+    // While a rebuild scan runs, live postings are held here and applied afterwards
+    private List<Transaction> pending;
+    private boolean rebuilding;
+    // Events were dropped while a rebuild was already running; scan again when it finishes
+    private boolean rescan;
+    private volatile boolean ready;
+    private EventBus.Subscription subscription;
+
+    private ActivityTracker() {
+    }
+
+    public static ActivityTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /** Subscribes to postings and rebuilds the last 30 days in the background. */
+    public synchronized void start() {
+        if (subscription != null) {
+            return;
+        }
+        subscription = EventBus.getInstance().subscribe("activity-tracker", TransactionPosted.class, new EventBus.Subscriber<>() {
+            @Override
+            public void onEvents(List<TransactionPosted> events) {
+                for (TransactionPosted event : events) {
+                    for (Transaction leg : event.getLegs()) {
+                        onPosted(leg);
+                    }
+                }
+            }
+
+            @Override
+            public void onOverflow() {
+                rebuildInBackground();
+            }
+        });
+        rebuildInBackground();
+    }
+
+    public synchronized void stop() {
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized List<SpaceSaving.Entry> topByCount(Window window, int k) {
+        return merged(window, false).top(k);
+    }
+
+    /** Volume is in whole currency units. */
+    public synchronized List<SpaceSaving.Entry> topByVolume(Window window, int k) {
+        return merged(window, true).top(k);
+    }
+
+    // --- Feeding ---
+
+    private synchronized void onPosted(Transaction leg) {
+        if (pending != null) {
+            pending.add(leg);
+            return;
+        }
+        LocalDateTime created = leg.getCreatedDate() != null ? leg.getCreatedDate() : LocalDateTime.now();
+        add(leg.getAccountId(), leg.getAmount(), created.toLocalDate());
+    }
+
+    private void add(long accountId, Money amount, LocalDate date) {
+        rollOver();
+        if (date.isBefore(today.minusDays(RETAINED_DAYS - 1)) || date.isAfter(today)) {
+            return;
+        }
+        days.computeIfAbsent(date, d -> new Day()).add(accountId, amount);
+        mergedCounts.clear();
+        mergedVolumes.clear();
+        if (date.isBefore(today)) {
+            closed.clear();
+        }
+    }
+
+    private void rollOver() {
+        LocalDate now = LocalDate.now();
+        if (now.equals(today)) {
+            return;
+        }
+        today = now;
+        days.headMap(today.minusDays(RETAINED_DAYS - 1)).clear();
+        closed.clear();
+        mergedCounts.clear();
+        mergedVolumes.clear();
+    }
+
+    private SpaceSaving merged(Window window, boolean volume) {
+        rollOver();
+        Map<Window, SpaceSaving> cache = volume ? mergedVolumes : mergedCounts;
+        SpaceSaving cached = cache.get(window);
+        if (cached != null) {
+            return cached;
+        }
+
+        Day closedDays = closed.get(window);
+        if (closedDays == null) {
+            closedDays = new Day();
+            for (Day day : days.subMap(today.minusDays(window.getDays() - 1), true, today, false).values()) {
+                closedDays.counts.addAll(day.counts);
+                closedDays.volumes.addAll(day.volumes);
+            }
+            closed.put(window, closedDays);
+        }
+
+        SpaceSaving result = new SpaceSaving(CAPACITY);
+        result.addAll(volume ? closedDays.volumes : closedDays.counts);
+        Day current = days.get(today);
+        if (current != null) {
+            result.addAll(volume ? current.volumes : current.counts);
+        }
+        cache.put(window, result);
+        return result;
+    }
+
+    // --- Rebuild ---
+
+    private void rebuildInBackground() {
+        synchronized (this) {
+            if (rebuilding) {
+                rescan = true;
+                return;
+            }
+            rebuilding = true;
+            ready = false;
+            pending = new ArrayList<>();
+        }
+        Thread thread = new Thread(this::rebuild, "activity-tracker-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void rebuild() {
+        LocalDate since = LocalDate.now().minusDays(RETAINED_DAYS - 1);
+        TreeMap<LocalDate, Day> scanned = new TreeMap<>();
+        long start = System.nanoTime();
+        long maxId;
+        try {
+            maxId = new ReportDAO().streamPostingsSince(since, (id, accountId, amount, createdDate) ->
+                    scanned.computeIfAbsent(createdDate.toLocalDate(), d -> new Day()).add(accountId, amount));
+        } catch (Exception e) {
+            System.err.println("Activity tracker rebuild failed: " + e.getMessage());
+            synchronized (this) {
+                // Keep counting live postings so the tracker is at least current from here on
+                List<Transaction> held = pending;
+                pending = null;
+                held.forEach(this::onPosted);
+                rebuilding = false;
+                rescan = false;
+            }
+            return;
+        }
+
+        synchronized (this) {
+            days.clear();
+            days.putAll(scanned);
+            closed.clear();
+            mergedCounts.clear();
+            mergedVolumes.clear();
+            today = LocalDate.now();
+            List<Transaction> held = pending;
+            pending = null;
+            for (Transaction leg : held) {
+                // Rows up to maxId were in the scan
+                if (leg.getId() > maxId) {
+                    onPosted(leg);
+                }
+            }
+            rebuilding = false;
+            if (rescan) {
+                rescan = false;
+                rebuildInBackground();
+                return;
+            }
+            ready = true;
+        }
+        System.out.printf("Activity tracker rebuilt from %d days in %d ms%n",
+                scanned.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,300 @@
+package com.customer.service;
+
+import com.customer.dao.AuditDAO;
+import com.customer.dao.DatabaseManager;
+import com.customer.model.AuditAction;
+import com.customer.model.AuditEvent;
+import com.customer.model.User;
+import com.customer.util.SegmentedLog;
+import com.customer.util.SessionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Audit trail for logins, account status changes, loan decisions and exports.
+ *
+ * {@link #record} only appends the event to a local {@link SegmentedLog}, so the
+ * audited action does not wait for the database. A background writer flushes
+ * the journal to disk, bulk-inserts the next batch into audit_log and then moves
+ * a delivered-up-to checkpoint forward. After a crash, everything past the
+ * checkpoint is sent again; audit_log is keyed on (source, seq), so a batch that
+ * was inserted but not checkpointed is skipped rather than duplicated. The
+ * journal never numbers a new event at or below the checkpoint, so a later
+ * event cannot collide with a delivered one.
+ *
+ * The journal directory belongs to one running instance. If another instance
+ * holds it, events are inserted synchronously instead.
+ */
+public class AuditTrail {
+
+    private static final AuditTrail INSTANCE = new AuditTrail();
+
+    private static final int SEGMENT_BYTES = 8 * 1024 * 1024;
+    private static final int BATCH = 500;
+    private static final long FLUSH_MS = 200;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final int SEARCH_LIMIT = 1000;
+    private static final String CHECKPOINT = "delivered";
+    private static final int MAX_USERNAME = 50;
+    private static final int MAX_DETAIL = 500;
+
+    private final AuditDAO auditDAO = new AuditDAO();
+    private final Path dir = Paths.get(System.getProperty("audit.dir",
+            System.getProperty("user.home") + "/.customer-app/audit"));
+
+    private volatile SegmentedLog journal;
+    private FileLock dirLock;
+    private String source;
+    // Events that bypass the journal get their own source, so their sequence numbers cannot collide with it
+    private final String directSource = UUID.randomUUID().toString();
+    private final AtomicLong directSequence = new AtomicLong();
+    private ScheduledExecutorService writer;
+
+    // Writer state; only touched on the writer thread (and in stop, after it has finished)
+    private Connection connection;
+    private volatile long delivered;
+    private long backoffMs;
+    private long retryAtMs;
+
+    private AuditTrail() {
+    }
+
+    public static AuditTrail getInstance() {
+        return INSTANCE;
+    }
+
+    /** Opens the local journal and starts delivering it, including anything left from the last run. */
+    public synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        try {
+            Files.createDirectories(dir);
+            FileChannel lockChannel = FileChannel.open(dir.resolve("instance.lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            dirLock = lockChannel.tryLock();
+            if (dirLock == null) {
+                lockChannel.close();
+                System.err.println("Audit journal " + dir + " is in use by another instance; writing audit events directly");
+            } else {
+                source = readOrCreateSource();
+                journal = new SegmentedLog(dir, SEGMENT_BYTES);
+                delivered = journal.readCheckpoint(CHECKPOINT);
+                System.out.println("Audit journal opened, " + (journal.getNextSequence() - 1 - delivered) + " events to deliver");
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot open audit journal: " + e.getMessage());
+            journal = null;
+        }
+
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "audit-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        if (journal != null) {
+            writer.scheduleWithFixedDelay(this::deliver, FLUSH_MS, FLUSH_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Delivers what it can within a couple of seconds and closes the journal; the rest goes out on next start. */
+    public synchronized void stop() {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (journal != null) {
+            retryAtMs = 0;
+            deliver();
+            SegmentedLog log = journal;
+            journal = null;
+            try {
+                log.close();
+                dirLock.channel().close();
+            } catch (IOException e) {
+                System.err.println("Failed to close audit journal: " + e.getMessage());
+            }
+        }
+        closeConnection();
+        writer = null;
+    }
+
+    /** Records an action by the logged-in user. */
+    public void record(AuditAction action, String entityType, Long entityId, String detail) {
+        User user = SessionManager.getCurrentUser();
+        record(user != null ? user.getId() : null, user != null ? user.getUsername() : null,
+                action, entityType, entityId, detail);
+    }
+
+    /** Records an action on behalf of a given user, e.g. a login before the session exists. */
+    public void record(Long userId, String username, AuditAction action, String entityType, Long entityId, String detail) {
+        LocalDateTime now = LocalDateTime.now();
+        // Sized to the audit_log columns; an event the table rejects would hold up every event behind it
+        username = truncate(username, MAX_USERNAME);
+        detail = truncate(detail, MAX_DETAIL);
+        SegmentedLog log = journal;
+        if (log != null) {
+            try {
+                log.append(encode(now, userId, username, action, entityType, entityId, detail));
+                return;
+            } catch (IOException e) {
+                System.err.println("Audit journal append failed, writing directly: " + e.getMessage());
+            }
+        }
+        AuditEvent event = new AuditEvent(directSource, directSequence.incrementAndGet(), now, userId, username,
+                action, entityType, entityId, detail);
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+            auditDAO.insertBatch(conn, Collections.singletonList(event));
+        } catch (SQLException e) {
+            System.err.println("Audit event lost (" + action + " " + entityType + " " + entityId + "): " + e.getMessage());
+        }
+    }
+
+    /** Events recorded locally but not yet in audit_log. */
+    public long getPendingCount() {
+        SegmentedLog log = journal;
+        return log != null ? Math.max(0, log.getNextSequence() - 1 - delivered) : 0;
+    }
+
+    public List<AuditEvent> search(LocalDate from, LocalDate to, AuditAction action, String username) throws SQLException {
+        return auditDAO.search(from, to, action, username, SEARCH_LIMIT);
+    }
+
+    // --- Delivery ---
+
+    private void deliver() {
+        if (System.currentTimeMillis() < retryAtMs) {
+            return;
+        }
+        try {
+            // One fsync covers every event appended since the last tick; reads stop at what it covered,
+            // so the checkpoint never runs ahead of events a power loss could take back
+            journal.force();
+            List<AuditEvent> batch = new ArrayList<>(BATCH);
+            do {
+                batch.clear();
+                journal.read(delivered + 1, BATCH, (sequence, payload) -> batch.add(decode(sequence, payload)));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                if (connection == null) {
+                    connection = DatabaseManager.getInstance().openDedicatedConnection();
+                }
+                auditDAO.insertBatch(connection, batch);
+                delivered = batch.get(batch.size() - 1).getSequence();
+                journal.writeCheckpoint(CHECKPOINT, delivered);
+                journal.deleteBefore(delivered + 1);
+            } while (batch.size() == BATCH);
+            backoffMs = 0;
+        } catch (SQLException | IOException | RuntimeException e) {
+            // Left in the journal; retried with growing pauses while the database is unreachable
+            backoffMs = backoffMs == 0 ? FLUSH_MS : Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+            retryAtMs = System.currentTimeMillis() + backoffMs;
+            System.err.println("Audit delivery failed, retrying in " + backoffMs + " ms: " + e.getMessage());
+            closeConnection();
+        }
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+            }
+            connection = null;
+        }
+    }
+
+    // --- Local files ---
+
+    private String readOrCreateSource() throws IOException {
+        Path file = dir.resolve("source-id");
+        if (Files.exists(file)) {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+        }
+        String id = UUID.randomUUID().toString();
+        Files.write(file, id.getBytes(StandardCharsets.UTF_8));
+        return id;
+    }
+
+    // --- Encoding ---
+
+    private static byte[] encode(LocalDateTime occurredAt, Long userId, String username, AuditAction action,
+                                 String entityType, Long entityId, String detail) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(occurredAt.toString());
+            writeNullable(out, userId);
+            writeNullable(out, username);
+            out.writeUTF(action.name());
+            writeNullable(out, entityType);
+            writeNullable(out, entityId);
+            writeNullable(out, detail);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private AuditEvent decode(long sequence, byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            LocalDateTime occurredAt = LocalDateTime.parse(in.readUTF());
+            Long userId = in.readBoolean() ? in.readLong() : null;
+            String username = in.readBoolean() ? in.readUTF() : null;
+            AuditAction action = AuditAction.valueOf(in.readUTF());
+            String entityType = in.readBoolean() ? in.readUTF() : null;
+            Long entityId = in.readBoolean() ? in.readLong() : null;
+            String detail = in.readBoolean() ? in.readUTF() : null;
+            return new AuditEvent(source, sequence, occurredAt, userId, username, action, entityType, entityId, detail);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String truncate(String value, int max) {
+        return value != null && value.length() > max ? value.substring(0, max) : value;
+    }
+
+    private static void writeNullable(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.customer.service;
 
 import com.customer.dao.UserDAO;
+import com.customer.model.AuditAction;
 import com.customer.model.User;
 import com.customer.model.UserStatus;
 import com.customer.util.PasswordUtil;
@@ -15,6 +16,7 @@ public class AuthService {
     private static final int LOCK_DURATION_MINUTES = 5;
 
     private final UserDAO userDAO;
+    private final AuditTrail auditTrail = AuditTrail.getInstance();
 
     public AuthService() {
         this.userDAO = new UserDAO();
@@ -30,25 +32,25 @@ public class AuthService {
 
         Optional<User> optionalUser = userDAO.findByUsername(username.trim());
         if (optionalUser.isEmpty()) {
-            return new LoginResult(false, "Username does not exist");
+            return failed(null, username.trim(), "Username does not exist");
         }
 
         User user = optionalUser.get();
 
         // Check if account is permanently locked
         if (user.getStatus() == UserStatus.LOCKED) {
-            return new LoginResult(false, "Account is permanently locked. Please contact administrator");
+            return failed(user.getId(), user.getUsername(), "Account is permanently locked. Please contact administrator");
         }
 
         // Check if account is inactive
         if (user.getStatus() == UserStatus.INACTIVE) {
-            return new LoginResult(false, "Account is inactive");
+            return failed(user.getId(), user.getUsername(), "Account is inactive");
         }
 
         // Check temporary lock
         if (user.getLockedUntil() != null && LocalDateTime.now().isBefore(user.getLockedUntil())) {
             long remainingMinutes = java.time.Duration.between(LocalDateTime.now(), user.getLockedUntil()).toMinutes() + 1;
-            return new LoginResult(false, "Account is temporarily locked. Please try again after " + remainingMinutes + " minutes");
+            return failed(user.getId(), user.getUsername(), "Account is temporarily locked. Please try again after " + remainingMinutes + " minutes");
         }
 
         // Verify password
@@ -59,11 +61,11 @@ public class AuthService {
             if (newFailedAttempts >= MAX_FAILED_ATTEMPTS) {
                 LocalDateTime lockUntil = LocalDateTime.now().plusMinutes(LOCK_DURATION_MINUTES);
                 userDAO.lockUser(user.getId(), lockUntil);
-                return new LoginResult(false, "Incorrect password " + MAX_FAILED_ATTEMPTS + " times. Account locked for " + LOCK_DURATION_MINUTES + " minutes");
+                return failed(user.getId(), user.getUsername(), "Incorrect password " + MAX_FAILED_ATTEMPTS + " times. Account locked for " + LOCK_DURATION_MINUTES + " minutes");
             }
 
             int remainingAttempts = MAX_FAILED_ATTEMPTS - newFailedAttempts;
-            return new LoginResult(false, "Incorrect password. " + remainingAttempts + " attempts remaining");
+            return failed(user.getId(), user.getUsername(), "Incorrect password. " + remainingAttempts + " attempts remaining");
         }
 
         // Login successful
@@ -74,11 +76,20 @@ public class AuthService {
         user.setLastLogin(LocalDateTime.now());
 
         SessionManager.login(user);
+        auditTrail.record(user.getId(), user.getUsername(), AuditAction.LOGIN_SUCCESS, "USER", user.getId(), null);
 
         return new LoginResult(true, "Login successful");
     }
 
+    private LoginResult failed(Long userId, String username, String message) {
+        auditTrail.record(userId, username, AuditAction.LOGIN_FAILED, "USER", userId, message);
+        return new LoginResult(false, message);
+    }
+
     public void logout() {
+        if (SessionManager.isLoggedIn()) {
+            auditTrail.record(AuditAction.LOGOUT, "USER", SessionManager.getCurrentUser().getId(), null);
+        }
         SessionManager.logout();
     }
 
@@ -0,0 +1,582 @@
+package com.customer.service;
+
+import com.customer.dao.AccountDAO;
+import com.customer.dao.CustomerDAO;
+import com.customer.dao.DatabaseManager;
+import com.customer.event.EntityInvalidated;
+import com.customer.event.EventBus;
+import com.customer.model.Account;
+import com.customer.model.AccountStatus;
+import com.customer.model.AccountType;
+import com.customer.model.AuditAction;
+import com.customer.model.Customer;
+import com.customer.model.CustomerType;
+import com.customer.model.Money;
+import com.customer.model.Role;
+import com.customer.util.CsvReader;
+import com.customer.util.SessionManager;
+
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports customers, each with an optional account, from a CSV file.
+ *
+ * The file is streamed in chunks. Each chunk is validated in parallel while the
+ * previous one is written by a single writer thread: customers and accounts go
+ * in as two batched inserts in one transaction, with account numbers reserved
+ * as a range up front. A chunk the database rejects is retried row by row so
+ * one bad row does not sink its neighbours. Rows that fail go to a reject file
+ * next to the input with their line number and reason; everything else is
+ * committed chunk by chunk, so a stopped import keeps what it already wrote.
+ *
+ * Columns, matched by header name in any order: full_name (required), phone,
+ * email, address, date_of_birth (yyyy-MM-dd or dd/MM/yyyy), customer_type,
+ * account_type, term_months and customer_ref. Rows sharing a customer_ref
+ * belong to one customer: the first creates it, later ones only add accounts.
+ * Refs are local to the file.
+ */
+public class BulkImportService {
+
+    private static final int CHUNK_SIZE = Integer.getInteger("import.chunkSize", 1000);
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+            DateTimeFormatter.ISO_LOCAL_DATE, DateTimeFormatter.ofPattern("dd/MM/yyyy")};
+    private static final String[] COLUMNS = {"full_name", "phone", "email", "address", "date_of_birth",
+            "customer_type", "account_type", "term_months", "customer_ref"};
+    private static final int FULL_NAME = 0, PHONE = 1, EMAIL = 2, ADDRESS = 3, DATE_OF_BIRTH = 4,
+            CUSTOMER_TYPE = 5, ACCOUNT_TYPE = 6, TERM_MONTHS = 7, CUSTOMER_REF = 8;
+
+    private final CustomerDAO customerDAO;
+    private final AccountDAO accountDAO;
+    private final AccountService accountService;
+
+    public BulkImportService() {
+        this.customerDAO = new CustomerDAO();
+        this.accountDAO = new AccountDAO();
+        this.accountService = new AccountService();
+    }
+
+    public interface ProgressListener {
+        void onProgress(long bytesRead, long totalBytes, int imported, int rejected);
+    }
+
+    public static class ImportResult {
+        private final int rows;
+        private final int customers;
+        private final int accounts;
+        private final int rejected;
+        private final Path rejectFile;
+        private final long millis;
+
+        ImportResult(int rows, int customers, int accounts, int rejected, Path rejectFile, long millis) {
+            this.rows = rows;
+            this.customers = customers;
+            this.accounts = accounts;
+            this.rejected = rejected;
+            this.rejectFile = rejectFile;
+            this.millis = millis;
+        }
+
+        public int getRows() { return rows; }
+        public int getCustomers() { return customers; }
+        public int getAccounts() { return accounts; }
+        public int getRejected() { return rejected; }
+
+        /** Where rejected rows were written, or null if there were none. */
+        public Path getRejectFile() { return rejectFile; }
+
+        public long getMillis() { return millis; }
+    }
+
+    public boolean canImport() {
+        return SessionManager.hasRole(Role.MANAGER, Role.ADMIN);
+    }
+
+    /**
+     * Imports {@code csv}. Rejected rows are written to {@code <name>.rejects.csv}
+     * beside it. Throws on a header without full_name, on unreadable input and on
+     * database errors that are not about a particular row (e.g. a lost
+     * connection); chunks committed before that stay in.
+     */
+    public ImportResult importFile(Path csv, ProgressListener listener)
+            throws IOException, SQLException, ValidationException {
+        if (!canImport()) {
+            throw new SecurityException("Access Denied: Only Managers and Admins can import customers.");
+        }
+
+        long start = System.currentTimeMillis();
+        long totalBytes = Files.size(csv);
+        String name = csv.getFileName().toString();
+        Path rejectPath = csv.resolveSibling((name.toLowerCase(Locale.ROOT).endsWith(".csv")
+                ? name.substring(0, name.length() - 4) : name) + ".rejects.csv");
+
+        ChunkWriter writer;
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(csv));
+             Connection conn = DatabaseManager.getInstance().openBatchConnection();
+             CsvReader reader = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String[] header = reader.next();
+            int[] columnIndex = mapHeader(header);
+            writer = new ChunkWriter(conn, rejectPath, header);
+
+            ExecutorService writerThread = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "import-writer");
+                t.setDaemon(true);
+                return t;
+            });
+            try (writer) {
+                // Validation only looks at the row itself; which ref came first is decided here, in file order
+                Set<String> seenRefs = new HashSet<>();
+                Future<?> pending = null;
+                List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+                String[] fields;
+                do {
+                    fields = reader.next();
+                    if (fields != null) {
+                        if (fields.length == 1 && fields[0].isBlank()) {
+                            continue;
+                        }
+                        Row row = new Row(reader.getRecordLine(), fields);
+                        row.ref = value(fields, columnIndex[CUSTOMER_REF]);
+                        row.continuation = row.ref != null && !seenRefs.add(row.ref);
+                        chunk.add(row);
+                    }
+                    if (chunk.size() == CHUNK_SIZE || (fields == null && !chunk.isEmpty())) {
+                        List<Row> ready = chunk;
+                        chunk = new ArrayList<>(CHUNK_SIZE);
+                        // Overlaps with the writer still inserting the previous chunk
+                        ready.parallelStream().forEach(row -> validate(row, columnIndex));
+
+                        await(pending);
+                        long bytesRead = in.count;
+                        pending = writerThread.submit(() -> {
+                            writer.write(ready);
+                            if (listener != null) {
+                                listener.onProgress(bytesRead, totalBytes, writer.customers + writer.accounts, writer.rejected);
+                            }
+                            return null;
+                        });
+                    }
+                } while (fields != null);
+                await(pending);
+            } finally {
+                // Let a chunk already handed over finish before its connection is closed
+                writerThread.shutdown();
+                try {
+                    writerThread.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (writer.imported()) {
+                    EventBus.getInstance().publish(EntityInvalidated.all());
+                }
+            }
+        }
+
+        AuditTrail.getInstance().record(AuditAction.CUSTOMERS_IMPORTED, "CUSTOMER", null,
+                name + ": " + writer.customers + " khách hàng, " + writer.accounts + " tài khoản, "
+                        + writer.rejected + " dòng lỗi");
+        return new ImportResult(writer.rows, writer.customers, writer.accounts, writer.rejected,
+                writer.rejected > 0 ? rejectPath : null, System.currentTimeMillis() - start);
+    }
+
+    private static int[] mapHeader(String[] header) throws ValidationException {
+        int[] index = new int[COLUMNS.length];
+        Arrays.fill(index, -1);
+        if (header != null) {
+            for (int i = 0; i < header.length; i++) {
+                String column = header[i].trim().toLowerCase(Locale.ROOT);
+                for (int c = 0; c < COLUMNS.length; c++) {
+                    if (COLUMNS[c].equals(column)) {
+                        index[c] = i;
+                    }
+                }
+            }
+        }
+        if (index[FULL_NAME] < 0) {
+            throw new ValidationException("File CSV phải có dòng tiêu đề với cột full_name!");
+        }
+        return index;
+    }
+
+    // --- Validation (runs in parallel, one row at a time) ---
+
+    private void validate(Row row, int[] columnIndex) {
+        try {
+            String[] fields = row.fields;
+            if (!row.continuation) {
+                Customer customer = new Customer();
+                customer.setFullName(value(fields, columnIndex[FULL_NAME]));
+                customer.setPhone(value(fields, columnIndex[PHONE]));
+                customer.setEmail(value(fields, columnIndex[EMAIL]));
+                customer.setAddress(value(fields, columnIndex[ADDRESS]));
+                customer.setDateOfBirth(parseDate(value(fields, columnIndex[DATE_OF_BIRTH])));
+                customer.setCustomerType(parseCustomerType(value(fields, columnIndex[CUSTOMER_TYPE])));
+                customer.setCreatedDate(LocalDateTime.now());
+                CustomerService.validateCustomer(customer);
+                row.customer = customer;
+            }
+
+            String accountType = value(fields, columnIndex[ACCOUNT_TYPE]);
+            if (accountType != null) {
+                row.account = buildAccount(accountType, value(fields, columnIndex[TERM_MONTHS]));
+            } else if (row.continuation) {
+                throw new ValidationException(
+                        "Dòng bổ sung cho customer_ref " + row.ref + " phải có account_type!");
+            }
+        } catch (CustomerService.ValidationException | ValidationException e) {
+            row.invalid = true;
+            row.error = e.getMessage();
+        }
+    }
+
+    private Account buildAccount(String typeValue, String termValue) throws ValidationException {
+        AccountType type;
+        try {
+            type = AccountType.valueOf(typeValue.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Loại tài khoản không hợp lệ: " + typeValue);
+        }
+
+        int term = 0;
+        if (termValue != null) {
+            try {
+                term = Integer.parseInt(termValue);
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Kỳ hạn không hợp lệ: " + termValue);
+            }
+        }
+
+        Account account = new Account();
+        account.setAccountType(type);
+        if (type == AccountType.SAVINGS) {
+            if (term != 3 && term != 6 && term != 12) {
+                throw new ValidationException("Tài khoản tiết kiệm phải có kỳ hạn 3, 6 hoặc 12 tháng!");
+            }
+            account.setTermMonths(term);
+            account.setInterestRate(accountService.getInterestRateByTerm(term));
+        } else {
+            if (term != 0) {
+                throw new ValidationException("Tài khoản thanh toán không có kỳ hạn!");
+            }
+            account.setTermMonths(0);
+            account.setInterestRate(AccountService.RATE_DEFAULT);
+        }
+        account.setBalance(Money.ZERO);
+        account.setStatus(AccountStatus.ACTIVE);
+        account.setCreatedDate(LocalDateTime.now());
+        return account;
+    }
+
+    private static LocalDate parseDate(String value) throws ValidationException {
+        if (value == null) {
+            return null;
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format);
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        throw new ValidationException("Ngày sinh không hợp lệ: " + value);
+    }
+
+    private static CustomerType parseCustomerType(String value) throws ValidationException {
+        if (value == null) {
+            return CustomerType.REGULAR;
+        }
+        for (CustomerType type : CustomerType.values()) {
+            if (type.name().equalsIgnoreCase(value) || type.getDisplayName().equalsIgnoreCase(value)) {
+                return type;
+            }
+        }
+        throw new ValidationException("Loại khách hàng không hợp lệ: " + value);
+    }
+
+    // Trimmed field, or null when the column is absent or blank
+    private static String value(String[] fields, int index) {
+        if (index < 0 || index >= fields.length) {
+            return null;
+        }
+        String value = fields[index].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void await(Future<?> pending) throws IOException, SQLException {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    // --- Writing (import-writer thread only) ---
+
+    private static class Row {
+        final long line;
+        final String[] fields;
+        String ref;
+        boolean continuation;
+        Customer customer;
+        Account account;
+        boolean invalid;
+        String error;
+
+        Row(long line, String[] fields) {
+            this.line = line;
+            this.fields = fields;
+        }
+    }
+
+    // A customer created earlier in the file under a customer_ref, and the account types it already has
+    private static class RefState {
+        final Customer customer;
+        final EnumSet<AccountType> types;
+
+        RefState(Customer customer, EnumSet<AccountType> types) {
+            this.customer = customer;
+            this.types = types;
+        }
+    }
+
+    private class ChunkWriter implements AutoCloseable {
+        private final Connection conn;
+        private final Path rejectPath;
+        private final Map<String, RefState> refs = new HashMap<>();
+        private BufferedWriter rejects;
+        private final String[] header;
+        private int rows;
+        private int customers;
+        private int accounts;
+        private int rejected;
+
+        ChunkWriter(Connection conn, Path rejectPath, String[] header) throws IOException {
+            this.conn = conn;
+            this.rejectPath = rejectPath;
+            this.header = header;
+            Files.deleteIfExists(rejectPath);
+        }
+
+        boolean imported() {
+            return customers + accounts > 0;
+        }
+
+        void write(List<Row> chunk) throws SQLException, IOException {
+            rows += chunk.size();
+            try {
+                insert(chunk);
+            } catch (SQLException e) {
+                if (!isRowError(e)) {
+                    throw e;
+                }
+                for (Row row : chunk) {
+                    if (row.invalid) {
+                        continue;
+                    }
+                    row.error = null;
+                    try {
+                        insert(List.of(row));
+                    } catch (SQLException rowError) {
+                        if (!isRowError(rowError)) {
+                            throw rowError;
+                        }
+                        row.error = "Lỗi CSDL: " + rowError.getMessage();
+                    }
+                }
+            }
+            for (Row row : chunk) {
+                if (row.error != null) {
+                    reject(row);
+                }
+            }
+        }
+
+        // One transaction; refs only learn about this chunk's customers once it commits
+        private void insert(List<Row> chunk) throws SQLException {
+            Map<String, RefState> added = new HashMap<>();
+            List<Customer> newCustomers = new ArrayList<>();
+            List<Row> accountRows = new ArrayList<>();
+            List<Customer> owners = new ArrayList<>();
+            for (Row row : chunk) {
+                if (row.error != null) {
+                    continue;
+                }
+                RefState state = null;
+                Customer owner = row.customer;
+                if (row.continuation) {
+                    state = added.get(row.ref);
+                    if (state == null) {
+                        RefState committed = refs.get(row.ref);
+                        if (committed == null) {
+                            row.error = "Khách hàng của customer_ref " + row.ref + " chưa được nhập";
+                            continue;
+                        }
+                        state = new RefState(committed.customer, EnumSet.copyOf(committed.types));
+                        added.put(row.ref, state);
+                    }
+                    owner = state.customer;
+                } else {
+                    newCustomers.add(row.customer);
+                    if (row.ref != null) {
+                        state = new RefState(row.customer, EnumSet.noneOf(AccountType.class));
+                        added.put(row.ref, state);
+                    }
+                }
+                if (row.account != null) {
+                    if (state != null && !state.types.add(row.account.getAccountType())) {
+                        row.error = "Khách hàng đã có tài khoản " + row.account.getAccountType();
+                        continue;
+                    }
+                    accountRows.add(row);
+                    owners.add(owner);
+                }
+            }
+            if (newCustomers.isEmpty() && accountRows.isEmpty()) {
+                return;
+            }
+
+            // Reserved outside the transaction so the sequence row is not locked while the chunk is written
+            long nextNumber = accountRows.isEmpty() ? 0 : accountDAO.reserveAccountNumbers(conn, accountRows.size());
+            List<Account> newAccounts = new ArrayList<>(accountRows.size());
+
+            conn.setAutoCommit(false);
+            try {
+                customerDAO.insertBatch(conn, newCustomers);
+                for (int i = 0; i < accountRows.size(); i++) {
+                    Account account = accountRows.get(i).account;
+                    account.setCustomerId(owners.get(i).getId());
+                    account.setAccountNumber(String.valueOf(nextNumber++));
+                    newAccounts.add(account);
+                }
+                accountDAO.insertBatch(conn, newAccounts);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            accountDAO.onCommitted(newAccounts);
+            refs.putAll(added);
+            customers += newCustomers.size();
+            accounts += newAccounts.size();
+        }
+
+        // Integrity (23) and data (22) errors are about the rows; anything else would fail every row the same way
+        private boolean isRowError(SQLException e) {
+            String state = e.getSQLState();
+            return state != null && (state.startsWith("23") || state.startsWith("22"));
+        }
+
+        private void reject(Row row) throws IOException {
+            if (rejects == null) {
+                rejects = Files.newBufferedWriter(rejectPath, StandardCharsets.UTF_8);
+                writeCsvRow(header, "line", "error");
+            }
+            writeCsvRow(row.fields, String.valueOf(row.line), row.error);
+            rejected++;
+        }
+
+        private void writeCsvRow(String[] fields, String... extra) throws IOException {
+            StringBuilder line = new StringBuilder();
+            for (String field : fields) {
+                appendCsv(line, field).append(',');
+            }
+            for (int i = 0; i < extra.length; i++) {
+                appendCsv(line, extra[i]).append(i < extra.length - 1 ? "," : "\r\n");
+            }
+            rejects.write(line.toString());
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (rejects != null) {
+                rejects.close();
+            }
+        }
+    }
+
+    private static StringBuilder appendCsv(StringBuilder line, String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            return line.append(field);
+        }
+        return line.append('"').append(field.replace("\"", "\"\"")).append('"');
+    }
+
+    // Bytes pulled from the file so far, for progress; read by the importing thread only
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    public static class ValidationException extends Exception {
+        public ValidationException(String message) {
+            super(message);
+        }
+    }
+}
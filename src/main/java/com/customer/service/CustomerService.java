@@ -1,6 +1,8 @@
 package com.customer.service;
 
 import com.customer.dao.CustomerDAO;
+import com.customer.event.CustomerUpdated;
+import com.customer.event.EventBus;
 import com.customer.model.Customer;
 import com.customer.model.CustomerType;
 
@@ -19,15 +21,18 @@ public class CustomerService {
     public void addCustomer(Customer customer) throws SQLException, ValidationException {
         validateCustomer(customer);
         customerDAO.save(customer);
+        EventBus.getInstance().publish(new CustomerUpdated(customer.getId(), CustomerUpdated.Change.CREATED));
     }
 
     public void updateCustomer(Customer customer) throws SQLException, ValidationException {
         validateCustomer(customer);
         customerDAO.update(customer);
+        EventBus.getInstance().publish(new CustomerUpdated(customer.getId(), CustomerUpdated.Change.UPDATED));
     }
 
     public void deleteCustomer(long id) throws SQLException {
         customerDAO.delete(id);
+        EventBus.getInstance().publish(new CustomerUpdated(id, CustomerUpdated.Change.DELETED));
     }
 
     public List<Customer> getAllCustomers() throws SQLException {
@@ -49,7 +54,7 @@ public class CustomerService {
         return customerDAO.findByType(type);
     }
 
-    private void validateCustomer(Customer customer) throws ValidationException {
+    static void validateCustomer(Customer customer) throws ValidationException {
         if (customer.getFullName() == null || customer.getFullName().trim().isEmpty()) {
             throw new ValidationException("Tên khách hàng không được để trống!");
         }
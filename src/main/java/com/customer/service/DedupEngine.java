@@ -0,0 +1,518 @@
+package com.customer.service;
+
+import com.customer.dao.CustomerDAO;
+import com.customer.event.CustomerUpdated;
+import com.customer.event.EventBus;
+import com.customer.model.AuditAction;
+import com.customer.model.Role;
+import com.customer.model.dto.MergeCandidate;
+import com.customer.util.SessionManager;
+
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Finds customers that are probably the same person and merges them.
+ *
+ * Comparing every pair is out of the question at a million customers, so each
+ * customer gets up to {@link #KEYS} blocking keys: normalized phone number,
+ * e-mail local part, sorted name tokens, and family plus given name (catches a
+ * missing middle name). Names are compared without diacritics. Only customers
+ * that share a key are scored. A pair sharing several keys is scored once, in
+ * the block of the smallest key they share.
+ *
+ * Keys are hashed to 40 bits and packed with the 24-bit customer index into one
+ * long, so blocking is a parallel sort of a primitive array. A rare hash
+ * collision only merges two blocks. Blocks are scored on a fork-join pool,
+ * split by pair count rather than block count, because block sizes are very
+ * skewed. Blocks above {@code dedup.maxBlock} (a placeholder phone, a very
+ * common name) are skipped and counted.
+ *
+ * Scoring uses token-set similarity of the names, with Jaro-Winkler per token.
+ * The given name (last token) must agree, because family and middle names are
+ * widely shared. Matching phone, e-mail and date of birth add to the score; a
+ * different date of birth takes away from it.
+ */
+public class DedupEngine {
+
+    private static final double THRESHOLD = Double.parseDouble(System.getProperty("dedup.threshold", "0.75"));
+    private static final int MAX_BLOCK = Integer.getInteger("dedup.maxBlock", 1000);
+    private static final int MAX_CANDIDATES = Integer.getInteger("dedup.maxCandidates", 50_000);
+    // Comparisons one fork-join leaf does before the work is split further
+    private static final long LEAF_PAIRS = 50_000;
+
+    private static final int KEYS = 4;
+    private static final int INDEX_BITS = 24;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    private static final int MAX_RECORDS = 1 << INDEX_BITS;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_LETTERS = Pattern.compile("[^a-z]+");
+
+    private final CustomerDAO customerDAO;
+
+    public DedupEngine() {
+        this.customerDAO = new CustomerDAO();
+    }
+
+    /** Customers to compare, in parallel arrays. Fill with {@link #add} and hand to {@link #match}. */
+    public static class Records {
+        private long[] ids = new long[1024];
+        private String[] names = new String[1024];
+        private String[] phones = new String[1024];
+        private String[] emails = new String[1024];
+        private int[] births = new int[1024];
+        private int size;
+
+        public void add(long id, String fullName, String phone, String email, LocalDate dateOfBirth) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                names = Arrays.copyOf(names, capacity);
+                phones = Arrays.copyOf(phones, capacity);
+                emails = Arrays.copyOf(emails, capacity);
+                births = Arrays.copyOf(births, capacity);
+            }
+            ids[size] = id;
+            names[size] = fullName;
+            phones[size] = phone;
+            emails[size] = email;
+            births[size] = dateOfBirth != null ? (int) dateOfBirth.toEpochDay() : NO_DATE;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    /** Ranked candidates and what the run did. */
+    public static class Result {
+        private final List<MergeCandidate> candidates;
+        private final int records;
+        private final int blocks;
+        private final int skippedBlocks;
+        private final long comparisons;
+        private final long millis;
+
+        Result(List<MergeCandidate> candidates, int records, int blocks, int skippedBlocks, long comparisons, long millis) {
+            this.candidates = candidates;
+            this.records = records;
+            this.blocks = blocks;
+            this.skippedBlocks = skippedBlocks;
+            this.comparisons = comparisons;
+            this.millis = millis;
+        }
+
+        /** Best match first; at most {@code dedup.maxCandidates}. */
+        public List<MergeCandidate> getCandidates() { return candidates; }
+        public int getRecords() { return records; }
+        public int getBlocks() { return blocks; }
+        public int getSkippedBlocks() { return skippedBlocks; }
+        public long getComparisons() { return comparisons; }
+        public long getMillis() { return millis; }
+    }
+
+    /** Reads every customer and returns the likely duplicates. */
+    public Result findCandidates() throws SQLException {
+        Records records = new Records();
+        customerDAO.streamForMatching(records::add);
+        return match(records);
+    }
+
+    public static Result match(Records records) {
+        if (records.size >= MAX_RECORDS) {
+            throw new IllegalArgumentException("Too many customers for one run: " + records.size);
+        }
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            Matching matching = new Matching(records);
+            pool.invoke(ForkJoinTask.adapt(() -> IntStream.range(0, records.size).parallel().forEach(matching::normalize)));
+            matching.buildBlocks();
+            List<MergeCandidate> candidates = pool.invoke(matching.new CompareTask(0, matching.blockCount));
+            candidates.sort(Comparator.comparingDouble(MergeCandidate::getScore).reversed()
+                    .thenComparingLong(MergeCandidate::getSurvivorId)
+                    .thenComparingLong(MergeCandidate::getDuplicateId));
+            if (candidates.size() > MAX_CANDIDATES) {
+                candidates = new ArrayList<>(candidates.subList(0, MAX_CANDIDATES));
+            }
+            return new Result(candidates, records.size, matching.blockCount, matching.skippedBlocks,
+                    matching.comparisons.sum(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Moves the duplicate's accounts and loans to the survivor and deletes the duplicate.
+     * Refused while both have an open account of the same type; one has to be closed first.
+     */
+    public CustomerDAO.MergeResult merge(MergeCandidate candidate) throws SQLException, ValidationException {
+        if (!canMerge()) {
+            throw new ValidationException("Only Managers and Admins can merge customers.");
+        }
+        CustomerDAO.MergeResult result;
+        try {
+            result = customerDAO.merge(candidate.getSurvivorId(), candidate.getDuplicateId());
+        } catch (CustomerDAO.AccountTypeConflict e) {
+            String types = e.getTypes().stream().map(Enum::name).collect(Collectors.joining(" and "));
+            throw new ValidationException("Both customers have an active " + types
+                    + " account. Close one of them before merging.");
+        }
+
+        EventBus bus = EventBus.getInstance();
+        bus.publish(new CustomerUpdated(candidate.getDuplicateId(), CustomerUpdated.Change.DELETED));
+        bus.publish(new CustomerUpdated(candidate.getSurvivorId(), CustomerUpdated.Change.UPDATED));
+        AuditTrail.getInstance().record(AuditAction.CUSTOMER_MERGED, "CUSTOMER", candidate.getSurvivorId(),
+                "Gộp #" + candidate.getDuplicateId() + " " + candidate.getDuplicateName()
+                        + " vào #" + candidate.getSurvivorId() + " " + candidate.getSurvivorName()
+                        + ": " + result.getAccounts() + " tài khoản, " + result.getLoans() + " khoản vay");
+        return result;
+    }
+
+    public boolean canMerge() {
+        return SessionManager.hasRole(Role.MANAGER, Role.ADMIN);
+    }
+
+    // --- Matching ---
+
+    // State of one run; arrays are indexed by record position
+    private static final class Matching {
+        private final Records records;
+        private final String[][] tokens;
+        private final String[] givenNames;
+        private final String[] phones;
+        private final String[] emails;
+        private final long[] keys;
+        private final LongAdder comparisons = new LongAdder();
+
+        private long[] entries;
+        private int[] blockStarts;
+        private int[] blockEnds;
+        // Pairs in blocks [0, i); used to split the work evenly
+        private long[] pairsBefore;
+        private int blockCount;
+        private int skippedBlocks;
+
+        Matching(Records records) {
+            this.records = records;
+            int n = records.size;
+            this.tokens = new String[n][];
+            this.givenNames = new String[n];
+            this.phones = new String[n];
+            this.emails = new String[n];
+            this.keys = new long[n * KEYS];
+        }
+
+        void normalize(int i) {
+            String[] words = nameTokens(records.names[i]);
+            String[] sorted = new TreeSet<>(Arrays.asList(words)).toArray(new String[0]);
+            tokens[i] = sorted;
+            givenNames[i] = words.length > 0 ? words[words.length - 1] : "";
+            phones[i] = normalizePhone(records.phones[i]);
+
+            String email = records.emails[i] != null ? records.emails[i].trim().toLowerCase(Locale.ROOT) : "";
+            int at = email.indexOf('@');
+            String local = null;
+            if (at > 0) {
+                local = email.substring(0, at);
+                int plus = local.indexOf('+');
+                if (plus >= 0) {
+                    local = local.substring(0, plus);
+                }
+                local = local.replace(".", "");
+                emails[i] = local + email.substring(at);
+            }
+
+            int k = i * KEYS;
+            keys[k] = phones[i] != null ? hash40("p", phones[i]) : 0;
+            keys[k + 1] = local != null && local.length() >= 3 ? hash40("e", local) : 0;
+            keys[k + 2] = sorted.length > 0 ? hash40("n", String.join(" ", sorted)) : 0;
+            keys[k + 3] = words.length >= 2 ? hash40("g", words[0] + " " + givenNames[i]) : 0;
+        }
+
+        void buildBlocks() {
+            int n = records.size;
+            int count = 0;
+            for (long key : keys) {
+                if (key != 0) count++;
+            }
+            entries = new long[count];
+            int e = 0;
+            for (int i = 0; i < n; i++) {
+                for (int k = 0; k < KEYS; k++) {
+                    long key = keys[i * KEYS + k];
+                    if (key != 0) {
+                        entries[e++] = key << INDEX_BITS | i;
+                    }
+                }
+            }
+            Arrays.parallelSort(entries);
+
+            int capacity = 1024;
+            blockStarts = new int[capacity];
+            blockEnds = new int[capacity];
+            pairsBefore = new long[capacity + 1];
+            int start = 0;
+            while (start < count) {
+                long key = entries[start] >>> INDEX_BITS;
+                int end = start + 1;
+                while (end < count && entries[end] >>> INDEX_BITS == key) {
+                    end++;
+                }
+                int size = end - start;
+                if (size > MAX_BLOCK) {
+                    skippedBlocks++;
+                    // Forget the key, so pairs that also share a smaller one are still compared there
+                    for (int x = start; x < end; x++) {
+                        int i = (int) (entries[x] & INDEX_MASK);
+                        for (int k = i * KEYS; k < i * KEYS + KEYS; k++) {
+                            if (keys[k] == key) keys[k] = 0;
+                        }
+                    }
+                } else if (size > 1) {
+                    if (blockCount == capacity) {
+                        capacity *= 2;
+                        blockStarts = Arrays.copyOf(blockStarts, capacity);
+                        blockEnds = Arrays.copyOf(blockEnds, capacity);
+                        pairsBefore = Arrays.copyOf(pairsBefore, capacity + 1);
+                    }
+                    blockStarts[blockCount] = start;
+                    blockEnds[blockCount] = end;
+                    pairsBefore[blockCount + 1] = pairsBefore[blockCount] + (long) size * (size - 1) / 2;
+                    blockCount++;
+                }
+                start = end;
+            }
+        }
+
+        final class CompareTask extends RecursiveTask<List<MergeCandidate>> {
+            private final int from;
+            private final int to;
+
+            CompareTask(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected List<MergeCandidate> compute() {
+                long pairs = pairsBefore[to] - pairsBefore[from];
+                if (to - from <= 1 || pairs <= LEAF_PAIRS) {
+                    List<MergeCandidate> found = new ArrayList<>();
+                    for (int b = from; b < to; b++) {
+                        compareBlock(b, found);
+                    }
+                    return found;
+                }
+                // Split where half of the pairs are done
+                long half = pairsBefore[from] + pairs / 2;
+                int mid = Arrays.binarySearch(pairsBefore, from, to + 1, half);
+                mid = mid >= 0 ? mid : -mid - 1;
+                mid = Math.max(from + 1, Math.min(to - 1, mid));
+                CompareTask left = new CompareTask(from, mid);
+                left.fork();
+                List<MergeCandidate> found = new CompareTask(mid, to).compute();
+                found.addAll(left.join());
+                return found;
+            }
+        }
+
+        private void compareBlock(int block, List<MergeCandidate> found) {
+            int start = blockStarts[block];
+            int end = blockEnds[block];
+            long key = entries[start] >>> INDEX_BITS;
+            long compared = 0;
+            for (int x = start; x < end; x++) {
+                int a = (int) (entries[x] & INDEX_MASK);
+                for (int y = x + 1; y < end; y++) {
+                    int b = (int) (entries[y] & INDEX_MASK);
+                    if (a == b || smallestSharedKey(a, b) != key) {
+                        continue;
+                    }
+                    compared++;
+                    MergeCandidate candidate = score(a, b);
+                    if (candidate != null) {
+                        found.add(candidate);
+                    }
+                }
+            }
+            comparisons.add(compared);
+        }
+
+        private long smallestSharedKey(int a, int b) {
+            long smallest = Long.MAX_VALUE;
+            for (int i = a * KEYS; i < a * KEYS + KEYS; i++) {
+                long key = keys[i];
+                if (key == 0 || key >= smallest) continue;
+                for (int j = b * KEYS; j < b * KEYS + KEYS; j++) {
+                    if (keys[j] == key) {
+                        smallest = key;
+                        break;
+                    }
+                }
+            }
+            return smallest;
+        }
+
+        private MergeCandidate score(int a, int b) {
+            double name = nameSimilarity(a, b);
+            if (name < 0.5) {
+                return null;
+            }
+            boolean samePhone = phones[a] != null && phones[a].equals(phones[b]);
+            boolean sameEmail = emails[a] != null && emails[a].equals(emails[b]);
+            int birthA = records.births[a];
+            int birthB = records.births[b];
+            boolean bothBirths = birthA != NO_DATE && birthB != NO_DATE;
+
+            double score = 0.6 * name;
+            if (samePhone) score += 0.25;
+            if (sameEmail) score += 0.2;
+            if (bothBirths) score += birthA == birthB ? 0.15 : -0.3;
+            score = Math.max(0, Math.min(1, score));
+            if (score < THRESHOLD) {
+                return null;
+            }
+
+            StringBuilder evidence = new StringBuilder(String.format(Locale.ROOT, "tên %.2f", name));
+            if (samePhone) evidence.append(", SĐT");
+            if (sameEmail) evidence.append(", email");
+            if (bothBirths) evidence.append(birthA == birthB ? ", ngày sinh" : ", khác ngày sinh");
+
+            // Keep the older record
+            int survivor = records.ids[a] < records.ids[b] ? a : b;
+            int duplicate = survivor == a ? b : a;
+            return new MergeCandidate(records.ids[survivor], records.names[survivor],
+                    records.ids[duplicate], records.names[duplicate], score, evidence.toString());
+        }
+
+        // Each token of the shorter name against its best match in the other, scaled down if the given names differ
+        private double nameSimilarity(int a, int b) {
+            String[] shorter = tokens[a].length <= tokens[b].length ? tokens[a] : tokens[b];
+            String[] longer = shorter == tokens[a] ? tokens[b] : tokens[a];
+            if (shorter.length == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (String token : shorter) {
+                double best = 0;
+                for (String other : longer) {
+                    best = Math.max(best, jaroWinkler(token, other));
+                    if (best == 1) break;
+                }
+                sum += best;
+            }
+            double similarity = sum / shorter.length;
+            double given = jaroWinkler(givenNames[a], givenNames[b]);
+            return given >= 0.9 ? similarity : similarity * given;
+        }
+    }
+
+    // --- Normalization and similarity ---
+
+    static String[] nameTokens(String fullName) {
+        if (fullName == null) {
+            return new String[0];
+        }
+        String folded = Normalizer.normalize(fullName.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        folded = COMBINING_MARKS.matcher(folded).replaceAll("").replace('đ', 'd');
+        String cleaned = NON_LETTERS.matcher(folded).replaceAll(" ").trim();
+        return cleaned.isEmpty() ? new String[0] : cleaned.split(" ");
+    }
+
+    // Last nine digits, so 0912..., 84912... and +84 912... agree; null if too short to mean anything
+    static String normalizePhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') digits.append(c);
+        }
+        return digits.length() >= 9 ? digits.substring(digits.length() - 9) : null;
+    }
+
+    static double jaroWinkler(String s, String t) {
+        if (s.equals(t)) {
+            return s.isEmpty() ? 0 : 1;
+        }
+        int sLen = s.length();
+        int tLen = t.length();
+        if (sLen == 0 || tLen == 0) {
+            return 0;
+        }
+        int window = Math.max(0, Math.max(sLen, tLen) / 2 - 1);
+        boolean[] sMatched = new boolean[sLen];
+        boolean[] tMatched = new boolean[tLen];
+        int matches = 0;
+        for (int i = 0; i < sLen; i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(tLen, i + window + 1);
+            for (int j = from; j < to; j++) {
+                if (!tMatched[j] && s.charAt(i) == t.charAt(j)) {
+                    sMatched[i] = true;
+                    tMatched[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0;
+        }
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < sLen; i++) {
+            if (!sMatched[i]) continue;
+            while (!tMatched[j]) j++;
+            if (s.charAt(i) != t.charAt(j)) transpositions++;
+            j++;
+        }
+        double m = matches;
+        double jaro = (m / sLen + m / tLen + (m - transpositions / 2.0) / m) / 3;
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(sLen, tLen)) && s.charAt(prefix) == t.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+
+    // 64-bit FNV-1a with a final mix, cut to 40 bits; never 0, which marks "no key"
+    private static long hash40(String kind, String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < kind.length(); i++) {
+            h = (h ^ kind.charAt(i)) * 0x100000001b3L;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        long key = h >>> (64 - 40);
+        return key != 0 ? key : 1;
+    }
+
+    public static class ValidationException extends Exception {
+        public ValidationException(String message) {
+            super(message);
+        }
+    }
+}
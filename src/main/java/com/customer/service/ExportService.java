@@ -1,7 +1,9 @@
 package com.customer.service;
 
 import com.customer.model.Account;
+import com.customer.model.AuditAction;
 import com.customer.model.Loan;
+import com.customer.model.Money;
 import com.customer.model.Role;
 import com.customer.model.Transaction;
 import com.customer.model.dto.*;
@@ -15,7 +17,6 @@ import java.awt.Desktop;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
@@ -41,6 +42,10 @@ public class ExportService {
         }
     }
 
+    private void audit(String report, String entityType, Long entityId, File file) {
+        AuditTrail.getInstance().record(AuditAction.REPORT_EXPORTED, entityType, entityId, report + " " + file.getName());
+    }
+
     private File createPdfFile(String reportName) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
         String fileName = reportName + "_" + timestamp + ".pdf";
@@ -125,6 +130,7 @@ public class ExportService {
         } finally {
             document.close();
         }
+        audit("DASHBOARD", null, null, file);
         return file;
     }
 
@@ -191,6 +197,7 @@ public class ExportService {
         } finally {
             document.close();
         }
+        audit("TRANSACTIONS", null, null, file);
         return file;
     }
 
@@ -254,6 +261,7 @@ public class ExportService {
         } finally {
             document.close();
         }
+        audit("LOANS", null, null, file);
         return file;
     }
 
@@ -262,7 +270,28 @@ public class ExportService {
     public File exportAccountStatement(AccountStatementData data) throws IOException {
         checkPermission();
         File file = createPdfFile("AccountStatement_" + data.getAccount().getAccountNumber());
+        writeAccountStatement(data, file);
+        audit("STATEMENT", "ACCOUNT", data.getAccount().getId(), file);
+        return file;
+    }
+
+    // Export to a caller-chosen file (used by bulk statement runs)
+    public File exportAccountStatement(AccountStatementData data, File file) throws IOException {
+        checkPermission();
+        writeAccountStatement(data, file);
+        audit("STATEMENT", "ACCOUNT", data.getAccount().getId(), file);
+        return file;
+    }
+
+    // Scheduled statement runs: no session to check, recorded as the scheduler
+    File exportScheduledStatement(AccountStatementData data, File file) throws IOException {
+        writeAccountStatement(data, file);
+        AuditTrail.getInstance().record(null, JobScheduler.AUDIT_USER, AuditAction.REPORT_EXPORTED, "ACCOUNT",
+                data.getAccount().getId(), "STATEMENT " + file.getName());
+        return file;
+    }
 
+    private void writeAccountStatement(AccountStatementData data, File file) throws IOException {
         Document document = new Document(PageSize.A4);
         try {
             PdfWriter.getInstance(document, new FileOutputStream(file));
@@ -297,35 +326,24 @@ public class ExportService {
             document.add(Chunk.NEWLINE);
 
             // Transactions
-            PdfPTable table = new PdfPTable(5);
+            PdfPTable table = new PdfPTable(6);
             table.setWidthPercentage(100);
-            table.setWidths(new float[]{2, 2, 2, 2, 3});
+            table.setWidths(new float[]{2, 2, 3, 2, 2, 2});
 
             addCell(table, "Date", HEADER_FONT);
             addCell(table, "Ref Number", HEADER_FONT);
             addCell(table, "Description", HEADER_FONT);
             addCell(table, "Debit (-)", HEADER_FONT);
             addCell(table, "Credit (+)", HEADER_FONT);
-
-            for (Transaction txn : data.getTransactions()) {
-                addCell(table, txn.getCreatedDate().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")), SMALL_FONT);
-                addCell(table, txn.getReferenceNumber(), SMALL_FONT);
-                addCell(table, txn.getDescription(), SMALL_FONT);
-
-                boolean isCredit = false;
-                if (txn.getTransactionType().name().equals("DEPOSIT") || txn.getTransactionType().name().equals("LOAN_DISBURSEMENT")) {
-                    isCredit = true;
-                } else if (txn.getTransactionType().name().equals("TRANSFER") && txn.getTargetAccountId() == data.getAccount().getId()) {
-                    isCredit = true;
-                }
-
-                if (isCredit) {
-                    addCell(table, "", SMALL_FONT);
-                    addCell(table, formatMoney(txn.getAmount()), SMALL_FONT);
-                } else {
-                    addCell(table, formatMoney(txn.getAmount()), SMALL_FONT);
-                    addCell(table, "", SMALL_FONT);
-                }
+            addCell(table, "Balance", HEADER_FONT);
+
+            for (StatementLine line : data.getLines()) {
+                addCell(table, line.getCreatedDate().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")), SMALL_FONT);
+                addCell(table, line.getReferenceNumber(), SMALL_FONT);
+                addCell(table, line.getDescription(), SMALL_FONT);
+                addCell(table, line.getDebit() != null ? formatMoney(line.getDebit()) : "", SMALL_FONT);
+                addCell(table, line.getCredit() != null ? formatMoney(line.getCredit()) : "", SMALL_FONT);
+                addCell(table, formatMoney(line.getRunningBalance()), SMALL_FONT);
             }
             document.add(table);
 
@@ -334,7 +352,6 @@ public class ExportService {
         } finally {
             document.close();
         }
-        return file;
     }
 
     // --- Helpers ---
@@ -366,9 +383,9 @@ public class ExportService {
         table.addCell(cell);
     }
 
-    private String formatMoney(BigDecimal amount) {
+    private String formatMoney(Money amount) {
         if (amount == null) return "0 VND";
-        return String.format("%,.0f VND", amount);
+        return amount.format() + " VND";
     }
 
     public void openPdf(File file) {
@@ -0,0 +1,174 @@
+package com.customer.service;
+
+import com.customer.dao.DatabaseManager;
+import com.customer.dao.IdempotencyDAO;
+import com.customer.dao.TransactionDAO;
+import com.customer.model.Money;
+import com.customer.model.Transaction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Idempotency keys for the posting APIs in {@link TransactionService}.
+ *
+ * A caller picks a key per logical request (e.g. one per open dialog) and sends
+ * it with every attempt. The key is claimed in the idempotency table inside the
+ * posting's own transaction, so it exists exactly when the posting committed.
+ * A repeat of the key returns the original transaction instead of posting again;
+ * recent keys are answered from a bounded in-memory cache.
+ *
+ * Keys are kept for {@link #RETENTION_HOURS} and then deleted in batches. A
+ * cached key expires at the same age, so once the table has forgotten a key
+ * no instance still answers it from memory.
+ */
+public class IdempotencyKeys {
+
+    private static final IdempotencyKeys INSTANCE = new IdempotencyKeys();
+
+    private static final int CACHE_SIZE = 10_000;
+    private static final int RETENTION_HOURS = 24;
+    private static final long RETENTION_MILLIS = TimeUnit.HOURS.toMillis(RETENTION_HOURS);
+    private static final long GC_INTERVAL_MINUTES = 10;
+    private static final int GC_BATCH = 1000;
+
+    private static final class Cached {
+        final String request;
+        final Transaction transaction;
+        final long claimedAtMillis;
+
+        Cached(String request, Transaction transaction, long claimedAtMillis) {
+            this.request = request;
+            this.transaction = transaction;
+            this.claimedAtMillis = claimedAtMillis;
+        }
+    }
+
+    private final IdempotencyDAO idempotencyDAO = new IdempotencyDAO();
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+    private final Map<String, Cached> recent = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final ScheduledExecutorService collector;
+
+    private IdempotencyKeys() {
+        collector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "idempotency-gc");
+            t.setDaemon(true);
+            return t;
+        });
+        collector.scheduleWithFixedDelay(this::collectExpired, GC_INTERVAL_MINUTES, GC_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static IdempotencyKeys getInstance() {
+        return INSTANCE;
+    }
+
+    /** Describes a request so a key reused for a different one can be refused. */
+    static String describe(String type, long accountId, Long targetAccountId, Money amount) {
+        return type + ":" + accountId + ":" + (targetAccountId != null ? targetAccountId : "-") + ":"
+                + amount.toBigDecimal().stripTrailingZeros().toPlainString();
+    }
+
+    /** The transaction already posted under {@code key}, or null if the key is new (or null). */
+    public Transaction findOriginal(String key, String request) throws SQLException {
+        return findOriginal(DatabaseManager.getInstance().getConnection(), key, request);
+    }
+
+    /** Same as {@link #findOriginal(String, String)}, looking the key up on {@code conn}. */
+    public Transaction findOriginal(Connection conn, String key, String request) throws SQLException {
+        if (key == null) {
+            return null;
+        }
+        Cached cached;
+        synchronized (recent) {
+            cached = recent.get(key);
+            // Past retention the table may have deleted the key; only the table decides then
+            if (cached != null && System.currentTimeMillis() - cached.claimedAtMillis >= RETENTION_MILLIS) {
+                recent.remove(key);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            checkSameRequest(cached.request, request);
+            return cached.transaction;
+        }
+
+        IdempotencyDAO.Entry entry = idempotencyDAO.find(conn, key);
+        if (entry == null) {
+            return null;
+        }
+        checkSameRequest(entry.getRequest(), request);
+        Transaction original = transactionDAO.findById(conn, entry.getTransactionId());
+        remember(key, request, original, entry.getCreatedAtMillis());
+        return original;
+    }
+
+    /** Claims the key inside the posting's transaction; see {@link IdempotencyDAO#insert}. */
+    public void claim(Connection conn, String key, String request, Transaction transaction) throws SQLException {
+        if (key != null) {
+            idempotencyDAO.insert(conn, key, request, transaction.getId());
+        }
+    }
+
+    /**
+     * After a failed posting: if it failed because another attempt with the same key
+     * committed first, returns that attempt's transaction. Otherwise returns null.
+     */
+    public Transaction resolveConflict(String key, String request, SQLException failure) throws SQLException {
+        return resolveConflict(DatabaseManager.getInstance().getConnection(), key, request, failure);
+    }
+
+    public Transaction resolveConflict(Connection conn, String key, String request, SQLException failure) throws SQLException {
+        if (key == null || !(failure instanceof SQLIntegrityConstraintViolationException)) {
+            return null;
+        }
+        return findOriginal(conn, key, request);
+    }
+
+    /** Caches a key just claimed by a committed posting. */
+    public void remember(String key, String request, Transaction transaction) {
+        remember(key, request, transaction, System.currentTimeMillis());
+    }
+
+    private void remember(String key, String request, Transaction transaction, long claimedAtMillis) {
+        if (key == null || transaction == null) {
+            return;
+        }
+        synchronized (recent) {
+            recent.put(key, new Cached(request, transaction, claimedAtMillis));
+        }
+    }
+
+    private static void checkSameRequest(String original, String request) {
+        if (!original.equals(request)) {
+            throw new IllegalArgumentException("Mã yêu cầu đã được dùng cho một giao dịch khác");
+        }
+    }
+
+    private void collectExpired() {
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+            int total = 0;
+            int deleted;
+            do {
+                // Small batches keep each delete short so postings are not held up
+                deleted = idempotencyDAO.deleteExpired(conn, RETENTION_HOURS, GC_BATCH);
+                total += deleted;
+            } while (deleted == GC_BATCH);
+            if (total > 0) {
+                System.out.println("Deleted " + total + " expired idempotency keys");
+            }
+        } catch (SQLException e) {
+            System.err.println("Idempotency key cleanup failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,514 @@
+package com.customer.service;
+
+import com.customer.dao.ChangeLog;
+import com.customer.dao.DatabaseManager;
+import com.customer.dao.JobDAO;
+import com.customer.util.CronExpression;
+import com.customer.util.HashedWheelTimer;
+import com.customer.util.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs periodic and end-of-day jobs on cron schedules, at most one instance
+ * at a time across every app instance sharing the database.
+ *
+ * Each job has a row in scheduled_jobs. When a job fires, every instance that
+ * is up tries to take the row's lease; the one that wins moves next_run_at on
+ * and runs the job, the others find nothing to do. The lease is renewed while
+ * the job runs. If its owner dies the lease runs out, and the next instance
+ * to sweep resumes the job from the checkpoint it last saved. Fires missed
+ * while no instance was up are run once by the first sweep after startup.
+ *
+ * Fire times sit on a hashed-wheel timer with one-second ticks; jobs run on
+ * a separate pool. The per-instance metrics cover runs on this instance; the
+ * job_runs table has the history of all of them.
+ *
+ * Runs inside the desktop app unless {@code -Dscheduler.enabled=false}, and
+ * headless through {@link com.customer.SchedulerMain}.
+ */
+public class JobScheduler {
+
+    private static final JobScheduler INSTANCE = new JobScheduler();
+
+    public static final String AUDIT_USER = "scheduler";
+
+    private static final int LEASE_SECONDS = Integer.getInteger("scheduler.leaseSeconds", 120);
+    private static final long SWEEP_SECONDS = Long.getLong("scheduler.sweepSeconds", 60);
+
+    /** One occurrence of a job. */
+    public interface Job {
+        /**
+         * Does the work and returns a one-line summary for the run history. Long jobs
+         * save progress with {@link Context#checkpoint} so a takeover can skip what is done.
+         */
+        String run(Context context) throws Exception;
+    }
+
+    public interface Context {
+        /** The fire time this run serves; a resumed run keeps the original one. */
+        LocalDateTime getDueAt();
+
+        /** Progress saved by the run this one resumes, or null for a fresh run. */
+        String getCheckpoint();
+
+        /**
+         * Saves progress (and renews the lease).
+         *
+         * @throws IllegalStateException if the lease was lost and another instance may be running the job
+         */
+        void checkpoint(String state) throws SQLException;
+    }
+
+    /** Counts and durations of the runs made by this instance. */
+    public static final class Metrics {
+        private final String name;
+        private final String schedule;
+        private final LatencyHistogram durations;
+        private long runs;
+        private long failures;
+        private long resumed;
+        private String lastStatus;
+        private long lastMillis;
+        private LocalDateTime lastFinishedAt;
+        private LocalDateTime nextFire;
+
+        Metrics(String name, String schedule) {
+            this(name, schedule, new LatencyHistogram());
+        }
+
+        private Metrics(String name, String schedule, LatencyHistogram durations) {
+            this.name = name;
+            this.schedule = schedule;
+            this.durations = durations;
+        }
+
+        private Metrics(Metrics other) {
+            this(other.name, other.schedule, other.durations);
+            this.runs = other.runs;
+            this.failures = other.failures;
+            this.resumed = other.resumed;
+            this.lastStatus = other.lastStatus;
+            this.lastMillis = other.lastMillis;
+            this.lastFinishedAt = other.lastFinishedAt;
+            this.nextFire = other.nextFire;
+        }
+
+        public String getName() { return name; }
+        public String getSchedule() { return schedule; }
+        public long getRuns() { return runs; }
+        public long getFailures() { return failures; }
+        public long getResumed() { return resumed; }
+        public String getLastStatus() { return lastStatus; }
+        public long getLastMillis() { return lastMillis; }
+        public LocalDateTime getLastFinishedAt() { return lastFinishedAt; }
+        /** When this instance will next try the job (the sweep may pick it up sooner). */
+        public LocalDateTime getNextFire() { return nextFire; }
+        /** Run durations in milliseconds; shared with the live metrics. */
+        public LatencyHistogram getDurations() { return durations; }
+    }
+
+    private static final class Registration {
+        final String name;
+        final CronExpression cron;
+        final Job job;
+        final Metrics metrics;
+        // A run or an attempt is under way on this instance
+        final AtomicBoolean busy = new AtomicBoolean();
+
+        Registration(String name, CronExpression cron, Job job) {
+            this.name = name;
+            this.cron = cron;
+            this.job = job;
+            this.metrics = new Metrics(name, cron.toString());
+        }
+    }
+
+    private final class RunContext implements Context {
+        private final Connection conn;
+        private final Registration registration;
+        private final JobDAO.Lease lease;
+        private volatile boolean leaseLost;
+
+        RunContext(Connection conn, Registration registration, JobDAO.Lease lease) {
+            this.conn = conn;
+            this.registration = registration;
+            this.lease = lease;
+        }
+
+        @Override
+        public LocalDateTime getDueAt() {
+            return lease.getDueAt();
+        }
+
+        @Override
+        public String getCheckpoint() {
+            return lease.getCheckpoint();
+        }
+
+        @Override
+        public synchronized void checkpoint(String state) throws SQLException {
+            if (leaseLost || !jobDAO.saveCheckpoint(conn, registration.name, instanceId, LEASE_SECONDS, state)) {
+                leaseLost = true;
+                throw new IllegalStateException("Lost the lease on job " + registration.name);
+            }
+        }
+
+        synchronized void renew() {
+            if (leaseLost) {
+                return;
+            }
+            try {
+                if (!jobDAO.renew(conn, registration.name, instanceId, LEASE_SECONDS)) {
+                    leaseLost = true;
+                    System.err.println("Job " + registration.name + " lost its lease; another instance may take over");
+                }
+            } catch (SQLException e) {
+                // Try again next time; the lease only lapses if renewals keep failing
+                System.err.println("Lease renewal failed for job " + registration.name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private final JobDAO jobDAO = new JobDAO();
+    private final Map<String, Registration> jobs = new LinkedHashMap<>();
+    private final String instanceId = ChangeLog.getInstance().getInstanceId();
+    private volatile HashedWheelTimer timer;
+    private volatile ExecutorService runner;
+    private boolean started;
+
+    private JobScheduler() {
+        registerBuiltInJobs();
+    }
+
+    public static JobScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /** Off with {@code -Dscheduler.enabled=false}, e.g. on workstations that should never run jobs. */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("scheduler.enabled", "true"));
+    }
+
+    /**
+     * Adds a job. {@code schedule} can be overridden with {@code -Djob.<name>.schedule}.
+     *
+     * @throws IllegalArgumentException if the schedule is not a valid cron expression or never fires
+     */
+    public synchronized void register(String name, String schedule, Job job) {
+        CronExpression cron = CronExpression.parse(System.getProperty("job." + name + ".schedule", schedule));
+        if (cron.next(LocalDateTime.now()) == null) {
+            throw new IllegalArgumentException("Schedule of job " + name + " never fires: " + cron);
+        }
+        Registration registration = new Registration(name, cron, job);
+        jobs.put(name, registration);
+        if (started) {
+            runner.execute(() -> {
+                ensureRow(registration);
+                scheduleNext(registration);
+            });
+        }
+    }
+
+    /** Writes the job rows and starts the timers; the first sweep runs anything overdue. */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        startThreads();
+        List<Registration> registrations = new ArrayList<>(jobs.values());
+        runner.execute(() -> {
+            for (Registration registration : registrations) {
+                ensureRow(registration);
+                scheduleNext(registration);
+            }
+            sweep();
+        });
+        System.out.println("Job scheduler started with " + registrations.size() + " jobs");
+    }
+
+    /** Stops firing jobs. Running jobs are not interrupted; their leases lapse if the process exits. */
+    public synchronized void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        timer.stop();
+        runner.shutdown();
+        timer = null;
+        runner = null;
+    }
+
+    private synchronized void startThreads() {
+        if (timer != null) {
+            return;
+        }
+        timer = new HashedWheelTimer("job-timer", 1, TimeUnit.SECONDS, 512);
+        runner = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "job-runner");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Makes {@code name} due now and tries to run it on the calling thread. Works
+     * without {@link #start}, for one-off runs.
+     *
+     * @return false if there is no such job, it is running, or another instance took it first
+     */
+    public boolean runNow(String name) throws SQLException {
+        Registration registration;
+        synchronized (this) {
+            registration = jobs.get(name);
+        }
+        if (registration == null) {
+            return false;
+        }
+        startThreads();
+        ensureRow(registration);
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+            if (!jobDAO.makeDue(conn, name)) {
+                return false;
+            }
+        }
+        return attempt(registration);
+    }
+
+    public synchronized List<String> getJobNames() {
+        return new ArrayList<>(jobs.keySet());
+    }
+
+    /** A copy of each job's metrics on this instance, in registration order. */
+    public synchronized List<Metrics> getMetrics() {
+        List<Metrics> metrics = new ArrayList<>();
+        for (Registration registration : jobs.values()) {
+            synchronized (registration.metrics) {
+                metrics.add(new Metrics(registration.metrics));
+            }
+        }
+        return metrics;
+    }
+
+    public List<JobDAO.JobState> getJobStates() throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+            return jobDAO.findAll(conn);
+        }
+    }
+
+    public List<JobDAO.JobRun> getHistory(String name, int limit) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+            return jobDAO.findRuns(conn, name, limit);
+        }
+    }
+
+    // --- Firing ---
+
+    private void ensureRow(Registration registration) {
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+            jobDAO.ensureJob(conn, registration.name, registration.cron.toString(), registration.cron.next(LocalDateTime.now()));
+        } catch (SQLException e) {
+            System.err.println("Could not register job " + registration.name + ": " + e.getMessage());
+        }
+    }
+
+    private synchronized void scheduleNext(Registration registration) {
+        if (!started) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = registration.cron.next(now);
+        synchronized (registration.metrics) {
+            registration.metrics.nextFire = next;
+        }
+        if (next == null) {
+            return;
+        }
+        long delayMillis = Duration.between(now, next).toMillis();
+        timer.schedule(() -> runner.execute(() -> {
+            attempt(registration);
+            scheduleNext(registration);
+        }), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void scheduleSweep() {
+        if (started) {
+            timer.schedule(() -> runner.execute(this::sweep), SWEEP_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    // Runs what is overdue or orphaned; catches fires this instance missed
+    private void sweep() {
+        try {
+            List<String> runnable;
+            try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+                runnable = jobDAO.findRunnable(conn);
+            }
+            for (String name : runnable) {
+                Registration registration;
+                synchronized (this) {
+                    registration = jobs.get(name);
+                }
+                // Rows of jobs this build no longer has are left alone
+                if (registration != null) {
+                    runner.execute(() -> attempt(registration));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Job sweep failed: " + e.getMessage());
+        } finally {
+            scheduleSweep();
+        }
+    }
+
+    /** True if this instance won the lease and ran the job (successfully or not). */
+    private boolean attempt(Registration registration) {
+        if (!registration.busy.compareAndSet(false, true)) {
+            return false;
+        }
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+            LocalDateTime next = registration.cron.next(LocalDateTime.now());
+            JobDAO.Lease lease = jobDAO.tryAcquire(conn, registration.name, instanceId, LEASE_SECONDS, next);
+            if (lease == null) {
+                return false;
+            }
+            execute(registration, conn, lease);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Job " + registration.name + " could not start: " + e.getMessage());
+            return false;
+        } finally {
+            registration.busy.set(false);
+        }
+    }
+
+    private void execute(Registration registration, Connection conn, JobDAO.Lease lease) throws SQLException {
+        RunContext context = new RunContext(conn, registration, lease);
+        HashedWheelTimer.Timeout[] renewal = new HashedWheelTimer.Timeout[1];
+        Runnable renew = new Runnable() {
+            @Override
+            public void run() {
+                runner.execute(() -> {
+                    context.renew();
+                    synchronized (renewal) {
+                        if (renewal[0] != null) {
+                            renewal[0] = timer.schedule(this, LEASE_SECONDS / 3, TimeUnit.SECONDS);
+                        }
+                    }
+                });
+            }
+        };
+        synchronized (renewal) {
+            renewal[0] = timer.schedule(renew, LEASE_SECONDS / 3, TimeUnit.SECONDS);
+        }
+
+        System.out.println("Job " + registration.name + (lease.isResumed() ? " resuming from " + lease.getCheckpoint() : " started")
+                + " (due " + lease.getDueAt() + ")");
+        long start = System.nanoTime();
+        String status;
+        String message;
+        try {
+            message = registration.job.run(context);
+            status = context.leaseLost ? JobDAO.ABANDONED : JobDAO.SUCCEEDED;
+        } catch (Exception e) {
+            status = context.leaseLost ? JobDAO.ABANDONED : JobDAO.FAILED;
+            message = e.getClass().getSimpleName() + ": " + e.getMessage();
+            System.err.println("Job " + registration.name + " failed: " + message);
+        } finally {
+            synchronized (renewal) {
+                renewal[0].cancel();
+                renewal[0] = null;
+            }
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        synchronized (registration.metrics) {
+            Metrics metrics = registration.metrics;
+            metrics.runs++;
+            if (!JobDAO.SUCCEEDED.equals(status)) {
+                metrics.failures++;
+            }
+            if (lease.isResumed()) {
+                metrics.resumed++;
+            }
+            metrics.lastStatus = status;
+            metrics.lastMillis = millis;
+            metrics.lastFinishedAt = LocalDateTime.now();
+            metrics.durations.record(millis);
+        }
+        synchronized (context) {
+            jobDAO.finish(conn, registration.name, instanceId, lease.getRunId(), status, millis, message);
+        }
+        System.out.printf("Job %s %s in %d ms%s%n", registration.name, status.toLowerCase(), millis,
+                message != null ? ": " + message : "");
+    }
+
+    // --- Built-in jobs ---
+
+    // A bad -Djob.<name>.schedule leaves that job out instead of failing the scheduler
+    private void registerBuiltIn(String name, String schedule, Job job) {
+        try {
+            register(name, schedule, job);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Job " + name + " not scheduled: " + e.getMessage());
+        }
+    }
+
+    private void registerBuiltInJobs() {
+        // Last month's statements for every active account, early on the 1st. The month is the
+        // checkpoint, so a takeover finishes the same month; the manifest skips what is rendered.
+        registerBuiltIn("statements.month-end", "0 2 1 * *", context -> {
+            YearMonth month = context.getCheckpoint() != null
+                    ? YearMonth.parse(context.getCheckpoint())
+                    : YearMonth.from(context.getDueAt()).minusMonths(1);
+            context.checkpoint(month.toString());
+            StatementBatchService.BatchResult result = new StatementBatchService().runScheduled(month);
+            String summary = month + ": " + result.getCompleted() + " sao kê, " + result.getFailed() + " lỗi, "
+                    + result.getSkipped() + " đã có";
+            if (result.getFailed() > 0) {
+                throw new IllegalStateException(summary);
+            }
+            return summary;
+        });
+
+        // Customer types from the day's changes, every night
+        registerBuiltIn("segmentation.incremental", "30 1 * * *", context -> {
+            SegmentationService.RunResult result = SegmentationService.getInstance().execute(SegmentationService.Mode.INCREMENTAL);
+            return result.getMode() + ": " + result.getScored() + " khách hàng, " + result.getChanged() + " thay đổi";
+        });
+
+        // Store the analytics sketches of closed days so reports only read them. Catches up
+        // on missed days (up to a month), one day per checkpoint.
+        registerBuiltIn("sketches.daily", "15 0 * * *", context -> {
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            LocalDate day = context.getCheckpoint() != null
+                    ? LocalDate.parse(context.getCheckpoint()).plusDays(1)
+                    : context.getDueAt().toLocalDate().minusDays(1);
+            if (day.isBefore(yesterday.minusDays(30))) {
+                day = yesterday.minusDays(30);
+            }
+            SketchService sketches = new SketchService();
+            int built = 0;
+            for (; !day.isAfter(yesterday); day = day.plusDays(1)) {
+                sketches.getDays(day, day);
+                context.checkpoint(day.toString());
+                built++;
+            }
+            return built + " ngày";
+        });
+    }
+}
@@ -2,10 +2,14 @@ package com.customer.service;
 
 import com.customer.dao.AccountDAO;
 import com.customer.dao.LoanDAO;
+import com.customer.event.EventBus;
+import com.customer.event.LoanStatusChanged;
 import com.customer.model.AccountStatus;
 import com.customer.model.AccountType;
+import com.customer.model.AuditAction;
 import com.customer.model.Loan;
 import com.customer.model.LoanStatus;
+import com.customer.model.Money;
 import com.customer.model.Role;
 import com.customer.util.SessionManager;
 
@@ -18,8 +22,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class LoanService {
-    public static final BigDecimal MIN_LOAN_AMOUNT = new BigDecimal("10000000");  // 10M
-    public static final BigDecimal MAX_LOAN_AMOUNT = new BigDecimal("1000000000"); // 1B
+    public static final Money MIN_LOAN_AMOUNT = Money.of(10_000_000);  // 10M
+    public static final Money MAX_LOAN_AMOUNT = Money.of(1_000_000_000); // 1B
     public static final int MIN_TERM_MONTHS = 6;
     public static final int MAX_TERM_MONTHS = 60;
     public static final BigDecimal INTEREST_RATE = new BigDecimal("12.00");  // 12% per year
@@ -32,9 +36,9 @@ public class LoanService {
         this.accountDAO = new AccountDAO();
     }
 
-    public Loan applyLoan(long customerId, BigDecimal amount, int termMonths, String purpose, long createdBy) throws SQLException, ValidationException {
+    public Loan applyLoan(long customerId, Money amount, int termMonths, String purpose, long createdBy) throws SQLException, ValidationException {
         // Validation
-        if (amount.compareTo(MIN_LOAN_AMOUNT) < 0 || amount.compareTo(MAX_LOAN_AMOUNT) > 0) {
+        if (amount.isLessThan(MIN_LOAN_AMOUNT) || amount.isGreaterThan(MAX_LOAN_AMOUNT)) {
             throw new ValidationException("Số tiền vay phải từ 10,000,000 đến 1,000,000,000 VND");
         }
         if (termMonths < MIN_TERM_MONTHS || termMonths > MAX_TERM_MONTHS) {
@@ -45,7 +49,7 @@ public class LoanService {
         loan.setInterestRate(INTEREST_RATE);
 
         // Calculate payment
-        BigDecimal monthlyPayment = calculateMonthlyPayment(amount, INTEREST_RATE, termMonths);
+        Money monthlyPayment = calculateMonthlyPayment(amount, INTEREST_RATE, termMonths);
         loan.setMonthlyPayment(monthlyPayment);
 
         // Generate loan number
@@ -55,7 +59,7 @@ public class LoanService {
         // Initial values
         loan.setStatus(LoanStatus.PENDING);
         loan.setRemainingBalance(amount);
-        loan.setTotalPaid(BigDecimal.ZERO);
+        loan.setTotalPaid(Money.ZERO);
         loan.setCreatedDate(LocalDateTime.now());
         loan.setAppliedDate(LocalDateTime.now());
 
@@ -63,20 +67,20 @@ public class LoanService {
         return loan;
     }
 
-    public BigDecimal calculateMonthlyPayment(BigDecimal principal, BigDecimal annualRate, int months) {
-        if (months <= 0) return BigDecimal.ZERO;
+    public Money calculateMonthlyPayment(Money principal, BigDecimal annualRate, int months) {
+        if (months <= 0) return Money.ZERO;
         if (annualRate.compareTo(BigDecimal.ZERO) == 0) {
-            return principal.divide(new BigDecimal(months), 2, RoundingMode.HALF_UP);
+            return principal.dividedBy(months, RoundingMode.HALF_UP);
         }
 
         BigDecimal monthlyRate = annualRate.divide(new BigDecimal("1200"), 10, RoundingMode.HALF_UP);
 
         // PMT = P * [r(1+r)^n] / [(1+r)^n - 1]
         BigDecimal onePlusRatePowerN = monthlyRate.add(BigDecimal.ONE).pow(months);
-        BigDecimal numerator = principal.multiply(monthlyRate).multiply(onePlusRatePowerN);
+        BigDecimal numerator = principal.toBigDecimal().multiply(monthlyRate).multiply(onePlusRatePowerN);
         BigDecimal denominator = onePlusRatePowerN.subtract(BigDecimal.ONE);
 
-        return numerator.divide(denominator, 2, RoundingMode.HALF_UP);
+        return Money.of(numerator.divide(denominator, 2, RoundingMode.HALF_UP));
     }
 
     public void approveLoan(long loanId, long approvedBy, String note) throws SQLException, ValidationException {
@@ -92,12 +96,15 @@ public class LoanService {
             throw new ValidationException("Chỉ có thể duyệt khoản vay đang ở trạng thái Chờ duyệt");
         }
 
+        LoanStatus oldStatus = loan.getStatus();
         loan.setStatus(LoanStatus.APPROVED);
         loan.setApprovedBy(approvedBy);
         loan.setApprovedDate(LocalDateTime.now());
         loan.setApprovalNote(note);
 
         loanDAO.update(loan);
+        EventBus.getInstance().publish(new LoanStatusChanged(loan.getId(), loan.getCustomerId(), oldStatus, loan.getStatus()));
+        AuditTrail.getInstance().record(AuditAction.LOAN_APPROVED, "LOAN", loan.getId(), note);
     }
 
     public void rejectLoan(long loanId, long approvedBy, String reason) throws SQLException, ValidationException {
@@ -113,18 +120,25 @@ public class LoanService {
             throw new ValidationException("Chỉ có thể từ chối khoản vay đang ở trạng thái Chờ duyệt");
         }
 
+        LoanStatus oldStatus = loan.getStatus();
         loan.setStatus(LoanStatus.REJECTED);
         loan.setApprovedBy(approvedBy);
         loan.setApprovedDate(LocalDateTime.now());
         loan.setApprovalNote(reason);
 
         loanDAO.update(loan);
+        EventBus.getInstance().publish(new LoanStatusChanged(loan.getId(), loan.getCustomerId(), oldStatus, loan.getStatus()));
+        AuditTrail.getInstance().record(AuditAction.LOAN_REJECTED, "LOAN", loan.getId(), reason);
     }
 
     public List<Loan> searchLoans(String keyword, LoanStatus status, LocalDate from, LocalDate to) throws SQLException {
         return loanDAO.search(keyword, status, from, to);
     }
 
+    public Loan getLoanById(long id) throws SQLException {
+        return loanDAO.findById(id);
+    }
+
     public boolean canApproveLoan() {
         return SessionManager.hasRole(Role.MANAGER, Role.ADMIN);
     }
@@ -148,25 +162,24 @@ public class LoanService {
         BigDecimal monthlyRate = loan.getInterestRate()
             .divide(new BigDecimal("1200"), 10, RoundingMode.HALF_UP);
 
-        BigDecimal remainingBalance = loan.getPrincipalAmount();
+        Money remainingBalance = loan.getPrincipalAmount();
         LocalDate currentDate = loan.getStartDate() != null
             ? loan.getStartDate()
             : LocalDate.now();
 
         for (int i = 1; i <= loan.getTermMonths(); i++) {
-            BigDecimal interestPayment = remainingBalance.multiply(monthlyRate)
-                .setScale(2, RoundingMode.HALF_UP);
-            BigDecimal principalPayment = loan.getMonthlyPayment().subtract(interestPayment);
+            Money interestPayment = remainingBalance.times(monthlyRate, RoundingMode.HALF_UP);
+            Money principalPayment = loan.getMonthlyPayment().minus(interestPayment);
 
             // Adjust last payment
             if (i == loan.getTermMonths()) {
                 principalPayment = remainingBalance;
                 // Total might differ slightly due to rounding
-            } else if (principalPayment.compareTo(remainingBalance) > 0) {
+            } else if (principalPayment.isGreaterThan(remainingBalance)) {
                 principalPayment = remainingBalance;
             }
 
-            remainingBalance = remainingBalance.subtract(principalPayment);
+            remainingBalance = remainingBalance.minus(principalPayment);
             LocalDate dueDate = currentDate.plusMonths(i);
 
             schedule.add(new AmortizationEntry(
@@ -174,11 +187,11 @@ public class LoanService {
                 dueDate,
                 principalPayment,
                 interestPayment,
-                principalPayment.add(interestPayment),
-                remainingBalance.max(BigDecimal.ZERO)
+                principalPayment.plus(interestPayment),
+                remainingBalance.max(Money.ZERO)
             ));
 
-            if (remainingBalance.compareTo(BigDecimal.ZERO) <= 0) break;
+            if (remainingBalance.signum() <= 0) break;
         }
 
         return schedule;
@@ -193,13 +206,13 @@ public class LoanService {
     public static class AmortizationEntry {
         private final int paymentNumber;
         private final LocalDate dueDate;
-        private final BigDecimal principalPortion;
-        private final BigDecimal interestPortion;
-        private final BigDecimal totalPayment;
-        private final BigDecimal remainingBalance;
+        private final Money principalPortion;
+        private final Money interestPortion;
+        private final Money totalPayment;
+        private final Money remainingBalance;
 
-        public AmortizationEntry(int paymentNumber, LocalDate dueDate, BigDecimal principalPortion,
-                               BigDecimal interestPortion, BigDecimal totalPayment, BigDecimal remainingBalance) {
+        public AmortizationEntry(int paymentNumber, LocalDate dueDate, Money principalPortion,
+                               Money interestPortion, Money totalPayment, Money remainingBalance) {
             this.paymentNumber = paymentNumber;
             this.dueDate = dueDate;
             this.principalPortion = principalPortion;
@@ -210,9 +223,9 @@ public class LoanService {
 
         public int getPaymentNumber() { return paymentNumber; }
         public LocalDate getDueDate() { return dueDate; }
-        public BigDecimal getPrincipalPortion() { return principalPortion; }
-        public BigDecimal getInterestPortion() { return interestPortion; }
-        public BigDecimal getTotalPayment() { return totalPayment; }
-        public BigDecimal getRemainingBalance() { return remainingBalance; }
+        public Money getPrincipalPortion() { return principalPortion; }
+        public Money getInterestPortion() { return interestPortion; }
+        public Money getTotalPayment() { return totalPayment; }
+        public Money getRemainingBalance() { return remainingBalance; }
     }
 }
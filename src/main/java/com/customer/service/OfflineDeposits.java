@@ -0,0 +1,470 @@
+package com.customer.service;
+
+import com.customer.dao.DatabaseManager;
+import com.customer.model.Money;
+import com.customer.model.Transaction;
+import com.customer.model.TransactionType;
+import com.customer.util.SegmentedLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store-and-forward for deposits while the database is unreachable.
+ *
+ * When a deposit cannot reach the database, {@link TransactionService} hands it
+ * here instead. It is checked against the offline risk limits, appended to a
+ * local {@link SegmentedLog} and acknowledged once flushed to disk, with a
+ * provisional reference number. Concurrent deposits share one flush (group
+ * commit): whichever caller finds no flush running flushes everything appended
+ * so far, and the others wait for it.
+ *
+ * A background job probes the database and, once it answers, replays the
+ * journal in order through the normal posting path under each deposit's
+ * idempotency key and provisional reference number, so a deposit that did
+ * reach the database before the outage was noticed is not posted twice.
+ * Replay posts on its own connection, never the UI's shared one, and only
+ * goes as far as the journal has been flushed: a deposit is never posted and
+ * checkpointed before its record is safe against a power loss. A
+ * deposit the database refuses (e.g. the account was closed meanwhile, or a
+ * statement fails for a reason retrying will not cure) is written to
+ * rejected.log for manual follow-up. New deposits keep going to
+ * the journal until it is drained, so they post in the order they were taken.
+ */
+public class OfflineDeposits {
+
+    private static final OfflineDeposits INSTANCE = new OfflineDeposits();
+
+    private static final int SEGMENT_BYTES = 4 * 1024 * 1024;
+    private static final long REPLAY_INTERVAL_MS = 5_000;
+    private static final int REPLAY_BATCH = 100;
+    private static final String CHECKPOINT = "replayed";
+
+    // Overridable with -Doffline.maxAmount=..., -Doffline.maxPerAccount=..., and so on
+    private static final Money MAX_AMOUNT = limit("offline.maxAmount", "50000000");
+    private static final Money MAX_PER_ACCOUNT = limit("offline.maxPerAccount", "100000000");
+    private static final Money MAX_TOTAL = limit("offline.maxTotal", "1000000000");
+    private static final int MAX_COUNT = Integer.getInteger("offline.maxCount", 10_000);
+
+    private final Path dir = Paths.get(System.getProperty("offline.dir",
+            System.getProperty("user.home") + "/.customer-app/offline-deposits"));
+
+    private volatile SegmentedLog journal;
+    private FileLock dirLock;
+    private ScheduledExecutorService replayer;
+
+    // Queued (not yet replayed) deposits; guarded by `this`
+    private boolean offline;
+    private long replayed;
+    private final Map<Long, Money> queuedByAccount = new HashMap<>();
+    private final Map<String, Transaction> queuedByKey = new HashMap<>();
+    private Money queuedTotal = Money.ZERO;
+    private int queuedCount;
+
+    // Group commit
+    private final Object flushLock = new Object();
+    private long durable;
+    private boolean flushing;
+
+    private OfflineDeposits() {
+    }
+
+    public static OfflineDeposits getInstance() {
+        return INSTANCE;
+    }
+
+    private static Money limit(String property, String defaultValue) {
+        return Money.parse(System.getProperty(property, defaultValue));
+    }
+
+    private static final class Entry {
+        final long accountId;
+        final Money amount;
+        final String description;
+        final long userId;
+        final String idempotencyKey;
+        final String referenceNumber;
+        final LocalDateTime acceptedAt;
+
+        Entry(long accountId, Money amount, String description, long userId,
+              String idempotencyKey, String referenceNumber, LocalDateTime acceptedAt) {
+            this.accountId = accountId;
+            this.amount = amount;
+            this.description = description;
+            this.userId = userId;
+            this.idempotencyKey = idempotencyKey;
+            this.referenceNumber = referenceNumber;
+            this.acceptedAt = acceptedAt;
+        }
+    }
+
+    /** Opens the journal, reloads what is still queued from the last run and starts replaying it. */
+    public synchronized void start() {
+        if (replayer != null) {
+            return;
+        }
+        try {
+            Files.createDirectories(dir);
+            FileChannel lockChannel = FileChannel.open(dir.resolve("instance.lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            dirLock = lockChannel.tryLock();
+            if (dirLock == null) {
+                lockChannel.close();
+                System.err.println("Offline journal " + dir + " is in use by another instance; offline deposits disabled");
+                return;
+            }
+            SegmentedLog log = new SegmentedLog(dir, SEGMENT_BYTES);
+            // The log numbers new records above this checkpoint, so none can be skipped by replay
+            replayed = log.readCheckpoint(CHECKPOINT);
+            durable = log.getDurableSequence();
+            log.read(replayed + 1, Integer.MAX_VALUE, (sequence, payload) -> track(decode(payload), sequence));
+            offline = queuedCount > 0;
+            journal = log;
+            if (queuedCount > 0) {
+                System.out.println("Offline journal has " + queuedCount + " deposits to replay");
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot open offline journal, offline deposits disabled: " + e.getMessage());
+            return;
+        }
+
+        replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "offline-replay");
+            t.setDaemon(true);
+            return t;
+        });
+        replayer.scheduleWithFixedDelay(this::replay, REPLAY_INTERVAL_MS, REPLAY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Not synchronized: the replay job needs the monitor to finish its round
+    public void stop() {
+        if (replayer == null) {
+            return;
+        }
+        replayer.shutdown();
+        try {
+            replayer.awaitTermination(5, TimeUnit.SECONDS);
+            journal.close();
+            dirLock.channel().close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Failed to close offline journal: " + e.getMessage());
+        }
+        replayer = null;
+    }
+
+    /** True while deposits should go to the journal: the database is down, or the journal is not drained yet. */
+    public synchronized boolean isQueueing() {
+        return journal != null && offline;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queuedCount;
+    }
+
+    /** Whether {@code e} means the database could not be reached, as opposed to a refused statement. */
+    public static boolean isConnectionFailure(Throwable e) {
+        if (e instanceof SQLRecoverableException || e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException) {
+            return true;
+        }
+        if (e instanceof SQLException) {
+            String state = ((SQLException) e).getSQLState();
+            return state != null && state.startsWith("08");
+        }
+        return false;
+    }
+
+    /** Whether {@code transaction} was taken offline and has no ledger row yet. */
+    public static boolean isProvisional(Transaction transaction) {
+        return transaction.getId() == 0 && transaction.getReferenceNumber() != null
+                && transaction.getReferenceNumber().startsWith("OFF");
+    }
+
+    /**
+     * Takes a deposit into the journal and returns a provisional transaction once it is
+     * on disk. Throws IllegalArgumentException when it breaks an offline limit and
+     * SQLException when offline mode is not available, as if the database had been called.
+     */
+    Transaction accept(long accountId, Money amount, String description, long userId,
+                       String idempotencyKey, SQLException cause) throws SQLException {
+        SegmentedLog log = journal;
+        if (log == null) {
+            throw cause != null ? cause : new SQLException("Không kết nối được cơ sở dữ liệu");
+        }
+
+        long sequence;
+        Transaction provisional;
+        synchronized (this) {
+            offline = true;
+            if (idempotencyKey != null && queuedByKey.containsKey(idempotencyKey)) {
+                return queuedByKey.get(idempotencyKey);
+            }
+            checkLimits(accountId, amount);
+
+            // Replay needs a key either way, so a crash between posting and checkpointing cannot post twice
+            String referenceNumber = newReferenceNumber();
+            Entry entry = new Entry(accountId, amount, description, userId,
+                    idempotencyKey != null ? idempotencyKey : "offline:" + referenceNumber,
+                    referenceNumber, LocalDateTime.now());
+            try {
+                sequence = log.append(encode(entry));
+            } catch (IOException e) {
+                throw new SQLException("Không ghi được nhật ký ngoại tuyến: " + e.getMessage(), e);
+            }
+            provisional = track(entry, sequence);
+        }
+
+        try {
+            awaitDurable(log, sequence);
+        } catch (RuntimeException e) {
+            // Still queued: it is in the journal and will be replayed if the flush did reach the disk
+            throw new SQLException("Không ghi được nhật ký ngoại tuyến: " + e.getMessage(), e);
+        }
+        return provisional;
+    }
+
+    private void checkLimits(long accountId, Money amount) {
+        if (amount.isGreaterThan(MAX_AMOUNT)) {
+            throw new IllegalArgumentException(String.format(
+                    "Mất kết nối cơ sở dữ liệu: chỉ nhận nạp tối đa %s VND mỗi giao dịch", MAX_AMOUNT.format()));
+        }
+        if (queuedCount >= MAX_COUNT) {
+            throw new IllegalArgumentException("Mất kết nối cơ sở dữ liệu: đã đạt số giao dịch chờ tối đa");
+        }
+        if (queuedByAccount.getOrDefault(accountId, Money.ZERO).plus(amount).isGreaterThan(MAX_PER_ACCOUNT)) {
+            throw new IllegalArgumentException(String.format(
+                    "Mất kết nối cơ sở dữ liệu: tài khoản đã đạt hạn mức nạp chờ %s VND", MAX_PER_ACCOUNT.format()));
+        }
+        if (queuedTotal.plus(amount).isGreaterThan(MAX_TOTAL)) {
+            throw new IllegalArgumentException("Mất kết nối cơ sở dữ liệu: đã đạt tổng hạn mức nạp chờ");
+        }
+    }
+
+    // Counts a queued entry towards the limits; caller holds `this` (or is still starting up)
+    private Transaction track(Entry entry, long sequence) {
+        queuedByAccount.merge(entry.accountId, entry.amount, Money::plus);
+        queuedTotal = queuedTotal.plus(entry.amount);
+        queuedCount++;
+        Transaction provisional = new Transaction(entry.accountId, TransactionType.DEPOSIT, entry.amount,
+                entry.description, entry.userId);
+        provisional.setReferenceNumber(entry.referenceNumber);
+        provisional.setCreatedDate(entry.acceptedAt);
+        if (entry.idempotencyKey != null) {
+            queuedByKey.put(entry.idempotencyKey, provisional);
+        }
+        return provisional;
+    }
+
+    private synchronized void untrack(Entry entry, long sequence) {
+        queuedByAccount.computeIfPresent(entry.accountId, (id, total) -> {
+            Money rest = total.minus(entry.amount);
+            return rest.signum() > 0 ? rest : null;
+        });
+        queuedTotal = queuedTotal.minus(entry.amount);
+        queuedCount--;
+        if (entry.idempotencyKey != null) {
+            queuedByKey.remove(entry.idempotencyKey);
+        }
+        replayed = sequence;
+    }
+
+    private static String newReferenceNumber() {
+        String timestamp = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS").format(LocalDateTime.now());
+        return "OFF" + timestamp + (new Random().nextInt(900) + 100);
+    }
+
+    // Returns once `sequence` is on disk; the first waiter without a flush in progress does the flush for everyone
+    private void awaitDurable(SegmentedLog log, long sequence) {
+        while (true) {
+            synchronized (flushLock) {
+                while (durable < sequence && flushing) {
+                    try {
+                        flushLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted waiting for the offline journal", e);
+                    }
+                }
+                if (durable >= sequence) {
+                    return;
+                }
+                flushing = true;
+            }
+            long flushed = 0;
+            try {
+                flushed = log.force();
+            } finally {
+                synchronized (flushLock) {
+                    flushing = false;
+                    durable = Math.max(durable, flushed);
+                    flushLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    // --- Replay ---
+
+    private void replay() {
+        long from;
+        synchronized (this) {
+            if (queuedCount == 0 && !offline) {
+                return;
+            }
+            from = replayed + 1;
+        }
+
+        // Its own connection: the UI's transactions on the shared one must not interleave with replay's
+        Connection conn = openIfReachable();
+        if (conn == null) {
+            return;
+        }
+        TransactionService transactionService = new TransactionService();
+        try (conn) {
+            // Covers a record whose depositor's own flush failed; reads stop at what is flushed
+            journal.force();
+            int posted = 0;
+            while (true) {
+                List<Long> sequences = new ArrayList<>();
+                List<Entry> entries = new ArrayList<>();
+                journal.read(from, REPLAY_BATCH, (sequence, payload) -> {
+                    sequences.add(sequence);
+                    entries.add(decode(payload));
+                });
+                for (int i = 0; i < entries.size(); i++) {
+                    Entry entry = entries.get(i);
+                    long sequence = sequences.get(i);
+                    try {
+                        transactionService.postDeposit(conn, entry.accountId, entry.amount, entry.description,
+                                entry.userId, entry.idempotencyKey, entry.referenceNumber);
+                        posted++;
+                    } catch (IllegalArgumentException e) {
+                        reject(entry, e.getMessage());
+                    } catch (SQLException e) {
+                        // Lost connection, deadlock or lock timeout: retried next round. Anything
+                        // else would fail the same way forever and hold every later deposit offline
+                        if (isConnectionFailure(e) || e instanceof SQLTransientException) {
+                            throw e;
+                        }
+                        reject(entry, e.getMessage());
+                    }
+                    journal.writeCheckpoint(CHECKPOINT, sequence);
+                    untrack(entry, sequence);
+                    from = sequence + 1;
+                }
+                if (entries.isEmpty()) {
+                    synchronized (this) {
+                        if (from >= journal.getNextSequence()) {
+                            // Drained; deposits go straight to the database again
+                            offline = false;
+                            break;
+                        }
+                    }
+                    if (from <= journal.getDurableSequence()) {
+                        // Flushed but unreadable; stays queued rather than skipped
+                        System.err.println("Offline journal record " + from + " cannot be read; replay stopped until it is repaired");
+                    }
+                    // Otherwise the rest came in after this round's flush; it is picked up next round
+                    break;
+                }
+            }
+            journal.deleteBefore(from);
+            if (posted > 0) {
+                System.out.println("Replayed " + posted + " offline deposits");
+            }
+        } catch (SQLException e) {
+            // Stopped at the failed entry; picked up from there next round
+            System.err.println("Offline replay paused: " + e.getMessage());
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Offline journal read failed: " + e.getMessage());
+        }
+    }
+
+    private Connection openIfReachable() {
+        try {
+            Connection conn = DatabaseManager.getInstance().openDedicatedConnection();
+            if (conn.isValid(2)) {
+                return conn;
+            }
+            conn.close();
+        } catch (SQLException e) {
+            // Still down; tried again next round
+        }
+        return null;
+    }
+
+    private void reject(Entry entry, String reason) {
+        String line = String.format("%s\t%s\taccount=%d\tamount=%s\tuser=%d\t%s%n", LocalDateTime.now(),
+                entry.referenceNumber, entry.accountId, entry.amount, entry.userId, reason);
+        System.err.print("Offline deposit rejected: " + line);
+        try {
+            Files.write(dir.resolve("rejected.log"), line.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Failed to write rejected.log: " + e.getMessage());
+        }
+    }
+
+    // --- Encoding ---
+
+    private static byte[] encode(Entry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(entry.accountId);
+            out.writeUTF(entry.amount.toString());
+            out.writeUTF(entry.description != null ? entry.description : "");
+            out.writeLong(entry.userId);
+            out.writeUTF(entry.idempotencyKey != null ? entry.idempotencyKey : "");
+            out.writeUTF(entry.referenceNumber);
+            out.writeUTF(entry.acceptedAt.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Entry decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long accountId = in.readLong();
+            Money amount = Money.parse(in.readUTF());
+            String description = in.readUTF();
+            long userId = in.readLong();
+            String key = in.readUTF();
+            String referenceNumber = in.readUTF();
+            LocalDateTime acceptedAt = LocalDateTime.parse(in.readUTF());
+            return new Entry(accountId, amount, description.isEmpty() ? null : description, userId,
+                    key.isEmpty() ? null : key, referenceNumber, acceptedAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
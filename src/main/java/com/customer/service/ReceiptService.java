@@ -82,8 +82,8 @@ public class ReceiptService {
             }
 
             addTableRow(table, "----------------", "--------------------------------", normalFont, normalFont);
-            addTableRow(table, "Số tiền:", String.format("%,.0f VND", transaction.getAmount()), headerFont, normalFont);
-            addTableRow(table, "Số dư sau GD:", String.format("%,.0f VND", transaction.getBalanceAfter()), headerFont, normalFont);
+            addTableRow(table, "Số tiền:", transaction.getAmount().format() + " VND", headerFont, normalFont);
+            addTableRow(table, "Số dư sau GD:", transaction.getBalanceAfter().format() + " VND", headerFont, normalFont);
             addTableRow(table, "Nội dung:", transaction.getDescription(), headerFont, normalFont);
 
             addTableRow(table, "----------------", "--------------------------------", normalFont, normalFont);
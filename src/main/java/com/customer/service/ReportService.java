@@ -2,27 +2,42 @@ package com.customer.service;
 
 import com.customer.dao.ReportDAO;
 import com.customer.model.Account;
+import com.customer.model.Loan;
 import com.customer.model.LoanStatus;
+import com.customer.model.Money;
 import com.customer.model.Role;
+import com.customer.model.Transaction;
 import com.customer.model.TransactionType;
 import com.customer.model.dto.AccountStatementData;
+import com.customer.model.dto.AmountPercentiles;
+import com.customer.model.dto.AnalyticsReportData;
 import com.customer.model.dto.DashboardStats;
+import com.customer.model.dto.GroupTotals;
 import com.customer.model.dto.LoanReportData;
 import com.customer.model.dto.TransactionReportData;
 import com.customer.util.SessionManager;
+import com.customer.util.SpaceSaving;
 
-import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.SQLException;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ReportService {
 
+    // Detail rows fetched per scroll step in the report tables
+    public static final int DETAIL_PAGE_SIZE = 200;
+
     private final ReportDAO reportDAO;
+    private final SketchService sketchService;
 
     public ReportService() {
         this.reportDAO = new ReportDAO();
+        this.sketchService = new SketchService();
     }
 
     public DashboardStats getDashboardStats() throws SQLException {
@@ -32,7 +47,11 @@ public class ReportService {
         stats.setTotalCustomers(reportDAO.getTotalCustomers());
         stats.setTotalBalance(reportDAO.getTotalBalance());
         stats.setTotalLoans(reportDAO.getTotalLoans());
-        stats.setTodayTransactions(reportDAO.getTodayTransactionCount());
+        TransactionCube cube = TransactionCube.getInstance();
+        boolean fromCube = cube.isReady();
+        stats.setTodayTransactions(fromCube
+                ? cube.totals(LocalDate.now(), LocalDate.now(), null, null).getTotalCount()
+                : reportDAO.getTodayTransactionCount());
 
         // Load previous month comparisons
         LocalDate now = LocalDate.now();
@@ -54,16 +73,60 @@ public class ReportService {
         stats.setLoanStatusDistribution(reportDAO.getLoanStatusDistribution());
 
         // Load trends (6 months)
-        stats.setTransactionTrend(reportDAO.getTransactionsByMonth(6));
-        stats.setBalanceTrend(reportDAO.getBalanceTrendByMonth(6));
+        if (fromCube) {
+            TransactionCube.MonthlyTrend trend = cube.monthlyTrend(6);
+            stats.setTransactionTrend(trend.getCounts());
+            stats.setBalanceTrend(trend.getNetFlow());
+        } else {
+            stats.setTransactionTrend(reportDAO.getTransactionsByMonth(6));
+            stats.setBalanceTrend(reportDAO.getBalanceTrendByMonth(6));
+        }
 
         // Load top lists
         stats.setTopAccounts(reportDAO.getTopAccountsByBalance(5));
-        stats.setTopActiveAccounts(reportDAO.getTopActiveAccounts(5));
+        ActivityTracker tracker = ActivityTracker.getInstance();
+        stats.setTopActiveAccounts(tracker.isReady()
+                ? getTopActiveAccounts(ActivityTracker.Window.LAST_30_DAYS, 5)
+                : reportDAO.getTopActiveAccounts(5));
 
         return stats;
     }
 
+    /** Accounts with the most postings in the window, most active first. */
+    public List<Account> getTopActiveAccounts(ActivityTracker.Window window, int k) throws SQLException {
+        return accountsInOrder(ActivityTracker.getInstance().topByCount(window, k));
+    }
+
+    /** Accounts with the largest posted volume in the window, largest first. */
+    public List<Account> getTopAccountsByVolume(ActivityTracker.Window window, int k) throws SQLException {
+        return accountsInOrder(ActivityTracker.getInstance().topByVolume(window, k));
+    }
+
+    private List<Account> accountsInOrder(List<SpaceSaving.Entry> ranked) throws SQLException {
+        List<Long> ids = new ArrayList<>(ranked.size());
+        for (SpaceSaving.Entry entry : ranked) {
+            ids.add(entry.getKey());
+        }
+        Map<Long, Account> byId = new HashMap<>();
+        for (Account account : reportDAO.getAccountsByIds(ids)) {
+            byId.put(account.getId(), account);
+        }
+        List<Account> accounts = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Account account = byId.get(id);
+            if (account != null) {
+                accounts.add(account);
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Summary totals come from the {@link TransactionCube} once it is loaded, else from
+     * one GROUP BY ... WITH ROLLUP query; only the first page
+     * of detail rows is fetched here. Further pages are loaded with
+     * {@link #loadNextTransactionPage} as the table is scrolled.
+     */
     public TransactionReportData getTransactionReport(LocalDate from, LocalDate to, TransactionType type, Long accountId) throws SQLException {
         TransactionReportData data = new TransactionReportData();
         data.setFromDate(from);
@@ -71,160 +134,142 @@ public class ReportService {
         data.setFilterType(type);
         data.setAccountNumber(accountId);
 
-        data.setTransactions(reportDAO.getTransactionsByFilter(from, to, type, accountId));
-
-        // Calculate summaries
-        int count = 0;
-        BigDecimal totalAmt = BigDecimal.ZERO;
-        BigDecimal depTotal = BigDecimal.ZERO;
-        BigDecimal withTotal = BigDecimal.ZERO;
-        BigDecimal transTotal = BigDecimal.ZERO;
-
-        for (var txn : data.getTransactions()) {
-            count++;
-            totalAmt = totalAmt.add(txn.getAmount());
-
-            switch (txn.getTransactionType()) {
-                case DEPOSIT:
-                    depTotal = depTotal.add(txn.getAmount());
-                    break;
-                case WITHDRAW:
-                    withTotal = withTotal.add(txn.getAmount());
-                    break;
-                case TRANSFER:
-                    transTotal = transTotal.add(txn.getAmount());
-                    break;
-                case LOAN_DISBURSEMENT: // Treated like deposit for the account
-                    depTotal = depTotal.add(txn.getAmount());
-                    break;
-                case LOAN_PAYMENT: // Treated like withdrawal
-                    withTotal = withTotal.add(txn.getAmount());
-                    break;
-            }
-        }
+        TransactionCube cube = TransactionCube.getInstance();
+        GroupTotals<TransactionType> totals = cube.isReady()
+                ? cube.totals(from, to, type, accountId)
+                : reportDAO.getTransactionTotals(from, to, type, accountId);
+        data.setTotalCount(totals.getTotalCount());
+        data.setTotalAmount(totals.getTotalAmount());
+        // Loan disbursements count as deposits and loan payments as withdrawals for the account
+        data.setDepositTotal(totals.getAmount(TransactionType.DEPOSIT).plus(totals.getAmount(TransactionType.LOAN_DISBURSEMENT)));
+        data.setWithdrawTotal(totals.getAmount(TransactionType.WITHDRAW).plus(totals.getAmount(TransactionType.LOAN_PAYMENT)));
+        data.setTransferTotal(totals.getAmount(TransactionType.TRANSFER));
+
+        loadNextTransactionPage(data);
+        return data;
+    }
 
-        data.setTotalCount(count);
-        data.setTotalAmount(totalAmt);
-        data.setDepositTotal(depTotal);
-        data.setWithdrawTotal(withTotal);
-        data.setTransferTotal(transTotal);
+    /** Appends the next page of detail rows to {@code data} and returns it (empty when all are loaded). */
+    public List<Transaction> loadNextTransactionPage(TransactionReportData data) throws SQLException {
+        if (data.isFullyLoaded()) {
+            return Collections.emptyList();
+        }
+        List<Transaction> loaded = data.getTransactions();
+        Transaction after = loaded.isEmpty() ? null : loaded.get(loaded.size() - 1);
+        List<Transaction> page = reportDAO.getTransactionsPage(data.getFromDate(), data.getToDate(),
+                data.getFilterType(), data.getAccountNumber(), after, DETAIL_PAGE_SIZE);
+        loaded.addAll(page);
+        if (page.size() < DETAIL_PAGE_SIZE) {
+            data.setFullyLoaded(true);
+        }
+        return page;
+    }
 
-        return data;
+    /** The report with every detail row, for export. {@code data} itself is left as the table sees it. */
+    public TransactionReportData withAllTransactions(TransactionReportData data) throws SQLException {
+        if (data.isFullyLoaded()) {
+            return data;
+        }
+        TransactionReportData full = new TransactionReportData();
+        full.setFromDate(data.getFromDate());
+        full.setToDate(data.getToDate());
+        full.setFilterType(data.getFilterType());
+        full.setAccountNumber(data.getAccountNumber());
+        full.setTotalCount(data.getTotalCount());
+        full.setTotalAmount(data.getTotalAmount());
+        full.setDepositTotal(data.getDepositTotal());
+        full.setWithdrawTotal(data.getWithdrawTotal());
+        full.setTransferTotal(data.getTransferTotal());
+        full.setTransactions(reportDAO.getTransactionsByFilter(data.getFromDate(), data.getToDate(),
+                data.getFilterType(), data.getAccountNumber()));
+        full.setFullyLoaded(true);
+        return full;
     }
 
+    /** Same split as the transaction report: ROLLUP summary in one query, detail rows on demand. */
     public LoanReportData getLoanReport(LocalDate from, LocalDate to, LoanStatus status) throws SQLException {
         LoanReportData data = new LoanReportData();
         data.setFromDate(from);
         data.setToDate(to);
         data.setFilterStatus(status);
 
-        data.setLoans(reportDAO.getLoansByFilter(from, to, status));
+        GroupTotals<LoanStatus> totals = reportDAO.getLoanTotals(from, to, status);
+        data.setTotalLoans(totals.getTotalCount());
+        data.setTotalOutstanding(totals.getAmount(LoanStatus.DISBURSED).plus(totals.getAmount(LoanStatus.OVERDUE)));
+        data.getStatusDistribution().putAll(totals.getCounts());
+        data.getStatusAmounts().putAll(totals.getAmounts());
 
-        // Summaries
-        int count = 0;
-        BigDecimal outstanding = BigDecimal.ZERO;
+        loadNextLoanPage(data);
+        return data;
+    }
 
-        for (var loan : data.getLoans()) {
-            count++;
-            if (loan.getStatus() == LoanStatus.DISBURSED || loan.getStatus() == LoanStatus.OVERDUE) {
-                outstanding = outstanding.add(loan.getPrincipalAmount());
-            }
+    public List<Loan> loadNextLoanPage(LoanReportData data) throws SQLException {
+        if (data.isFullyLoaded()) {
+            return Collections.emptyList();
         }
-
-        data.setTotalLoans(count);
-        data.setTotalOutstanding(outstanding);
-
-        // Populate distributions for the chart in this report context if needed
-        // Ideally we filter the distribution by date range too, but DAO `getLoanStatusDistribution` is global.
-        // For report specificity, we can calculate from the list.
-        for (var loan : data.getLoans()) {
-            data.getStatusDistribution().merge(loan.getStatus(), 1, Integer::sum);
-            data.getStatusAmounts().merge(loan.getStatus(), loan.getPrincipalAmount(), BigDecimal::add);
+        List<Loan> loaded = data.getLoans();
+        Loan after = loaded.isEmpty() ? null : loaded.get(loaded.size() - 1);
+        List<Loan> page = reportDAO.getLoansPage(data.getFromDate(), data.getToDate(), data.getFilterStatus(), after, DETAIL_PAGE_SIZE);
+        loaded.addAll(page);
+        if (page.size() < DETAIL_PAGE_SIZE) {
+            data.setFullyLoaded(true);
         }
+        return page;
+    }
 
-        return data;
+    public LoanReportData withAllLoans(LoanReportData data) throws SQLException {
+        if (data.isFullyLoaded()) {
+            return data;
+        }
+        LoanReportData full = new LoanReportData();
+        full.setFromDate(data.getFromDate());
+        full.setToDate(data.getToDate());
+        full.setFilterStatus(data.getFilterStatus());
+        full.setTotalLoans(data.getTotalLoans());
+        full.setTotalOutstanding(data.getTotalOutstanding());
+        full.setStatusDistribution(data.getStatusDistribution());
+        full.setStatusAmounts(data.getStatusAmounts());
+        full.setLoans(reportDAO.getLoansByFilter(data.getFromDate(), data.getToDate(), data.getFilterStatus()));
+        full.setFullyLoaded(true);
+        return full;
     }
 
-    public AccountStatementData getAccountStatement(Account account, LocalDate from, LocalDate to) throws SQLException {
-        AccountStatementData data = new AccountStatementData();
-        data.setAccount(account);
+    /**
+     * Distinct transacting customers per day and over the whole range, plus amount
+     * percentiles per transaction type, all merged from the per-day sketches.
+     */
+    public AnalyticsReportData getAnalyticsReport(LocalDate from, LocalDate to) throws SQLException {
+        AnalyticsReportData data = new AnalyticsReportData();
         data.setFromDate(from);
         data.setToDate(to);
-        data.setGeneratedBy(SessionManager.getCurrentUser().getFullName());
-        data.setGeneratedAt(LocalDateTime.now());
-
-        // Calculate opening balance
-        BigDecimal opening = reportDAO.getOpeningBalance(account.getId(), from);
-        data.setOpeningBalance(opening);
-
-        // Get transactions
-        data.setTransactions(reportDAO.getTransactionsByFilter(from, to, null, account.getId()));
-
-        // Calculate closing and totals
-        BigDecimal runningBalance = opening;
-        BigDecimal dep = BigDecimal.ZERO;
-        BigDecimal with = BigDecimal.ZERO;
-        BigDecimal trans = BigDecimal.ZERO;
-
-        for (var txn : data.getTransactions()) {
-            // Note: transaction list is DESC date order.
-            // For running balance calculation we usually want ASC.
-            // But here we just want totals.
-
-            // Wait, we need to verify if the transaction list is for THIS account as Source or Target?
-            // `getTransactionsByFilter` returns where account_id OR target_account_id matches.
-
-            boolean isIncoming = false;
-            if (txn.getTransactionType() == TransactionType.DEPOSIT || txn.getTransactionType() == TransactionType.LOAN_DISBURSEMENT) {
-                isIncoming = true;
-            } else if (txn.getTransactionType() == TransactionType.TRANSFER) {
-                 if (txn.getTargetAccountId() == account.getId()) {
-                     isIncoming = true;
-                 }
-            }
-
-            if (isIncoming) {
-                dep = dep.add(txn.getAmount());
-                // If it's transfer incoming, we might want to count it as Deposit or Transfer?
-                if (txn.getTransactionType() == TransactionType.TRANSFER) trans = trans.add(txn.getAmount());
-            } else {
-                // Outgoing
-                with = with.add(txn.getAmount());
-                 if (txn.getTransactionType() == TransactionType.TRANSFER) trans = trans.add(txn.getAmount());
-            }
-        }
-
-        // Closing balance = Opening + Incoming - Outgoing
-        // Actually, we can just use `opening` and apply the net change.
-        // Or simpler: Get closing balance as of `to` date?
-        // Since we have the list, let's trust the totals.
-        // Wait, Transfer count in `trans` is sum of absolute values.
-
-        // Refined Totals:
-        BigDecimal totalCredits = BigDecimal.ZERO; // Adds to balance
-        BigDecimal totalDebits = BigDecimal.ZERO;  // Subtracts from balance
-
-        for (var txn : data.getTransactions()) {
-            boolean isCredit = false;
-             if (txn.getTransactionType() == TransactionType.DEPOSIT || txn.getTransactionType() == TransactionType.LOAN_DISBURSEMENT) {
-                isCredit = true;
-            } else if (txn.getTransactionType() == TransactionType.TRANSFER && txn.getTargetAccountId() == account.getId()) {
-                isCredit = true;
-            }
-
-            if (isCredit) {
-                totalCredits = totalCredits.add(txn.getAmount());
-            } else {
-                totalDebits = totalDebits.add(txn.getAmount());
-            }
-        }
 
-        data.setTotalDeposits(totalCredits);
-        data.setTotalWithdrawals(totalDebits);
+        SketchService.DaySketches range = new SketchService.DaySketches();
+        sketchService.getDays(from, to).forEach((day, sketches) -> {
+            data.getDistinctCustomersByDay().put(day, sketches.getCustomers().estimate());
+            range.merge(sketches);
+        });
+        data.setDistinctCustomers(range.getCustomers().estimate());
+
+        range.getAmounts().forEach((type, sketch) -> {
+            AmountPercentiles percentiles = new AmountPercentiles();
+            percentiles.setType(type);
+            percentiles.setCount(sketch.getCount());
+            percentiles.setP50(toAmount(sketch.quantile(0.50)));
+            percentiles.setP95(toAmount(sketch.quantile(0.95)));
+            percentiles.setP99(toAmount(sketch.quantile(0.99)));
+            data.getAmountPercentiles().put(type, percentiles);
+        });
+        return data;
+    }
 
-        data.setClosingBalance(opening.add(totalCredits).subtract(totalDebits));
+    private static Money toAmount(double value) {
+        return Money.of(value, RoundingMode.HALF_UP);
+    }
 
-        return data;
+    public AccountStatementData getAccountStatement(Account account, LocalDate from, LocalDate to) throws SQLException {
+        StatementBuilder statement = new StatementBuilder(account, from, to);
+        reportDAO.streamStatementRows(account.getId(), from, to, (accountId, txn, signedAmount) -> statement.accept(txn, signedAmount));
+        return statement.finish();
     }
 
     public boolean canExportPDF() {
@@ -0,0 +1,251 @@
+package com.customer.service;
+
+import com.customer.dao.ReportDAO;
+import com.customer.model.Money;
+import com.customer.model.TransactionType;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory velocity and limit checks for money leaving an account
+ * (withdrawals and outgoing transfers).
+ *
+ * Each account keeps sliding-window counters (count and amount) over the last
+ * minute, hour and day, as rings of time buckets in primitive arrays. A check
+ * sums the buckets of each window, evaluates the rules and, if they pass,
+ * records the debit, all under one of {@link #STRIPES} locks so two postings
+ * on the same account cannot both slip under a limit.
+ *
+ * Counters start from the last day of debits, rebuilt in the background at
+ * startup. After that, only postings made by this instance are counted: the
+ * limits hold per instance, not across every instance sharing the database,
+ * and debits spread over several instances can together exceed a limit.
+ */
+public class RiskEngine {
+
+    private static final RiskEngine INSTANCE = new RiskEngine();
+
+    private static final int STRIPES = 64;
+
+    public enum Window {
+        MINUTE("1 phút", 5_000, 12),
+        HOUR("1 giờ", 60_000, 60),
+        DAY("1 ngày", 900_000, 96);
+
+        private final String label;
+        private final long bucketMillis;
+        private final int buckets;
+
+        Window(String label, long bucketMillis, int buckets) {
+            this.label = label;
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+
+        public String getLabel() { return label; }
+    }
+
+    /** At most {@code maxCount} debits and {@code maxAmount} in total within {@code window}; 0 / null for no limit. */
+    public static class Rule {
+        private final Window window;
+        private final int maxCount;
+        private final Money maxAmount;
+
+        public Rule(Window window, int maxCount, Money maxAmount) {
+            this.window = window;
+            this.maxCount = maxCount;
+            this.maxAmount = maxAmount;
+        }
+
+        public Window getWindow() { return window; }
+        public int getMaxCount() { return maxCount; }
+        public Money getMaxAmount() { return maxAmount; }
+    }
+
+    /** A recorded debit; release it if the posting does not commit. */
+    public interface Reservation {
+        void release();
+    }
+
+    private static final Reservation NONE = () -> { };
+
+    // Bucket rings of every window, laid out one after another
+    private static final class Counters {
+        final long[] epochs = new long[TOTAL_BUCKETS];
+        final long[] counts = new long[TOTAL_BUCKETS];
+        final long[] amounts = new long[TOTAL_BUCKETS];
+    }
+
+    private static final int[] OFFSETS = new int[Window.values().length];
+    private static final int TOTAL_BUCKETS;
+
+    static {
+        int offset = 0;
+        for (Window window : Window.values()) {
+            OFFSETS[window.ordinal()] = offset;
+            offset += window.buckets;
+        }
+        TOTAL_BUCKETS = offset;
+    }
+
+    private final ConcurrentHashMap<Long, Counters> accounts = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private volatile List<Rule> rules = defaultRules();
+    private volatile long liveSince = Long.MAX_VALUE;
+
+    private RiskEngine() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public static RiskEngine getInstance() {
+        return INSTANCE;
+    }
+
+    // Overridable with -Drisk.minute.maxCount=..., -Drisk.day.maxAmount=... and so on
+    private static List<Rule> defaultRules() {
+        List<Rule> rules = new ArrayList<>();
+        rules.add(rule(Window.MINUTE, 5, null));
+        rules.add(rule(Window.HOUR, 30, Money.of(1_000_000_000)));
+        rules.add(rule(Window.DAY, 100, Money.of(2_000_000_000)));
+        return rules;
+    }
+
+    private static Rule rule(Window window, int maxCount, Money maxAmount) {
+        String prefix = "risk." + window.name().toLowerCase() + ".";
+        int count = Integer.getInteger(prefix + "maxCount", maxCount);
+        String amount = System.getProperty(prefix + "maxAmount");
+        return new Rule(window, count, amount != null ? Money.parse(amount) : maxAmount);
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = List.copyOf(rules);
+    }
+
+    /** Starts counting live debits and loads the last day of debits in the background. */
+    public synchronized void start() {
+        if (liveSince != Long.MAX_VALUE) {
+            return;
+        }
+        liveSince = System.currentTimeMillis();
+        Thread thread = new Thread(this::rebuild, "risk-engine-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Checks the rules for a debit of {@code amount} from {@code accountId} and records
+     * it if they pass. Throws IllegalArgumentException naming the broken limit otherwise.
+     */
+    public Reservation reserve(long accountId, Money amount) {
+        if (liveSince == Long.MAX_VALUE) {
+            return NONE;
+        }
+        long minor = amount.toMinor();
+        long now = System.currentTimeMillis();
+        Counters counters = accounts.computeIfAbsent(accountId, id -> new Counters());
+
+        ReentrantLock lock = lockFor(accountId);
+        lock.lock();
+        try {
+            for (Rule rule : rules) {
+                long count = 0;
+                long total = 0;
+                int offset = OFFSETS[rule.window.ordinal()];
+                long current = now / rule.window.bucketMillis;
+                for (int i = 0; i < rule.window.buckets; i++) {
+                    int slot = offset + i;
+                    if (counters.epochs[slot] > current - rule.window.buckets) {
+                        count += counters.counts[slot];
+                        total += counters.amounts[slot];
+                    }
+                }
+                if (rule.maxCount > 0 && count + 1 > rule.maxCount) {
+                    throw new IllegalArgumentException("Vượt quá " + rule.maxCount + " giao dịch trong " + rule.window.label);
+                }
+                if (rule.maxAmount != null && total + minor > rule.maxAmount.toMinor()) {
+                    throw new IllegalArgumentException(String.format("Vượt hạn mức %s VND trong %s",
+                            rule.maxAmount.format(), rule.window.label));
+                }
+            }
+            add(counters, now, 1, minor);
+        } finally {
+            lock.unlock();
+        }
+        return () -> {
+            lock.lock();
+            try {
+                add(counters, now, -1, -minor);
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+
+    // --- Counters ---
+
+    // Adds to the bucket covering `time` in every window, unless that bucket has already rotated out
+    private static void add(Counters counters, long time, long count, long amount) {
+        for (Window window : Window.values()) {
+            long epoch = time / window.bucketMillis;
+            int slot = OFFSETS[window.ordinal()] + (int) (epoch % window.buckets);
+            if (counters.epochs[slot] != epoch) {
+                if (counters.epochs[slot] > epoch) continue;
+                counters.epochs[slot] = epoch;
+                counters.counts[slot] = 0;
+                counters.amounts[slot] = 0;
+            }
+            counters.counts[slot] += count;
+            counters.amounts[slot] += amount;
+        }
+    }
+
+    private ReentrantLock lockFor(long accountId) {
+        return locks[Long.hashCode(accountId * 0x9E3779B97F4A7C15L) & (STRIPES - 1)];
+    }
+
+    // --- Rebuild ---
+
+    // Debits posted before this instance started counting live, back to one day ago
+    private void rebuild() {
+        long cutoff = liveSince;
+        long dayAgo = cutoff - Window.DAY.bucketMillis * Window.DAY.buckets;
+        LocalDateTime since = LocalDateTime.ofInstant(Instant.ofEpochMilli(dayAgo), ZoneId.systemDefault());
+        long start = System.nanoTime();
+        int[] rows = {0};
+        try {
+            new ReportDAO().streamBalanceStepsSince(since, (accountId, type, signedAmount, createdDate) -> {
+                if (signedAmount.signum() >= 0 || (type != TransactionType.WITHDRAW && type != TransactionType.TRANSFER)) {
+                    return;
+                }
+                long time = createdDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                if (time < dayAgo || time >= cutoff) {
+                    return;
+                }
+                Counters counters = accounts.computeIfAbsent(accountId, id -> new Counters());
+                ReentrantLock lock = lockFor(accountId);
+                lock.lock();
+                try {
+                    add(counters, time, 1, -signedAmount.toMinor());
+                } finally {
+                    lock.unlock();
+                }
+                rows[0]++;
+            });
+            System.out.printf("Risk engine loaded %d debits in %d ms%n", rows[0], (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            System.err.println("Risk engine rebuild failed: " + e.getMessage());
+        }
+    }
+}
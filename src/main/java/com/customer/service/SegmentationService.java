@@ -0,0 +1,368 @@
+package com.customer.service;
+
+import com.customer.dao.DatabaseManager;
+import com.customer.dao.SegmentationDAO;
+import com.customer.event.CustomerUpdated;
+import com.customer.event.EntityInvalidated;
+import com.customer.event.EventBus;
+import com.customer.model.AuditAction;
+import com.customer.model.CustomerType;
+import com.customer.model.Money;
+import com.customer.model.Role;
+import com.customer.util.SessionManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * Sets each customer's {@link CustomerType} from what they hold and do: total
+ * balance of open accounts, transaction volume over the last
+ * {@link #VOLUME_DAYS} days, and loans being repaid or overdue.
+ *
+ * Features are read with one grouped query each into primitive arrays indexed
+ * by customer. The rules are evaluated over those arrays in parallel, first
+ * match wins, and only customers whose type changes are written back, grouped
+ * by old and new type in IN-list batches.
+ *
+ * A full run scores every customer. An incremental run scores only those
+ * touched since the previous run (through the change log) or whose old
+ * transactions left the volume window since then; it falls back to a full run
+ * when there is no previous run or the change log no longer reaches back to it.
+ */
+public class SegmentationService {
+
+    private static final SegmentationService INSTANCE = new SegmentationService();
+
+    private static final int VOLUME_DAYS = Integer.getInteger("segment.volumeDays", 90);
+    private static final int WRITE_BATCH = 1000;
+    // Beyond this many changes one reload everywhere is cheaper than an event per customer
+    private static final int MAX_CHANGE_EVENTS = 500;
+    private static final CustomerType FALLBACK = CustomerType.POTENTIAL;
+
+    private static final CustomerType[] TYPES = CustomerType.values();
+    // Index used in the type arrays for a customer without a (known) type
+    private static final int NO_TYPE = TYPES.length;
+
+    public enum Mode { FULL, INCREMENTAL }
+
+    /**
+     * Customers meeting every set condition get {@code target}. A null amount,
+     * 0 active loans or -1 overdue loans means that condition is not checked.
+     */
+    public static class Rule {
+        private final CustomerType target;
+        private final Money minBalance;
+        private final Money minVolume;
+        private final int minActiveLoans;
+        private final int maxOverdueLoans;
+
+        public Rule(CustomerType target, Money minBalance, Money minVolume, int minActiveLoans, int maxOverdueLoans) {
+            this.target = target;
+            this.minBalance = minBalance;
+            this.minVolume = minVolume;
+            this.minActiveLoans = minActiveLoans;
+            this.maxOverdueLoans = maxOverdueLoans;
+        }
+
+        public CustomerType getTarget() { return target; }
+        public Money getMinBalance() { return minBalance; }
+        public Money getMinVolume() { return minVolume; }
+        public int getMinActiveLoans() { return minActiveLoans; }
+        public int getMaxOverdueLoans() { return maxOverdueLoans; }
+    }
+
+    public static class RunResult {
+        private final Mode mode;
+        private final int scored;
+        private final int[][] moves;
+        private final int changed;
+        private final long millis;
+
+        RunResult(Mode mode, int scored, int[][] moves, int changed, long millis) {
+            this.mode = mode;
+            this.scored = scored;
+            this.moves = moves;
+            this.changed = changed;
+            this.millis = millis;
+        }
+
+        /** The mode actually used; INCREMENTAL may have fallen back to FULL. */
+        public Mode getMode() { return mode; }
+
+        public int getScored() { return scored; }
+
+        /** Customers whose type was written, which can be fewer than scored as changed if someone edited them meanwhile. */
+        public int getChanged() { return changed; }
+
+        /** Customers moved into {@code type} from any other type. */
+        public int getMovedInto(CustomerType type) {
+            int total = 0;
+            for (int[] from : moves) {
+                total += from[type.ordinal()];
+            }
+            return total;
+        }
+
+        public long getMillis() { return millis; }
+    }
+
+    // One run's features, in customer id order
+    static final class Features {
+        long[] ids = new long[1024];
+        byte[] types = new byte[1024];
+        long[] balances;
+        long[] volumes;
+        int[] activeLoans;
+        int[] overdueLoans;
+        int size;
+
+        void add(long id, CustomerType type) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                types = Arrays.copyOf(types, size * 2);
+            }
+            ids[size] = id;
+            types[size] = (byte) (type != null ? type.ordinal() : NO_TYPE);
+            size++;
+        }
+
+        void allocate() {
+            balances = new long[size];
+            volumes = new long[size];
+            activeLoans = new int[size];
+            overdueLoans = new int[size];
+        }
+
+        // -1 for a customer not in this run (an account whose owner was deleted meanwhile, say)
+        int indexOf(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            return index >= 0 ? index : -1;
+        }
+    }
+
+    private final SegmentationDAO segmentationDAO = new SegmentationDAO();
+    private final ReentrantLock running = new ReentrantLock();
+    private volatile List<Rule> rules = defaultRules();
+
+    private SegmentationService() {
+    }
+
+    public static SegmentationService getInstance() {
+        return INSTANCE;
+    }
+
+    // Overridable with -Dsegment.vip.minBalance=..., -Dsegment.regular.minVolume=... and so on
+    private static List<Rule> defaultRules() {
+        Money vipBalance = amount("segment.vip.minBalance", "1000000000");
+        Money vipVolume = amount("segment.vip.minVolume", "5000000000");
+        Money regularBalance = amount("segment.regular.minBalance", "10000000");
+        Money regularVolume = amount("segment.regular.minVolume", "50000000");
+
+        List<Rule> rules = new ArrayList<>();
+        // An overdue loan keeps a customer out of VIP whatever they hold
+        rules.add(new Rule(CustomerType.VIP, vipBalance, null, 0, 0));
+        rules.add(new Rule(CustomerType.VIP, null, vipVolume, 0, 0));
+        rules.add(new Rule(CustomerType.REGULAR, regularBalance, null, 0, -1));
+        rules.add(new Rule(CustomerType.REGULAR, null, regularVolume, 0, -1));
+        rules.add(new Rule(CustomerType.REGULAR, null, null, 1, -1));
+        return rules;
+    }
+
+    private static Money amount(String property, String defaultValue) {
+        return Money.parse(System.getProperty(property, defaultValue));
+    }
+
+    /** Rules in the order they are tried; customers matching none become {@link #FALLBACK}. */
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = List.copyOf(rules);
+    }
+
+    public boolean canRun() {
+        return SessionManager.hasRole(Role.MANAGER, Role.ADMIN);
+    }
+
+    public RunResult run(Mode mode) throws SQLException, ValidationException {
+        if (!canRun()) {
+            throw new SecurityException("Access Denied: Only Managers and Admins can re-segment customers.");
+        }
+        return execute(mode);
+    }
+
+    // Scheduled runs have no session; the job scheduler is trusted to start them
+    RunResult execute(Mode mode) throws SQLException, ValidationException {
+        if (!running.tryLock()) {
+            throw new ValidationException("Đang phân khúc khách hàng, vui lòng đợi lần chạy trước kết thúc!");
+        }
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection()) {
+            long start = System.currentTimeMillis();
+            // Database time, so the next run compares it against change log timestamps from the same clock
+            Timestamp startedAt = segmentationDAO.now(conn);
+            LocalDateTime volumeFrom = LocalDateTime.now().minusDays(VOLUME_DAYS);
+
+            long[] ids = null;
+            Mode used = Mode.FULL;
+            if (mode == Mode.INCREMENTAL) {
+                SegmentationDAO.LastRun last = segmentationDAO.findLastRun(conn);
+                if (last != null && segmentationDAO.canTrackChangesSince(conn, last.getStartedAt())) {
+                    ids = segmentationDAO.findTouchedCustomers(conn, last.getStartedAt(), last.getVolumeFrom(), volumeFrom);
+                    used = Mode.INCREMENTAL;
+                }
+            }
+
+            Features features = load(conn, ids, volumeFrom);
+            byte[] targets = classify(features, rules);
+            int[][] moves = new int[NO_TYPE + 1][NO_TYPE + 1];
+            long[] changedIds = writeBack(conn, features, targets, moves);
+            int changed = 0;
+            for (int[] from : moves) {
+                for (int count : from) {
+                    changed += count;
+                }
+            }
+
+            long millis = System.currentTimeMillis() - start;
+            segmentationDAO.saveRun(conn, used.name(), startedAt, volumeFrom, features.size, changed, millis);
+
+            EventBus bus = EventBus.getInstance();
+            if (changedIds.length > MAX_CHANGE_EVENTS) {
+                bus.publish(EntityInvalidated.all());
+            } else {
+                for (long id : changedIds) {
+                    bus.publish(new CustomerUpdated(id, CustomerUpdated.Change.UPDATED));
+                }
+            }
+            AuditTrail.getInstance().record(AuditAction.CUSTOMERS_SEGMENTED, "CUSTOMER", null,
+                    used + ": " + features.size + " khách hàng, " + changed + " thay đổi");
+            return new RunResult(used, features.size, moves, changed, millis);
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private Features load(Connection conn, long[] ids, LocalDateTime volumeFrom) throws SQLException {
+        Features features = new Features();
+        segmentationDAO.streamCustomers(conn, ids, features::add);
+        features.allocate();
+
+        segmentationDAO.streamBalances(conn, ids, (customerId, amount) -> {
+            int index = features.indexOf(customerId);
+            if (index >= 0) features.balances[index] = amount.toMinor();
+        });
+        segmentationDAO.streamVolumes(conn, volumeFrom, ids, (customerId, amount) -> {
+            int index = features.indexOf(customerId);
+            if (index >= 0) features.volumes[index] = amount.toMinor();
+        });
+        segmentationDAO.streamLoanCounts(conn, ids, (customerId, active, overdue) -> {
+            int index = features.indexOf(customerId);
+            if (index >= 0) {
+                features.activeLoans[index] = active;
+                features.overdueLoans[index] = overdue;
+            }
+        });
+        return features;
+    }
+
+    /** Target type index of every customer in {@code features}. */
+    static byte[] classify(Features features, List<Rule> rules) {
+        // Rules flattened to arrays; the unchecked conditions are limits nothing can fail
+        int count = rules.size();
+        long[] minBalance = new long[count];
+        long[] minVolume = new long[count];
+        int[] minActive = new int[count];
+        int[] maxOverdue = new int[count];
+        byte[] target = new byte[count];
+        for (int r = 0; r < count; r++) {
+            Rule rule = rules.get(r);
+            minBalance[r] = rule.minBalance != null ? rule.minBalance.toMinor() : Long.MIN_VALUE;
+            minVolume[r] = rule.minVolume != null ? rule.minVolume.toMinor() : Long.MIN_VALUE;
+            minActive[r] = rule.minActiveLoans;
+            maxOverdue[r] = rule.maxOverdueLoans >= 0 ? rule.maxOverdueLoans : Integer.MAX_VALUE;
+            target[r] = (byte) rule.target.ordinal();
+        }
+
+        byte fallback = (byte) FALLBACK.ordinal();
+        byte[] result = new byte[features.size];
+        IntStream.range(0, features.size).parallel().forEach(i -> {
+            long balance = features.balances[i];
+            long volume = features.volumes[i];
+            int active = features.activeLoans[i];
+            int overdue = features.overdueLoans[i];
+            byte type = fallback;
+            for (int r = 0; r < count; r++) {
+                if (balance >= minBalance[r] && volume >= minVolume[r]
+                        && active >= minActive[r] && overdue <= maxOverdue[r]) {
+                    type = target[r];
+                    break;
+                }
+            }
+            result[i] = type;
+        });
+        return result;
+    }
+
+    // Writes every changed type and returns the ids it tried; moves[from][to] counts the rows actually updated
+    private long[] writeBack(Connection conn, Features features, byte[] targets, int[][] moves) throws SQLException {
+        int[][] planned = new int[NO_TYPE + 1][NO_TYPE + 1];
+        for (int i = 0; i < features.size; i++) {
+            if (targets[i] != features.types[i]) {
+                planned[features.types[i]][targets[i]]++;
+            }
+        }
+
+        long[] changed = new long[0];
+        int changedCount = 0;
+        long[] batch = new long[WRITE_BATCH];
+        for (int from = 0; from <= NO_TYPE; from++) {
+            for (int to = 0; to < NO_TYPE; to++) {
+                if (planned[from][to] == 0) {
+                    continue;
+                }
+                CustomerType fromType = from < NO_TYPE ? TYPES[from] : null;
+                int size = 0;
+                for (int i = 0; i < features.size; i++) {
+                    if (features.types[i] != from || targets[i] != to) {
+                        continue;
+                    }
+                    batch[size++] = features.ids[i];
+                    if (size == WRITE_BATCH) {
+                        moves[from][to] += segmentationDAO.updateTypes(conn, fromType, TYPES[to], batch, 0, size);
+                        changed = append(changed, changedCount, batch, size);
+                        changedCount += size;
+                        size = 0;
+                    }
+                }
+                if (size > 0) {
+                    moves[from][to] += segmentationDAO.updateTypes(conn, fromType, TYPES[to], batch, 0, size);
+                    changed = append(changed, changedCount, batch, size);
+                    changedCount += size;
+                }
+            }
+        }
+        return Arrays.copyOf(changed, changedCount);
+    }
+
+    private static long[] append(long[] target, int count, long[] source, int size) {
+        if (count + size > target.length) {
+            target = Arrays.copyOf(target, Math.max(count + size, target.length * 2));
+        }
+        System.arraycopy(source, 0, target, count, size);
+        return target;
+    }
+
+    public static class ValidationException extends Exception {
+        public ValidationException(String message) {
+            super(message);
+        }
+    }
+}
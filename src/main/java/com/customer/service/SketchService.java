@@ -0,0 +1,122 @@
+package com.customer.service;
+
+import com.customer.dao.SketchDAO;
+import com.customer.dao.SketchDAO.StoredSketch;
+import com.customer.model.TransactionType;
+import com.customer.util.HyperLogLog;
+import com.customer.util.KllSketch;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-day analytics sketches: a HyperLogLog of transacting customers and a KLL
+ * quantile sketch of amounts per transaction type.
+ *
+ * A closed day's sketches are built from its rows once and stored in
+ * analytics_sketches; after that, any date range is answered by merging the
+ * stored days. Today is still changing, so it is built from its rows on each
+ * request and not stored.
+ */
+public class SketchService {
+
+    private final SketchDAO sketchDAO;
+
+    public SketchService() {
+        this.sketchDAO = new SketchDAO();
+    }
+
+    public static class DaySketches {
+        private final HyperLogLog customers = new HyperLogLog();
+        private final Map<TransactionType, KllSketch> amounts = new EnumMap<>(TransactionType.class);
+
+        public HyperLogLog getCustomers() { return customers; }
+
+        public Map<TransactionType, KllSketch> getAmounts() { return amounts; }
+
+        void merge(DaySketches other) {
+            customers.merge(other.customers);
+            other.amounts.forEach((type, sketch) -> amounts.computeIfAbsent(type, t -> new KllSketch()).merge(sketch));
+        }
+    }
+
+    /** Sketches for every day from {@code from} to {@code to}, in date order. Days without rows are empty. */
+    public TreeMap<LocalDate, DaySketches> getDays(LocalDate from, LocalDate to) throws SQLException {
+        LocalDate today = LocalDate.now();
+        if (to.isAfter(today)) {
+            to = today;
+        }
+        TreeMap<LocalDate, DaySketches> days = new TreeMap<>();
+        if (from.isAfter(to)) {
+            return days;
+        }
+
+        for (StoredSketch stored : sketchDAO.findByDayRange(from, to)) {
+            DaySketches day = days.computeIfAbsent(stored.getDay(), d -> new DaySketches());
+            if (SketchDAO.DISTINCT_CUSTOMERS.equals(stored.getMetric())) {
+                day.customers.merge(HyperLogLog.fromBytes(stored.getPayload()));
+            } else if (SketchDAO.AMOUNT_QUANTILES.equals(stored.getMetric())) {
+                day.amounts.put(TransactionType.valueOf(stored.getDimension()), KllSketch.fromBytes(stored.getPayload()));
+            }
+        }
+        // A stored sketch for today would be partial
+        days.remove(today);
+
+        // Build what is missing, one scan per run of consecutive missing days
+        List<StoredSketch> toStore = new ArrayList<>();
+        LocalDate runStart = null;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            boolean missing = !days.containsKey(day);
+            if (missing && runStart == null) {
+                runStart = day;
+            }
+            if (runStart != null && (!missing || day.equals(to))) {
+                LocalDate runEnd = missing ? day : day.minusDays(1);
+                build(runStart, runEnd, days, toStore, today);
+                runStart = null;
+            }
+        }
+        if (!toStore.isEmpty()) {
+            sketchDAO.save(toStore);
+        }
+        return days;
+    }
+
+    /** All days from {@code from} to {@code to} merged into one set of sketches. */
+    public DaySketches getRange(LocalDate from, LocalDate to) throws SQLException {
+        DaySketches merged = new DaySketches();
+        for (DaySketches day : getDays(from, to).values()) {
+            merged.merge(day);
+        }
+        return merged;
+    }
+
+    private void build(LocalDate from, LocalDate to, TreeMap<LocalDate, DaySketches> days,
+                       List<StoredSketch> toStore, LocalDate today) throws SQLException {
+        TreeMap<LocalDate, DaySketches> built = new TreeMap<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            built.put(day, new DaySketches());
+        }
+        sketchDAO.streamDays(from, to, (day, customerId, type, amount) -> {
+            DaySketches sketches = built.get(day);
+            if (sketches == null) return;
+            sketches.customers.add(customerId);
+            sketches.amounts.computeIfAbsent(type, t -> new KllSketch()).update(amount.doubleValue());
+        });
+
+        built.forEach((day, sketches) -> {
+            days.put(day, sketches);
+            if (day.isBefore(today)) {
+                // Empty days are stored too, so they are not scanned again
+                toStore.add(new StoredSketch(day, SketchDAO.DISTINCT_CUSTOMERS, "", sketches.customers.toBytes()));
+                sketches.amounts.forEach((type, sketch) ->
+                        toStore.add(new StoredSketch(day, SketchDAO.AMOUNT_QUANTILES, type.name(), sketch.toBytes())));
+            }
+        });
+    }
+}
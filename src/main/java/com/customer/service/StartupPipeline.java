@@ -0,0 +1,160 @@
+package com.customer.service;
+
+import com.customer.dao.AccountDirectory;
+import com.customer.dao.ConnectionRouter;
+import com.customer.dao.DatabaseManager;
+import com.customer.dao.UserDAO;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background startup, so the login screen shows before the database is reached.
+ *
+ * Phases run on a small pool as soon as what they depend on is done:
+ *
+ *   connect --+-- schema check --+-- (database ready) -- cache warm-up
+ *             +-- replica pool
+ *
+ * {@link #databaseReady()} completes once the connection is up and the schema
+ * checked; only operations that need the database wait on it. Each phase's
+ * duration is recorded and printed once everything has finished.
+ */
+public class StartupPipeline {
+
+    private static final StartupPipeline INSTANCE = new StartupPipeline();
+
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+    private final long createdNanos = System.nanoTime();
+    private ExecutorService executor;
+    private CompletableFuture<Void> databaseReady;
+    private long readyMillis = -1;
+
+    private StartupPipeline() {
+    }
+
+    public static StartupPipeline getInstance() {
+        return INSTANCE;
+    }
+
+    /** Starts the pipeline; returns at once. */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "startup-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor = pool;
+        long start = System.nanoTime();
+
+        CompletableFuture<Void> connected = phase(pool, "connect", null, () -> {
+            if (!DatabaseManager.getInstance().isConnected()) {
+                throw new CompletionException(new SQLException("Database is unreachable"));
+            }
+        });
+        CompletableFuture<Void> schema = phase(pool, "schema check", connected, () -> DatabaseManager.getInstance().ensureSchema());
+        CompletableFuture<Void> replicas = phase(pool, "replica pool", connected, () -> ConnectionRouter.getInstance().warmUp());
+
+        databaseReady = schema.whenComplete((ignored, error) -> {
+            if (error == null) {
+                synchronized (this) {
+                    readyMillis = (System.nanoTime() - start) / 1_000_000;
+                }
+            }
+        });
+
+        CompletableFuture<Void> warmUp = phase(pool, "cache warm-up", databaseReady, () -> {
+            // Each loads its state on a thread of its own
+            ActivityTracker.getInstance().start();
+            RiskEngine.getInstance().start();
+            AccountDirectory.getInstance().start();
+            TransactionCube.getInstance().start();
+            if (JobScheduler.isEnabled()) {
+                JobScheduler.getInstance().start();
+            }
+            // First query on the connection pays for driver class loading; do it before the user logs in
+            new UserDAO().findByUsername("");
+        });
+
+        CompletableFuture.allOf(replicas, warmUp).whenComplete((ignored, error) -> {
+            System.out.println("Startup: " + describe() + (error != null ? " (failed: " + rootCause(error).getMessage() + ")" : ""));
+            pool.shutdown();
+        });
+    }
+
+    /**
+     * Completes when the database can be used; completes exceptionally if it could
+     * not be reached. After a failure, the next call tries to connect again.
+     */
+    public synchronized CompletableFuture<Void> databaseReady() {
+        if (executor == null) {
+            start();
+        } else if (databaseReady.isCompletedExceptionally()) {
+            executor = null;
+            start();
+        }
+        return databaseReady;
+    }
+
+    public synchronized boolean isDatabaseReady() {
+        return databaseReady != null && databaseReady.isDone() && !databaseReady.isCompletedExceptionally();
+    }
+
+    /** Records a phase that ran outside the pipeline, e.g. showing the login screen. */
+    public synchronized void recordPhase(String name, long startNanos) {
+        phaseMillis.put(name, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /** Phase name to duration in milliseconds, in the order the phases finished. */
+    public synchronized Map<String, Long> getPhaseMillis() {
+        return new LinkedHashMap<>(phaseMillis);
+    }
+
+    /** Milliseconds from {@link #start} until the database was ready, or -1 if it is not (yet). */
+    public synchronized long getReadyMillis() {
+        return readyMillis;
+    }
+
+    public static Throwable rootCause(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    // Runs `body` after `after` (or right away), timing it under `name`
+    private CompletableFuture<Void> phase(ExecutorService pool, String name, CompletableFuture<Void> after, Runnable body) {
+        Runnable timed = () -> {
+            long start = System.nanoTime();
+            try {
+                body.run();
+            } finally {
+                recordPhase(name, start);
+            }
+        };
+        return after == null
+                ? CompletableFuture.runAsync(timed, pool)
+                : after.thenRunAsync(timed, pool);
+    }
+
+    private synchronized String describe() {
+        List<String> parts = new ArrayList<>();
+        phaseMillis.forEach((name, millis) -> parts.add(name + " " + millis + " ms"));
+        parts.add("database ready after " + readyMillis + " ms");
+        parts.add("since launch " + (System.nanoTime() - createdNanos) / 1_000_000 + " ms");
+        return String.join(", ", parts);
+    }
+}
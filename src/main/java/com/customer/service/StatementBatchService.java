@@ -0,0 +1,275 @@
+package com.customer.service;
+
+import com.customer.dao.ReportDAO;
+import com.customer.model.Account;
+import com.customer.model.Money;
+import com.customer.model.Role;
+import com.customer.model.dto.AccountStatementData;
+import com.customer.util.SessionManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Month-end statement run for every ACTIVE account.
+ * Accounts are read in keyset pages; each page needs one set-based statement
+ * query instead of one round trip per account.
+ * PDFs are rendered on a bounded worker pool. Output goes to
+ * pdf_history/statements/yyyy-MM with a manifest.csv that lets an
+ * interrupted run resume where it stopped.
+ */
+public class StatementBatchService {
+
+    private static final String BASE_DIR = "pdf_history/statements";
+    private static final String MANIFEST_FILE = "manifest.csv";
+    private static final String MANIFEST_HEADER = "account_id,account_number,status,file,opening_balance,closing_balance,generated_at";
+    private static final int PAGE_SIZE = 500;
+
+    private final ReportDAO reportDAO;
+    private final ReportService reportService;
+    private final ExportService exportService;
+    private final int workers;
+
+    public StatementBatchService() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public StatementBatchService(int workers) {
+        this.reportDAO = new ReportDAO();
+        this.reportService = new ReportService();
+        this.exportService = new ExportService();
+        this.workers = workers;
+    }
+
+    public interface ProgressListener {
+        void onProgress(int completed, int failed, int skipped);
+    }
+
+    public BatchResult runMonthEnd(YearMonth month, ProgressListener listener) throws SQLException, IOException, InterruptedException {
+        if (!SessionManager.hasRole(Role.MANAGER, Role.ADMIN)) {
+            throw new SecurityException("Access Denied: Insufficient permissions to export reports.");
+        }
+        return generate(month, listener, false);
+    }
+
+    // Scheduled runs have no session; the job scheduler is trusted to start them
+    BatchResult runScheduled(YearMonth month) throws SQLException, IOException, InterruptedException {
+        return generate(month, null, true);
+    }
+
+    private BatchResult generate(YearMonth month, ProgressListener listener, boolean scheduled)
+            throws SQLException, IOException, InterruptedException {
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.atEndOfMonth();
+        File outputDir = new File(BASE_DIR, month.toString());
+        if (!outputDir.exists()) {
+            outputDir.mkdirs();
+        }
+
+        Manifest manifest = new Manifest(new File(outputDir, MANIFEST_FILE));
+        Set<Long> alreadyDone = manifest.loadCompleted(outputDir);
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+
+        // Back-pressure: the reader blocks once this many statements are queued or rendering
+        Semaphore inFlight = new Semaphore(workers * 2);
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "statement-render");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            long afterId = 0;
+            while (true) {
+                List<Account> page = reportDAO.getActiveAccountsPage(afterId, PAGE_SIZE);
+                if (page.isEmpty()) break;
+
+                long minId = page.get(0).getId();
+                long maxId = page.get(page.size() - 1).getId();
+                afterId = maxId;
+
+                boolean anyPending = false;
+                for (Account account : page) {
+                    if (!alreadyDone.contains(account.getId())) {
+                        anyPending = true;
+                        break;
+                    }
+                }
+                if (!anyPending) {
+                    skipped.addAndGet(page.size());
+                    notify(listener, completed, failed, skipped);
+                    continue;
+                }
+
+                // One ordered pass over the page's rows builds every statement in it
+                Map<Long, StatementBuilder> statements = new HashMap<>();
+                for (Account account : page) {
+                    if (!alreadyDone.contains(account.getId())) {
+                        statements.put(account.getId(), new StatementBuilder(account, from, to));
+                    }
+                }
+                reportDAO.streamStatementRows(minId, maxId, from, to, (accountId, txn, signedAmount) -> {
+                    StatementBuilder statement = statements.get(accountId);
+                    if (statement != null) {
+                        statement.accept(txn, signedAmount);
+                    }
+                });
+
+                for (Account account : page) {
+                    if (alreadyDone.contains(account.getId())) {
+                        skipped.incrementAndGet();
+                        continue;
+                    }
+
+                    AccountStatementData data = statements.get(account.getId()).finish();
+                    File target = new File(outputDir, "AccountStatement_" + account.getAccountNumber() + "_" + month + ".pdf");
+
+                    inFlight.acquire();
+                    pool.execute(() -> {
+                        try {
+                            render(data, target, scheduled);
+                            manifest.append(account, "OK", target.getName(), data);
+                            completed.incrementAndGet();
+                        } catch (Exception e) {
+                            System.err.println("Statement failed for " + account.getAccountNumber() + ": " + e.getMessage());
+                            manifest.append(account, "FAILED", "", data);
+                            failed.incrementAndGet();
+                        } finally {
+                            inFlight.release();
+                            notify(listener, completed, failed, skipped);
+                        }
+                    });
+                }
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.HOURS);
+            manifest.close();
+        }
+
+        return new BatchResult(outputDir, completed.get(), failed.get(), skipped.get());
+    }
+
+    // Write to a temp file first so a crash never leaves a half-written PDF under the final name
+    private void render(AccountStatementData data, File target, boolean scheduled) throws IOException {
+        File temp = new File(target.getParentFile(), target.getName() + ".part");
+        if (scheduled) {
+            exportService.exportScheduledStatement(data, temp);
+        } else {
+            exportService.exportAccountStatement(data, temp);
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void notify(ProgressListener listener, AtomicInteger completed, AtomicInteger failed, AtomicInteger skipped) {
+        if (listener != null) {
+            listener.onProgress(completed.get(), failed.get(), skipped.get());
+        }
+    }
+
+    private static class Manifest {
+        private final File file;
+        private BufferedWriter writer;
+
+        Manifest(File file) {
+            this.file = file;
+        }
+
+        // Accounts already rendered by an earlier (possibly interrupted) run of the same month
+        Set<Long> loadCompleted(File outputDir) throws IOException {
+            Set<Long> done = new HashSet<>();
+            boolean exists = file.exists();
+            if (exists) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split(",");
+                        if (parts.length < 4 || !parts[2].equals("OK")) continue;
+                        try {
+                            if (new File(outputDir, parts[3]).exists()) {
+                                done.add(Long.parseLong(parts[0]));
+                            }
+                        } catch (NumberFormatException e) {
+                            // Header or a line cut short by a crash
+                        }
+                    }
+                }
+            }
+
+            writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8, true));
+            if (!exists) {
+                writer.write(MANIFEST_HEADER);
+                writer.newLine();
+                writer.flush();
+            }
+            return done;
+        }
+
+        synchronized void append(Account account, String status, String fileName, AccountStatementData data) {
+            try {
+                writer.write(account.getId() + "," + account.getAccountNumber() + "," + status + "," + fileName + ","
+                        + plain(data.getOpeningBalance()) + "," + plain(data.getClosingBalance()) + ","
+                        + LocalDateTime.now());
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                System.err.println("Failed to update statement manifest: " + e.getMessage());
+            }
+        }
+
+        synchronized void close() {
+            try {
+                if (writer != null) writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private String plain(Money amount) {
+            return amount != null ? amount.toString() : "";
+        }
+    }
+
+    public static class BatchResult {
+        private final File outputDir;
+        private final int completed;
+        private final int failed;
+        private final int skipped;
+
+        public BatchResult(File outputDir, int completed, int failed, int skipped) {
+            this.outputDir = outputDir;
+            this.completed = completed;
+            this.failed = failed;
+            this.skipped = skipped;
+        }
+
+        public File getOutputDir() { return outputDir; }
+        public int getCompleted() { return completed; }
+        public int getFailed() { return failed; }
+        public int getSkipped() { return skipped; }
+    }
+}
@@ -0,0 +1,73 @@
+package com.customer.service;
+
+import com.customer.model.Account;
+import com.customer.model.Money;
+import com.customer.model.Transaction;
+import com.customer.model.TransactionType;
+import com.customer.model.dto.AccountStatementData;
+import com.customer.model.dto.StatementLine;
+import com.customer.util.SessionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Builds one account statement in a single pass over its rows in ascending
+ * (created_date, id) order, as produced by ReportDAO.streamStatementRows.
+ * Each row becomes a line with its signed amount and running balance; the
+ * totals are kept as running sums in hundredths, so no second pass is needed.
+ */
+public class StatementBuilder {
+
+    private final AccountStatementData data = new AccountStatementData();
+    private final LocalDateTime periodStart;
+
+    private Money opening = Money.ZERO;
+    private Money running = Money.ZERO;
+    private long credits;
+    private long debits;
+    private long transfers;
+    private int count;
+
+    public StatementBuilder(Account account, LocalDate from, LocalDate to) {
+        this.periodStart = from.atStartOfDay();
+        data.setAccount(account);
+        data.setFromDate(from);
+        data.setToDate(to);
+    }
+
+    public void accept(Transaction txn, Money signedAmount) {
+        // Last row before the period: its balance is the opening balance
+        if (txn.getCreatedDate().isBefore(periodStart)) {
+            opening = txn.getBalanceAfter();
+            running = opening;
+            return;
+        }
+
+        running = running.plus(signedAmount);
+        data.getLines().add(new StatementLine(txn, signedAmount, running));
+        count++;
+
+        long minor = signedAmount.toMinor();
+        if (minor >= 0) {
+            credits = Math.addExact(credits, minor);
+        } else {
+            debits = Math.subtractExact(debits, minor);
+        }
+        if (txn.getTransactionType() == TransactionType.TRANSFER) {
+            transfers = Math.addExact(transfers, Math.abs(minor));
+        }
+    }
+
+    public AccountStatementData finish() {
+        data.setGeneratedBy(SessionManager.getCurrentUser() != null ? SessionManager.getCurrentUser().getFullName() : "System");
+        data.setGeneratedAt(LocalDateTime.now());
+        data.setOpeningBalance(opening);
+        data.setClosingBalance(running);
+        data.setTotalDeposits(Money.ofMinor(credits));
+        data.setTotalWithdrawals(Money.ofMinor(debits));
+        data.setTotalTransfers(Money.ofMinor(transfers));
+        data.setTransactionCount(count);
+        return data;
+    }
+}
@@ -0,0 +1,362 @@
+package com.customer.service;
+
+import com.customer.dao.LoanDAO;
+import com.customer.model.LoanStatus;
+import com.customer.model.Money;
+import com.customer.model.Role;
+import com.customer.util.SessionManager;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo credit loss over the next {@link #HORIZON_MONTHS} months for every
+ * loan still being repaid (DISBURSED or OVERDUE).
+ *
+ * Each scenario draws one systematic factor Z shared by all loans (one-factor
+ * Vasicek, asset correlation {@code stress.correlation}) and turns each loan's
+ * probability of default into a probability conditional on Z, so bad years hit
+ * many loans at once. Each loan then draws once: below its prepayment cutoff it
+ * is repaid early and loses nothing, in the band above it it defaults and loses
+ * {@code stress.lgd} of its remaining balance. Overdue loans do not prepay.
+ *
+ * Probabilities depend only on status and months left in the horizon, so loans
+ * are kept as a bucket byte next to their exposure in primitive columns, and a
+ * scenario computes the cutoffs of its {@link #BUCKETS} buckets once, leaving
+ * the per-loan loop one random draw, two loads and a compare.
+ *
+ * Scenarios run in parallel blocks. Every scenario has its own generator seeded
+ * from {@code stress.seed} in scenario order, so a run gives the same losses on
+ * any number of cores, and two portfolios that differ by one loan appended at
+ * the end see the same draws for every other loan (used for marginal impact).
+ */
+public class StressTestEngine {
+
+    public static final int HORIZON_MONTHS = 12;
+
+    private static final int DEFAULT_SCENARIOS = Integer.getInteger("stress.scenarios", 10_000);
+    private static final double PD_DISBURSED = Double.parseDouble(System.getProperty("stress.pd.disbursed", "0.02"));
+    private static final double PD_OVERDUE = Double.parseDouble(System.getProperty("stress.pd.overdue", "0.35"));
+    private static final double PREPAYMENT = Double.parseDouble(System.getProperty("stress.prepayment", "0.08"));
+    private static final double LGD = Double.parseDouble(System.getProperty("stress.lgd", "0.45"));
+    private static final double CORRELATION = Double.parseDouble(System.getProperty("stress.correlation", "0.15"));
+    private static final long SEED = Long.getLong("stress.seed", 42L);
+    private static final int MARGINAL_SCENARIOS = Integer.getInteger("stress.marginalScenarios", 2_000);
+
+    private static final int SCENARIO_BLOCK = 32;
+    // Bucket = status * HORIZON_MONTHS + (months left - 1)
+    private static final int BUCKETS = 2 * HORIZON_MONTHS;
+    private static final double TWO_POW_63 = 0x1p63;
+
+    private final LoanDAO loanDAO;
+
+    public StressTestEngine() {
+        this.loanDAO = new LoanDAO();
+    }
+
+    /** Loans to simulate, in parallel arrays. Fill with {@link #add} and hand to {@link #simulate}. */
+    public static class Portfolio {
+        private long[] ids = new long[1024];
+        private double[] exposures = new double[1024];
+        private byte[] buckets = new byte[1024];
+        private int size;
+        private double totalExposure;
+
+        public void add(long id, LoanStatus status, Money remainingBalance, LocalDate endDate) {
+            add(id, status, remainingBalance.doubleValue(), monthsLeft(status, endDate, LocalDate.now()));
+        }
+
+        /** {@code monthsLeft} is clamped to 1..{@link #HORIZON_MONTHS}; only DISBURSED and OVERDUE are accepted. */
+        public void add(long id, LoanStatus status, double exposure, int monthsLeft) {
+            if (status != LoanStatus.DISBURSED && status != LoanStatus.OVERDUE) {
+                throw new IllegalArgumentException("Not an active loan: " + status);
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                exposures = Arrays.copyOf(exposures, capacity);
+                buckets = Arrays.copyOf(buckets, capacity);
+            }
+            int months = Math.max(1, Math.min(HORIZON_MONTHS, monthsLeft));
+            ids[size] = id;
+            exposures[size] = exposure;
+            buckets[size] = (byte) ((status == LoanStatus.OVERDUE ? HORIZON_MONTHS : 0) + months - 1);
+            size++;
+            totalExposure += exposure;
+        }
+
+        /** A copy with one more loan at the end. */
+        public Portfolio withLoan(long id, LoanStatus status, double exposure, int monthsLeft) {
+            Portfolio copy = new Portfolio();
+            int capacity = size + 1;
+            copy.ids = Arrays.copyOf(ids, capacity);
+            copy.exposures = Arrays.copyOf(exposures, capacity);
+            copy.buckets = Arrays.copyOf(buckets, capacity);
+            copy.size = size;
+            copy.totalExposure = totalExposure;
+            copy.add(id, status, exposure, monthsLeft);
+            return copy;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public double getTotalExposure() {
+            return totalExposure;
+        }
+
+        // Overdue loans and loans without an end date stay exposed for the whole horizon
+        private static int monthsLeft(LoanStatus status, LocalDate endDate, LocalDate today) {
+            if (status == LoanStatus.OVERDUE || endDate == null) {
+                return HORIZON_MONTHS;
+            }
+            return (int) Math.min(HORIZON_MONTHS, ChronoUnit.MONTHS.between(today, endDate) + 1);
+        }
+    }
+
+    /** The loss distribution of a run; losses are in VND. */
+    public static class Result {
+        private final double[] losses;
+        private final double expectedLoss;
+        private final double totalExposure;
+        private final int loans;
+        private final long millis;
+
+        Result(double[] losses, double totalExposure, int loans, long millis) {
+            Arrays.sort(losses);
+            double sum = 0;
+            for (double loss : losses) {
+                sum += loss;
+            }
+            this.losses = losses;
+            this.expectedLoss = losses.length > 0 ? sum / losses.length : 0;
+            this.totalExposure = totalExposure;
+            this.loans = loans;
+            this.millis = millis;
+        }
+
+        public double getExpectedLoss() { return expectedLoss; }
+        public double getTotalExposure() { return totalExposure; }
+        public int getLoans() { return loans; }
+        public int getScenarios() { return losses.length; }
+        public long getMillis() { return millis; }
+
+        public double getMaxLoss() {
+            return losses.length > 0 ? losses[losses.length - 1] : 0;
+        }
+
+        /** The loss not exceeded in {@code confidence} of scenarios, e.g. 0.99. */
+        public double getValueAtRisk(double confidence) {
+            if (losses.length == 0) {
+                return 0;
+            }
+            return losses[quantileIndex(confidence)];
+        }
+
+        /** Mean loss over the scenarios at or beyond {@link #getValueAtRisk}. */
+        public double getExpectedShortfall(double confidence) {
+            if (losses.length == 0) {
+                return 0;
+            }
+            int from = quantileIndex(confidence);
+            double sum = 0;
+            for (int i = from; i < losses.length; i++) {
+                sum += losses[i];
+            }
+            return sum / (losses.length - from);
+        }
+
+        /** Scenario counts over {@code bins} equal-width loss ranges from 0 to the largest loss. */
+        public int[] histogram(int bins) {
+            int[] counts = new int[bins];
+            double width = getMaxLoss() / bins;
+            for (double loss : losses) {
+                int bin = width > 0 ? (int) (loss / width) : 0;
+                counts[Math.min(bins - 1, bin)]++;
+            }
+            return counts;
+        }
+
+        private int quantileIndex(double confidence) {
+            int index = (int) Math.ceil(confidence * losses.length) - 1;
+            return Math.max(0, Math.min(losses.length - 1, index));
+        }
+    }
+
+    /** How approving one more loan moves the portfolio's expected loss and 99% VaR. */
+    public static class MarginalImpact {
+        private final Result before;
+        private final Result after;
+
+        MarginalImpact(Result before, Result after) {
+            this.before = before;
+            this.after = after;
+        }
+
+        public Result getBefore() { return before; }
+        public Result getAfter() { return after; }
+
+        public double getExpectedLossChange() {
+            return after.getExpectedLoss() - before.getExpectedLoss();
+        }
+
+        public double getValueAtRiskChange() {
+            return after.getValueAtRisk(0.99) - before.getValueAtRisk(0.99);
+        }
+    }
+
+    public static boolean canRun() {
+        return SessionManager.hasRole(Role.MANAGER, Role.ADMIN);
+    }
+
+    public static int getDefaultScenarios() {
+        return DEFAULT_SCENARIOS;
+    }
+
+    public Portfolio loadPortfolio() throws SQLException {
+        Portfolio portfolio = new Portfolio();
+        loanDAO.streamActiveExposures(portfolio::add);
+        return portfolio;
+    }
+
+    /** Reads the active loans and simulates {@code scenarios} scenarios. */
+    public Result run(int scenarios) throws SQLException {
+        if (!canRun()) {
+            throw new SecurityException("Access Denied: Only Managers and Admins can run stress tests.");
+        }
+        if (scenarios <= 0) {
+            throw new IllegalArgumentException("Số kịch bản phải lớn hơn 0");
+        }
+        return simulate(loadPortfolio(), scenarios, SEED);
+    }
+
+    /** Loss of the current portfolio with and without a new loan of {@code amount} over {@code termMonths}. */
+    public MarginalImpact marginalImpact(Money amount, int termMonths) throws SQLException {
+        if (!canRun()) {
+            throw new SecurityException("Access Denied: Only Managers and Admins can run stress tests.");
+        }
+        Portfolio portfolio = loadPortfolio();
+        Portfolio withLoan = portfolio.withLoan(0, LoanStatus.DISBURSED, amount.doubleValue(), termMonths);
+        return new MarginalImpact(simulate(portfolio, MARGINAL_SCENARIOS, SEED),
+                simulate(withLoan, MARGINAL_SCENARIOS, SEED));
+    }
+
+    public static Result simulate(Portfolio portfolio, int scenarios, long seed) {
+        long start = System.currentTimeMillis();
+
+        // Horizon probabilities per bucket; the systematic factor is applied per scenario
+        double[] defaultThreshold = new double[BUCKETS];
+        double[] prepayment = new double[BUCKETS];
+        for (int months = 1; months <= HORIZON_MONTHS; months++) {
+            double years = months / (double) HORIZON_MONTHS;
+            defaultThreshold[months - 1] = inverseNormal(horizonProbability(PD_DISBURSED, years));
+            prepayment[months - 1] = horizonProbability(PREPAYMENT, years);
+            defaultThreshold[HORIZON_MONTHS + months - 1] = inverseNormal(PD_OVERDUE);
+        }
+
+        SplittableRandom root = new SplittableRandom(seed);
+        long[] scenarioSeeds = new long[scenarios];
+        for (int s = 0; s < scenarios; s++) {
+            scenarioSeeds[s] = root.nextLong();
+        }
+
+        double[] losses = new double[scenarios];
+        int blocks = (scenarios + SCENARIO_BLOCK - 1) / SCENARIO_BLOCK;
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            long[] prepayCut = new long[BUCKETS];
+            long[] defaultWidth = new long[BUCKETS];
+            int to = Math.min(scenarios, (block + 1) * SCENARIO_BLOCK);
+            for (int s = block * SCENARIO_BLOCK; s < to; s++) {
+                SplittableRandom random = new SplittableRandom(scenarioSeeds[s]);
+                double z = inverseNormal(random.nextDouble());
+                for (int b = 0; b < BUCKETS; b++) {
+                    double pd = conditionalDefault(defaultThreshold[b], z);
+                    double prepaid = prepayment[b];
+                    prepayCut[b] = (long) (prepaid * TWO_POW_63);
+                    defaultWidth[b] = (long) ((1 - prepaid) * pd * TWO_POW_63);
+                }
+                losses[s] = LGD * scenarioLoss(portfolio, random, prepayCut, defaultWidth);
+            }
+        });
+        return new Result(losses, portfolio.totalExposure, portfolio.size, System.currentTimeMillis() - start);
+    }
+
+    // Sum of exposures that default in one scenario
+    private static double scenarioLoss(Portfolio portfolio, SplittableRandom random, long[] prepayCut, long[] defaultWidth) {
+        double[] exposures = portfolio.exposures;
+        byte[] buckets = portfolio.buckets;
+        int size = portfolio.size;
+        double defaulted = 0;
+        for (int i = 0; i < size; i++) {
+            int b = buckets[i];
+            long draw = random.nextLong() >>> 1;
+            // Unsigned compare: a draw below the prepayment cutoff wraps around and falls outside the band
+            if (draw - prepayCut[b] + Long.MIN_VALUE < defaultWidth[b] + Long.MIN_VALUE) {
+                defaulted += exposures[i];
+            }
+        }
+        return defaulted;
+    }
+
+    private static double horizonProbability(double annual, double years) {
+        return 1 - Math.pow(1 - annual, years);
+    }
+
+    private static double conditionalDefault(double threshold, double z) {
+        if (threshold == Double.NEGATIVE_INFINITY) {
+            return 0;
+        }
+        if (threshold == Double.POSITIVE_INFINITY) {
+            return 1;
+        }
+        return cumulativeNormal((threshold - Math.sqrt(CORRELATION) * z) / Math.sqrt(1 - CORRELATION));
+    }
+
+    // Abramowitz & Stegun 26.2.17, absolute error below 7.5e-8
+    static double cumulativeNormal(double x) {
+        double t = 1 / (1 + 0.2316419 * Math.abs(x));
+        double poly = t * (0.319381530 + t * (-0.356563782 + t * (1.781477937 + t * (-1.821255978 + t * 1.330274429))));
+        double tail = Math.exp(-x * x / 2) / Math.sqrt(2 * Math.PI) * poly;
+        return x >= 0 ? 1 - tail : tail;
+    }
+
+    // Acklam's rational approximation, relative error below 1.15e-9
+    static double inverseNormal(double p) {
+        if (p <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (p >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final double plow = 0.02425;
+        if (p < plow) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return tailNumerator(q) / tailDenominator(q);
+        }
+        if (p > 1 - plow) {
+            double q = Math.sqrt(-2 * Math.log(1 - p));
+            return -tailNumerator(q) / tailDenominator(q);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((-3.969683028665376e+01 * r + 2.209460984245205e+02) * r - 2.759285104469687e+02) * r
+                + 1.383577518672690e+02) * r - 3.066479806614716e+01) * r + 2.506628277459239e+00) * q
+                / (((((-5.447609879822406e+01 * r + 1.615858368580409e+02) * r - 1.556989798598866e+02) * r
+                + 6.680131188771972e+01) * r - 1.328068155288572e+01) * r + 1);
+    }
+
+    private static double tailNumerator(double q) {
+        return ((((-7.784894002430293e-03 * q - 3.223964580411365e-01) * q - 2.400758277161838e+00) * q
+                - 2.549732539343734e+00) * q + 4.374664141464968e+00) * q + 2.938163982698783e+00;
+    }
+
+    private static double tailDenominator(double q) {
+        return (((7.784695709041462e-03 * q + 3.224671290700398e-01) * q + 2.445134137142996e+00) * q
+                + 3.754408661907416e+00) * q + 1;
+    }
+}
@@ -0,0 +1,541 @@
+package com.customer.service;
+
+import com.customer.dao.ReportDAO;
+import com.customer.event.EntityInvalidated;
+import com.customer.event.EntityInvalidated.Entity;
+import com.customer.event.EntityInvalidated.Operation;
+import com.customer.event.EventBus;
+import com.customer.event.TransactionPosted;
+import com.customer.model.Money;
+import com.customer.model.Transaction;
+import com.customer.model.TransactionType;
+import com.customer.model.dto.GroupTotals;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * The whole transaction history in memory, column by column, so the transaction
+ * report totals and the dashboard trends are answered without a SQL scan.
+ *
+ * Rows sit in fixed-size chunks of primitive columns: id, epoch day, type
+ * ordinal, amount in hundredths and account / target account as indexes into
+ * a table of account ids. Each chunk keeps its first and last day, so a date
+ * range skips whole chunks and needs no per-row date test on chunks it covers.
+ * Queries scan the chunks in parallel, each with a plain indexed loop into
+ * per-type or per-month long accumulators, and add the partial results up.
+ *
+ * Loaded once with one streaming scan in id order, then appended to from
+ * {@link TransactionPosted} (this instance) and {@link EntityInvalidated}
+ * inserts (other instances). If the columns would grow past
+ * {@code -Dcube.memoryPercent} of the heap (default 25) the cube switches
+ * itself off and {@link #isReady()} stays false, so callers keep using SQL.
+ */
+public class TransactionCube {
+
+    private static final TransactionCube INSTANCE = new TransactionCube();
+
+    // 8192 amounts of at most 10^15 hundredths (DECIMAL(15,2)) cannot overflow a long,
+    // so the per-chunk loops add without overflow checks
+    private static final int CHUNK_BITS = 13;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    // id, day, type, amount, account, target
+    private static final int ROW_BYTES = 8 + 4 + 1 + 8 + 4 + 4;
+    private static final int MEMORY_PERCENT = Integer.getInteger("cube.memoryPercent", 25);
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    // Change in the total balance held by customers; a transfer moves money between them
+    private static final long[] NET_SIGN = new long[TYPES.length];
+
+    static {
+        NET_SIGN[TransactionType.DEPOSIT.ordinal()] = 1;
+        NET_SIGN[TransactionType.WITHDRAW.ordinal()] = -1;
+        NET_SIGN[TransactionType.LOAN_DISBURSEMENT.ordinal()] = 1;
+        NET_SIGN[TransactionType.LOAN_PAYMENT.ordinal()] = -1;
+    }
+
+    private static final class Chunk {
+        final long[] ids = new long[CHUNK];
+        final int[] days = new int[CHUNK];
+        final byte[] types = new byte[CHUNK];
+        final long[] amounts = new long[CHUNK];
+        final int[] accounts = new int[CHUNK];
+        // -1 when the row has no target account
+        final int[] targets = new int[CHUNK];
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+    }
+
+    /** The columns: chunks are only ever appended to, rows below {@code size} never change. */
+    private static final class Store {
+        final List<Chunk> chunks = new ArrayList<>();
+        final Map<Long, Integer> accountIndex = new HashMap<>();
+        long size;
+        // Rows [0, sortedRows) came from the id-ordered scan; ids up to scannedMaxId may be among them
+        long sortedRows;
+        long scannedMaxId;
+
+        int account(long accountId) {
+            if (accountId <= 0) {
+                return -1;
+            }
+            return accountIndex.computeIfAbsent(accountId, id -> accountIndex.size());
+        }
+
+        long bytes() {
+            return (long) chunks.size() * CHUNK * ROW_BYTES;
+        }
+
+        boolean append(long id, long accountId, long targetAccountId, TransactionType type, long amount, LocalDate date, long budget) {
+            int offset = (int) (size & (CHUNK - 1));
+            if (offset == 0) {
+                if (bytes() + (long) CHUNK * ROW_BYTES > budget) {
+                    return false;
+                }
+                chunks.add(new Chunk());
+            }
+            Chunk chunk = chunks.get((int) (size >>> CHUNK_BITS));
+            int day = (int) date.toEpochDay();
+            chunk.ids[offset] = id;
+            chunk.days[offset] = day;
+            chunk.types[offset] = (byte) type.ordinal();
+            chunk.amounts[offset] = amount;
+            chunk.accounts[offset] = account(accountId);
+            chunk.targets[offset] = account(targetAccountId);
+            chunk.minDay = Math.min(chunk.minDay, day);
+            chunk.maxDay = Math.max(chunk.maxDay, day);
+            size++;
+            return true;
+        }
+
+        // Binary search over the scanned rows, which are in id order
+        boolean containsScanned(long id) {
+            long low = 0;
+            long high = sortedRows - 1;
+            while (low <= high) {
+                long mid = (low + high) >>> 1;
+                long midId = chunks.get((int) (mid >>> CHUNK_BITS)).ids[(int) (mid & (CHUNK - 1))];
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** Chunks and row count as of one moment; the rows it covers are never written again. */
+    private static final class Snapshot {
+        final Chunk[] chunks;
+        final long size;
+
+        Snapshot(Store store) {
+            this.chunks = store.chunks.toArray(new Chunk[0]);
+            this.size = store.size;
+        }
+
+        int rowsIn(int chunk) {
+            return (int) Math.min(CHUNK, size - ((long) chunk << CHUNK_BITS));
+        }
+    }
+
+    /** Transaction count and net flow (deposits and disbursements less withdrawals and repayments) per month. */
+    public static final class MonthlyTrend {
+        private final Map<String, Integer> counts = new TreeMap<>();
+        private final Map<String, Money> netFlow = new TreeMap<>();
+
+        /** Keyed "yyyy-MM", months without transactions left out, as the SQL trend queries return them. */
+        public Map<String, Integer> getCounts() { return counts; }
+
+        public Map<String, Money> getNetFlow() { return netFlow; }
+    }
+
+    private static final class Held {
+        final long id;
+        final long accountId;
+        final long targetAccountId;
+        final TransactionType type;
+        final long amount;
+        final LocalDate date;
+
+        Held(long id, long accountId, long targetAccountId, TransactionType type, long amount, LocalDate date) {
+            this.id = id;
+            this.accountId = accountId;
+            this.targetAccountId = targetAccountId;
+            this.type = type;
+            this.amount = amount;
+            this.date = date;
+        }
+    }
+
+    private Store store = new Store();
+    // While a rebuild scan runs, new rows are held here and applied afterwards
+    private List<Held> pending;
+    private boolean rebuilding;
+    // Events were dropped while a rebuild was already running; scan again when it finishes
+    private boolean rescan;
+    // Over the memory budget: stays off until restart
+    private boolean disabled;
+    private volatile boolean ready;
+    private EventBus.Subscription postings;
+    private EventBus.Subscription invalidations;
+
+    private TransactionCube() {
+    }
+
+    public static TransactionCube getInstance() {
+        return INSTANCE;
+    }
+
+    /** Subscribes to new transactions and loads the history in the background. */
+    public synchronized void start() {
+        if (postings != null || disabled) {
+            return;
+        }
+        postings = EventBus.getInstance().subscribe("transaction-cube", TransactionPosted.class, new EventBus.Subscriber<>() {
+            @Override
+            public void onEvents(List<TransactionPosted> events) {
+                for (TransactionPosted event : events) {
+                    for (Transaction leg : event.getLegs()) {
+                        LocalDateTime created = leg.getCreatedDate() != null ? leg.getCreatedDate() : LocalDateTime.now();
+                        append(new Held(leg.getId(), leg.getAccountId(), leg.getTargetAccountId(), leg.getTransactionType(),
+                                leg.getAmount().toMinor(), created.toLocalDate()));
+                    }
+                }
+            }
+
+            @Override
+            public void onOverflow() {
+                rebuildInBackground();
+            }
+        });
+        invalidations = EventBus.getInstance().subscribe("transaction-cube-remote", EntityInvalidated.class, new EventBus.Subscriber<>() {
+            @Override
+            public void onEvents(List<EntityInvalidated> events) {
+                onInvalidated(events);
+            }
+
+            @Override
+            public void onOverflow() {
+                rebuildInBackground();
+            }
+        });
+        rebuildInBackground();
+    }
+
+    public synchronized void stop() {
+        if (postings != null) {
+            postings.close();
+            postings = null;
+        }
+        if (invalidations != null) {
+            invalidations.close();
+            invalidations = null;
+        }
+    }
+
+    /** False while loading and when switched off; answer from SQL then. */
+    public boolean isReady() {
+        return ready;
+    }
+
+    // --- Queries ---
+
+    /**
+     * Count and amount per type of the transactions dated {@code from} to {@code to}
+     * inclusive, optionally of one type and / or touching one account (as source or
+     * target), with the grand total; the same figures as {@code ReportDAO.getTransactionTotals}.
+     */
+    public GroupTotals<TransactionType> totals(LocalDate from, LocalDate to, TransactionType type, Long accountId) {
+        Snapshot snapshot = snapshot();
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        int typeFilter = type != null ? type.ordinal() : -1;
+        int accountFilter = -1;
+        if (accountId != null) {
+            Integer index = accountIndexOf(accountId);
+            if (index == null) {
+                return totalsOf(new long[TYPES.length * 2]);
+            }
+            accountFilter = index;
+        }
+        int account = accountFilter;
+
+        // Per chunk: counts in [0, TYPES), sums in [TYPES, 2 * TYPES)
+        long[] result = IntStream.range(0, snapshot.chunks.length).parallel()
+                .mapToObj(c -> {
+                    long[] partial = new long[TYPES.length * 2];
+                    Chunk chunk = snapshot.chunks[c];
+                    if (chunk.maxDay < fromDay || chunk.minDay > toDay) {
+                        return partial;
+                    }
+                    boolean allDays = chunk.minDay >= fromDay && chunk.maxDay <= toDay;
+                    scanTotals(chunk, snapshot.rowsIn(c), allDays, fromDay, toDay, typeFilter, account, partial);
+                    return partial;
+                })
+                .reduce(new long[TYPES.length * 2], TransactionCube::addExact);
+        return totalsOf(result);
+    }
+
+    /** Count and net flow per month from {@code months} months before today, like the dashboard trend queries. */
+    public MonthlyTrend monthlyTrend(int months) {
+        Snapshot snapshot = snapshot();
+        LocalDate today = LocalDate.now();
+        LocalDate since = today.minusMonths(months);
+        YearMonth firstMonth = YearMonth.from(since);
+        int fromDay = (int) since.toEpochDay();
+        int monthCount = months + 1;
+        // Month slot of every day in the window, so the loop does one table lookup per row
+        int[] monthOfDay = new int[(int) (today.toEpochDay() - fromDay) + 1];
+        for (int d = 0; d < monthOfDay.length; d++) {
+            LocalDate date = since.plusDays(d);
+            monthOfDay[d] = (date.getYear() - firstMonth.getYear()) * 12 + date.getMonthValue() - firstMonth.getMonthValue();
+        }
+        int toDay = fromDay + monthOfDay.length - 1;
+
+        // Per chunk: counts in [0, monthCount), net flow in [monthCount, 2 * monthCount)
+        long[] result = IntStream.range(0, snapshot.chunks.length).parallel()
+                .mapToObj(c -> {
+                    long[] partial = new long[monthCount * 2];
+                    Chunk chunk = snapshot.chunks[c];
+                    if (chunk.maxDay < fromDay || chunk.minDay > toDay) {
+                        return partial;
+                    }
+                    int rows = snapshot.rowsIn(c);
+                    int[] days = chunk.days;
+                    byte[] types = chunk.types;
+                    long[] amounts = chunk.amounts;
+                    for (int i = 0; i < rows; i++) {
+                        int day = days[i] - fromDay;
+                        if (day >= 0 && day < monthOfDay.length) {
+                            int month = monthOfDay[day];
+                            partial[month]++;
+                            partial[monthCount + month] += NET_SIGN[types[i]] * amounts[i];
+                        }
+                    }
+                    return partial;
+                })
+                .reduce(new long[monthCount * 2], TransactionCube::addExact);
+
+        MonthlyTrend trend = new MonthlyTrend();
+        for (int m = 0; m < monthCount; m++) {
+            if (result[m] > 0) {
+                String key = firstMonth.plusMonths(m).toString();
+                trend.counts.put(key, Math.toIntExact(result[m]));
+                trend.netFlow.put(key, Money.ofMinor(result[monthCount + m]));
+            }
+        }
+        return trend;
+    }
+
+    // One branch-free body per filter combination, so the common cases are a straight pass over the columns
+    private static void scanTotals(Chunk chunk, int rows, boolean allDays, int fromDay, int toDay,
+                                   int type, int account, long[] partial) {
+        int[] days = chunk.days;
+        byte[] types = chunk.types;
+        long[] amounts = chunk.amounts;
+        int[] accounts = chunk.accounts;
+        int[] targets = chunk.targets;
+        int sums = TYPES.length;
+        if (allDays && type < 0 && account < 0) {
+            for (int i = 0; i < rows; i++) {
+                int t = types[i];
+                partial[t]++;
+                partial[sums + t] += amounts[i];
+            }
+            return;
+        }
+        if (account < 0) {
+            for (int i = 0; i < rows; i++) {
+                int t = types[i];
+                int day = days[i];
+                if (day >= fromDay && day <= toDay && (type < 0 || t == type)) {
+                    partial[t]++;
+                    partial[sums + t] += amounts[i];
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < rows; i++) {
+            int t = types[i];
+            int day = days[i];
+            if ((accounts[i] == account || targets[i] == account)
+                    && day >= fromDay && day <= toDay && (type < 0 || t == type)) {
+                partial[t]++;
+                partial[sums + t] += amounts[i];
+            }
+        }
+    }
+
+    private static long[] addExact(long[] a, long[] b) {
+        long[] sum = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            sum[i] = Math.addExact(a[i], b[i]);
+        }
+        return sum;
+    }
+
+    private static GroupTotals<TransactionType> totalsOf(long[] result) {
+        GroupTotals<TransactionType> totals = new GroupTotals<>(TransactionType.class);
+        long count = 0;
+        long amount = 0;
+        for (TransactionType type : TYPES) {
+            int t = type.ordinal();
+            if (result[t] > 0) {
+                totals.put(type, Math.toIntExact(result[t]), Money.ofMinor(result[TYPES.length + t]));
+                count += result[t];
+                amount = Math.addExact(amount, result[TYPES.length + t]);
+            }
+        }
+        totals.setTotalCount(Math.toIntExact(count));
+        totals.setTotalAmount(Money.ofMinor(amount));
+        return totals;
+    }
+
+    private synchronized Snapshot snapshot() {
+        return new Snapshot(store);
+    }
+
+    // An account first seen after the snapshot has no rows in it, so a newer index matches nothing
+    private synchronized Integer accountIndexOf(long accountId) {
+        return store.accountIndex.get(accountId);
+    }
+
+    // --- Feeding ---
+
+    private synchronized void append(Held row) {
+        if (disabled) {
+            return;
+        }
+        if (pending != null) {
+            pending.add(row);
+            return;
+        }
+        // A remote insert fetched around a rebuild may already be in the scan
+        if (row.id <= store.scannedMaxId && store.containsScanned(row.id)) {
+            return;
+        }
+        if (!store.append(row.id, row.accountId, row.targetAccountId, row.type, row.amount, row.date, budget())) {
+            disable();
+        }
+    }
+
+    private void onInvalidated(List<EntityInvalidated> events) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (EntityInvalidated event : events) {
+            if (event.getEntity() == Entity.ALL) {
+                rebuildInBackground();
+                return;
+            }
+            if (event.getEntity() == Entity.TRANSACTION && event.getOperation() == Operation.INSERT) {
+                ids.add(event.getEntityId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            new ReportDAO().getLedgerRowsByIds(new ArrayList<>(ids), (id, accountId, targetAccountId, type, amount, createdDate) ->
+                    append(new Held(id, accountId, targetAccountId, type, amount.toMinor(), createdDate.toLocalDate())));
+        } catch (Exception e) {
+            System.err.println("Transaction cube refresh failed: " + e.getMessage());
+            rebuildInBackground();
+        }
+    }
+
+    private static long budget() {
+        return Runtime.getRuntime().maxMemory() / 100 * MEMORY_PERCENT;
+    }
+
+    // Called with the monitor held
+    private void disable() {
+        disabled = true;
+        ready = false;
+        store = new Store();
+        pending = null;
+        stop();
+        System.err.printf("Transaction cube disabled: history does not fit in %d%% of the heap (%d MB); reports use SQL%n",
+                MEMORY_PERCENT, budget() / (1024 * 1024));
+    }
+
+    // --- Rebuild ---
+
+    private void rebuildInBackground() {
+        synchronized (this) {
+            if (disabled) {
+                return;
+            }
+            if (rebuilding) {
+                rescan = true;
+                return;
+            }
+            rebuilding = true;
+            ready = false;
+            pending = new ArrayList<>();
+            // Let the old columns go before the new ones are built
+            store = new Store();
+        }
+        Thread thread = new Thread(this::rebuild, "transaction-cube-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void rebuild() {
+        Store scanned = new Store();
+        long budget = budget();
+        boolean[] overBudget = new boolean[1];
+        long start = System.nanoTime();
+        try {
+            scanned.scannedMaxId = new ReportDAO().streamLedger((id, accountId, targetAccountId, type, amount, createdDate) -> {
+                if (!overBudget[0] && !scanned.append(id, accountId, targetAccountId, type, amount.toMinor(),
+                        createdDate.toLocalDate(), budget)) {
+                    overBudget[0] = true;
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("Transaction cube rebuild failed: " + e.getMessage());
+            synchronized (this) {
+                // Stay off; the next overflow or ALL invalidation tries again
+                pending = null;
+                rebuilding = false;
+                rescan = false;
+            }
+            return;
+        }
+
+        synchronized (this) {
+            rebuilding = false;
+            if (overBudget[0]) {
+                disable();
+                return;
+            }
+            scanned.sortedRows = scanned.size;
+            store = scanned;
+            List<Held> held = pending;
+            pending = null;
+            held.forEach(this::append);
+            if (disabled) {
+                return;
+            }
+            if (rescan) {
+                rescan = false;
+                rebuildInBackground();
+                return;
+            }
+            ready = true;
+        }
+        System.out.printf("Transaction cube loaded %d rows (%d MB) in %d ms%n",
+                scanned.size, scanned.bytes() / (1024 * 1024), (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -3,12 +3,14 @@ package com.customer.service;
 import com.customer.dao.AccountDAO;
 import com.customer.dao.DatabaseManager;
 import com.customer.dao.TransactionDAO;
+import com.customer.event.EventBus;
+import com.customer.event.TransactionPosted;
 import com.customer.model.Account;
 import com.customer.model.AccountStatus;
+import com.customer.model.Money;
 import com.customer.model.Transaction;
 import com.customer.model.TransactionType;
 
-import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
@@ -18,101 +20,156 @@ public class TransactionService {
 
     private final TransactionDAO transactionDAO;
     private final AccountDAO accountDAO;
-    public static final BigDecimal MAX_TRANSACTION_AMOUNT = new BigDecimal("500000000"); // 500 million VND
+    private final IdempotencyKeys idempotencyKeys = IdempotencyKeys.getInstance();
+    public static final Money MAX_TRANSACTION_AMOUNT = Money.of(500_000_000); // 500 million VND
 
     public TransactionService() {
         this.transactionDAO = new TransactionDAO();
         this.accountDAO = new AccountDAO();
     }
 
-    public Transaction deposit(long accountId, BigDecimal amount, String description, long userId) throws SQLException, IllegalArgumentException {
+    public Transaction deposit(long accountId, Money amount, String description, long userId, String idempotencyKey) throws SQLException, IllegalArgumentException {
         validateAmount(amount);
 
-        Account account = accountDAO.findById(accountId);
-        if (account == null) {
-            throw new IllegalArgumentException("Tài khoản không tồn tại");
+        // While the database is down (or the offline journal is still replaying), deposits are queued locally
+        OfflineDeposits offlineDeposits = OfflineDeposits.getInstance();
+        if (offlineDeposits.isQueueing() || !DatabaseManager.getInstance().isConnected()) {
+            return offlineDeposits.accept(accountId, amount, description, userId, idempotencyKey, null);
         }
-        validateAccountStatus(account);
+        try {
+            return postDeposit(accountId, amount, description, userId, idempotencyKey, null);
+        } catch (SQLException e) {
+            if (!OfflineDeposits.isConnectionFailure(e)) {
+                throw e;
+            }
+            System.err.println("Database unreachable, taking deposit offline: " + e.getMessage());
+            return offlineDeposits.accept(accountId, amount, description, userId, idempotencyKey, e);
+        }
+    }
 
-        BigDecimal newBalance = account.getBalance().add(amount);
-        account.setBalance(newBalance);
+    // Posts a deposit on the shared connection
+    private Transaction postDeposit(long accountId, Money amount, String description, long userId,
+                                    String idempotencyKey, String referenceNumber) throws SQLException, IllegalArgumentException {
+        return postDeposit(DatabaseManager.getInstance().getConnection(), accountId, amount, description, userId,
+                idempotencyKey, referenceNumber);
+    }
 
-        Transaction transaction = new Transaction();
-        transaction.setAccountId(accountId);
-        transaction.setTransactionType(TransactionType.DEPOSIT);
-        transaction.setAmount(amount);
-        transaction.setBalanceAfter(newBalance);
-        transaction.setDescription(description);
-        transaction.setCreatedBy(userId);
+    /**
+     * Posts a deposit with every read and write on {@code conn}. Background callers pass
+     * their own connection so their transaction cannot interleave with the UI's on the
+     * shared one. Replayed offline deposits keep their provisional reference number.
+     */
+    Transaction postDeposit(Connection conn, long accountId, Money amount, String description, long userId,
+                            String idempotencyKey, String referenceNumber) throws SQLException, IllegalArgumentException {
+        validateAmount(amount);
+        String request = IdempotencyKeys.describe("DEPOSIT", accountId, null, amount);
+        Transaction previous = idempotencyKeys.findOriginal(conn, idempotencyKey, request);
+        if (previous != null) {
+            return previous;
+        }
 
-        Connection conn = null;
         try {
-            conn = DatabaseManager.getInstance().getConnection();
             conn.setAutoCommit(false);
 
+            // Offline replay posts on its own connection, so the row stays locked until commit
+            Account account = accountDAO.findByIdForUpdate(conn, accountId);
+            if (account == null) {
+                throw new IllegalArgumentException("Tài khoản không tồn tại");
+            }
+            validateAccountStatus(account);
+
+            Money newBalance = account.getBalance().plus(amount);
+            account.setBalance(newBalance);
+
+            Transaction transaction = new Transaction();
+            transaction.setAccountId(accountId);
+            transaction.setTransactionType(TransactionType.DEPOSIT);
+            transaction.setAmount(amount);
+            transaction.setBalanceAfter(newBalance);
+            transaction.setDescription(description);
+            transaction.setCreatedBy(userId);
+            transaction.setReferenceNumber(referenceNumber);
+
             // Update account balance
             accountDAO.update(account, conn); // Requires update method in AccountDAO that accepts connection
 
             // Save transaction
             transactionDAO.save(transaction, conn);
+            idempotencyKeys.claim(conn, idempotencyKey, request, transaction);
 
             conn.commit();
+            idempotencyKeys.remember(idempotencyKey, request, transaction);
+            EventBus.getInstance().publish(new TransactionPosted(transaction));
             return transaction;
         } catch (SQLException e) {
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                }
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            // Lost the race to another attempt with the same key: hand back its result
+            Transaction winner = idempotencyKeys.resolveConflict(conn, idempotencyKey, request, e);
+            if (winner != null) {
+                return winner;
             }
             throw e;
         } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                    // Do NOT close connection here as it is a shared singleton connection
-                    // conn.close();
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                }
+            try {
+                conn.setAutoCommit(true);
+                // Do NOT close connection here; it belongs to the caller
+            } catch (SQLException e) {
+                e.printStackTrace();
             }
         }
     }
 
-    public Transaction withdraw(long accountId, BigDecimal amount, String description, long userId) throws SQLException, IllegalArgumentException {
+    public Transaction withdraw(long accountId, Money amount, String description, long userId, String idempotencyKey) throws SQLException, IllegalArgumentException {
         validateAmount(amount);
-
-        Account account = accountDAO.findById(accountId);
-        if (account == null) {
-            throw new IllegalArgumentException("Tài khoản không tồn tại");
-        }
-        validateAccountStatus(account);
-
-        if (account.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Số dư không đủ để thực hiện giao dịch");
+        String request = IdempotencyKeys.describe("WITHDRAW", accountId, null, amount);
+        Transaction previous = idempotencyKeys.findOriginal(idempotencyKey, request);
+        if (previous != null) {
+            return previous;
         }
 
-        BigDecimal newBalance = account.getBalance().subtract(amount);
-        account.setBalance(newBalance);
-
-        Transaction transaction = new Transaction();
-        transaction.setAccountId(accountId);
-        transaction.setTransactionType(TransactionType.WITHDRAW);
-        transaction.setAmount(amount);
-        transaction.setBalanceAfter(newBalance);
-        transaction.setDescription(description);
-        transaction.setCreatedBy(userId);
-
         Connection conn = null;
+        RiskEngine.Reservation reservation = null;
+        boolean committed = false;
         try {
             conn = DatabaseManager.getInstance().getConnection();
             conn.setAutoCommit(false);
 
+            // Locked until commit: offline replay may post to the same account on its own connection
+            Account account = accountDAO.findByIdForUpdate(conn, accountId);
+            if (account == null) {
+                throw new IllegalArgumentException("Tài khoản không tồn tại");
+            }
+            validateAccountStatus(account);
+
+            if (account.getBalance().isLessThan(amount)) {
+                throw new IllegalArgumentException("Số dư không đủ để thực hiện giao dịch");
+            }
+
+            reservation = RiskEngine.getInstance().reserve(accountId, amount);
+
+            Money newBalance = account.getBalance().minus(amount);
+            account.setBalance(newBalance);
+
+            Transaction transaction = new Transaction();
+            transaction.setAccountId(accountId);
+            transaction.setTransactionType(TransactionType.WITHDRAW);
+            transaction.setAmount(amount);
+            transaction.setBalanceAfter(newBalance);
+            transaction.setDescription(description);
+            transaction.setCreatedBy(userId);
+
             accountDAO.update(account, conn);
             transactionDAO.save(transaction, conn);
+            idempotencyKeys.claim(conn, idempotencyKey, request, transaction);
 
             conn.commit();
+            committed = true;
+            idempotencyKeys.remember(idempotencyKey, request, transaction);
+            EventBus.getInstance().publish(new TransactionPosted(transaction));
             return transaction;
         } catch (SQLException e) {
             if (conn != null) {
@@ -122,8 +179,17 @@ public class TransactionService {
                     ex.printStackTrace();
                 }
             }
+            // Lost the race to another attempt with the same key: hand back its result
+            Transaction winner = idempotencyKeys.resolveConflict(idempotencyKey, request, e);
+            if (winner != null) {
+                return winner;
+            }
             throw e;
         } finally {
+            // Not posted after all: the debit must not count towards the limits
+            if (!committed && reservation != null) {
+                reservation.release();
+            }
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
@@ -136,64 +202,81 @@ public class TransactionService {
         }
     }
 
-    public Transaction transfer(long sourceAccountId, long targetAccountId, BigDecimal amount, String description, long userId) throws SQLException, IllegalArgumentException {
+    public Transaction transfer(long sourceAccountId, long targetAccountId, Money amount, String description, long userId, String idempotencyKey) throws SQLException, IllegalArgumentException {
         validateAmount(amount);
+        String request = IdempotencyKeys.describe("TRANSFER", sourceAccountId, targetAccountId, amount);
+        Transaction previous = idempotencyKeys.findOriginal(idempotencyKey, request);
+        if (previous != null) {
+            return previous;
+        }
 
         if (sourceAccountId == targetAccountId) {
             throw new IllegalArgumentException("Không thể chuyển tiền cho chính tài khoản nguồn");
         }
 
-        Account sourceAccount = accountDAO.findById(sourceAccountId);
-        if (sourceAccount == null) {
-            throw new IllegalArgumentException("Tài khoản nguồn không tồn tại");
-        }
-        validateAccountStatus(sourceAccount);
-
-        Account targetAccount = accountDAO.findById(targetAccountId);
-        if (targetAccount == null) {
-            throw new IllegalArgumentException("Tài khoản đích không tồn tại");
-        }
-        if (targetAccount.getStatus() != AccountStatus.ACTIVE) {
-            throw new IllegalArgumentException("Tài khoản đích không hoạt động");
-        }
-
-        if (sourceAccount.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Số dư tài khoản nguồn không đủ");
-        }
-
-        // Calculate new balances
-        BigDecimal sourceNewBalance = sourceAccount.getBalance().subtract(amount);
-        BigDecimal targetNewBalance = targetAccount.getBalance().add(amount);
-
-        sourceAccount.setBalance(sourceNewBalance);
-        targetAccount.setBalance(targetNewBalance);
-
-        // Create transactions
-        // 1. Debit from source
-        Transaction sourceTx = new Transaction();
-        sourceTx.setAccountId(sourceAccountId);
-        sourceTx.setTransactionType(TransactionType.TRANSFER);
-        sourceTx.setAmount(amount);
-        sourceTx.setTargetAccountId(targetAccountId);
-        sourceTx.setBalanceAfter(sourceNewBalance);
-        sourceTx.setDescription("Chuyển tiền đến " + targetAccount.getAccountNumber() + ": " + description);
-        sourceTx.setCreatedBy(userId);
-
-        // 2. Credit to target (Optional: Create a receiving transaction record for target account)
-        Transaction targetTx = new Transaction();
-        targetTx.setAccountId(targetAccountId);
-        targetTx.setTransactionType(TransactionType.TRANSFER); // Or DEPOSIT/TRANSFER_IN type if distinguished
-        targetTx.setAmount(amount); // Positive for target? usually stored positive but context matters
-        targetTx.setTargetAccountId(sourceAccountId);
-        targetTx.setBalanceAfter(targetNewBalance);
-        targetTx.setDescription("Nhận tiền từ " + sourceAccount.getAccountNumber() + ": " + description);
-        targetTx.setCreatedBy(userId);
-
         Connection conn = null;
+        RiskEngine.Reservation reservation = null;
+        boolean committed = false;
         try {
             conn = DatabaseManager.getInstance().getConnection();
             conn.setAutoCommit(false);
 
+            // Both rows locked until commit, in id order so two opposite transfers cannot deadlock
+            Account sourceAccount;
+            Account targetAccount;
+            if (sourceAccountId < targetAccountId) {
+                sourceAccount = accountDAO.findByIdForUpdate(conn, sourceAccountId);
+                targetAccount = accountDAO.findByIdForUpdate(conn, targetAccountId);
+            } else {
+                targetAccount = accountDAO.findByIdForUpdate(conn, targetAccountId);
+                sourceAccount = accountDAO.findByIdForUpdate(conn, sourceAccountId);
+            }
+            if (sourceAccount == null) {
+                throw new IllegalArgumentException("Tài khoản nguồn không tồn tại");
+            }
+            validateAccountStatus(sourceAccount);
+
+            if (targetAccount == null) {
+                throw new IllegalArgumentException("Tài khoản đích không tồn tại");
+            }
+            if (targetAccount.getStatus() != AccountStatus.ACTIVE) {
+                throw new IllegalArgumentException("Tài khoản đích không hoạt động");
+            }
+
+            if (sourceAccount.getBalance().isLessThan(amount)) {
+                throw new IllegalArgumentException("Số dư tài khoản nguồn không đủ");
+            }
+
+            reservation = RiskEngine.getInstance().reserve(sourceAccountId, amount);
+
+            // Calculate new balances
+            Money sourceNewBalance = sourceAccount.getBalance().minus(amount);
+            Money targetNewBalance = targetAccount.getBalance().plus(amount);
+
+            sourceAccount.setBalance(sourceNewBalance);
+            targetAccount.setBalance(targetNewBalance);
+
+            // Create transactions
+            // 1. Debit from source
+            Transaction sourceTx = new Transaction();
+            sourceTx.setAccountId(sourceAccountId);
+            sourceTx.setTransactionType(TransactionType.TRANSFER);
+            sourceTx.setAmount(amount);
+            sourceTx.setTargetAccountId(targetAccountId);
+            sourceTx.setBalanceAfter(sourceNewBalance);
+            sourceTx.setDescription("Chuyển tiền đến " + targetAccount.getAccountNumber() + ": " + description);
+            sourceTx.setCreatedBy(userId);
+
+            // 2. Credit to target (Optional: Create a receiving transaction record for target account)
+            Transaction targetTx = new Transaction();
+            targetTx.setAccountId(targetAccountId);
+            targetTx.setTransactionType(TransactionType.TRANSFER); // Or DEPOSIT/TRANSFER_IN type if distinguished
+            targetTx.setAmount(amount); // Positive for target? usually stored positive but context matters
+            targetTx.setTargetAccountId(sourceAccountId);
+            targetTx.setBalanceAfter(targetNewBalance);
+            targetTx.setDescription("Nhận tiền từ " + sourceAccount.getAccountNumber() + ": " + description);
+            targetTx.setCreatedBy(userId);
+
             // Update balances
             accountDAO.update(sourceAccount, conn);
             accountDAO.update(targetAccount, conn);
@@ -222,8 +305,12 @@ public class TransactionService {
             // CHANGING APPROACH: Insert 2 records for full history on both sides.
             targetTx.setReferenceNumber(transactionDAO.generateReferenceNumber()); // Distinct ref
             transactionDAO.save(targetTx, conn);
+            idempotencyKeys.claim(conn, idempotencyKey, request, sourceTx);
 
             conn.commit();
+            committed = true;
+            idempotencyKeys.remember(idempotencyKey, request, sourceTx);
+            EventBus.getInstance().publish(new TransactionPosted(sourceTx, targetTx));
             return sourceTx;
         } catch (SQLException e) {
             if (conn != null) {
@@ -233,8 +320,17 @@ public class TransactionService {
                     ex.printStackTrace();
                 }
             }
+            // Lost the race to another attempt with the same key: hand back its result
+            Transaction winner = idempotencyKeys.resolveConflict(idempotencyKey, request, e);
+            if (winner != null) {
+                return winner;
+            }
             throw e;
         } finally {
+            // Not posted after all: the debit must not count towards the limits
+            if (!committed && reservation != null) {
+                reservation.release();
+            }
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
@@ -255,11 +351,11 @@ public class TransactionService {
         return transactionDAO.findByDateRange(accountId, from, to);
     }
 
-    private void validateAmount(BigDecimal amount) {
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+    private void validateAmount(Money amount) {
+        if (amount == null || !amount.isPositive()) {
             throw new IllegalArgumentException("Số tiền phải lớn hơn 0");
         }
-        if (amount.compareTo(MAX_TRANSACTION_AMOUNT) > 0) {
+        if (amount.isGreaterThan(MAX_TRANSACTION_AMOUNT)) {
             throw new IllegalArgumentException("Số tiền giao dịch vượt quá hạn mức (500,000,000 VND)");
         }
     }
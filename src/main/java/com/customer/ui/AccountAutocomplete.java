@@ -0,0 +1,85 @@
+package com.customer.ui;
+
+import com.customer.dao.AccountDirectory;
+import com.customer.model.AccountStatus;
+import javafx.scene.control.ComboBox;
+import javafx.util.StringConverter;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Turns a ComboBox into an account number field with suggestions from the
+ * {@link AccountDirectory}: typing a prefix lists the matching accounts,
+ * without a query per keystroke and without loading every account up front.
+ */
+public final class AccountAutocomplete {
+
+    private static final int SUGGESTIONS = 20;
+
+    private AccountAutocomplete() {
+    }
+
+    public static void install(ComboBox<AccountDirectory.Entry> combo, Predicate<AccountDirectory.Entry> filter) {
+        AccountDirectory directory = AccountDirectory.getInstance();
+        directory.start();
+
+        combo.setEditable(true);
+        combo.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(AccountDirectory.Entry entry) {
+                return entry == null ? "" : describe(entry);
+            }
+
+            @Override
+            public AccountDirectory.Entry fromString(String text) {
+                // A full number resolves even before the directory has loaded
+                AccountDirectory.Entry entry = directory.lookupByNumber(numberPart(text));
+                return entry != null && filter.test(entry) ? entry : null;
+            }
+        });
+
+        combo.getEditor().textProperty().addListener((obs, oldText, text) -> {
+            AccountDirectory.Entry selected = combo.getValue();
+            // Text put there by picking a suggestion
+            if (selected != null && describe(selected).equals(text)) return;
+            List<AccountDirectory.Entry> matches = directory.search(numberPart(text), SUGGESTIONS, filter);
+            combo.getItems().setAll(matches);
+            if (combo.getEditor().isFocused() && !matches.isEmpty()) {
+                combo.show();
+            } else {
+                combo.hide();
+            }
+        });
+        // The directory may still have been loading when the field was last typed in
+        combo.setOnShowing(e -> {
+            if (combo.getItems().isEmpty()) {
+                combo.getItems().setAll(directory.search(numberPart(combo.getEditor().getText()), SUGGESTIONS, filter));
+            }
+        });
+    }
+
+    /** The chosen account, taking text typed but not yet committed with Enter into account. */
+    public static AccountDirectory.Entry selected(ComboBox<AccountDirectory.Entry> combo) {
+        String text = combo.getEditor().getText();
+        AccountDirectory.Entry value = combo.getValue();
+        if (value != null && describe(value).equals(text)) {
+            return value;
+        }
+        return text == null || text.isBlank() ? null : combo.getConverter().fromString(text);
+    }
+
+    public static String describe(AccountDirectory.Entry entry) {
+        return entry.getAccountNumber() + " - " + entry.getType()
+                + (entry.getStatus() != AccountStatus.ACTIVE ? " (" + entry.getStatus() + ")" : "");
+    }
+
+    private static String numberPart(String text) {
+        if (text == null) {
+            return "";
+        }
+        String trimmed = text.trim();
+        int space = trimmed.indexOf(' ');
+        return space < 0 ? trimmed : trimmed.substring(0, space);
+    }
+}
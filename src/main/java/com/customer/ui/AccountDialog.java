@@ -75,7 +75,7 @@ public class AccountDialog extends Dialog<Account> {
             if (isViewOnly) {
                 accountNumberLabel.setText(account.getAccountNumber());
                 statusLabel.setText(account.getStatus().name());
-                balanceLabel.setText(String.format("%,.0f VND", account.getBalance()));
+                balanceLabel.setText(MoneyFormat.vnd(account.getBalance()));
                 interestRateLabel.setText(String.format("%.2f %%", account.getInterestRate()));
 
                 typeComboBox.setValue(account.getAccountType());
@@ -0,0 +1,158 @@
+package com.customer.ui;
+
+import com.customer.model.AuditAction;
+import com.customer.model.AuditEvent;
+import com.customer.service.AuditTrail;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.util.StringConverter;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+public class AuditLogDialog extends Stage {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    private final AuditTrail auditTrail = AuditTrail.getInstance();
+    private final TableView<AuditEvent> table = new TableView<>();
+    private final DatePicker fromDate = new DatePicker(LocalDate.now().minusDays(7));
+    private final DatePicker toDate = new DatePicker(LocalDate.now());
+    private final ComboBox<AuditAction> actionCombo = new ComboBox<>();
+    private final TextField usernameField = new TextField();
+    private final Label summaryLabel = new Label();
+    private final Button searchButton = new Button("Tìm kiếm");
+
+    public AuditLogDialog() {
+        initModality(Modality.APPLICATION_MODAL);
+        setTitle("Audit Log");
+        setWidth(1100);
+        setHeight(600);
+
+        setupUI();
+        search();
+    }
+
+    private void setupUI() {
+        BorderPane root = new BorderPane();
+        root.setPadding(new Insets(15));
+        root.setStyle("-fx-background-color: white;");
+
+        VBox topBox = new VBox(5);
+        topBox.setPadding(new Insets(0, 0, 10, 0));
+        Label headerLabel = new Label("NHẬT KÝ KIỂM TOÁN");
+        headerLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: #2c3e50;");
+
+        actionCombo.getItems().add(null);
+        actionCombo.getItems().addAll(AuditAction.values());
+        actionCombo.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(AuditAction action) {
+                return action != null ? action.getDisplayName() : "Tất cả";
+            }
+
+            @Override
+            public AuditAction fromString(String string) {
+                return null;
+            }
+        });
+        actionCombo.setPromptText("Tất cả");
+        usernameField.setPromptText("Tên đăng nhập");
+        searchButton.setOnAction(e -> search());
+
+        HBox filterBox = new HBox(10, new Label("Từ:"), fromDate, new Label("Đến:"), toDate,
+                new Label("Hành động:"), actionCombo, usernameField, searchButton);
+        filterBox.setAlignment(Pos.CENTER_LEFT);
+
+        summaryLabel.setStyle("-fx-text-fill: #7f8c8d;");
+        topBox.getChildren().addAll(headerLabel, filterBox, summaryLabel);
+        root.setTop(topBox);
+
+        TableColumn<AuditEvent, String> timeCol = new TableColumn<>("Thời gian");
+        timeCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getOccurredAt().format(TIME_FORMAT)));
+        timeCol.setPrefWidth(150);
+
+        TableColumn<AuditEvent, String> userCol = new TableColumn<>("Người dùng");
+        userCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getUsername()));
+        userCol.setPrefWidth(120);
+
+        TableColumn<AuditEvent, String> actionCol = new TableColumn<>("Hành động");
+        actionCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getAction().getDisplayName()));
+        actionCol.setPrefWidth(150);
+
+        TableColumn<AuditEvent, String> entityCol = new TableColumn<>("Đối tượng");
+        entityCol.setCellValueFactory(data -> {
+            AuditEvent event = data.getValue();
+            if (event.getEntityType() == null) {
+                return new SimpleStringProperty("-");
+            }
+            return new SimpleStringProperty(event.getEntityType()
+                    + (event.getEntityId() != null ? " #" + event.getEntityId() : ""));
+        });
+        entityCol.setPrefWidth(130);
+
+        TableColumn<AuditEvent, String> detailCol = new TableColumn<>("Chi tiết");
+        detailCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getDetail()));
+        detailCol.setPrefWidth(500);
+
+        table.getColumns().addAll(timeCol, userCol, actionCol, entityCol, detailCol);
+        table.setPlaceholder(new Label("Không có sự kiện"));
+        root.setCenter(table);
+
+        HBox bottomBox = new HBox(10);
+        bottomBox.setAlignment(Pos.CENTER_RIGHT);
+        bottomBox.setPadding(new Insets(10, 0, 0, 0));
+
+        Button closeButton = new Button("Đóng");
+        closeButton.setPrefWidth(100);
+        closeButton.setOnAction(e -> close());
+
+        bottomBox.getChildren().add(closeButton);
+        root.setBottom(bottomBox);
+
+        setScene(new Scene(root));
+    }
+
+    private void search() {
+        LocalDate from = fromDate.getValue();
+        LocalDate to = toDate.getValue();
+        if (from == null || to == null || from.isAfter(to)) {
+            summaryLabel.setText("Khoảng thời gian không hợp lệ");
+            return;
+        }
+        AuditAction action = actionCombo.getValue();
+        String username = usernameField.getText();
+
+        searchButton.setDisable(true);
+        Task<List<AuditEvent>> task = new Task<>() {
+            @Override
+            protected List<AuditEvent> call() throws Exception {
+                return auditTrail.search(from, to, action, username);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            searchButton.setDisable(false);
+            List<AuditEvent> events = task.getValue();
+            table.setItems(FXCollections.observableArrayList(events));
+            long pending = auditTrail.getPendingCount();
+            summaryLabel.setText(events.size() + " sự kiện"
+                    + (pending > 0 ? " | " + pending + " sự kiện đang chờ ghi vào cơ sở dữ liệu" : ""));
+        });
+        task.setOnFailed(e -> {
+            searchButton.setDisable(false);
+            summaryLabel.setText("Lỗi tải nhật ký: " + task.getException().getMessage());
+        });
+        new Thread(task).start();
+    }
+}
@@ -0,0 +1,150 @@
+package com.customer.ui;
+
+import com.customer.service.BulkImportService;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class CustomerImportDialog extends Stage {
+
+    private static final String COLUMNS_HINT = "Cột: full_name, phone, email, address, date_of_birth, customer_type, "
+            + "account_type, term_months, customer_ref (chỉ full_name là bắt buộc)";
+
+    private final BulkImportService importService = new BulkImportService();
+    private final Label fileLabel = new Label("Chưa chọn file");
+    private final ProgressBar progressBar = new ProgressBar(0);
+    private final Label summaryLabel = new Label();
+    private final Button chooseButton = new Button("Chọn file...");
+    private final Button importButton = new Button("Nhập");
+    private final Button closeButton = new Button("Đóng");
+    private File selectedFile;
+    private volatile boolean imported;
+
+    public CustomerImportDialog() {
+        initModality(Modality.APPLICATION_MODAL);
+        setTitle("Nhập khách hàng từ CSV");
+        setWidth(650);
+        setHeight(300);
+
+        setupUI();
+    }
+
+    /** True if anything was written, so the caller should reload its list. */
+    public boolean isImported() {
+        return imported;
+    }
+
+    private void setupUI() {
+        BorderPane root = new BorderPane();
+        root.setPadding(new Insets(15));
+        root.setStyle("-fx-background-color: white;");
+
+        VBox topBox = new VBox(5);
+        topBox.setPadding(new Insets(0, 0, 10, 0));
+        Label headerLabel = new Label("NHẬP KHÁCH HÀNG VÀ TÀI KHOẢN");
+        headerLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: #2c3e50;");
+        Label hintLabel = new Label(COLUMNS_HINT);
+        hintLabel.setWrapText(true);
+        hintLabel.setStyle("-fx-text-fill: #7f8c8d;");
+        topBox.getChildren().addAll(headerLabel, hintLabel);
+        root.setTop(topBox);
+
+        VBox centerBox = new VBox(10);
+        HBox fileBox = new HBox(10, chooseButton, fileLabel);
+        fileBox.setAlignment(Pos.CENTER_LEFT);
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        summaryLabel.setWrapText(true);
+        centerBox.getChildren().addAll(fileBox, progressBar, summaryLabel);
+        root.setCenter(centerBox);
+
+        HBox bottomBox = new HBox(10);
+        bottomBox.setAlignment(Pos.CENTER_RIGHT);
+        bottomBox.setPadding(new Insets(10, 0, 0, 0));
+
+        chooseButton.setOnAction(e -> chooseFile());
+        importButton.setDisable(true);
+        importButton.setPrefWidth(100);
+        importButton.setOnAction(e -> runImport());
+        closeButton.setPrefWidth(100);
+        closeButton.setOnAction(e -> close());
+
+        bottomBox.getChildren().addAll(importButton, closeButton);
+        root.setBottom(bottomBox);
+
+        setScene(new Scene(root));
+    }
+
+    private void chooseFile() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Chọn file CSV");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        File file = chooser.showOpenDialog(this);
+        if (file != null) {
+            selectedFile = file;
+            fileLabel.setText(file.getAbsolutePath());
+            importButton.setDisable(false);
+            progressBar.setProgress(0);
+            summaryLabel.setText("");
+        }
+    }
+
+    private void runImport() {
+        chooseButton.setDisable(true);
+        importButton.setDisable(true);
+        closeButton.setDisable(true);
+        summaryLabel.setText("Đang nhập...");
+
+        // Progress arrives once per chunk; drop updates while one is still waiting for the UI thread
+        AtomicBoolean updateQueued = new AtomicBoolean();
+        Task<BulkImportService.ImportResult> task = new Task<>() {
+            @Override
+            protected BulkImportService.ImportResult call() throws Exception {
+                return importService.importFile(selectedFile.toPath(), (bytesRead, totalBytes, done, rejected) -> {
+                    imported |= done > 0;
+                    updateProgress(bytesRead, Math.max(1, totalBytes));
+                    if (updateQueued.compareAndSet(false, true)) {
+                        Platform.runLater(() -> {
+                            updateQueued.set(false);
+                            summaryLabel.setText(String.format("Đang nhập... %,d bản ghi | %,d dòng lỗi", done, rejected));
+                        });
+                    }
+                });
+            }
+        };
+        progressBar.progressProperty().bind(task.progressProperty());
+        task.setOnSucceeded(e -> {
+            finish();
+            BulkImportService.ImportResult result = task.getValue();
+            imported = result.getCustomers() + result.getAccounts() > 0;
+            summaryLabel.setText(String.format("%,d dòng | %,d khách hàng | %,d tài khoản | %,d dòng lỗi | %,d ms",
+                    result.getRows(), result.getCustomers(), result.getAccounts(), result.getRejected(), result.getMillis())
+                    + (result.getRejectFile() != null ? "\nDòng lỗi đã ghi vào " + result.getRejectFile() : ""));
+        });
+        task.setOnFailed(e -> {
+            finish();
+            summaryLabel.setText("Lỗi nhập: " + task.getException().getMessage()
+                    + (imported ? "\nCác phần đã nhập trước lỗi vẫn được giữ lại." : ""));
+        });
+        new Thread(task).start();
+    }
+
+    private void finish() {
+        progressBar.progressProperty().unbind();
+        chooseButton.setDisable(false);
+        closeButton.setDisable(false);
+    }
+}
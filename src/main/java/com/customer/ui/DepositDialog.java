@@ -1,7 +1,9 @@
 package com.customer.ui;
 
 import com.customer.model.Account;
+import com.customer.model.Money;
 import com.customer.model.Transaction;
+import com.customer.service.OfflineDeposits;
 import com.customer.service.ReceiptService;
 import com.customer.service.TransactionService;
 import com.customer.util.SessionManager;
@@ -15,14 +17,15 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
-import java.math.BigDecimal;
-import java.text.DecimalFormat;
+import java.util.UUID;
 
 public class DepositDialog extends Stage {
 
     private final Account account;
     private final TransactionService transactionService;
     private final ReceiptService receiptService;
+    // One key per dialog: a retried submit returns the first posting instead of a second one
+    private final String idempotencyKey = UUID.randomUUID().toString();
     private boolean success = false;
 
     public DepositDialog(Account account) {
@@ -61,7 +64,7 @@ public class DepositDialog extends Stage {
         grid.add(ownerLabel, 1, 1);
 
         grid.add(new Label("Số dư hiện tại:"), 0, 2);
-        Label balanceLabel = new Label(formatCurrency(account.getBalance()));
+        Label balanceLabel = new Label(MoneyFormat.vnd(account.getBalance()));
         balanceLabel.setStyle("-fx-text-fill: #2980b9; -fx-font-weight: bold;");
         grid.add(balanceLabel, 1, 2);
 
@@ -82,12 +85,12 @@ public class DepositDialog extends Stage {
             }
             try {
                 if (!amountField.getText().isEmpty()) {
-                    BigDecimal val = new BigDecimal(amountField.getText());
-                    amountFormatLabel.setText(formatCurrency(val));
+                    Money val = Money.parse(amountField.getText());
+                    amountFormatLabel.setText(MoneyFormat.vnd(val));
                 } else {
                     amountFormatLabel.setText("");
                 }
-            } catch (NumberFormatException e) {
+            } catch (NumberFormatException | ArithmeticException e) {
                 amountFormatLabel.setText("");
             }
         });
@@ -134,9 +137,9 @@ public class DepositDialog extends Stage {
         javafx.concurrent.Task<Transaction> task = new javafx.concurrent.Task<>() {
             @Override
             protected Transaction call() throws Exception {
-                BigDecimal amount = new BigDecimal(amountStr);
+                Money amount = Money.parse(amountStr);
                 long userId = SessionManager.getCurrentUser() != null ? SessionManager.getCurrentUser().getId() : 1;
-                return transactionService.deposit(account.getId(), amount, description, userId);
+                return transactionService.deposit(account.getId(), amount, description, userId, idempotencyKey);
             }
         };
 
@@ -145,6 +148,16 @@ public class DepositDialog extends Stage {
             getScene().setCursor(javafx.scene.Cursor.DEFAULT);
             Transaction transaction = task.getValue();
 
+            if (OfflineDeposits.isProvisional(transaction)) {
+                // No balance yet, so no receipt; it is posted under the same reference once the database is back
+                showAlert(Alert.AlertType.WARNING, "Đã ghi nhận ngoại tuyến",
+                        "Mất kết nối cơ sở dữ liệu. Giao dịch đã được ghi nhận và sẽ tự động ghi sổ khi kết nối lại.\nMã GD: "
+                                + transaction.getReferenceNumber());
+                success = true;
+                close();
+                return;
+            }
+
             showAlert(Alert.AlertType.INFORMATION, "Thành công", "Giao dịch nạp tiền thành công!\nMã GD: " + transaction.getReferenceNumber());
 
             if (printReceipt) {
@@ -170,7 +183,7 @@ public class DepositDialog extends Stage {
             getScene().getRoot().setDisable(false);
             getScene().setCursor(javafx.scene.Cursor.DEFAULT);
             Throwable ex = task.getException();
-            if (ex instanceof NumberFormatException) {
+            if (ex instanceof NumberFormatException || ex instanceof ArithmeticException) {
                 showAlert(Alert.AlertType.ERROR, "Lỗi", "Số tiền không hợp lệ");
             } else {
                 showAlert(Alert.AlertType.ERROR, "Lỗi giao dịch", ex.getMessage());
@@ -189,12 +202,6 @@ public class DepositDialog extends Stage {
         alert.showAndWait();
     }
 
-    private String formatCurrency(BigDecimal amount) {
-        if (amount == null) return "0 VND";
-        DecimalFormat df = new DecimalFormat("#,###");
-        return df.format(amount) + " VND";
-    }
-
     public boolean isSuccess() {
         return success;
     }
@@ -0,0 +1,138 @@
+package com.customer.ui;
+
+import com.customer.controller.ViewRegistry;
+import com.customer.dao.ChangeLog;
+import com.customer.dao.QueryMetrics;
+import com.customer.service.JobScheduler;
+import com.customer.util.LatencyHistogram;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DiagnosticsDialog extends Stage {
+
+    private final QueryMetrics queryMetrics = QueryMetrics.getInstance();
+    private final TableView<QueryMetrics.Snapshot> table = new TableView<>();
+    private final Label summaryLabel = new Label();
+
+    public DiagnosticsDialog() {
+        initModality(Modality.APPLICATION_MODAL);
+        setTitle("Diagnostics - Query Latency");
+        setWidth(1100);
+        setHeight(600);
+
+        setupUI();
+        refresh();
+    }
+
+    private void setupUI() {
+        BorderPane root = new BorderPane();
+        root.setPadding(new Insets(15));
+        root.setStyle("-fx-background-color: white;");
+
+        VBox topBox = new VBox(5);
+        topBox.setPadding(new Insets(0, 0, 10, 0));
+        Label headerLabel = new Label("QUERY LATENCY BY DAO METHOD");
+        headerLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: #2c3e50;");
+        summaryLabel.setStyle("-fx-text-fill: #7f8c8d;");
+        topBox.getChildren().addAll(headerLabel, summaryLabel);
+        root.setTop(topBox);
+
+        TableColumn<QueryMetrics.Snapshot, String> callerCol = new TableColumn<>("Caller");
+        callerCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getCaller()));
+        callerCol.setPrefWidth(220);
+
+        TableColumn<QueryMetrics.Snapshot, Long> countCol = new TableColumn<>("Count");
+        countCol.setCellValueFactory(data -> new SimpleObjectProperty<>(data.getValue().getCount()));
+        countCol.setPrefWidth(70);
+
+        TableColumn<QueryMetrics.Snapshot, String> p50Col = millisColumn("p50 (ms)", QueryMetrics.Snapshot::getP50Millis);
+        TableColumn<QueryMetrics.Snapshot, String> p99Col = millisColumn("p99 (ms)", QueryMetrics.Snapshot::getP99Millis);
+        TableColumn<QueryMetrics.Snapshot, String> p999Col = millisColumn("p999 (ms)", QueryMetrics.Snapshot::getP999Millis);
+        TableColumn<QueryMetrics.Snapshot, String> maxCol = millisColumn("Max (ms)", QueryMetrics.Snapshot::getMaxMillis);
+
+        TableColumn<QueryMetrics.Snapshot, Long> rowsCol = new TableColumn<>("Rows");
+        rowsCol.setCellValueFactory(data -> new SimpleObjectProperty<>(data.getValue().getRows()));
+        rowsCol.setPrefWidth(80);
+
+        TableColumn<QueryMetrics.Snapshot, String> sqlCol = new TableColumn<>("SQL");
+        sqlCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getSql()));
+        sqlCol.setPrefWidth(400);
+
+        table.getColumns().addAll(callerCol, countCol, p50Col, p99Col, p999Col, maxCol, rowsCol, sqlCol);
+        root.setCenter(table);
+
+        HBox bottomBox = new HBox(10);
+        bottomBox.setAlignment(Pos.CENTER_RIGHT);
+        bottomBox.setPadding(new Insets(10, 0, 0, 0));
+
+        Button refreshButton = new Button("Refresh");
+        refreshButton.setOnAction(e -> refresh());
+
+        Button resetButton = new Button("Reset");
+        resetButton.setOnAction(e -> {
+            queryMetrics.reset();
+            refresh();
+        });
+
+        Button closeButton = new Button("Close");
+        closeButton.setPrefWidth(100);
+        closeButton.setOnAction(e -> close());
+
+        bottomBox.getChildren().addAll(refreshButton, resetButton, closeButton);
+        root.setBottom(bottomBox);
+
+        setScene(new Scene(root));
+    }
+
+    private TableColumn<QueryMetrics.Snapshot, String> millisColumn(String title,
+                                                                  java.util.function.ToDoubleFunction<QueryMetrics.Snapshot> value) {
+        TableColumn<QueryMetrics.Snapshot, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(data -> new SimpleStringProperty(String.format("%.3f", value.applyAsDouble(data.getValue()))));
+        column.setStyle("-fx-alignment: CENTER-RIGHT;");
+        column.setPrefWidth(85);
+        return column;
+    }
+
+    private void refresh() {
+        List<QueryMetrics.Snapshot> rows = new ArrayList<>(queryMetrics.snapshot());
+        table.setItems(FXCollections.observableArrayList(rows));
+
+        QueryMetrics.Snapshot wait = queryMetrics.connectionWaitSnapshot();
+        LatencyHistogram lag = ChangeLog.getInstance().getLagHistogram();
+        LatencyHistogram switchLatency = ViewRegistry.getSwitchLatency();
+        summaryLabel.setText(String.format("%d query shapes | connection wait p50 %.3f ms, p99 %.3f ms, max %.3f ms"
+                        + " | change log lag p50 %.0f ms, p99 %.0f ms, max %.0f ms (%d remote changes)",
+                rows.size(), wait.getP50Millis(), wait.getP99Millis(), wait.getMaxMillis(),
+                lag.getValueAtPercentile(50) / 1e6, lag.getValueAtPercentile(99) / 1e6, lag.getMax() / 1e6, lag.getCount())
+                + String.format("%nview switch p50 %.1f ms, p99 %.1f ms, max %.1f ms (%d from cache, %d parsed)",
+                switchLatency.getValueAtPercentile(50) / 1e6, switchLatency.getValueAtPercentile(99) / 1e6,
+                switchLatency.getMax() / 1e6, ViewRegistry.getReusedCount(), ViewRegistry.getLoadedCount())
+                + jobSummary());
+    }
+
+    // Runs made by this instance; the job_runs table has every instance's history
+    private String jobSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (JobScheduler.Metrics job : JobScheduler.getInstance().getMetrics()) {
+            summary.append(String.format("%njob %s (%s): %d runs, %d failed, p50 %d ms, max %d ms, last %s, next %s",
+                    job.getName(), job.getSchedule(), job.getRuns(), job.getFailures(),
+                    job.getDurations().getValueAtPercentile(50), job.getDurations().getMax(),
+                    job.getLastStatus() != null ? job.getLastStatus() : "-",
+                    job.getNextFire() != null ? job.getNextFire() : "-"));
+        }
+        return summary.toString();
+    }
+}
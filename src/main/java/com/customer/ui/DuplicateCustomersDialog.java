@@ -0,0 +1,173 @@
+package com.customer.ui;
+
+import com.customer.dao.CustomerDAO;
+import com.customer.model.dto.MergeCandidate;
+import com.customer.service.DedupEngine;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+import java.util.Locale;
+import java.util.Optional;
+
+public class DuplicateCustomersDialog extends Stage {
+
+    private final DedupEngine dedupEngine = new DedupEngine();
+    private final ObservableList<MergeCandidate> candidates = FXCollections.observableArrayList();
+    private final TableView<MergeCandidate> table = new TableView<>(candidates);
+    private final Label summaryLabel = new Label();
+    private final Button scanButton = new Button("Quét lại");
+    private final Button mergeButton = new Button("Gộp");
+    private boolean merged;
+
+    public DuplicateCustomersDialog() {
+        initModality(Modality.APPLICATION_MODAL);
+        setTitle("Khách hàng trùng lặp");
+        setWidth(1000);
+        setHeight(600);
+
+        setupUI();
+        scan();
+    }
+
+    /** True if at least one merge was done, so the caller should reload its list. */
+    public boolean isMerged() {
+        return merged;
+    }
+
+    private void setupUI() {
+        BorderPane root = new BorderPane();
+        root.setPadding(new Insets(15));
+        root.setStyle("-fx-background-color: white;");
+
+        VBox topBox = new VBox(5);
+        topBox.setPadding(new Insets(0, 0, 10, 0));
+        Label headerLabel = new Label("KHÁCH HÀNG CÓ THỂ TRÙNG LẶP");
+        headerLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: #2c3e50;");
+        summaryLabel.setStyle("-fx-text-fill: #7f8c8d;");
+        topBox.getChildren().addAll(headerLabel, summaryLabel);
+        root.setTop(topBox);
+
+        TableColumn<MergeCandidate, String> scoreCol = new TableColumn<>("Điểm");
+        scoreCol.setCellValueFactory(data -> new SimpleStringProperty(
+                String.format(Locale.ROOT, "%.2f", data.getValue().getScore())));
+        scoreCol.setStyle("-fx-alignment: CENTER-RIGHT;");
+        scoreCol.setPrefWidth(70);
+
+        TableColumn<MergeCandidate, String> survivorCol = new TableColumn<>("Giữ lại");
+        survivorCol.setCellValueFactory(data -> new SimpleStringProperty(
+                "#" + data.getValue().getSurvivorId() + " " + data.getValue().getSurvivorName()));
+        survivorCol.setPrefWidth(280);
+
+        TableColumn<MergeCandidate, String> duplicateCol = new TableColumn<>("Gộp vào và xóa");
+        duplicateCol.setCellValueFactory(data -> new SimpleStringProperty(
+                "#" + data.getValue().getDuplicateId() + " " + data.getValue().getDuplicateName()));
+        duplicateCol.setPrefWidth(280);
+
+        TableColumn<MergeCandidate, String> evidenceCol = new TableColumn<>("Trùng khớp");
+        evidenceCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getEvidence()));
+        evidenceCol.setPrefWidth(300);
+
+        table.getColumns().addAll(scoreCol, survivorCol, duplicateCol, evidenceCol);
+        table.setPlaceholder(new Label("Không tìm thấy khách hàng trùng lặp"));
+        root.setCenter(table);
+
+        HBox bottomBox = new HBox(10);
+        bottomBox.setAlignment(Pos.CENTER_RIGHT);
+        bottomBox.setPadding(new Insets(10, 0, 0, 0));
+
+        scanButton.setOnAction(e -> scan());
+        mergeButton.setDisable(true);
+        mergeButton.setVisible(dedupEngine.canMerge());
+        mergeButton.setOnAction(e -> mergeSelected());
+        table.getSelectionModel().selectedItemProperty().addListener(
+                (obs, oldValue, selected) -> mergeButton.setDisable(selected == null));
+
+        Button closeButton = new Button("Đóng");
+        closeButton.setPrefWidth(100);
+        closeButton.setOnAction(e -> close());
+
+        bottomBox.getChildren().addAll(scanButton, mergeButton, closeButton);
+        root.setBottom(bottomBox);
+
+        setScene(new Scene(root));
+    }
+
+    private void scan() {
+        scanButton.setDisable(true);
+        summaryLabel.setText("Đang quét...");
+        Task<DedupEngine.Result> task = new Task<>() {
+            @Override
+            protected DedupEngine.Result call() throws Exception {
+                return dedupEngine.findCandidates();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            scanButton.setDisable(false);
+            DedupEngine.Result result = task.getValue();
+            candidates.setAll(result.getCandidates());
+            summaryLabel.setText(String.format("%,d khách hàng | %,d cặp đã so sánh | %,d cặp nghi trùng | %,d ms",
+                    result.getRecords(), result.getComparisons(), result.getCandidates().size(), result.getMillis())
+                    + (result.getSkippedBlocks() > 0
+                    ? String.format(" | bỏ qua %,d nhóm quá lớn", result.getSkippedBlocks()) : ""));
+        });
+        task.setOnFailed(e -> {
+            scanButton.setDisable(false);
+            summaryLabel.setText("Lỗi quét: " + task.getException().getMessage());
+        });
+        new Thread(task).start();
+    }
+
+    private void mergeSelected() {
+        MergeCandidate selected = table.getSelectionModel().getSelectedItem();
+        if (selected == null) {
+            return;
+        }
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("Gộp khách hàng");
+        confirm.setHeaderText(null);
+        confirm.setContentText("Chuyển tài khoản và khoản vay của #" + selected.getDuplicateId() + " "
+                + selected.getDuplicateName() + " sang #" + selected.getSurvivorId() + " "
+                + selected.getSurvivorName() + " và xóa #" + selected.getDuplicateId() + "?");
+        Optional<ButtonType> answer = confirm.showAndWait();
+        if (answer.isEmpty() || answer.get() != ButtonType.OK) {
+            return;
+        }
+
+        mergeButton.setDisable(true);
+        Task<CustomerDAO.MergeResult> task = new Task<>() {
+            @Override
+            protected CustomerDAO.MergeResult call() throws Exception {
+                return dedupEngine.merge(selected);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            merged = true;
+            // Pairs involving the deleted customer are stale now
+            candidates.removeIf(c -> c.getSurvivorId() == selected.getDuplicateId()
+                    || c.getDuplicateId() == selected.getDuplicateId());
+            CustomerDAO.MergeResult result = task.getValue();
+            summaryLabel.setText("Đã gộp #" + selected.getDuplicateId() + " vào #" + selected.getSurvivorId()
+                    + ": " + result.getAccounts() + " tài khoản, " + result.getLoans() + " khoản vay");
+        });
+        task.setOnFailed(e -> {
+            mergeButton.setDisable(false);
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Lỗi");
+            alert.setHeaderText(null);
+            alert.setContentText("Không thể gộp khách hàng: " + task.getException().getMessage());
+            alert.showAndWait();
+        });
+        new Thread(task).start();
+    }
+}
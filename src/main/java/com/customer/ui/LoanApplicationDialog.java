@@ -1,6 +1,7 @@
 package com.customer.ui;
 
 import com.customer.model.Customer;
+import com.customer.model.Money;
 import com.customer.service.CustomerService;
 import com.customer.service.LoanService;
 import com.customer.util.SessionManager;
@@ -18,7 +19,6 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.util.StringConverter;
 
-import java.math.BigDecimal;
 import java.text.NumberFormat;
 import java.util.List;
 import java.util.Locale;
@@ -173,15 +173,15 @@ public class LoanApplicationDialog extends Stage {
                 return;
             }
 
-            BigDecimal amount = new BigDecimal(amountText);
+            Money amount = Money.parse(amountText);
             Integer term = termComboBox.getValue();
 
             if (term != null) {
-                BigDecimal monthlyPayment = loanService.calculateMonthlyPayment(amount, LoanService.INTEREST_RATE, term);
-                BigDecimal totalAmount = monthlyPayment.multiply(new BigDecimal(term));
+                Money monthlyPayment = loanService.calculateMonthlyPayment(amount, LoanService.INTEREST_RATE, term);
+                Money totalAmount = monthlyPayment.times(term);
 
-                monthlyPaymentLabel.setText(currencyFormat.format(monthlyPayment));
-                totalAmountLabel.setText(currencyFormat.format(totalAmount));
+                monthlyPaymentLabel.setText(currencyFormat.format(monthlyPayment.toBigDecimal()));
+                totalAmountLabel.setText(currencyFormat.format(totalAmount.toBigDecimal()));
             }
         } catch (Exception e) {
             // Ignore parse errors
@@ -202,10 +202,10 @@ public class LoanApplicationDialog extends Stage {
             return;
         }
 
-        BigDecimal amount;
+        Money amount;
         try {
-            amount = new BigDecimal(amountText);
-        } catch (NumberFormatException e) {
+            amount = Money.parse(amountText);
+        } catch (NumberFormatException | ArithmeticException e) {
             messageLabel.setText("Số tiền không hợp lệ.");
             return;
         }
@@ -2,6 +2,7 @@ package com.customer.ui;
 
 import com.customer.model.Loan;
 import com.customer.service.LoanService;
+import com.customer.service.StressTestEngine;
 import com.customer.util.SessionManager;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
@@ -59,10 +60,14 @@ public class LoanApprovalDialog extends Stage {
         infoBox.getChildren().addAll(
             new Label("Mã khoản vay: " + loan.getLoanNumber()),
             new Label("Khách hàng: " + loan.getCustomerName()),
-            new Label("Số tiền: " + currencyFormat.format(loan.getPrincipalAmount())),
+            new Label("Số tiền: " + currencyFormat.format(loan.getPrincipalAmount().toBigDecimal())),
             new Label("Kỳ hạn: " + loan.getTermMonths() + " tháng")
         );
 
+        if (mode == ApprovalMode.APPROVE && StressTestEngine.canRun()) {
+            infoBox.getChildren().add(createRiskImpactLabel(currencyFormat));
+        }
+
         Label noteLabel = new Label(mode == ApprovalMode.APPROVE ? "Ghi chú (tùy chọn):" : "Lý do từ chối (bắt buộc):");
         noteArea = new TextArea();
         noteArea.setPrefRowCount(3);
@@ -92,6 +97,34 @@ public class LoanApprovalDialog extends Stage {
         setScene(scene);
     }
 
+    // Filled in from a background simulation; approving does not wait for it
+    private Label createRiskImpactLabel(NumberFormat currencyFormat) {
+        Label riskLabel = new Label("Ảnh hưởng rủi ro danh mục: đang tính...");
+        riskLabel.setWrapText(true);
+        riskLabel.setStyle("-fx-text-fill: #7f8c8d;");
+
+        Task<StressTestEngine.MarginalImpact> task = new Task<>() {
+            @Override
+            protected StressTestEngine.MarginalImpact call() throws Exception {
+                return new StressTestEngine().marginalImpact(loan.getPrincipalAmount(), loan.getTermMonths());
+            }
+        };
+        task.setOnSucceeded(e -> {
+            StressTestEngine.MarginalImpact impact = task.getValue();
+            riskLabel.setText("Ảnh hưởng rủi ro danh mục (12 tháng):\n"
+                + "Tổn thất dự kiến: +" + currencyFormat.format(impact.getExpectedLossChange())
+                + " (" + currencyFormat.format(impact.getAfter().getExpectedLoss()) + ")\n"
+                + "VaR 99%: +" + currencyFormat.format(impact.getValueAtRiskChange())
+                + " (" + currencyFormat.format(impact.getAfter().getValueAtRisk(0.99)) + ")");
+            riskLabel.setStyle("-fx-text-fill: #2c3e50;");
+        });
+        task.setOnFailed(e -> riskLabel.setText("Không tính được ảnh hưởng rủi ro: " + task.getException().getMessage()));
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        thread.start();
+        return riskLabel;
+    }
+
     private void handleConfirm() {
         String note = noteArea.getText();
         if (mode == ApprovalMode.REJECT && (note == null || note.trim().isEmpty())) {
@@ -60,8 +60,8 @@ public class LoanDetailDialog extends Stage {
         grid.setStyle("-fx-background-color: #f8f9fa; -fx-padding: 15; -fx-background-radius: 5;");
 
         addDetailRow(grid, 0, "Mã khoản vay:", loan.getLoanNumber(), "Khách hàng:", loan.getCustomerName());
-        addDetailRow(grid, 1, "Số tiền vay:", currencyFormat.format(loan.getPrincipalAmount()), "Lãi suất:", loan.getInterestRate() + "% / năm");
-        addDetailRow(grid, 2, "Kỳ hạn:", loan.getTermMonths() + " tháng", "Trả hàng tháng:", currencyFormat.format(loan.getMonthlyPayment()));
+        addDetailRow(grid, 1, "Số tiền vay:", currencyFormat.format(loan.getPrincipalAmount().toBigDecimal()), "Lãi suất:", loan.getInterestRate() + "% / năm");
+        addDetailRow(grid, 2, "Kỳ hạn:", loan.getTermMonths() + " tháng", "Trả hàng tháng:", currencyFormat.format(loan.getMonthlyPayment().toBigDecimal()));
         addDetailRow(grid, 3, "Trạng thái:", loan.getStatus().getDisplayName(), "Ngày nộp đơn:", loan.getAppliedDate().format(dateTimeFormatter));
 
         String approvedInfo = loan.getApprovedDate() != null
@@ -103,19 +103,19 @@ public class LoanDetailDialog extends Stage {
         dateCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getDueDate().format(dateFormatter)));
 
         TableColumn<LoanService.AmortizationEntry, String> principalCol = new TableColumn<>("Gốc");
-        principalCol.setCellValueFactory(data -> new SimpleStringProperty(currencyFormat.format(data.getValue().getPrincipalPortion())));
+        principalCol.setCellValueFactory(data -> new SimpleStringProperty(currencyFormat.format(data.getValue().getPrincipalPortion().toBigDecimal())));
         principalCol.setStyle("-fx-alignment: CENTER-RIGHT;");
 
         TableColumn<LoanService.AmortizationEntry, String> interestCol = new TableColumn<>("Lãi");
-        interestCol.setCellValueFactory(data -> new SimpleStringProperty(currencyFormat.format(data.getValue().getInterestPortion())));
+        interestCol.setCellValueFactory(data -> new SimpleStringProperty(currencyFormat.format(data.getValue().getInterestPortion().toBigDecimal())));
         interestCol.setStyle("-fx-alignment: CENTER-RIGHT;");
 
         TableColumn<LoanService.AmortizationEntry, String> totalCol = new TableColumn<>("Tổng cộng");
-        totalCol.setCellValueFactory(data -> new SimpleStringProperty(currencyFormat.format(data.getValue().getTotalPayment())));
+        totalCol.setCellValueFactory(data -> new SimpleStringProperty(currencyFormat.format(data.getValue().getTotalPayment().toBigDecimal())));
         totalCol.setStyle("-fx-alignment: CENTER-RIGHT; -fx-font-weight: bold;");
 
         TableColumn<LoanService.AmortizationEntry, String> balanceCol = new TableColumn<>("Dư nợ còn lại");
-        balanceCol.setCellValueFactory(data -> new SimpleStringProperty(currencyFormat.format(data.getValue().getRemainingBalance())));
+        balanceCol.setCellValueFactory(data -> new SimpleStringProperty(currencyFormat.format(data.getValue().getRemainingBalance().toBigDecimal())));
         balanceCol.setStyle("-fx-alignment: CENTER-RIGHT;");
 
         table.getColumns().addAll(noCol, dateCol, principalCol, interestCol, totalCol, balanceCol);
@@ -0,0 +1,41 @@
+package com.customer.ui;
+
+import com.customer.model.Money;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+
+import java.util.function.Function;
+
+/**
+ * Display helpers for {@link Money}: whole units with grouping, as the
+ * tables and dialogs show amounts, and a cell factory for money columns.
+ */
+public final class MoneyFormat {
+
+    private MoneyFormat() {
+    }
+
+    /** "1,500,000 VND"; "0 VND" for null. */
+    public static String vnd(Money amount) {
+        return (amount != null ? amount.format() : "0") + " VND";
+    }
+
+    /** Shows each cell of {@code column} as grouped whole units. */
+    public static <S> void install(TableColumn<S, Money> column) {
+        install(column, Money::format);
+    }
+
+    public static <S> void install(TableColumn<S, Money> column, Function<Money, String> format) {
+        column.setCellFactory(tc -> new TableCell<>() {
+            @Override
+            protected void updateItem(Money item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                } else {
+                    setText(format.apply(item));
+                }
+            }
+        });
+    }
+}
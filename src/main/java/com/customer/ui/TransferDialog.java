@@ -1,8 +1,10 @@
 package com.customer.ui;
 
 import com.customer.dao.AccountDAO;
+import com.customer.dao.AccountDirectory;
 import com.customer.model.Account;
 import com.customer.model.AccountStatus;
+import com.customer.model.Money;
 import com.customer.model.Transaction;
 import com.customer.service.ReceiptService;
 import com.customer.service.TransactionService;
@@ -16,12 +18,8 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
-import javafx.util.StringConverter;
 
-import java.math.BigDecimal;
-import java.sql.SQLException;
-import java.text.DecimalFormat;
-import java.util.List;
+import java.util.UUID;
 
 public class TransferDialog extends Stage {
 
@@ -29,6 +27,8 @@ public class TransferDialog extends Stage {
     private final TransactionService transactionService;
     private final ReceiptService receiptService;
     private final AccountDAO accountDAO;
+    // One key per dialog: a retried submit returns the first posting instead of a second one
+    private final String idempotencyKey = UUID.randomUUID().toString();
     private boolean success = false;
 
     public TransferDialog(Account sourceAccount) {
@@ -63,30 +63,22 @@ public class TransferDialog extends Stage {
         grid.add(accNumLabel, 1, 0);
 
         grid.add(new Label("Số dư khả dụng:"), 0, 1);
-        Label balanceLabel = new Label(formatCurrency(sourceAccount.getBalance()));
+        Label balanceLabel = new Label(MoneyFormat.vnd(sourceAccount.getBalance()));
         balanceLabel.setStyle("-fx-text-fill: #2980b9; -fx-font-weight: bold;");
         grid.add(balanceLabel, 1, 1);
 
         // Target Account Selection
         grid.add(new Label("Tài khoản đích:"), 0, 2);
-        ComboBox<Account> targetAccountCombo = new ComboBox<>();
-        targetAccountCombo.setPromptText("Chọn tài khoản nhận...");
+        ComboBox<AccountDirectory.Entry> targetAccountCombo = new ComboBox<>();
+        targetAccountCombo.setPromptText("Nhập số tài khoản nhận...");
         targetAccountCombo.setPrefWidth(250);
-        loadTargetAccounts(targetAccountCombo);
-
-        targetAccountCombo.setConverter(new StringConverter<Account>() {
-            @Override
-            public String toString(Account account) {
-                if (account == null) return null;
-                return account.getAccountNumber() + " - " + account.getCustomerName();
-            }
-
-            @Override
-            public Account fromString(String string) {
-                return null; // No need
-            }
-        });
-        grid.add(targetAccountCombo, 1, 2);
+        // Any other active account, including another one of the same customer
+        AccountAutocomplete.install(targetAccountCombo,
+                a -> a.getId() != sourceAccount.getId() && a.getStatus() == AccountStatus.ACTIVE);
+        Label ownerLabel = new Label("");
+        ownerLabel.setStyle("-fx-text-fill: #7f8c8d; -fx-font-size: 11px;");
+        targetAccountCombo.valueProperty().addListener((obs, oldValue, target) -> showOwner(target, ownerLabel));
+        grid.add(new VBox(3, targetAccountCombo, ownerLabel), 1, 2);
 
         // Input Fields
         grid.add(new Label("Số tiền chuyển:"), 0, 3);
@@ -104,18 +96,18 @@ public class TransferDialog extends Stage {
             }
             try {
                 if (!amountField.getText().isEmpty()) {
-                    BigDecimal val = new BigDecimal(amountField.getText());
-                    amountFormatLabel.setText(formatCurrency(val));
-                    if (val.compareTo(sourceAccount.getBalance()) > 0) {
+                    Money val = Money.parse(amountField.getText());
+                    amountFormatLabel.setText(MoneyFormat.vnd(val));
+                    if (val.isGreaterThan(sourceAccount.getBalance())) {
                         amountFormatLabel.setStyle("-fx-text-fill: red; -fx-font-size: 11px;");
-                        amountFormatLabel.setText(formatCurrency(val) + " (Vượt quá số dư!)");
+                        amountFormatLabel.setText(MoneyFormat.vnd(val) + " (Vượt quá số dư!)");
                     } else {
                         amountFormatLabel.setStyle("-fx-text-fill: #7f8c8d; -fx-font-size: 11px;");
                     }
                 } else {
                     amountFormatLabel.setText("");
                 }
-            } catch (NumberFormatException e) {
+            } catch (NumberFormatException | ArithmeticException e) {
                 amountFormatLabel.setText("");
             }
         });
@@ -138,7 +130,7 @@ public class TransferDialog extends Stage {
         Button confirmButton = new Button("Xác nhận chuyển");
         confirmButton.setStyle("-fx-background-color: #8e44ad; -fx-text-fill: white; -fx-font-weight: bold;");
         confirmButton.setOnAction(e -> {
-            handleTransfer(targetAccountCombo.getValue(), amountField.getText(), descField.getText(), printReceiptCb.isSelected());
+            handleTransfer(AccountAutocomplete.selected(targetAccountCombo), amountField.getText(), descField.getText(), printReceiptCb.isSelected());
         });
 
         buttonBox.getChildren().addAll(cancelButton, confirmButton);
@@ -149,20 +141,27 @@ public class TransferDialog extends Stage {
         setScene(scene);
     }
 
-    private void loadTargetAccounts(ComboBox<Account> comboBox) {
-        try {
-            List<Account> accounts = accountDAO.findAll();
-            // Filter out source account, non-active accounts, etc. if needed
-            // Requirement says: "source != target (nhưng cho phép cùng customer)"
-            accounts.removeIf(a -> a.getId() == sourceAccount.getId() || a.getStatus() != AccountStatus.ACTIVE);
-            comboBox.getItems().addAll(accounts);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Lỗi", "Không thể tải danh sách tài khoản");
-        }
+    // The directory has no names; one row tells the user who they are paying
+    private void showOwner(AccountDirectory.Entry target, Label ownerLabel) {
+        ownerLabel.setText("");
+        if (target == null) return;
+        javafx.concurrent.Task<Account> task = new javafx.concurrent.Task<>() {
+            @Override
+            protected Account call() throws Exception {
+                return accountDAO.findById(target.getId());
+            }
+        };
+        task.setOnSucceeded(e -> {
+            Account account = task.getValue();
+            if (account != null) {
+                ownerLabel.setText("Chủ tài khoản: " + account.getCustomerName());
+            }
+        });
+        task.setOnFailed(e -> task.getException().printStackTrace());
+        new Thread(task).start();
     }
 
-    private void handleTransfer(Account targetAccount, String amountStr, String description, boolean printReceipt) {
+    private void handleTransfer(AccountDirectory.Entry targetAccount, String amountStr, String description, boolean printReceipt) {
         if (targetAccount == null) {
             showAlert(Alert.AlertType.ERROR, "Lỗi", "Vui lòng chọn tài khoản đích");
             return;
@@ -178,9 +177,9 @@ public class TransferDialog extends Stage {
         javafx.concurrent.Task<Transaction> task = new javafx.concurrent.Task<>() {
             @Override
             protected Transaction call() throws Exception {
-                BigDecimal amount = new BigDecimal(amountStr);
+                Money amount = Money.parse(amountStr);
                 long userId = SessionManager.getCurrentUser() != null ? SessionManager.getCurrentUser().getId() : 1;
-                return transactionService.transfer(sourceAccount.getId(), targetAccount.getId(), amount, description, userId);
+                return transactionService.transfer(sourceAccount.getId(), targetAccount.getId(), amount, description, userId, idempotencyKey);
             }
         };
 
@@ -214,7 +213,7 @@ public class TransferDialog extends Stage {
             getScene().getRoot().setDisable(false);
             getScene().setCursor(javafx.scene.Cursor.DEFAULT);
             Throwable ex = task.getException();
-            if (ex instanceof NumberFormatException) {
+            if (ex instanceof NumberFormatException || ex instanceof ArithmeticException) {
                 showAlert(Alert.AlertType.ERROR, "Lỗi", "Số tiền không hợp lệ");
             } else {
                 showAlert(Alert.AlertType.ERROR, "Lỗi giao dịch", ex.getMessage());
@@ -233,12 +232,6 @@ public class TransferDialog extends Stage {
         alert.showAndWait();
     }
 
-    private String formatCurrency(BigDecimal amount) {
-        if (amount == null) return "0 VND";
-        DecimalFormat df = new DecimalFormat("#,###");
-        return df.format(amount) + " VND";
-    }
-
     public boolean isSuccess() {
         return success;
     }
@@ -1,6 +1,7 @@
 package com.customer.ui;
 
 import com.customer.model.Account;
+import com.customer.model.Money;
 import com.customer.model.Transaction;
 import com.customer.service.ReceiptService;
 import com.customer.service.TransactionService;
@@ -15,14 +16,16 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
-import java.math.BigDecimal;
-import java.text.DecimalFormat;
+import java.math.RoundingMode;
+import java.util.UUID;
 
 public class WithdrawDialog extends Stage {
 
     private final Account account;
     private final TransactionService transactionService;
     private final ReceiptService receiptService;
+    // One key per dialog: a retried submit returns the first posting instead of a second one
+    private final String idempotencyKey = UUID.randomUUID().toString();
     private boolean success = false;
 
     public WithdrawDialog(Account account) {
@@ -61,7 +64,7 @@ public class WithdrawDialog extends Stage {
         grid.add(ownerLabel, 1, 1);
 
         grid.add(new Label("Số dư hiện tại:"), 0, 2);
-        Label balanceLabel = new Label(formatCurrency(account.getBalance()));
+        Label balanceLabel = new Label(MoneyFormat.vnd(account.getBalance()));
         balanceLabel.setStyle("-fx-text-fill: #2980b9; -fx-font-weight: bold;");
         grid.add(balanceLabel, 1, 2);
 
@@ -87,14 +90,14 @@ public class WithdrawDialog extends Stage {
             }
             try {
                 if (!amountField.getText().isEmpty()) {
-                    BigDecimal val = new BigDecimal(amountField.getText());
-                    amountFormatLabel.setText(formatCurrency(val));
+                    Money val = Money.parse(amountField.getText());
+                    amountFormatLabel.setText(MoneyFormat.vnd(val));
 
                     // Check balance warning
-                    if (val.compareTo(account.getBalance()) > 0) {
+                    if (val.isGreaterThan(account.getBalance())) {
                         amountFormatLabel.setStyle("-fx-text-fill: red; -fx-font-size: 11px;");
-                        amountFormatLabel.setText(formatCurrency(val) + " (Vượt quá số dư!)");
-                    } else if (val.compareTo(account.getBalance().multiply(new BigDecimal("0.8"))) > 0) {
+                        amountFormatLabel.setText(MoneyFormat.vnd(val) + " (Vượt quá số dư!)");
+                    } else if (val.isGreaterThan(account.getBalance().times(4).dividedBy(5, RoundingMode.DOWN))) {
                         warningLabel.setText("Cảnh báo: Bạn đang rút hơn 80% số dư hiện có");
                         amountFormatLabel.setStyle("-fx-text-fill: #7f8c8d; -fx-font-size: 11px;");
                     } else {
@@ -105,7 +108,7 @@ public class WithdrawDialog extends Stage {
                     amountFormatLabel.setText("");
                     warningLabel.setText("");
                 }
-            } catch (NumberFormatException e) {
+            } catch (NumberFormatException | ArithmeticException e) {
                 amountFormatLabel.setText("");
             }
         });
@@ -151,9 +154,9 @@ public class WithdrawDialog extends Stage {
         javafx.concurrent.Task<Transaction> task = new javafx.concurrent.Task<>() {
             @Override
             protected Transaction call() throws Exception {
-                BigDecimal amount = new BigDecimal(amountStr);
+                Money amount = Money.parse(amountStr);
                 long userId = SessionManager.getCurrentUser() != null ? SessionManager.getCurrentUser().getId() : 1;
-                return transactionService.withdraw(account.getId(), amount, description, userId);
+                return transactionService.withdraw(account.getId(), amount, description, userId, idempotencyKey);
             }
         };
 
@@ -187,7 +190,7 @@ public class WithdrawDialog extends Stage {
             getScene().getRoot().setDisable(false);
             getScene().setCursor(javafx.scene.Cursor.DEFAULT);
             Throwable ex = task.getException();
-            if (ex instanceof NumberFormatException) {
+            if (ex instanceof NumberFormatException || ex instanceof ArithmeticException) {
                 showAlert(Alert.AlertType.ERROR, "Lỗi", "Số tiền không hợp lệ");
             } else {
                 showAlert(Alert.AlertType.ERROR, "Lỗi giao dịch", ex.getMessage());
@@ -206,12 +209,6 @@ public class WithdrawDialog extends Stage {
         alert.showAndWait();
     }
 
-    private String formatCurrency(BigDecimal amount) {
-        if (amount == null) return "0 VND";
-        DecimalFormat df = new DecimalFormat("#,###");
-        return df.format(amount) + " VND";
-    }
-
     public boolean isSuccess() {
         return success;
     }
@@ -0,0 +1,163 @@
+package com.customer.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Five-field cron expression: minute, hour, day of month, month and day of
+ * week (0 or 7 is Sunday). Each field takes "*", a value, a range "1-5", any
+ * of those with a step ("10-50/20"; "*" with a step counts every n-th value),
+ * or a comma list of those; names such as JAN or MON are not accepted. When
+ * both day fields are restricted, not starting with "*", a day matches if
+ * either does, as in Vixie cron. "@hourly", "@daily", "@weekly", "@monthly"
+ * and "@yearly" are shorthands. Times are local wall-clock times.
+ */
+public final class CronExpression {
+
+    // Give up looking for a match after this many years (e.g. "0 0 30 2 *")
+    private static final int MAX_YEARS = 5;
+
+    private final String expression;
+    // One bit per allowed value
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    private CronExpression(String expression, String[] fields) {
+        this.expression = expression;
+        this.minutes = parseField(fields[0], 0, 59);
+        this.hours = parseField(fields[1], 0, 23);
+        this.daysOfMonth = parseField(fields[2], 1, 31);
+        this.months = parseField(fields[3], 1, 12);
+        long dow = parseField(fields[4], 0, 7);
+        // 7 is another name for Sunday
+        this.daysOfWeek = (dow & (1L << 7)) != 0 ? (dow | 1L) & ~(1L << 7) : dow;
+        this.anyDayOfMonth = fields[2].startsWith("*");
+        this.anyDayOfWeek = fields[4].startsWith("*");
+    }
+
+    /** @throws IllegalArgumentException if {@code expression} is not a valid five-field expression */
+    public static CronExpression parse(String expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("Cron expression is null");
+        }
+        String text = expression.trim();
+        switch (text) {
+            case "@hourly": text = "0 * * * *"; break;
+            case "@daily": text = "0 0 * * *"; break;
+            case "@weekly": text = "0 0 * * 0"; break;
+            case "@monthly": text = "0 0 1 * *"; break;
+            case "@yearly": text = "0 0 1 1 *"; break;
+            default: break;
+        }
+        String[] fields = text.split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression needs 5 fields: " + expression);
+        }
+        return new CronExpression(expression.trim(), fields);
+    }
+
+    /** The first matching minute strictly after {@code after}, or null if there is none within five years. */
+    public LocalDateTime next(LocalDateTime after) {
+        LocalDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        LocalDateTime limit = time.plusYears(MAX_YEARS);
+        while (time.isBefore(limit)) {
+            if (!matches(months, time.getMonthValue())) {
+                time = time.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay();
+                continue;
+            }
+            if (!matchesDay(time.toLocalDate())) {
+                time = time.toLocalDate().plusDays(1).atStartOfDay();
+                continue;
+            }
+            if (!matches(hours, time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                continue;
+            }
+            int minute = nextSetBit(minutes, time.getMinute());
+            if (minute < 0) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                continue;
+            }
+            return time.withMinute(minute);
+        }
+        return null;
+    }
+
+    private boolean matchesDay(LocalDate date) {
+        boolean dom = matches(daysOfMonth, date.getDayOfMonth());
+        // DayOfWeek is 1 (Monday) to 7 (Sunday); cron counts Sunday as 0
+        boolean dow = matches(daysOfWeek, date.getDayOfWeek().getValue() % 7);
+        if (anyDayOfMonth || anyDayOfWeek) {
+            return dom && dow;
+        }
+        return dom || dow;
+    }
+
+    private static boolean matches(long mask, int value) {
+        return (mask & (1L << value)) != 0;
+    }
+
+    private static int nextSetBit(long mask, int from) {
+        long rest = mask & (-1L << from);
+        return rest == 0 ? -1 : Long.numberOfTrailingZeros(rest);
+    }
+
+    private static long parseField(String field, int min, int max) {
+        long mask = 0;
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseValue(part.substring(slash + 1), 1, max - min + 1, field);
+                part = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if (part.equals("*")) {
+                from = min;
+                to = max;
+            } else {
+                int dash = part.indexOf('-');
+                if (dash >= 0) {
+                    from = parseValue(part.substring(0, dash), min, max, field);
+                    to = parseValue(part.substring(dash + 1), min, max, field);
+                    if (to < from) {
+                        throw new IllegalArgumentException("Range goes backwards in cron field: " + field);
+                    }
+                } else {
+                    from = parseValue(part, min, max, field);
+                    // "5/15" means every 15 from 5
+                    to = slash >= 0 ? max : from;
+                }
+            }
+            for (int value = from; value <= to; value += step) {
+                mask |= 1L << value;
+            }
+        }
+        return mask;
+    }
+
+    private static int parseValue(String text, int min, int max, String field) {
+        int value;
+        try {
+            value = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number in cron field: " + field);
+        }
+        if (value < min || value > max) {
+            throw new IllegalArgumentException("Value " + value + " out of range " + min + "-" + max + " in cron field: " + field);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,113 @@
+package com.customer.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 reader: comma separated, fields optionally in double
+ * quotes, {@code ""} for a quote inside a quoted field, and line breaks allowed
+ * inside quotes. Reads through its own char buffer and reuses one builder, so
+ * the only allocation per record is the fields themselves. A UTF-8 byte order
+ * mark at the start is skipped.
+ */
+public class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder(64);
+    private int position;
+    private int limit;
+    private long line = 1;
+    private long recordLine;
+    private boolean started;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /** The next record's fields, or null at the end of the input. An empty line is a record with one empty field. */
+    public String[] next() throws IOException {
+        if (!started) {
+            started = true;
+            if (fill() && buffer[position] == '\uFEFF') {
+                position++;
+            }
+        }
+        if (position >= limit && !fill()) {
+            return null;
+        }
+        recordLine = line;
+        List<String> fields = new ArrayList<>(16);
+        field.setLength(0);
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (true) {
+            if (position >= limit && !fill()) {
+                if (quoted) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                }
+                fields.add(field.toString());
+                return fields.toArray(new String[0]);
+            }
+            char c = buffer[position++];
+            if (quoted) {
+                if (c == '"') {
+                    if ((position < limit || fill()) && buffer[position] == '"') {
+                        field.append('"');
+                        position++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append(c);
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && (position < limit || fill()) && buffer[position] == '\n') {
+                    position++;
+                }
+                line++;
+                fields.add(field.toString());
+                return fields.toArray(new String[0]);
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+    }
+
+    /** Line on which the record last returned by {@link #next()} started, counting from 1. */
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
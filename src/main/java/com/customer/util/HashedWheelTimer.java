@@ -0,0 +1,152 @@
+package com.customer.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One thread timing any number of coarse delays: a ring of buckets that the
+ * worker steps through once per tick. A timeout goes into the bucket its
+ * deadline falls in, with the number of full turns still to wait, so adding
+ * and cancelling cost the same however many timeouts are pending and however
+ * far out they are. Deadlines are only as precise as the tick.
+ *
+ * Tasks run on the worker thread and should be short; hand real work to an
+ * executor from the task.
+ */
+public class HashedWheelTimer {
+
+    public interface Timeout {
+        /** False if the task already ran or was cancelled before. */
+        boolean cancel();
+    }
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private static final class Entry implements Timeout {
+        final Runnable task;
+        // Nanoseconds after the timer started
+        final long deadline;
+        long rounds;
+        Entry next;
+        final AtomicInteger state = new AtomicInteger(PENDING);
+
+        Entry(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+    }
+
+    private final long tickNanos;
+    private final Entry[] wheel;
+    private final int mask;
+    // Added from any thread, moved into the wheel by the worker
+    private final Queue<Entry> added = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;
+
+    /** {@code wheelSize} is rounded up to a power of two. */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        this.tickNanos = unit.toNanos(tickDuration);
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.wheel = new Entry[size];
+        this.mask = size - 1;
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Runs {@code task} on the timer thread once {@code delay} has passed (rounded up to a tick). */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Entry entry = new Entry(task, System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay)));
+        added.add(entry);
+        return entry;
+    }
+
+    /** Stops the worker; pending timeouts never run. */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (running) {
+            long wakeAt = startNanos + (tick + 1) * tickNanos;
+            long sleep;
+            while (running && (sleep = wakeAt - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            if (!running) {
+                return;
+            }
+            transferAdded();
+            expire(tick & mask);
+            tick++;
+        }
+    }
+
+    private void transferAdded() {
+        Entry entry;
+        while ((entry = added.poll()) != null) {
+            if (entry.state.get() != PENDING) {
+                continue;
+            }
+            // Already overdue: the current bucket
+            long due = Math.max(entry.deadline / tickNanos, tick);
+            entry.rounds = (due - tick) / wheel.length;
+            int bucket = (int) (due & mask);
+            entry.next = wheel[bucket];
+            wheel[bucket] = entry;
+        }
+    }
+
+    private void expire(long bucket) {
+        int index = (int) bucket;
+        Entry previous = null;
+        Entry entry = wheel[index];
+        while (entry != null) {
+            Entry next = entry.next;
+            boolean remove;
+            if (entry.state.get() == CANCELLED) {
+                remove = true;
+            } else if (entry.rounds > 0) {
+                entry.rounds--;
+                remove = false;
+            } else {
+                remove = true;
+                if (entry.state.compareAndSet(PENDING, EXPIRED)) {
+                    try {
+                        entry.task.run();
+                    } catch (Throwable e) {
+                        System.err.println("Timer task failed on " + worker.getName() + ": " + e);
+                    }
+                }
+            }
+            if (remove) {
+                if (previous == null) {
+                    wheel[index] = next;
+                } else {
+                    previous.next = next;
+                }
+                entry.next = null;
+            } else {
+                previous = entry;
+            }
+            entry = next;
+        }
+    }
+}
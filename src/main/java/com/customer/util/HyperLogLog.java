@@ -0,0 +1,78 @@
+package com.customer.util;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog distinct counter over long keys.
+ *
+ * 2^{@value #PRECISION} one-byte registers (4 KB) give a standard error of
+ * about 1.6%. Two sketches merge by taking the register-wise maximum, so
+ * per-day sketches combine into any date range. Small cardinalities use
+ * linear counting, which is close to exact.
+ */
+public class HyperLogLog {
+
+    public static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public void add(long key) {
+        long hash = mix(key);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Rank of the first set bit in the remaining bits; the OR caps it if they are all zero
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) zeros++;
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        return Arrays.copyOf(registers, REGISTERS);
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length != REGISTERS) {
+            throw new IllegalArgumentException("Expected " + REGISTERS + " registers, got " + bytes.length);
+        }
+        return new HyperLogLog(Arrays.copyOf(bytes, REGISTERS));
+    }
+
+    // SplitMix64 finalizer: ids are sequential, registers need well-spread bits
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,195 @@
+package com.customer.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * KLL quantile sketch over doubles.
+ *
+ * Values go into level 0. When a level outgrows its capacity it is sorted and
+ * every other item (random offset) moves up one level with twice the weight.
+ * Capacities shrink geometrically towards the lower levels, so the sketch
+ * holds O(k) items whatever the stream length, with rank error around 1.7%
+ * for the default k of 200. Sketches merge level by level.
+ */
+public class KllSketch {
+
+    private static final int DEFAULT_K = 200;
+    private static final double DECAY = 2.0 / 3.0;
+    private static final int MIN_CAPACITY = 8;
+
+    private final int k;
+    private final List<double[]> levels = new ArrayList<>();
+    private final List<Integer> sizes = new ArrayList<>();
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    public KllSketch(int k) {
+        this.k = k;
+        addLevel();
+    }
+
+    public void update(double value) {
+        append(0, value);
+        count++;
+        min = Double.isNaN(min) ? value : Math.min(min, value);
+        max = Double.isNaN(max) ? value : Math.max(max, value);
+        compress();
+    }
+
+    public void merge(KllSketch other) {
+        if (other.count == 0) return;
+        for (int h = 0; h < other.levels.size(); h++) {
+            double[] items = other.levels.get(h);
+            for (int i = 0, n = other.sizes.get(h); i < n; i++) {
+                append(h, items[i]);
+            }
+        }
+        count += other.count;
+        min = Double.isNaN(min) ? other.min : Math.min(min, other.min);
+        max = Double.isNaN(max) ? other.max : Math.max(max, other.max);
+        compress();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /** Approximate value at rank {@code q} (0..1); NaN when empty. */
+    public double quantile(double q) {
+        if (count == 0) return Double.NaN;
+        if (q <= 0) return min;
+        if (q >= 1) return max;
+
+        int total = 0;
+        for (int size : sizes) total += size;
+        double[] values = new double[total];
+        long[] weights = new long[total];
+        int n = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            double[] items = levels.get(h);
+            for (int i = 0; i < sizes.get(h); i++) {
+                values[n] = items[i];
+                weights[n] = 1L << h;
+                n++;
+            }
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+        long totalWeight = 0;
+        for (long weight : weights) totalWeight += weight;
+        double target = q * totalWeight;
+        long cumulative = 0;
+        for (int i : order) {
+            cumulative += weights[i];
+            if (cumulative >= target) return values[i];
+        }
+        return max;
+    }
+
+    // --- Compaction ---
+
+    private int capacity(int level) {
+        int depth = levels.size() - 1 - level;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(DECAY, depth)));
+    }
+
+    private void compress() {
+        for (int h = 0; h < levels.size(); h++) {
+            int size = sizes.get(h);
+            if (size < capacity(h)) continue;
+            if (h + 1 == levels.size()) addLevel();
+
+            double[] items = levels.get(h);
+            Arrays.sort(items, 0, size);
+            // An odd item out stays at this level so no weight is lost
+            int pairs = size / 2;
+            int offset = ThreadLocalRandom.current().nextInt(2);
+            for (int i = 0; i < pairs; i++) {
+                append(h + 1, items[2 * i + offset]);
+            }
+            if (size % 2 == 1) {
+                items[0] = items[size - 1];
+                sizes.set(h, 1);
+            } else {
+                sizes.set(h, 0);
+            }
+        }
+    }
+
+    private void addLevel() {
+        levels.add(new double[MIN_CAPACITY]);
+        sizes.add(0);
+    }
+
+    private void append(int level, double value) {
+        while (level >= levels.size()) addLevel();
+        double[] items = levels.get(level);
+        int size = sizes.get(level);
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            levels.set(level, items);
+        }
+        items[size] = value;
+        sizes.set(level, size + 1);
+    }
+
+    // --- Serialization ---
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(k);
+            out.writeLong(count);
+            out.writeDouble(min);
+            out.writeDouble(max);
+            out.writeByte(levels.size());
+            for (int h = 0; h < levels.size(); h++) {
+                double[] items = levels.get(h);
+                int size = sizes.get(h);
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    out.writeDouble(items[i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static KllSketch fromBytes(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            KllSketch sketch = new KllSketch(in.readShort());
+            sketch.count = in.readLong();
+            sketch.min = in.readDouble();
+            sketch.max = in.readDouble();
+            int levelCount = in.readByte();
+            for (int h = 0; h < levelCount; h++) {
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    sketch.append(h, in.readDouble());
+                }
+            }
+            return sketch;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt quantile sketch", e);
+        }
+    }
+}
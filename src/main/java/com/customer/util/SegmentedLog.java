@@ -0,0 +1,320 @@
+package com.customer.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local log of byte records in memory-mapped, fixed-size segment files.
+ *
+ * Each record gets the next sequence number and is written as
+ * {@code [length][sequence][crc][payload]}; the CRC covers the sequence and the
+ * payload. A segment is named after its first sequence number, and a new one is
+ * started when the next record does not fit. Segment files are zero-filled when
+ * created, so a zero length marks the end of the written data.
+ *
+ * A record is in the page cache as soon as {@link #append} returns and survives
+ * a crash of the process; {@link #force} makes everything appended so far
+ * durable against power loss too. {@link #read} only hands out records that
+ * have been forced, so a consumer never acts on (and checkpoints past) a
+ * record that a power loss could still take back. On open, the last segment
+ * is scanned and the log ends at the first torn or corrupt record.
+ *
+ * Sequence numbers start at 1. A consumer keeps its position with
+ * {@link #writeCheckpoint}; on open, numbering resumes above the highest
+ * checkpoint in the directory, so a record lost to a crash can never have its
+ * number reused for one a consumer would then skip. Segments that only hold
+ * records below a given sequence can be dropped with {@link #deleteBefore}.
+ */
+public class SegmentedLog implements Closeable {
+
+    private static final int HEADER = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final String SUFFIX = ".seg";
+    private static final String CHECKPOINT_SUFFIX = ".ckpt";
+
+    public interface RecordHandler {
+        void onRecord(long sequence, byte[] payload);
+    }
+
+    private final Path dir;
+    private final int segmentBytes;
+    // First sequence number of each segment -> its file
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+    private long nextSequence;
+    // Every record up to here has been forced to disk
+    private long durableSequence;
+    private boolean dirty;
+
+    public SegmentedLog(Path dir, int segmentBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file);
+            }
+        }
+        long floor = highestCheckpoint() + 1;
+        if (segments.isEmpty()) {
+            startSegment(Math.max(1, floor));
+        } else {
+            recover();
+            if (nextSequence < floor) {
+                skipTo(floor);
+            }
+        }
+        durableSequence = nextSequence - 1;
+    }
+
+    public synchronized long getNextSequence() {
+        return nextSequence;
+    }
+
+    /** The last sequence number that has been forced to disk; {@link #read} stops there. */
+    public synchronized long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /** Appends one record and returns its sequence number. */
+    public synchronized long append(byte[] payload) throws IOException {
+        if (HEADER + payload.length > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a segment");
+        }
+        if (active.remaining() < HEADER + payload.length) {
+            // Seal the full segment before moving on
+            active.force();
+            durableSequence = nextSequence - 1;
+            activeChannel.close();
+            startSegment(nextSequence);
+        }
+        long sequence = nextSequence++;
+        active.putInt(payload.length);
+        active.putLong(sequence);
+        active.putInt(crc(sequence, payload, 0, payload.length));
+        active.put(payload);
+        dirty = true;
+        return sequence;
+    }
+
+    /**
+     * Flushes everything appended so far to disk and returns the last sequence number
+     * it covers. Appends are not blocked while the flush runs; they go out with the next one.
+     */
+    public long force() {
+        MappedByteBuffer buffer;
+        long last;
+        synchronized (this) {
+            if (!dirty) {
+                // A flush still in progress on another thread has not covered its records yet
+                return durableSequence;
+            }
+            last = nextSequence - 1;
+            buffer = active;
+            dirty = false;
+        }
+        try {
+            buffer.force();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            durableSequence = Math.max(durableSequence, last);
+            return durableSequence;
+        }
+    }
+
+    /** The sequence number last stored under {@code name} by {@link #writeCheckpoint}, or 0. */
+    public long readCheckpoint(String name) throws IOException {
+        Path file = dir.resolve(name + CHECKPOINT_SUFFIX);
+        return Files.exists(file) ? ByteBuffer.wrap(Files.readAllBytes(file)).getLong() : 0;
+    }
+
+    /** Durably stores a consumer's position; written aside and renamed, so a crash leaves the old or the new value. */
+    public void writeCheckpoint(String name, long sequence) throws IOException {
+        Path tmp = dir.resolve(name + CHECKPOINT_SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence));
+            channel.force(false);
+        }
+        Files.move(tmp, dir.resolve(name + CHECKPOINT_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads up to {@code max} durable records starting at {@code fromSequence}, in order;
+     * records appended since the last {@link #force} are left for a later read.
+     * Returns the number of records handed to {@code handler}.
+     */
+    public synchronized int read(long fromSequence, int max, RecordHandler handler) throws IOException {
+        int read = 0;
+        if (fromSequence > durableSequence) {
+            return 0;
+        }
+        Map.Entry<Long, Path> segment = segments.floorEntry(fromSequence);
+        if (segment == null) {
+            segment = segments.firstEntry();
+        }
+        while (segment != null && read < max) {
+            boolean isActive = segment.getKey().equals(segments.lastKey());
+            ByteBuffer buffer;
+            if (isActive) {
+                buffer = active.duplicate();
+                buffer.limit(active.position());
+                buffer.position(0);
+            } else {
+                try (FileChannel channel = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            }
+            while (read < max && buffer.remaining() >= HEADER) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining() - Long.BYTES - Integer.BYTES) {
+                    break;
+                }
+                long sequence = buffer.getLong();
+                int crc = buffer.getInt();
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                if (crc != crc(sequence, payload, 0, length)) {
+                    System.err.println("Corrupt record " + sequence + " in " + segment.getValue() + ", skipping rest of segment");
+                    break;
+                }
+                if (sequence > durableSequence) {
+                    return read;
+                }
+                if (sequence >= fromSequence) {
+                    handler.onRecord(sequence, payload);
+                    read++;
+                }
+            }
+            if (isActive) {
+                break;
+            }
+            segment = segments.higherEntry(segment.getKey());
+        }
+        return read;
+    }
+
+    /** Deletes the segments whose records all have sequence numbers below {@code sequence}. */
+    public synchronized void deleteBefore(long sequence) throws IOException {
+        List<Long> sealed = new ArrayList<>(segments.headMap(segments.lastKey()).keySet());
+        for (Long first : sealed) {
+            Long next = segments.higherKey(first);
+            if (next > sequence) {
+                break;
+            }
+            Files.deleteIfExists(segments.remove(first));
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        activeChannel.close();
+    }
+
+    // --- Segments ---
+
+    private void startSegment(long firstSequence) throws IOException {
+        Path file = dir.resolve(String.format("%020d%s", firstSequence, SUFFIX));
+        activeChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segments.put(firstSequence, file);
+        nextSequence = firstSequence;
+    }
+
+    // Reopens the last segment and finds where its valid records end
+    private void recover() throws IOException {
+        long first = segments.lastKey();
+        Path file = segments.get(first);
+        activeChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, activeChannel.size()));
+
+        long expected = first;
+        while (active.remaining() >= HEADER) {
+            int start = active.position();
+            int length = active.getInt();
+            if (length <= 0 || length > active.remaining() - Long.BYTES - Integer.BYTES) {
+                active.position(start);
+                break;
+            }
+            long sequence = active.getLong();
+            int crc = active.getInt();
+            byte[] payload = new byte[length];
+            active.get(payload);
+            if (sequence != expected || crc != crc(sequence, payload, 0, length)) {
+                // Torn write from a crash: drop it and everything after it
+                System.err.println("Truncating " + file + " at record " + expected);
+                active.position(start);
+                break;
+            }
+            expected++;
+        }
+        // Zero out whatever follows, so a later scan does not mistake it for records
+        for (int i = active.position(); i < active.capacity(); i++) {
+            if (active.get(i) != 0) {
+                active.put(i, (byte) 0);
+                dirty = true;
+            }
+        }
+        // What survived may still be only in the page cache if the process (not the machine) crashed
+        active.force();
+        dirty = false;
+        nextSequence = expected;
+    }
+
+    /**
+     * Records up to a consumer's checkpoint were lost (a power loss took back more than
+     * was forced, or the files were restored from an older copy). Numbering restarts in
+     * a new segment at {@code sequence}; segment names must match their first record.
+     */
+    private void skipTo(long sequence) throws IOException {
+        System.err.println("Log in " + dir + " ends at " + (nextSequence - 1)
+                + " but was consumed up to " + (sequence - 1) + "; continuing from " + sequence);
+        long first = segments.lastKey();
+        activeChannel.close();
+        if (active.position() == 0) {
+            Files.deleteIfExists(segments.remove(first));
+        }
+        startSegment(sequence);
+    }
+
+    private long highestCheckpoint() throws IOException {
+        long highest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + CHECKPOINT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                highest = Math.max(highest, readCheckpoint(name.substring(0, name.length() - CHECKPOINT_SUFFIX.length())));
+            }
+        }
+        return highest;
+    }
+
+    private static int crc(long sequence, byte[] payload, int offset, int length) {
+        CRC32 crc = new CRC32();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (sequence >>> shift));
+        }
+        crc.update(payload, offset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,175 @@
+package com.customer.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted Space-Saving summary for heavy hitters over long keys.
+ *
+ * Keeps at most {@code capacity} counters in a min-heap. A key that is not
+ * tracked while the summary is full takes over the smallest counter and
+ * inherits its count as error, so every estimate is an upper bound and is at
+ * most {@code error} above the true weight. Any key whose true weight exceeds
+ * total / capacity is guaranteed to be tracked.
+ *
+ * Not thread-safe; callers synchronize.
+ */
+public class SpaceSaving {
+
+    public static final class Entry {
+        private final long key;
+        private final long count;
+        private final long error;
+
+        Entry(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long getKey() { return key; }
+
+        /** Estimated weight, never below the true weight. */
+        public long getCount() { return count; }
+
+        /** Maximum overestimate contained in {@link #getCount()}. */
+        public long getError() { return error; }
+    }
+
+    private final int capacity;
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<Long, Integer> slotOf;
+    private int size;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.slotOf = new HashMap<>(capacity * 2);
+    }
+
+    public void add(long key, long weight) {
+        if (weight <= 0) return;
+        total += weight;
+
+        Integer slot = slotOf.get(key);
+        if (slot != null) {
+            counts[slot] += weight;
+            siftDown(slot);
+        } else if (size < capacity) {
+            keys[size] = key;
+            counts[size] = weight;
+            errors[size] = 0;
+            slotOf.put(key, size);
+            siftUp(size++);
+        } else {
+            // Evict the smallest counter; the newcomer may have been counted there all along
+            slotOf.remove(keys[0]);
+            keys[0] = key;
+            errors[0] = counts[0];
+            counts[0] += weight;
+            slotOf.put(key, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Merges {@code other} into this summary as if both streams had been added here
+     * (the mergeable-summaries merge for Space-Saving). A key missing from a full
+     * side may still have weight there, up to that side's smallest count, so that
+     * count is added to its estimate and its error; a side that is not full has
+     * counted every key exactly. Of the combined counters, the {@code capacity}
+     * largest are kept. Estimates stay upper bounds, each at most its error above the
+     * true weight, and the errors stay within total / capacity.
+     */
+    public void addAll(SpaceSaving other) {
+        long thisMin = size == capacity ? counts[0] : 0;
+        long otherMin = other.size == other.capacity ? other.counts[0] : 0;
+
+        List<Entry> merged = new ArrayList<>(size + other.size);
+        for (int i = 0; i < size; i++) {
+            Integer slot = other.slotOf.get(keys[i]);
+            merged.add(slot != null
+                    ? new Entry(keys[i], counts[i] + other.counts[slot], errors[i] + other.errors[slot])
+                    : new Entry(keys[i], counts[i] + otherMin, errors[i] + otherMin));
+        }
+        for (int i = 0; i < other.size; i++) {
+            if (!slotOf.containsKey(other.keys[i])) {
+                merged.add(new Entry(other.keys[i], other.counts[i] + thisMin, other.errors[i] + thisMin));
+            }
+        }
+        merged.sort((a, b) -> Long.compare(b.count, a.count));
+
+        slotOf.clear();
+        size = 0;
+        for (Entry entry : merged.subList(0, Math.min(capacity, merged.size()))) {
+            keys[size] = entry.key;
+            counts[size] = entry.count;
+            errors[size] = entry.error;
+            slotOf.put(entry.key, size);
+            siftUp(size++);
+        }
+        total += other.total;
+    }
+
+    /** The {@code k} largest counters, largest first. */
+    public List<Entry> top(int k) {
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry(keys[i], counts[i], errors[i]));
+        }
+        entries.sort((a, b) -> Long.compare(b.count, a.count));
+        return entries.size() > k ? new ArrayList<>(entries.subList(0, k)) : entries;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // --- Min-heap on counts ---
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (counts[parent] <= counts[i]) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+            int right = left + 1;
+            int smallest = right < size && counts[right] < counts[left] ? right : left;
+            if (counts[i] <= counts[smallest]) break;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        long count = counts[a];
+        long error = errors[a];
+        keys[a] = keys[b];
+        counts[a] = counts[b];
+        errors[a] = errors[b];
+        keys[b] = key;
+        counts[b] = count;
+        errors[b] = error;
+        slotOf.put(keys[a], a);
+        slotOf.put(keys[b], b);
+    }
+}
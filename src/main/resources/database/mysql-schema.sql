@@ -88,6 +88,7 @@ CREATE INDEX idx_transactions_target_account ON transactions(target_account_id);
 CREATE INDEX idx_transactions_type ON transactions(transaction_type);
 CREATE INDEX idx_transactions_date ON transactions(created_date);
 CREATE INDEX idx_transactions_ref ON transactions(reference_number);
+CREATE INDEX idx_transactions_account_date ON transactions(account_id, created_date, id);
 
 -- Loans table
 CREATE TABLE IF NOT EXISTS loans (
@@ -122,3 +123,116 @@ CREATE INDEX idx_loans_customer_id ON loans(customer_id);
 CREATE INDEX idx_loans_loan_number ON loans(loan_number);
 CREATE INDEX idx_loans_status ON loans(status);
 CREATE INDEX idx_loans_approved_by ON loans(approved_by);
+
+-- Replication heartbeat: written to the primary every second, read from the
+-- read replica to measure its lag (epoch millis)
+CREATE TABLE IF NOT EXISTS replication_heartbeat (
+    id INT PRIMARY KEY,
+    beat_time BIGINT NOT NULL
+);
+
+-- Change log: one row per mutation, written in the same transaction.
+-- Other app instances tail it to invalidate their in-memory state.
+CREATE TABLE IF NOT EXISTS change_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entity VARCHAR(20) NOT NULL,  -- ACCOUNT, CUSTOMER, LOAN, TRANSACTION
+    entity_id BIGINT NOT NULL,
+    operation VARCHAR(10) NOT NULL,  -- INSERT, UPDATE, DELETE
+    instance_id CHAR(36) NOT NULL,  -- App instance that made the change
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+);
+
+CREATE INDEX idx_change_log_created_at ON change_log(created_at);
+
+-- Analytics sketches: one compact, mergeable sketch per day and metric.
+-- Closed days are written once; date ranges merge the stored days.
+CREATE TABLE IF NOT EXISTS analytics_sketches (
+    sketch_day DATE NOT NULL,
+    metric VARCHAR(30) NOT NULL,  -- DISTINCT_CUSTOMERS, AMOUNT_QUANTILES
+    dimension VARCHAR(30) NOT NULL DEFAULT '',  -- Transaction type for AMOUNT_QUANTILES
+    payload MEDIUMBLOB NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (sketch_day, metric, dimension)
+);
+
+-- Idempotency keys: one row per keyed posting, written in the posting's transaction.
+-- A retry with the same key gets the original transaction back.
+CREATE TABLE IF NOT EXISTS idempotency (
+    idem_key VARCHAR(64) PRIMARY KEY,
+    request VARCHAR(100) NOT NULL,  -- Type, accounts and amount of the original request
+    transaction_id BIGINT NOT NULL,
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+);
+
+CREATE INDEX idx_idempotency_created_at ON idempotency(created_at);
+
+-- Audit trail: logins, account status changes, loan decisions and exports.
+-- Delivered in batches from each instance's local journal; (source, seq) makes redelivery harmless.
+CREATE TABLE IF NOT EXISTS audit_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    source CHAR(36) NOT NULL,  -- Journal (app instance) the event came from
+    seq BIGINT NOT NULL,  -- Position in that journal
+    occurred_at TIMESTAMP(3) NOT NULL,
+    user_id BIGINT,
+    username VARCHAR(50),
+    action VARCHAR(30) NOT NULL,  -- LOGIN_SUCCESS, ACCOUNT_FROZEN, LOAN_APPROVED, REPORT_EXPORTED, CUSTOMER_MERGED, ...
+    entity_type VARCHAR(20),
+    entity_id BIGINT,
+    detail VARCHAR(500),
+    UNIQUE KEY uk_audit_log_source_seq (source, seq)
+);
+
+CREATE INDEX idx_audit_log_occurred_at ON audit_log(occurred_at);
+CREATE INDEX idx_audit_log_action_occurred_at ON audit_log(action, occurred_at);
+CREATE INDEX idx_audit_log_username_occurred_at ON audit_log(username, occurred_at);
+
+-- Named counters handed out in ranges, e.g. account numbers for bulk imports.
+-- last_value is the highest number handed out so far.
+CREATE TABLE IF NOT EXISTS sequences (
+    name VARCHAR(30) PRIMARY KEY,
+    last_value BIGINT NOT NULL
+);
+
+-- Customer segmentation runs. The newest finished run is the watermark for
+-- the next incremental run.
+CREATE TABLE IF NOT EXISTS segmentation_runs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    mode VARCHAR(12) NOT NULL,  -- FULL, INCREMENTAL
+    started_at TIMESTAMP(3) NOT NULL,  -- Database time the run started; changes after it are picked up next time
+    volume_from DATETIME NOT NULL,  -- Start of the transaction volume window used
+    scored INT NOT NULL,
+    changed INT NOT NULL,
+    millis BIGINT NOT NULL
+);
+
+-- Scheduled jobs, one row per job. Whoever holds the lease runs the job; a
+-- RUNNING job whose lease ran out is resumed from its checkpoint by the next
+-- instance that looks. next_run_at is only moved on by the instance that won.
+CREATE TABLE IF NOT EXISTS scheduled_jobs (
+    name VARCHAR(50) PRIMARY KEY,
+    schedule VARCHAR(100) NOT NULL,  -- Cron expression
+    enabled BOOLEAN NOT NULL DEFAULT TRUE,
+    status VARCHAR(10) NOT NULL DEFAULT 'IDLE',  -- IDLE, RUNNING
+    next_run_at DATETIME(3) NOT NULL,
+    due_at DATETIME(3),  -- Fire time served by the current or last run
+    lease_owner CHAR(36),  -- App instance running the job
+    lease_until DATETIME(3),
+    checkpoint VARCHAR(1000),  -- Job-defined progress of the current run
+    run_id BIGINT  -- job_runs row of the current or last run
+);
+
+-- One row per run of a scheduled job.
+CREATE TABLE IF NOT EXISTS job_runs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    job_name VARCHAR(50) NOT NULL,
+    instance_id CHAR(36) NOT NULL,
+    due_at DATETIME(3) NOT NULL,
+    started_at DATETIME(3) NOT NULL,
+    finished_at DATETIME(3),
+    status VARCHAR(10) NOT NULL,  -- RUNNING, SUCCEEDED, FAILED, ABANDONED
+    resumed BOOLEAN NOT NULL DEFAULT FALSE,  -- Picked up from another run's checkpoint
+    millis BIGINT,
+    message VARCHAR(500)
+);
+
+CREATE INDEX idx_job_runs_job_started_at ON job_runs(job_name, started_at);